@@ -26,6 +26,7 @@ import javax.validation.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +61,9 @@ public class FeastProperties {
   /* Feast Kafka stream properties */
   private StreamProperties stream;
 
+  /* Feature set registry properties */
+  @NotNull private RegistryProperties registry = new RegistryProperties();
+
   /** Feast job properties. These properties are used for ingestion jobs. */
   @Getter
   @Setter
@@ -96,7 +100,7 @@ public class FeastProperties {
       /** Job runner name. This must be unique. */
       String name;
 
-      /** Job runner type DirectRunner, DataflowRunner currently supported */
+      /** Job runner type DirectRunner, DataflowRunner, StandaloneRunner currently supported */
       String type;
 
       /**
@@ -122,8 +126,51 @@ public class FeastProperties {
     /* Timeout in seconds for each attempt to update or submit a new job to the runner */
     @Positive private long jobUpdateTimeoutSeconds;
 
-    /* Job update polling interval in millisecond. How frequently Feast will update running jobs. */
+    /* Job update polling interval in millisecond. How frequently Feast checks for changes that
+    require jobs to be started or updated. */
     @Positive private long pollingIntervalMilliseconds;
+
+    /* Job status polling interval in milliseconds. How frequently Feast refreshes the status of
+    running jobs from the runner. */
+    @Positive private long statusPollingIntervalMilliseconds = 60000;
+
+    /* Maximum number of jobs started or updated concurrently. */
+    @Positive private int jobUpdateThreads = 8;
+
+    /* Maximum number of sources read by a single job. Feature sets of several sources that are
+    written to the same store are packed into one job, up to this number of sources. */
+    @Positive private int maxSourcesPerJob = 1;
+
+    /* Number of jobs that the feature sets read from a group of sources and written to the same
+    store are split across. Feature sets are assigned to shards by the hash of their reference. */
+    @Positive private int shardsPerSource = 1;
+
+    /* Interval in seconds at which running Redis jobs refresh their feature set specs from Core.
+    Jobs that refresh their specs pick up added features without being restarted. Disabled if 0. */
+    @PositiveOrZero private int specsRefreshIntervalSeconds = 0;
+
+    /* Address of this Core instance, in host:port format, as reachable from the jobs. */
+    private String coreAddress = "localhost:6565";
+
+    /* Division of job coordination between Core instances sharing a database. */
+    @NotNull private CoordinatorProperties coordinator = new CoordinatorProperties();
+
+    /** Properties of the coordination of jobs between Core instances. */
+    @Getter
+    @Setter
+    public static class CoordinatorProperties {
+
+      /* Whether Core instances lease partitions of the jobs to coordinate from the database. Must be
+      enabled if more than one Core instance shares a database. */
+      private boolean leaseEnabled = false;
+
+      /* Number of partitions that jobs are divided into by store, each coordinated by one
+      instance. */
+      @Positive private int partitions = 1;
+
+      /* Duration in seconds of partition leases, within which an instance that stopped is replaced. */
+      @Positive private int leaseSeconds = 60;
+    }
   }
 
   /** Properties used to configure Feast's managed Kafka feature stream. */
@@ -161,6 +208,18 @@ public class FeastProperties {
     }
   }
 
+  /** Feature set registry properties. */
+  @Getter
+  @Setter
+  public static class RegistryProperties {
+
+    /*
+     * Interval in milliseconds at which the registry version is read from the database, to pick up
+     * changes made through other Core instances.
+     */
+    @Positive private long versionPollingIntervalMilliseconds = 1000;
+  }
+
   /** Feast population job metrics */
   @Getter
   @Setter
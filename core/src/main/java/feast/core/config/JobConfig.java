@@ -21,6 +21,8 @@ import feast.core.job.JobManager;
 import feast.core.job.dataflow.DataflowJobManager;
 import feast.core.job.direct.DirectJobRegistry;
 import feast.core.job.direct.DirectRunnerJobManager;
+import feast.core.job.standalone.StandaloneJobManager;
+import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +46,17 @@ public class JobConfig {
     JobProperties jobProperties = feastProperties.getJobs();
     FeastProperties.JobProperties.Runner runner = jobProperties.getActiveRunner();
     Map<String, String> runnerConfigOptions = runner.getOptions();
+    if (jobProperties.getSpecsRefreshIntervalSeconds() > 0) {
+      runnerConfigOptions = new HashMap<>(runnerConfigOptions);
+      runnerConfigOptions.put(
+          "specsRefreshIntervalSec",
+          String.valueOf(jobProperties.getSpecsRefreshIntervalSeconds()));
+      runnerConfigOptions.put("coreAddress", jobProperties.getCoreAddress());
+    }
+    if (jobProperties.getShardsPerSource() > 1) {
+      runnerConfigOptions = new HashMap<>(runnerConfigOptions);
+      runnerConfigOptions.put("shardCount", String.valueOf(jobProperties.getShardsPerSource()));
+    }
     FeastProperties.MetricsProperties metrics = jobProperties.getMetrics();
 
     switch (runner.getType()) {
@@ -51,6 +64,8 @@ public class JobConfig {
         return new DataflowJobManager(runnerConfigOptions, metrics);
       case DIRECT:
         return new DirectRunnerJobManager(runnerConfigOptions, new DirectJobRegistry(), metrics);
+      case STANDALONE:
+        return new StandaloneJobManager(runnerConfigOptions, metrics);
       default:
         throw new IllegalArgumentException("Unsupported runner: " + runner);
     }
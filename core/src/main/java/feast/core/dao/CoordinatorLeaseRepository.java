@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.dao;
+
+import feast.core.model.CoordinatorLease;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/** JPA repository supplying CoordinatorLease objects keyed by name. */
+public interface CoordinatorLeaseRepository extends JpaRepository<CoordinatorLease, String> {
+
+  // Current time of the database. Leases are timed by the database rather than by the clocks of
+  // the instances holding them, which may be skewed.
+  @Query(value = "SELECT CURRENT_TIMESTAMP", nativeQuery = true)
+  Date getCurrentTimestamp();
+
+  // Take over or renew an existing lease, if it is held by the given holder or has expired by the
+  // time of the database.
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE CoordinatorLease l SET l.holder = :holder, l.expiresAt = :expiresAt "
+          + "WHERE l.name = :name AND (l.holder = :holder OR l.expiresAt < CURRENT_TIMESTAMP)")
+  int renew(
+      @Param("name") String name,
+      @Param("holder") String holder,
+      @Param("expiresAt") Date expiresAt);
+
+  // Create a lease. Fails if a lease of the same name exists, unlike save, which would overwrite
+  // it.
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO coordinator_leases (name, holder, expires_at) "
+              + "VALUES (:name, :holder, :expiresAt)",
+      nativeQuery = true)
+  int create(
+      @Param("name") String name,
+      @Param("holder") String holder,
+      @Param("expiresAt") Date expiresAt);
+
+  // Give up a lease held by the given holder.
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE CoordinatorLease l SET l.expiresAt = :now "
+          + "WHERE l.name = :name AND l.holder = :holder")
+  int release(@Param("name") String name, @Param("holder") String holder, @Param("now") Date now);
+
+  // Remove expired leases whose name starts with the given prefix.
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM CoordinatorLease l WHERE l.name LIKE :prefix% AND l.expiresAt < :before")
+  int deleteExpired(@Param("prefix") String prefix, @Param("before") Date before);
+
+  // find all unexpired leases whose name starts with the given prefix
+  List<CoordinatorLease> findAllByNameStartingWithAndExpiresAtAfter(String prefix, Date now);
+}
@@ -17,8 +17,13 @@
 package feast.core.dao;
 
 import feast.core.model.FeatureSet;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /** JPA repository supplying FeatureSet objects keyed by id. */
 public interface FeatureSetRepository extends JpaRepository<FeatureSet, String> {
@@ -28,13 +33,33 @@ public interface FeatureSetRepository extends JpaRepository<FeatureSet, String>
   // Find single feature set by project and name
   FeatureSet findFeatureSetByNameAndProject_Name(String name, String project);
 
-  // find all feature sets and order by name
-  List<FeatureSet> findAllByOrderByNameAsc();
+  // find all feature sets, fetching their project, entities, features and source in a single query
+  @EntityGraph(attributePaths = {"project", "entities", "features", "source"})
+  @Query("SELECT DISTINCT fs FROM FeatureSet fs")
+  List<FeatureSet> findAllWithFields();
 
-  // find all feature sets matching the given name pattern with a specific project.
-  List<FeatureSet> findAllByNameLikeAndProject_NameOrderByNameAsc(String name, String project_name);
+  // find the feature sets with any of the given names in any of the given projects, fetching their
+  // fields in a single query
+  @EntityGraph(attributePaths = {"project", "entities", "features", "source"})
+  List<FeatureSet> findAllByNameInAndProject_NameIn(
+      Collection<String> names, Collection<String> projects);
 
-  // find all feature sets matching the given name pattern and project pattern
-  List<FeatureSet> findAllByNameLikeAndProject_NameLikeOrderByNameAsc(
-      String name, String project_name);
+  // find the ids of the feature sets matching the given name and project LIKE patterns that come
+  // after the given feature set name and project, ordered by feature set name and project
+  @Query(
+      "SELECT fs.id FROM FeatureSet fs"
+          + " WHERE fs.name LIKE :name ESCAPE '\\' AND fs.project.name LIKE :project ESCAPE '\\'"
+          + " AND (fs.name > :afterName"
+          + " OR (fs.name = :afterName AND fs.project.name > :afterProject))"
+          + " ORDER BY fs.name, fs.project.name")
+  List<Long> findIdsByNameLikeAndProjectLikeAfter(
+      @Param("name") String name,
+      @Param("project") String project,
+      @Param("afterName") String afterName,
+      @Param("afterProject") String afterProject,
+      Pageable pageable);
+
+  // find the feature sets with the given ids, fetching their fields in a single query
+  @EntityGraph(attributePaths = {"project", "entities", "features", "source"})
+  List<FeatureSet> findAllWithFieldsByIdIn(Collection<Long> ids);
 }
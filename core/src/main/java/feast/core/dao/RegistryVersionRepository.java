@@ -0,0 +1,48 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.dao;
+
+import feast.core.model.RegistryVersion;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/** JPA repository supplying the RegistryVersion. */
+public interface RegistryVersionRepository extends JpaRepository<RegistryVersion, Integer> {
+
+  // Increment the registry version by the given number of changes. The row stays locked until the
+  // calling transaction ends, so that concurrent changes are numbered in the order they commit.
+  @Transactional
+  @Modifying
+  @Query("UPDATE RegistryVersion v SET v.version = v.version + :changes")
+  int increment(@Param("changes") long changes);
+
+  // Create the registry version. Fails if it already exists, unlike save, which would overwrite it.
+  @Transactional
+  @Modifying
+  @Query(
+      value = "INSERT INTO registry_version (id, version) VALUES (:id, :version)",
+      nativeQuery = true)
+  int create(@Param("id") int id, @Param("version") long version);
+
+  // find the current registry version
+  @Query("SELECT v.version FROM RegistryVersion v")
+  Optional<Long> findVersion();
+}
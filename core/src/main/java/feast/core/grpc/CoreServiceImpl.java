@@ -22,11 +22,14 @@ import feast.core.exception.RetrievalException;
 import feast.core.grpc.interceptors.MonitoringInterceptor;
 import feast.core.model.Project;
 import feast.core.service.AccessManagementService;
+import feast.core.service.FeatureSetWatchService;
 import feast.core.service.JobService;
 import feast.core.service.SpecService;
 import feast.proto.core.CoreServiceGrpc.CoreServiceImplBase;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetRequest;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetResponse;
+import feast.proto.core.CoreServiceProto.ApplyFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.ApplyFeatureSetsResponse;
 import feast.proto.core.CoreServiceProto.ArchiveProjectRequest;
 import feast.proto.core.CoreServiceProto.ArchiveProjectResponse;
 import feast.proto.core.CoreServiceProto.CreateProjectRequest;
@@ -49,6 +52,8 @@ import feast.proto.core.CoreServiceProto.StopIngestionJobRequest;
 import feast.proto.core.CoreServiceProto.StopIngestionJobResponse;
 import feast.proto.core.CoreServiceProto.UpdateStoreRequest;
 import feast.proto.core.CoreServiceProto.UpdateStoreResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
@@ -67,15 +72,18 @@ public class CoreServiceImpl extends CoreServiceImplBase {
   private SpecService specService;
   private AccessManagementService accessManagementService;
   private JobService jobService;
+  private FeatureSetWatchService featureSetWatchService;
 
   @Autowired
   public CoreServiceImpl(
       SpecService specService,
       AccessManagementService accessManagementService,
-      JobService jobService) {
+      JobService jobService,
+      FeatureSetWatchService featureSetWatchService) {
     this.specService = specService;
     this.accessManagementService = accessManagementService;
     this.jobService = jobService;
+    this.featureSetWatchService = featureSetWatchService;
   }
 
   @Override
@@ -103,7 +111,7 @@ public class CoreServiceImpl extends CoreServiceImplBase {
   public void listFeatureSets(
       ListFeatureSetsRequest request, StreamObserver<ListFeatureSetsResponse> responseObserver) {
     try {
-      ListFeatureSetsResponse response = specService.listFeatureSets(request.getFilter());
+      ListFeatureSetsResponse response = specService.listFeatureSets(request);
       responseObserver.onNext(response);
       responseObserver.onCompleted();
     } catch (RetrievalException | IllegalArgumentException | InvalidProtocolBufferException e) {
@@ -113,11 +121,23 @@ public class CoreServiceImpl extends CoreServiceImplBase {
     }
   }
 
+  @Override
+  public void watchFeatureSets(
+      WatchFeatureSetsRequest request, StreamObserver<WatchFeatureSetsResponse> responseObserver) {
+    try {
+      featureSetWatchService.watch(responseObserver);
+    } catch (Exception e) {
+      log.error("Exception has occurred in WatchFeatureSets method: ", e);
+      responseObserver.onError(
+          Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+    }
+  }
+
   @Override
   public void listStores(
       ListStoresRequest request, StreamObserver<ListStoresResponse> responseObserver) {
     try {
-      ListStoresResponse response = specService.listStores(request.getFilter());
+      ListStoresResponse response = specService.listStores(request);
       responseObserver.onNext(response);
       responseObserver.onCompleted();
     } catch (RetrievalException e) {
@@ -148,6 +168,28 @@ public class CoreServiceImpl extends CoreServiceImplBase {
     }
   }
 
+  @Override
+  public void applyFeatureSets(
+      ApplyFeatureSetsRequest request, StreamObserver<ApplyFeatureSetsResponse> responseObserver) {
+    try {
+      ApplyFeatureSetsResponse response =
+          specService.applyFeatureSets(request.getFeatureSetsList());
+      responseObserver.onNext(response);
+      responseObserver.onCompleted();
+    } catch (org.hibernate.exception.ConstraintViolationException e) {
+      log.error(
+          "Unable to persist these feature sets due to a constraint violation. Please ensure that"
+              + " field names are unique within the project namespace: ",
+          e);
+      responseObserver.onError(
+          Status.ALREADY_EXISTS.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+    } catch (Exception e) {
+      log.error("Exception has occurred in ApplyFeatureSets method: ", e);
+      responseObserver.onError(
+          Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+    }
+  }
+
   @Override
   public void updateStore(
       UpdateStoreRequest request, StreamObserver<UpdateStoreResponse> responseObserver) {
@@ -18,6 +18,9 @@ package feast.core.job;
 
 import feast.core.model.Job;
 import feast.core.model.JobStatus;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public interface JobManager {
 
@@ -68,4 +71,19 @@ public interface JobManager {
    * @return job status.
    */
   JobStatus getJobStatus(Job job);
+
+  /**
+   * Get the status of several jobs. Runners that can list the status of many jobs at once should
+   * override this to do so, rather than querying each job.
+   *
+   * @param jobs jobs to get the status of
+   * @return status of each job, by job id
+   */
+  default Map<String, JobStatus> getJobStatuses(List<Job> jobs) {
+    Map<String, JobStatus> statuses = new HashMap<>();
+    for (Job job : jobs) {
+      statuses.put(job.getId(), getJobStatus(job));
+    }
+    return statuses;
+  }
 }
@@ -17,6 +17,7 @@
 package feast.core.job;
 
 import com.google.common.collect.Sets;
+import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.log.Action;
 import feast.core.log.AuditLogger;
 import feast.core.log.Resource;
@@ -25,7 +26,10 @@ import feast.core.model.Job;
 import feast.core.model.JobStatus;
 import feast.core.model.Source;
 import feast.core.model.Store;
+import feast.ingestion.utils.SpecUtil;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSetStatus;
+import feast.proto.core.StoreProto.Store.StoreType;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -56,6 +60,8 @@ public class JobUpdateTask implements Callable<Job> {
   private final JobManager jobManager;
   private final long jobUpdateTimeoutSeconds;
   private final String runnerName;
+  private final boolean specsRefreshEnabled;
+  private final int shard;
 
   public JobUpdateTask(
       List<FeatureSet> featureSets,
@@ -64,6 +70,42 @@ public class JobUpdateTask implements Callable<Job> {
       Optional<Job> currentJob,
       JobManager jobManager,
       long jobUpdateTimeoutSeconds) {
+    this(featureSets, source, store, currentJob, jobManager, jobUpdateTimeoutSeconds, false);
+  }
+
+  /**
+   * @param specsRefreshEnabled whether jobs writing to Redis refresh the specs of their feature
+   *     sets while running, in which case they are not restarted for updated feature sets
+   */
+  public JobUpdateTask(
+      List<FeatureSet> featureSets,
+      Source source,
+      Store store,
+      Optional<Job> currentJob,
+      JobManager jobManager,
+      long jobUpdateTimeoutSeconds,
+      boolean specsRefreshEnabled) {
+    this(
+        featureSets,
+        source,
+        store,
+        currentJob,
+        jobManager,
+        jobUpdateTimeoutSeconds,
+        specsRefreshEnabled,
+        0);
+  }
+
+  /** @param shard shard of the feature sets of the source that the job ingests */
+  public JobUpdateTask(
+      List<FeatureSet> featureSets,
+      Source source,
+      Store store,
+      Optional<Job> currentJob,
+      JobManager jobManager,
+      long jobUpdateTimeoutSeconds,
+      boolean specsRefreshEnabled,
+      int shard) {
 
     this.featureSets = featureSets;
     this.source = source;
@@ -72,6 +114,8 @@ public class JobUpdateTask implements Callable<Job> {
     this.jobManager = jobManager;
     this.jobUpdateTimeoutSeconds = jobUpdateTimeoutSeconds;
     this.runnerName = jobManager.getRunnerType().toString();
+    this.specsRefreshEnabled = specsRefreshEnabled;
+    this.shard = shard;
   }
 
   @Override
@@ -86,6 +130,8 @@ public class JobUpdateTask implements Callable<Job> {
 
       if (requiresUpdate(job)) {
         submittedJob = executorService.submit(() -> updateJob(job));
+      } else if (requiresRecovery(job)) {
+        submittedJob = executorService.submit(() -> recoverJob(job));
       } else {
         return updateStatus(job);
       }
@@ -101,20 +147,77 @@ public class JobUpdateTask implements Callable<Job> {
     }
   }
 
+  /**
+   * @return whether the job has to be started or updated, as opposed to only having its status
+   *     refreshed
+   */
+  public boolean requiresAction() {
+    return currentJob.isEmpty()
+        || requiresUpdate(currentJob.get())
+        || requiresRecovery(currentJob.get());
+  }
+
   boolean requiresUpdate(Job job) {
     // If set of feature sets has changed
     if (!Sets.newHashSet(featureSets).equals(Sets.newHashSet(job.getFeatureSets()))) {
       return true;
     }
-    // If any of the incoming feature sets were updated
+    // If any of the incoming feature sets were updated, unless the job picks up their specs itself
     for (FeatureSet featureSet : featureSets) {
-      if (featureSet.getStatus() == FeatureSetStatus.STATUS_PENDING) {
+      if (featureSet.getStatus() == FeatureSetStatus.STATUS_PENDING
+          && !(refreshesSpecs(job) && isAdditiveUpdate(job, featureSet))) {
         return true;
       }
     }
     return false;
   }
 
+  /**
+   * Running jobs only pick up updated specs that add to the specs they were started with, see
+   * {@link SpecUtil#isAdditiveUpdate}. Jobs whose specs were not recorded are restarted for any
+   * update.
+   */
+  private boolean isAdditiveUpdate(Job job, FeatureSet featureSet) {
+    Optional<FeatureSetSpec> jobSpec =
+        job.getRecordedFeatureSetSpecs().map(specs -> specs.get(featureSet.getReference()));
+    if (jobSpec.isEmpty()) {
+      return false;
+    }
+    try {
+      return SpecUtil.isAdditiveUpdate(jobSpec.get(), featureSet.toProto().getSpec());
+    } catch (InvalidProtocolBufferException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Standalone jobs only run within the Core instance that started them, and are reported as
+   * UNKNOWN by other instances. Such jobs are started again in this instance, for instance after a
+   * restart or once this instance coordinates their store, and resume from the offsets committed to
+   * their consumer groups.
+   */
+  boolean requiresRecovery(Job job) {
+    return job.getRunner() == Runner.STANDALONE && job.getStatus() == JobStatus.UNKNOWN;
+  }
+
+  /**
+   * Jobs writing to Redis refresh the specs of their feature sets while running, if enabled. This
+   * covers additive updates that keep a feature set in the job, such as added features. Jobs reading several
+   * sources are still restarted, since they would miss a feature set moving between their sources.
+   */
+  private boolean refreshesSpecs(Job job) {
+    // Standalone jobs run with the specs they were started with.
+    if (!specsRefreshEnabled || job.getRunner() == Runner.STANDALONE) {
+      return false;
+    }
+    StoreType storeType = StoreType.valueOf(store.getType());
+    if (storeType != StoreType.REDIS && storeType != StoreType.REDIS_CLUSTER) {
+      return false;
+    }
+    return featureSets.stream()
+        .allMatch(featureSet -> featureSet.getSource().equals(job.getSource()));
+  }
+
   private Job createJob() {
     String jobId = createJobId(source.getId(), store.getName());
     return startJob(jobId);
@@ -125,7 +228,15 @@ public class JobUpdateTask implements Callable<Job> {
 
     Job job =
         new Job(
-            jobId, "", jobManager.getRunnerType(), source, store, featureSets, JobStatus.PENDING);
+            jobId,
+            "",
+            jobManager.getRunnerType(),
+            source,
+            store,
+            featureSets,
+            JobStatus.PENDING,
+            shard);
+    job.recordFeatureSetSpecs();
     try {
       logAudit(Action.SUBMIT, job, "Building graph and submitting to %s", runnerName);
 
@@ -154,10 +265,18 @@ public class JobUpdateTask implements Callable<Job> {
   private Job updateJob(Job job) {
     job.setFeatureSets(featureSets);
     job.setStore(store);
+    job.recordFeatureSetSpecs();
     logAudit(Action.UPDATE, job, "Updating job %s for runner %s", job.getId(), runnerName);
     return jobManager.updateJob(job);
   }
 
+  /** Start a job that is not running in this instance again */
+  private Job recoverJob(Job job) {
+    job.recordFeatureSetSpecs();
+    logAudit(Action.UPDATE, job, "Recovering job %s for runner %s", job.getId(), runnerName);
+    return jobManager.restartJob(job);
+  }
+
   private Job updateStatus(Job job) {
     JobStatus currentStatus = job.getStatus();
     JobStatus newStatus = jobManager.getJobStatus(job);
@@ -174,6 +293,10 @@ public class JobUpdateTask implements Callable<Job> {
     String dateSuffix = String.valueOf(Instant.now().toEpochMilli());
     String sourceIdTrunc = sourceId.split("/")[0].toLowerCase();
     String jobId = String.format("%s-to-%s", sourceIdTrunc, storeName) + dateSuffix;
+    // Shards of a source are started at the same time, so their ids are qualified by shard.
+    if (shard > 0) {
+      jobId = String.format("%s-shard%d", jobId, shard);
+    }
     return jobId.replaceAll("_", "-");
   }
 
@@ -19,14 +19,16 @@ package feast.core.job;
 import java.util.NoSuchElementException;
 
 /**
- * An Apache Beam Runner, for which Feast Core supports managing ingestion jobs.
+ * An Apache Beam Runner, for which Feast Core supports managing ingestion jobs, or the standalone
+ * runner, which runs ingestion jobs from Kafka to online stores without Beam within Feast Core.
  *
  * @see <a href="https://beam.apache.org/documentation/#runners">Beam Runners</a>
  */
 public enum Runner {
   DATAFLOW("DataflowRunner"),
   FLINK("FlinkRunner"),
-  DIRECT("DirectRunner");
+  DIRECT("DirectRunner"),
+  STANDALONE("StandaloneRunner");
 
   private final String humanName;
 
@@ -24,6 +24,7 @@ import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.dataflow.Dataflow;
 import com.google.api.services.dataflow.DataflowScopes;
+import com.google.api.services.dataflow.model.ListJobsResponse;
 import com.google.common.base.Strings;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
@@ -45,6 +46,7 @@ import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -125,6 +127,7 @@ public class DataflowJobManager implements JobManager {
               featureSetProtos,
               job.getSource().toProto(),
               job.getStore().toProto(),
+              job.getShard(),
               false);
       job.setExtId(extId);
       return job;
@@ -159,6 +162,7 @@ public class DataflowJobManager implements JobManager {
               featureSetProtos,
               job.getSource().toProto(),
               job.getStore().toProto(),
+              job.getShard(),
               true);
 
       job.setExtId(extId);
@@ -248,14 +252,62 @@ public class DataflowJobManager implements JobManager {
     return JobStatus.UNKNOWN;
   }
 
+  /**
+   * Get the status of several Dataflow jobs. The active jobs of the project are listed in pages,
+   * and only jobs that are not listed, such as jobs that have terminated since, are retrieved
+   * individually.
+   *
+   * @param jobs jobs to get the status of
+   * @return status of each job, by job id
+   */
+  @Override
+  public Map<String, JobStatus> getJobStatuses(List<Job> jobs) {
+    Map<String, String> activeJobStates = new HashMap<>();
+    try {
+      String pageToken = null;
+      do {
+        ListJobsResponse response =
+            dataflow
+                .projects()
+                .locations()
+                .jobs()
+                .list(projectId, location)
+                .setFilter("ACTIVE")
+                .setPageToken(pageToken)
+                .execute();
+        if (response.getJobs() != null) {
+          response
+              .getJobs()
+              .forEach(
+                  dataflowJob ->
+                      activeJobStates.put(dataflowJob.getId(), dataflowJob.getCurrentState()));
+        }
+        pageToken = response.getNextPageToken();
+      } while (pageToken != null);
+    } catch (Exception e) {
+      log.error("Unable to list active dataflow jobs, cause: {}", e.getMessage());
+      return JobManager.super.getJobStatuses(jobs);
+    }
+
+    Map<String, JobStatus> statuses = new HashMap<>();
+    for (Job job : jobs) {
+      String state = activeJobStates.get(job.getExtId());
+      statuses.put(
+          job.getId(), state != null ? DataflowJobStateMapper.map(state) : getJobStatus(job));
+    }
+    return statuses;
+  }
+
   private String submitDataflowJob(
       String jobName,
       List<FeatureSetProto.FeatureSet> featureSetProtos,
       SourceProto.Source source,
       StoreProto.Store sink,
+      int shard,
       boolean update) {
     try {
-      ImportOptions pipelineOptions = getPipelineOptions(jobName, featureSetProtos, sink, update);
+      ImportOptions pipelineOptions =
+          getPipelineOptions(jobName, featureSetProtos, sink, shard, update);
       DataflowPipelineJob pipelineResult = runPipeline(pipelineOptions);
       String jobId = waitForJobToRun(pipelineResult);
       return jobId;
@@ -269,6 +321,7 @@ public class DataflowJobManager implements JobManager {
       String jobName,
       List<FeatureSetProto.FeatureSet> featureSets,
       StoreProto.Store sink,
+      int shard,
       boolean update)
       throws IOException {
     String[] args = TypeConversion.convertMapToArgs(defaultOptions);
@@ -284,6 +337,7 @@ public class DataflowJobManager implements JobManager {
     pipelineOptions.setUpdate(update);
     pipelineOptions.setRunner(DataflowRunner.class);
     pipelineOptions.setJobName(jobName);
+    pipelineOptions.setShard(shard);
     pipelineOptions.setFilesToStage(
         detectClassPathResourcesToStage(DataflowRunner.class.getClassLoader()));
 
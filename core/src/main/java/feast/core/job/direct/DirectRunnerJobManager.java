@@ -80,7 +80,8 @@ public class DirectRunnerJobManager implements JobManager {
         featureSetProtos.add(featureSet.toProto());
       }
       ImportOptions pipelineOptions =
-          getPipelineOptions(job.getId(), featureSetProtos, job.getStore().toProto());
+          getPipelineOptions(
+              job.getId(), featureSetProtos, job.getStore().toProto(), job.getShard());
       PipelineResult pipelineResult = runPipeline(pipelineOptions);
       DirectJob directJob = new DirectJob(job.getId(), pipelineResult);
       jobs.add(directJob);
@@ -94,7 +95,10 @@ public class DirectRunnerJobManager implements JobManager {
   }
 
   private ImportOptions getPipelineOptions(
-      String jobName, List<FeatureSetProto.FeatureSet> featureSets, StoreProto.Store sink)
+      String jobName,
+      List<FeatureSetProto.FeatureSet> featureSets,
+      StoreProto.Store sink,
+      int shard)
       throws IOException {
     String[] args = TypeConversion.convertMapToArgs(defaultOptions);
     ImportOptions pipelineOptions = PipelineOptionsFactory.fromArgs(args).as(ImportOptions.class);
@@ -104,6 +108,7 @@ public class DirectRunnerJobManager implements JobManager {
 
     pipelineOptions.setFeatureSetJson(featureSetJsonCompressor.compress(featureSets));
     pipelineOptions.setJobName(jobName);
+    pipelineOptions.setShard(shard);
     pipelineOptions.setStoreJson(Collections.singletonList(JsonFormat.printer().print(sink)));
     pipelineOptions.setRunner(DirectRunner.class);
     pipelineOptions.setDefaultFeastProject(Project.DEFAULT_NAME);
@@ -0,0 +1,220 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.job.standalone;
+
+import com.google.protobuf.util.JsonFormat;
+import feast.core.config.FeastProperties.MetricsProperties;
+import feast.core.exception.JobExecutionException;
+import feast.core.job.JobManager;
+import feast.core.job.Runner;
+import feast.core.job.option.FeatureSetJsonByteConverter;
+import feast.core.model.FeatureSet;
+import feast.core.model.Job;
+import feast.core.model.JobStatus;
+import feast.core.model.Project;
+import feast.core.util.TypeConversion;
+import feast.ingestion.options.BZip2Compressor;
+import feast.ingestion.options.ImportOptions;
+import feast.ingestion.options.OptionCompressor;
+import feast.ingestion.standalone.StandaloneImportJob;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.StoreProto;
+import feast.proto.core.StoreProto.Store.StoreType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+
+/**
+ * Runs ingestion jobs from Kafka to online stores within Feast Core, without Beam.
+ *
+ * <p>Jobs consume with consumer groups derived from their store and shard rather than from the job
+ * id, so a job that is updated, restarted or replaced resumes from the offsets committed by its
+ * predecessor. Topics never consumed before are consumed from their end, like the Beam runners do.
+ *
+ * <p>Jobs only run within the instance that started them. Jobs that are not running in this
+ * instance, such as jobs started before a restart or by a previous coordinator of their store, are
+ * reported as UNKNOWN and started again in this instance by the coordinator.
+ */
+@Slf4j
+public class StandaloneJobManager implements JobManager {
+
+  private final Runner RUNNER_TYPE = Runner.STANDALONE;
+
+  private final Map<String, String> defaultOptions;
+  private final MetricsProperties metrics;
+  private final Map<String, StandaloneImportJob> jobs = new ConcurrentHashMap<>();
+
+  public StandaloneJobManager(
+      Map<String, String> defaultOptions, MetricsProperties metricsProperties) {
+    this.defaultOptions = defaultOptions;
+    this.metrics = metricsProperties;
+  }
+
+  @Override
+  public Runner getRunnerType() {
+    return RUNNER_TYPE;
+  }
+
+  /**
+   * Start a standalone job.
+   *
+   * @param job Job to start
+   */
+  @Override
+  public Job startJob(Job job) {
+    StoreType storeType = StoreType.valueOf(job.getStore().getType());
+    if (storeType != StoreType.REDIS && storeType != StoreType.REDIS_CLUSTER) {
+      throw new JobExecutionException(
+          String.format(
+              "Standalone runner cannot ingest into store %s of type %s",
+              job.getStore().getName(), storeType));
+    }
+    try {
+      List<FeatureSetProto.FeatureSet> featureSetProtos = new ArrayList<>();
+      for (FeatureSet featureSet : job.getFeatureSets()) {
+        featureSetProtos.add(featureSet.toProto());
+      }
+      StandaloneImportJob importJob =
+          createImportJob(
+              getOptions(
+                  job.getId(),
+                  getConsumerGroup(job),
+                  featureSetProtos,
+                  job.getStore().toProto(),
+                  job.getShard()));
+      importJob.start();
+      jobs.put(job.getId(), importJob);
+      job.setExtId(job.getId());
+      job.setStatus(JobStatus.RUNNING);
+      return job;
+    } catch (Exception e) {
+      log.error("Error starting job", e);
+      throw new JobExecutionException(String.format("Error running ingestion job: %s", e), e);
+    }
+  }
+
+  StandaloneImportJob createImportJob(ImportOptions options) throws IOException {
+    return new StandaloneImportJob(options);
+  }
+
+  /** @return prefix of the consumer groups shared by all jobs of the store and shard of the job */
+  static String getConsumerGroup(Job job) {
+    String consumerGroup = "feast_import_" + job.getStore().getName();
+    if (job.getShard() > 0) {
+      consumerGroup += "_shard" + job.getShard();
+    }
+    return consumerGroup;
+  }
+
+  private ImportOptions getOptions(
+      String jobName,
+      String consumerGroup,
+      List<FeatureSetProto.FeatureSet> featureSets,
+      StoreProto.Store sink,
+      int shard)
+      throws IOException {
+    String[] args = TypeConversion.convertMapToArgs(defaultOptions);
+    ImportOptions options = PipelineOptionsFactory.fromArgs(args).as(ImportOptions.class);
+
+    OptionCompressor<List<FeatureSetProto.FeatureSet>> featureSetJsonCompressor =
+        new BZip2Compressor<>(new FeatureSetJsonByteConverter());
+
+    options.setFeatureSetJson(featureSetJsonCompressor.compress(featureSets));
+    options.setJobName(jobName);
+    options.setConsumerGroup(consumerGroup);
+    options.setShard(shard);
+    options.setStoreJson(Collections.singletonList(JsonFormat.printer().print(sink)));
+    options.setDefaultFeastProject(Project.DEFAULT_NAME);
+    options.setProject(""); // set to default value to satisfy validation
+    if (metrics.isEnabled()) {
+      options.setMetricsExporterType(metrics.getType());
+      if (metrics.getType().equals("statsd")) {
+        options.setStatsdHost(metrics.getHost());
+        options.setStatsdPort(metrics.getPort());
+      }
+    }
+    return options;
+  }
+
+  /**
+   * Stops an existing job and starts a new job in its place. Since the new job consumes with the
+   * same consumer group, no rows are lost, though rows polled but not yet written by the old job
+   * are written again.
+   *
+   * @param job job to update
+   * @return the updated job
+   */
+  @Override
+  public Job updateJob(Job job) {
+    abortJob(job.getExtId());
+    return startJob(job);
+  }
+
+  /**
+   * Stop the standalone job with the given id and wait for its consumers to close. The stopped job
+   * is kept, so that it is reported as ABORTED rather than UNKNOWN.
+   *
+   * @param extId runner specific job id.
+   */
+  @Override
+  public void abortJob(String extId) {
+    StandaloneImportJob importJob = jobs.get(extId);
+    if (importJob != null) {
+      importJob.close();
+    }
+  }
+
+  /**
+   * Restart a standalone job.
+   *
+   * @param job job to restart
+   * @return the restarted job
+   */
+  @Override
+  public Job restartJob(Job job) {
+    if (job.getStatus().isTerminal()) {
+      return this.startJob(job);
+    } else {
+      return this.updateJob(job);
+    }
+  }
+
+  /**
+   * Gets the state of the standalone job. Jobs that are not running in this instance are UNKNOWN,
+   * since they may still run in another instance, and jobs stopped by a failed consumer are in
+   * ERROR.
+   *
+   * @param job Job of the desired job.
+   * @return JobStatus of the job.
+   */
+  @Override
+  public JobStatus getJobStatus(Job job) {
+    StandaloneImportJob importJob = jobs.get(job.getId());
+    if (importJob == null) {
+      return JobStatus.UNKNOWN;
+    }
+    if (importJob.getError() != null) {
+      return JobStatus.ERROR;
+    }
+    return importJob.isRunning() ? JobStatus.RUNNING : JobStatus.ABORTED;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.model;
+
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Lease held by a Core instance, which expires unless renewed. Leases are used to divide job
+ * coordination between Core instances, and to track which instances are alive.
+ */
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "coordinator_leases")
+public class CoordinatorLease {
+
+  // Name of the leased resource
+  @Id
+  @Column(name = "name", nullable = false)
+  private String name;
+
+  // Id of the Core instance holding the lease
+  @Column(name = "holder", nullable = false)
+  private String holder;
+
+  // Time at which the lease expires unless renewed
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "expires_at", nullable = false)
+  private Date expiresAt;
+
+  public CoordinatorLease() {
+    super();
+  }
+}
@@ -36,7 +36,8 @@ import org.tensorflow.metadata.v0.*;
 @javax.persistence.Entity
 @Table(
     name = "feature_sets",
-    uniqueConstraints = @UniqueConstraint(columnNames = {"name", "project_name"}))
+    uniqueConstraints = @UniqueConstraint(columnNames = {"name", "project_name"}),
+    indexes = @Index(name = "idx_feature_sets_project_name", columnList = "project_name,name"))
 public class FeatureSet extends AbstractTimestampEntity {
 
   @Id @GeneratedValue private long id;
@@ -113,6 +114,11 @@ public class FeatureSet extends AbstractTimestampEntity {
     this.name = name;
   }
 
+  /** @return reference of the feature set, in the format project/name */
+  public String getReference() {
+    return String.format("%s/%s", getProjectName(), getName());
+  }
+
   private String getProjectName() {
     if (getProject() != null) {
       return getProject().getName();
@@ -19,17 +19,23 @@ package feast.core.model;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.job.Runner;
 import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.IngestionJobProto;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import javax.persistence.*;
 import javax.persistence.Entity;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
 /** Contains information about a run job. */
-@AllArgsConstructor
 @Getter
 @Setter
 @Entity
@@ -75,10 +81,49 @@ public class Job extends AbstractTimestampEntity {
   @Column(name = "status", length = 16)
   private JobStatus status;
 
+  // Shard of the feature sets of its sources that the job ingests, if they are split across jobs.
+  @Column(name = "shard", columnDefinition = "integer default 0")
+  private int shard;
+
+  // Specs of the feature sets the job was started or last updated with, as length-delimited
+  // FeatureSetSpec messages. Null if not recorded, e.g. for jobs started by earlier versions.
+  @Column(name = "feature_set_specs")
+  private byte[] featureSetSpecs;
+
   public Job() {
     super();
   }
 
+  public Job(
+      String id,
+      String extId,
+      Runner runner,
+      Source source,
+      Store store,
+      List<FeatureSet> featureSets,
+      JobStatus status,
+      int shard) {
+    this.id = id;
+    this.extId = extId;
+    this.runner = runner;
+    this.source = source;
+    this.store = store;
+    this.featureSets = featureSets;
+    this.status = status;
+    this.shard = shard;
+  }
+
+  public Job(
+      String id,
+      String extId,
+      Runner runner,
+      Source source,
+      Store store,
+      List<FeatureSet> featureSets,
+      JobStatus status) {
+    this(id, extId, runner, source, store, featureSets, status, 0);
+  }
+
   public boolean hasTerminated() {
     return getStatus().isTerminal();
   }
@@ -91,6 +136,45 @@ public class Job extends AbstractTimestampEntity {
     return store.getName();
   }
 
+  /**
+   * Record the current specs of the feature sets of the job as the specs it runs with. Must be
+   * called whenever the job is started or updated.
+   */
+  public void recordFeatureSetSpecs() {
+    ByteArrayOutputStream specs = new ByteArrayOutputStream();
+    try {
+      for (FeatureSet featureSet : featureSets) {
+        featureSet.toProto().getSpec().writeDelimitedTo(specs);
+      }
+      featureSetSpecs = specs.toByteArray();
+    } catch (IOException e) {
+      // Specs that cannot be recorded are unknown, so that any update restarts the job.
+      featureSetSpecs = null;
+    }
+  }
+
+  /**
+   * Get the specs of the feature sets the job was last started or updated with.
+   *
+   * @return specs by feature set reference, in project/name format, or empty if not recorded
+   */
+  public Optional<Map<String, FeatureSetSpec>> getRecordedFeatureSetSpecs() {
+    if (featureSetSpecs == null) {
+      return Optional.empty();
+    }
+    Map<String, FeatureSetSpec> specs = new HashMap<>();
+    InputStream in = new ByteArrayInputStream(featureSetSpecs);
+    try {
+      FeatureSetSpec spec;
+      while ((spec = FeatureSetSpec.parseDelimitedFrom(in)) != null) {
+        specs.put(String.format("%s/%s", spec.getProject(), spec.getName()), spec);
+      }
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+    return Optional.of(specs);
+  }
+
   /**
    * Convert a job model to ingestion job proto
    *
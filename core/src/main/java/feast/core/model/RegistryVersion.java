@@ -0,0 +1,52 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Version of the feature set registry, shared by all Core instances using the database. The table
+ * holds a single row, whose version is incremented by every transaction changing feature sets or
+ * stores.
+ */
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "registry_version")
+public class RegistryVersion {
+  public static final int ID = 1;
+
+  // Id of the single row
+  @Id
+  @Column(name = "id", nullable = false)
+  private int id;
+
+  // Number of changes made to the registry, offset by the time the version was first persisted
+  @Column(name = "version", nullable = false)
+  private long version;
+
+  public RegistryVersion() {
+    super();
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import feast.core.config.FeastProperties;
+import feast.core.config.FeastProperties.JobProperties.CoordinatorProperties;
+import feast.core.dao.CoordinatorLeaseRepository;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Divides job coordination between the Core instances sharing a database.
+ *
+ * <p>Jobs are partitioned by the store they write to, into {@code
+ * feast.jobs.coordinator.partitions} partitions. Each partition is coordinated by the instance
+ * holding its lease in the {@code coordinator_leases} table. Instances also hold a membership
+ * lease, so that each instance takes an even share of the partitions: instances release partitions
+ * beyond their share when another instance joins, and take over the partitions of instances whose
+ * leases have expired.
+ *
+ * <p>Leases are renewed on a dedicated thread at a third of their duration, independently of job
+ * coordination, so that a slow poll does not cause an instance to lose its partitions. If leases
+ * are disabled, this instance coordinates all jobs, which is only safe with a single Core instance.
+ *
+ * <p>Lease expiry is timed by the database, so that clock skew between instances does not let two
+ * instances hold the same lease. An instance stops coordinating its partitions once a lease
+ * duration has passed since its last successful renewal started, as measured by its own clock,
+ * which is before the leases it renewed can expire and be taken over by another instance.
+ */
+@Slf4j
+@Service
+public class CoordinatorLeaseService {
+
+  static final String PARTITION_PREFIX = "partition:";
+  static final String MEMBER_PREFIX = "member:";
+
+  private final CoordinatorLeaseRepository leaseRepository;
+  private final CoordinatorProperties properties;
+  private final Clock clock;
+  private final String instanceId;
+  private volatile Set<Integer> ownedPartitions;
+  private volatile Instant ownedUntil;
+  private ScheduledExecutorService renewer;
+
+  @Autowired
+  public CoordinatorLeaseService(
+      CoordinatorLeaseRepository leaseRepository, FeastProperties feastProperties) {
+    this(leaseRepository, feastProperties.getJobs().getCoordinator(), Clock.systemUTC());
+  }
+
+  CoordinatorLeaseService(
+      CoordinatorLeaseRepository leaseRepository, CoordinatorProperties properties, Clock clock) {
+    this.leaseRepository = leaseRepository;
+    this.properties = properties;
+    this.clock = clock;
+    this.instanceId = String.format("%s-%s", getHostName(), UUID.randomUUID());
+    this.ownedPartitions =
+        properties.isLeaseEnabled() ? Collections.emptySet() : allPartitions(properties);
+    this.ownedUntil = properties.isLeaseEnabled() ? Instant.MIN : Instant.MAX;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!properties.isLeaseEnabled()) {
+      return;
+    }
+    log.info("Coordinating jobs as instance {}", instanceId);
+    long renewalIntervalMillis = TimeUnit.SECONDS.toMillis(properties.getLeaseSeconds()) / 3;
+    renewer =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("coordinator-lease").setDaemon(true).build());
+    renewer.scheduleWithFixedDelay(
+        this::renewSafely, 0, renewalIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (renewer == null) {
+      return;
+    }
+    renewer.shutdownNow();
+    Set<Integer> releasedPartitions = ownedPartitions;
+    ownedPartitions = Collections.emptySet();
+    // Hand over partitions right away, rather than after the leases expire.
+    try {
+      Date now = leaseRepository.getCurrentTimestamp();
+      for (int partition : releasedPartitions) {
+        leaseRepository.release(PARTITION_PREFIX + partition, instanceId, now);
+      }
+      leaseRepository.release(MEMBER_PREFIX + instanceId, instanceId, now);
+    } catch (RuntimeException e) {
+      log.warn("Unable to release coordinator leases: {}", e.getMessage());
+    }
+  }
+
+  /** @return partitions whose jobs this instance coordinates */
+  public Set<Integer> getOwnedPartitions() {
+    return clock.instant().isBefore(ownedUntil) ? ownedPartitions : Collections.emptySet();
+  }
+
+  /**
+   * Checks whether this instance coordinates the jobs writing to the store. Since the leases of
+   * this instance may have expired in the meantime, this should be checked again right before each
+   * change to the jobs of the store.
+   *
+   * @param storeName name of the store
+   * @return whether this instance coordinates the jobs writing to the store
+   */
+  public boolean ownsStore(String storeName) {
+    return getOwnedPartitions().contains(getPartition(storeName));
+  }
+
+  /**
+   * @param storeName name of the store
+   * @return partition of the jobs writing to the store
+   */
+  public int getPartition(String storeName) {
+    return Math.floorMod(storeName.hashCode(), properties.getPartitions());
+  }
+
+  /**
+   * Renew this instance's leases, then release or take over partitions until this instance holds
+   * its share of them.
+   */
+  void renew() {
+    Instant renewalStart = clock.instant();
+    Date now = leaseRepository.getCurrentTimestamp();
+    Date expiresAt = Date.from(now.toInstant().plusSeconds(properties.getLeaseSeconds()));
+    acquire(MEMBER_PREFIX + instanceId, expiresAt);
+    leaseRepository.deleteExpired(MEMBER_PREFIX, now);
+
+    int members =
+        Math.max(
+            1,
+            leaseRepository.findAllByNameStartingWithAndExpiresAtAfter(MEMBER_PREFIX, now).size());
+    int share = (properties.getPartitions() + members - 1) / members;
+
+    Set<Integer> owned = new TreeSet<>();
+    for (int partition : ownedPartitions) {
+      if (acquire(PARTITION_PREFIX + partition, expiresAt)) {
+        owned.add(partition);
+      }
+    }
+    List<Integer> released = new ArrayList<>();
+    while (owned.size() > share) {
+      released.add(((TreeSet<Integer>) owned).pollLast());
+    }
+    for (int partition = 0;
+        partition < properties.getPartitions() && owned.size() < share;
+        partition++) {
+      if (!owned.contains(partition) && acquire(PARTITION_PREFIX + partition, expiresAt)) {
+        owned.add(partition);
+      }
+    }
+
+    if (!owned.equals(ownedPartitions)) {
+      log.info("Coordinating jobs of partitions {}", owned);
+    }
+    ownedPartitions = Collections.unmodifiableSet(owned);
+    ownedUntil = renewalStart.plusSeconds(properties.getLeaseSeconds());
+    // Partitions are only released once this instance has stopped coordinating them.
+    for (int partition : released) {
+      leaseRepository.release(PARTITION_PREFIX + partition, instanceId, now);
+    }
+  }
+
+  private void renewSafely() {
+    try {
+      renew();
+    } catch (RuntimeException e) {
+      // Partitions whose leases could not be renewed may be taken over once they expire.
+      log.error("Unable to renew coordinator leases: {}", e.getMessage());
+      ownedPartitions = Collections.emptySet();
+    }
+  }
+
+  private boolean acquire(String name, Date expiresAt) {
+    if (leaseRepository.renew(name, instanceId, expiresAt) > 0) {
+      return true;
+    }
+    if (leaseRepository.existsById(name)) {
+      return false;
+    }
+    try {
+      return leaseRepository.create(name, instanceId, expiresAt) > 0;
+    } catch (DataIntegrityViolationException e) {
+      // Created by another instance in the meantime.
+      return false;
+    }
+  }
+
+  private static Set<Integer> allPartitions(CoordinatorProperties properties) {
+    return IntStream.range(0, properties.getPartitions())
+        .boxed()
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "core";
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import feast.core.dao.FeatureSetRepository;
+import feast.core.model.FeatureSet;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.storage.common.pattern.WildcardPattern;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory registry of feature sets, holding pre-built, immutable feature set protos indexed by
+ * project and name.
+ *
+ * <p>The registry is loaded from the database on first use and is then kept up to date by watching
+ * the committed feature set changes published by {@link FeatureSetWatchService}, so that reads do
+ * not touch the database. The registry version is the version of the last change applied. If the
+ * registry has changed in a way that is not described by individual feature set changes, e.g.
+ * through another Core instance, the registry is reloaded on next use.
+ */
+@Slf4j
+@Service
+public class FeatureSetRegistry {
+
+  private static final Gauge registryVersion =
+      Gauge.build()
+          .name("feast_core_feature_set_registry_version")
+          .help("Version of the in-memory feature set registry")
+          .register();
+  private static final Counter registryLoads =
+      Counter.build()
+          .name("feast_core_feature_set_registry_loads_total")
+          .help("Number of times the feature set registry was loaded from the database")
+          .register();
+  private static final Counter registryLookups =
+      Counter.build()
+          .name("feast_core_feature_set_registry_lookups_total")
+          .help("Number of feature set registry lookups, by whether they hit memory or loaded")
+          .labelNames("outcome")
+          .register();
+
+  private final FeatureSetRepository featureSetRepository;
+
+  // Immutable snapshot of feature sets by project and name. Null until loaded from the database.
+  private volatile Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> featureSets;
+  private volatile long version;
+
+  @Autowired
+  public FeatureSetRegistry(
+      FeatureSetRepository featureSetRepository, FeatureSetWatchService featureSetWatchService) {
+    this.featureSetRepository = featureSetRepository;
+    featureSetWatchService.addListener(new RegistryUpdater());
+  }
+
+  /** @return version of the last feature set change applied to the registry */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Get a feature set by project and name.
+   *
+   * @param project name of the project the feature set belongs to
+   * @param name name of the feature set
+   * @return the feature set, or empty if no such feature set is registered
+   */
+  public Optional<FeatureSetProto.FeatureSet> get(String project, String name)
+      throws InvalidProtocolBufferException {
+    NavigableMap<String, FeatureSetProto.FeatureSet> projectFeatureSets =
+        getFeatureSets().get(project);
+    if (projectFeatureSets == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(projectFeatureSets.get(name));
+  }
+
+  /**
+   * List the feature sets matching the given project and feature set name patterns, ordered by
+   * feature set name. Asterisks in the patterns match any sequence of characters.
+   *
+   * @param projectPattern project name, or pattern matching project names
+   * @param namePattern feature set name, or pattern matching feature set names
+   * @return list of matching feature sets
+   */
+  public List<FeatureSetProto.FeatureSet> list(String projectPattern, String namePattern)
+      throws InvalidProtocolBufferException {
+    Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> snapshot = getFeatureSets();
+    Pattern projectRegex = WildcardPattern.compile(projectPattern);
+    Pattern nameRegex = WildcardPattern.compile(namePattern);
+
+    List<FeatureSetProto.FeatureSet> matches = new ArrayList<>();
+    snapshot.forEach(
+        (project, projectFeatureSets) -> {
+          if (!projectRegex.matcher(project).matches()) {
+            return;
+          }
+          projectFeatureSets.forEach(
+              (name, featureSet) -> {
+                if (nameRegex.matcher(name).matches()) {
+                  matches.add(featureSet);
+                }
+              });
+        });
+    matches.sort(
+        Comparator.comparing((FeatureSetProto.FeatureSet fs) -> fs.getSpec().getName())
+            .thenComparing(fs -> fs.getSpec().getProject()));
+    return matches;
+  }
+
+  /** Drop all feature sets held in memory, so that they are reloaded from the database. */
+  public synchronized void invalidate() {
+    featureSets = null;
+  }
+
+  private Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> getFeatureSets()
+      throws InvalidProtocolBufferException {
+    Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> snapshot = featureSets;
+    if (snapshot != null) {
+      registryLookups.labels("hit").inc();
+      return snapshot;
+    }
+    synchronized (this) {
+      if (featureSets == null) {
+        featureSets = load();
+        registryLookups.labels("load").inc();
+      } else {
+        registryLookups.labels("hit").inc();
+      }
+      return featureSets;
+    }
+  }
+
+  private Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> load()
+      throws InvalidProtocolBufferException {
+    Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> loaded = new HashMap<>();
+    int count = 0;
+    for (FeatureSet featureSet : featureSetRepository.findAllWithFields()) {
+      FeatureSetProto.FeatureSet featureSetProto = featureSet.toProto();
+      FeatureSetSpec spec = featureSetProto.getSpec();
+      loaded
+          .computeIfAbsent(spec.getProject(), project -> new TreeMap<>())
+          .put(spec.getName(), featureSetProto);
+      count++;
+    }
+    loaded.replaceAll(
+        (project, projectFeatureSets) -> Collections.unmodifiableNavigableMap(projectFeatureSets));
+    registryLoads.inc();
+    log.info("Loaded {} feature sets into the feature set registry", count);
+    return Collections.unmodifiableMap(loaded);
+  }
+
+  private synchronized void put(FeatureSetProto.FeatureSet featureSet) {
+    if (featureSets == null) {
+      // Changes are picked up when the registry is loaded.
+      return;
+    }
+    FeatureSetSpec spec = featureSet.getSpec();
+    NavigableMap<String, FeatureSetProto.FeatureSet> projectFeatureSets =
+        new TreeMap<>(featureSets.getOrDefault(spec.getProject(), Collections.emptyNavigableMap()));
+    projectFeatureSets.put(spec.getName(), featureSet);
+
+    Map<String, NavigableMap<String, FeatureSetProto.FeatureSet>> updated =
+        new HashMap<>(featureSets);
+    updated.put(spec.getProject(), Collections.unmodifiableNavigableMap(projectFeatureSets));
+    featureSets = Collections.unmodifiableMap(updated);
+  }
+
+  /** Applies committed feature set changes to the registry. */
+  private class RegistryUpdater implements FeatureSetWatchService.Listener {
+
+    @Override
+    public void featureSetUpdated(FeatureSetProto.FeatureSet featureSet, long version) {
+      synchronized (FeatureSetRegistry.this) {
+        put(featureSet);
+        setVersion(version);
+      }
+    }
+
+    @Override
+    public void versionUpdated(long version) {
+      synchronized (FeatureSetRegistry.this) {
+        invalidate();
+        setVersion(version);
+      }
+    }
+  }
+
+  private synchronized void setVersion(long version) {
+    this.version = version;
+    registryVersion.set(version);
+  }
+}
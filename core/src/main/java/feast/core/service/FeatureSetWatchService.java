@@ -0,0 +1,426 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import feast.core.dao.RegistryVersionRepository;
+import feast.core.model.RegistryVersion;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse.EventType;
+import feast.proto.core.FeatureSetProto;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Distributes feature set changes to watchers connected through the WatchFeatureSets RPC.
+ *
+ * <p>Every change increments the registry version persisted in the database, within the transaction
+ * making the change. Watchers receive the current version when they connect and then one event per
+ * change, so versions on a single stream are always consecutive. Changes made inside a transaction
+ * are only published once that transaction commits.
+ *
+ * <p>Events are queued per watcher and sent outside of the lock that orders them, honouring the
+ * flow control of the underlying gRPC call, so that a slow watcher never holds up publishers or
+ * other watchers. A watcher that falls too far behind is disconnected; it detects the version gap
+ * when it reconnects and resynchronizes.
+ *
+ * <p>Since the version is persisted, it is meaningful across restarts and across Core instances
+ * sharing the database. It serves as the change counter for conditional ListFeatureSets and
+ * ListStores calls. Changes made through other instances are detected by reading the persisted
+ * version, periodically and before answering conditional calls. Watchers and listeners are then
+ * told to resynchronize, as they are whenever the published versions are not consecutive.
+ */
+@Slf4j
+@Service
+public class FeatureSetWatchService {
+
+  // Maximum number of events queued for a watcher that is not ready to receive them
+  private static final int MAX_PENDING_EVENTS = 1000;
+
+  private final RegistryVersionRepository registryVersionRepository;
+  private final Set<Watcher> watchers = new LinkedHashSet<>();
+  private final List<Listener> listeners = new ArrayList<>();
+  private final int maxPendingEvents;
+  // last version published by this instance
+  private long version;
+
+  @Autowired
+  public FeatureSetWatchService(RegistryVersionRepository registryVersionRepository) {
+    this(registryVersionRepository, MAX_PENDING_EVENTS);
+  }
+
+  FeatureSetWatchService(
+      RegistryVersionRepository registryVersionRepository, int maxPendingEvents) {
+    this.registryVersionRepository = registryVersionRepository;
+    this.maxPendingEvents = maxPendingEvents;
+    this.version = initializeVersion();
+  }
+
+  /**
+   * Register a watcher. The watcher immediately receives the current registry version, followed by
+   * an event for every subsequent feature set change until the call is cancelled.
+   *
+   * @param observer stream to publish change events to
+   */
+  public void watch(StreamObserver<WatchFeatureSetsResponse> observer) {
+    Watcher watcher = new Watcher(observer);
+    if (observer instanceof ServerCallStreamObserver) {
+      ServerCallStreamObserver<WatchFeatureSetsResponse> serverObserver =
+          (ServerCallStreamObserver<WatchFeatureSetsResponse>) observer;
+      serverObserver.setOnCancelHandler(() -> unwatch(watcher));
+      serverObserver.setOnReadyHandler(watcher::drain);
+    }
+    synchronized (this) {
+      watcher.offer(
+          WatchFeatureSetsResponse.newBuilder()
+              .setType(EventType.CURRENT_VERSION)
+              .setVersion(version)
+              .build());
+      watchers.add(watcher);
+    }
+    watcher.drain();
+  }
+
+  /**
+   * Register a listener within this instance. Unlike watchers, listeners are called synchronously
+   * as changes are published, before the new registry version becomes visible.
+   *
+   * @param listener listener to call on every change
+   */
+  public synchronized void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Notify watchers that the given feature set has been created or updated. If called within a
+   * transaction, the event is deferred until the transaction has been committed and dropped if it
+   * is rolled back.
+   *
+   * @param featureSet feature set after the change
+   */
+  public void notifyUpdated(FeatureSetProto.FeatureSet featureSet) {
+    notifyUpdated(Collections.singletonList(featureSet));
+  }
+
+  /**
+   * Notify watchers that the given feature sets have been created or updated. The events are
+   * published together, so that no other change is interleaved with them and a watcher polling the
+   * registry version observes either none or all of them. If called within a transaction, the
+   * events are deferred until the transaction has been committed and dropped if it is rolled back.
+   *
+   * @param featureSets feature sets after the change
+   */
+  public void notifyUpdated(Collection<FeatureSetProto.FeatureSet> featureSets) {
+    if (featureSets.isEmpty()) {
+      return;
+    }
+    long firstVersion = incrementVersion(featureSets.size()) - featureSets.size() + 1;
+    afterCommit(() -> publishAll(featureSets, firstVersion));
+  }
+
+  /**
+   * Notify watchers that store configuration has changed. Watchers receive the new registry
+   * version, which signals them to resynchronize. If called within a transaction, the event is
+   * deferred until the transaction has been committed and dropped if it is rolled back.
+   */
+  public void notifyStoreUpdated() {
+    long newVersion = incrementVersion(1);
+    afterCommit(() -> publishVersion(newVersion));
+  }
+
+  /**
+   * @return version of the feature set registry as last published by this instance. May lag behind
+   *     changes made through other Core instances, see {@link #refreshVersion()}.
+   */
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  /**
+   * Read the version of the feature set registry from the database. If it has changed through
+   * another Core instance, watchers and listeners are told to resynchronize.
+   *
+   * @return current version of the feature set registry
+   */
+  public long refreshVersion() {
+    long persistedVersion = readVersion();
+    List<Watcher> recipients;
+    synchronized (this) {
+      if (persistedVersion <= version) {
+        return version;
+      }
+      log.debug("Registry version changed from {} to {}", version, persistedVersion);
+      recipients = resynchronize(persistedVersion);
+    }
+    recipients.forEach(Watcher::drain);
+    return persistedVersion;
+  }
+
+  /**
+   * Read the version of the feature set registry from the database, without publishing it. Within a
+   * transaction, this includes changes made by that transaction that are yet to be published.
+   *
+   * @return persisted version of the feature set registry
+   */
+  public long getPersistedVersion() {
+    return readVersion();
+  }
+
+  /** Periodically pick up changes made through other Core instances. */
+  @Scheduled(fixedDelayString = "${feast.registry.version_polling_interval_milliseconds:1000}")
+  public void pollVersion() {
+    try {
+      refreshVersion();
+    } catch (RuntimeException e) {
+      log.warn("Unable to read the registry version: {}", e.getMessage());
+    }
+  }
+
+  void publishAll(Collection<FeatureSetProto.FeatureSet> featureSets, long firstVersion) {
+    long lastVersion = firstVersion + featureSets.size() - 1;
+    List<WatchFeatureSetsResponse> events = new ArrayList<>();
+    List<Watcher> recipients;
+    synchronized (this) {
+      if (lastVersion <= version) {
+        // Already covered by resynchronizing to a later version
+        return;
+      }
+      if (firstVersion != version + 1) {
+        // Changes in between were made through another instance, or are yet to be published
+        recipients = resynchronize(lastVersion);
+      } else {
+        for (FeatureSetProto.FeatureSet featureSet : featureSets) {
+          version++;
+          for (Listener listener : listeners) {
+            listener.featureSetUpdated(featureSet, version);
+          }
+          events.add(
+              WatchFeatureSetsResponse.newBuilder()
+                  .setType(EventType.FEATURE_SET_UPDATED)
+                  .setVersion(version)
+                  .setFeatureSet(featureSet)
+                  .build());
+        }
+        recipients = enqueue(events);
+      }
+    }
+    recipients.forEach(Watcher::drain);
+  }
+
+  void publishVersion(long newVersion) {
+    List<Watcher> recipients;
+    synchronized (this) {
+      if (newVersion <= version) {
+        return;
+      }
+      recipients = resynchronize(newVersion);
+    }
+    recipients.forEach(Watcher::drain);
+  }
+
+  /**
+   * Move to the given version and tell watchers and listeners to resynchronize. Must be called
+   * while holding the lock.
+   *
+   * @return watchers that have events to send
+   */
+  private List<Watcher> resynchronize(long newVersion) {
+    version = newVersion;
+    for (Listener listener : listeners) {
+      listener.versionUpdated(version);
+    }
+    return enqueue(
+        Collections.singletonList(
+            WatchFeatureSetsResponse.newBuilder()
+                .setType(EventType.CURRENT_VERSION)
+                .setVersion(version)
+                .build()));
+  }
+
+  /**
+   * Increment the persisted registry version by the given number of changes. If called within a
+   * transaction, the version stays locked until the transaction ends.
+   *
+   * @return the new version
+   */
+  private long incrementVersion(int changes) {
+    registryVersionRepository.increment(changes);
+    return readVersion();
+  }
+
+  private long readVersion() {
+    return registryVersionRepository
+        .findVersion()
+        .orElseThrow(() -> new IllegalStateException("Registry version is missing"));
+  }
+
+  private long initializeVersion() {
+    if (!registryVersionRepository.findVersion().isPresent()) {
+      // Start from the current time in milliseconds, so that versions keep increasing from those
+      // handed out before the version was persisted.
+      try {
+        registryVersionRepository.create(RegistryVersion.ID, System.currentTimeMillis());
+      } catch (DataIntegrityViolationException e) {
+        log.debug("Registry version was created by another instance");
+      }
+    }
+    return readVersion();
+  }
+
+  /**
+   * Queue events for every watcher, in the order they are published. Must be called while holding
+   * the lock, so that events are queued in version order. Watchers whose queue overflows are
+   * disconnected.
+   *
+   * @return watchers that have events to send
+   */
+  private List<Watcher> enqueue(List<WatchFeatureSetsResponse> events) {
+    List<Watcher> recipients = new ArrayList<>(watchers);
+    for (Watcher watcher : recipients) {
+      for (WatchFeatureSetsResponse event : events) {
+        if (!watcher.offer(event)) {
+          log.warn(
+              "Dropping feature set watcher with more than {} pending events", maxPendingEvents);
+          watchers.remove(watcher);
+          watcher.close(
+              Status.RESOURCE_EXHAUSTED.withDescription(
+                  "Too many pending feature set changes, reconnect to resynchronize"));
+          break;
+        }
+      }
+    }
+    return recipients;
+  }
+
+  private void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              action.run();
+            }
+          });
+    } else {
+      action.run();
+    }
+  }
+
+  private synchronized void unwatch(Watcher watcher) {
+    watchers.remove(watcher);
+  }
+
+  /** Receives committed changes in version order, while the changes are being published. */
+  public interface Listener {
+
+    /**
+     * Called when a feature set has been created or updated.
+     *
+     * @param featureSet feature set after the change
+     * @param version registry version of the change
+     */
+    void featureSetUpdated(FeatureSetProto.FeatureSet featureSet, long version);
+
+    /**
+     * Called when the registry version has changed in a way that is not described by feature set
+     * changes, e.g. because store configuration or feature sets have been changed through another
+     * Core instance. Anything may have changed up to the new version.
+     *
+     * @param version new registry version
+     */
+    void versionUpdated(long version);
+  }
+
+  /**
+   * Stream of a single watcher, with the events that have been published but not yet sent to it.
+   * Events are sent by whichever thread drains the queue, one thread at a time.
+   */
+  private class Watcher {
+
+    private final StreamObserver<WatchFeatureSetsResponse> observer;
+    private final BlockingQueue<WatchFeatureSetsResponse> pending;
+    private volatile Status closeStatus;
+    private boolean closed = false;
+
+    Watcher(StreamObserver<WatchFeatureSetsResponse> observer) {
+      this.observer = observer;
+      this.pending = new LinkedBlockingQueue<>(maxPendingEvents);
+    }
+
+    boolean offer(WatchFeatureSetsResponse event) {
+      return pending.offer(event);
+    }
+
+    void close(Status status) {
+      closeStatus = status;
+    }
+
+    /** Send pending events for as long as the underlying call is ready to accept them. */
+    void drain() {
+      boolean failed = false;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        try {
+          if (closeStatus != null) {
+            closed = true;
+            pending.clear();
+            observer.onError(closeStatus.asRuntimeException());
+            return;
+          }
+          while (isReady()) {
+            WatchFeatureSetsResponse event = pending.poll();
+            if (event == null) {
+              break;
+            }
+            observer.onNext(event);
+          }
+        } catch (RuntimeException e) {
+          // The watcher will detect the version gap on reconnect and resynchronize.
+          log.warn("Dropping feature set watcher: {}", e.getMessage());
+          closed = true;
+          pending.clear();
+          failed = true;
+        }
+      }
+      if (failed) {
+        unwatch(this);
+      }
+    }
+
+    private boolean isReady() {
+      return !(observer instanceof ServerCallStreamObserver)
+          || ((ServerCallStreamObserver<WatchFeatureSetsResponse>) observer).isReady();
+    }
+  }
+}
@@ -16,6 +16,7 @@
  */
 package feast.core.service;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.config.FeastProperties;
 import feast.core.config.FeastProperties.JobProperties;
@@ -25,29 +26,49 @@ import feast.core.job.JobManager;
 import feast.core.job.JobUpdateTask;
 import feast.core.model.FeatureSet;
 import feast.core.model.Job;
+import feast.core.model.JobStatus;
 import feast.core.model.Source;
 import feast.core.model.Store;
+import feast.ingestion.utils.SpecUtil;
 import feast.proto.core.CoreServiceProto.ListStoresRequest.Filter;
 import feast.proto.core.CoreServiceProto.ListStoresResponse;
+import feast.proto.core.FeatureSetProto;
 import feast.proto.core.FeatureSetProto.FeatureSetStatus;
 import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.Subscription;
+import feast.storage.common.pattern.WildcardPattern;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Slf4j
 @Service
@@ -58,6 +79,23 @@ public class JobCoordinatorService {
   private final SpecService specService;
   private final JobManager jobManager;
   private final JobProperties jobProperties;
+  private final FeatureSetWatchService featureSetWatchService;
+  private final CoordinatorLeaseService coordinatorLeaseService;
+
+  private final ExecutorService jobUpdateExecutor;
+  // Runs scheduled polls and reconciles triggered by changes, one at a time.
+  private final ExecutorService reconcileExecutor;
+  private final TransactionTemplate transactionTemplate;
+  // Registry version the desired jobs were last reconciled at, -1 if never.
+  private volatile long reconciledVersion = -1;
+  // Partitions of the jobs that were last reconciled.
+  private volatile Set<Integer> reconciledPartitions = Collections.emptySet();
+  // Set if jobs have to be reconciled regardless of the registry version.
+  private final AtomicBoolean reconcileRequested = new AtomicBoolean();
+  // Set while a reconcile is queued on the reconcile executor.
+  private final AtomicBoolean reconcileScheduled = new AtomicBoolean();
+  // Feature set changes made by the reconcile in progress.
+  private int ownUpdates;
 
   @Autowired
   public JobCoordinatorService(
@@ -65,16 +103,36 @@ public class JobCoordinatorService {
       FeatureSetRepository featureSetRepository,
       SpecService specService,
       JobManager jobManager,
-      FeastProperties feastProperties) {
+      FeastProperties feastProperties,
+      FeatureSetWatchService featureSetWatchService,
+      CoordinatorLeaseService coordinatorLeaseService,
+      PlatformTransactionManager transactionManager) {
     this.jobRepository = jobRepository;
     this.featureSetRepository = featureSetRepository;
     this.specService = specService;
     this.jobManager = jobManager;
     this.jobProperties = feastProperties.getJobs();
+    this.featureSetWatchService = featureSetWatchService;
+    this.coordinatorLeaseService = coordinatorLeaseService;
+    this.jobUpdateExecutor =
+        Executors.newFixedThreadPool(
+            jobProperties.getJobUpdateThreads(),
+            new ThreadFactoryBuilder().setNameFormat("job-update-%d").setDaemon(true).build());
+    this.reconcileExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("job-reconcile").setDaemon(true).build());
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    featureSetWatchService.addListener(new ReconcileTrigger());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    reconcileExecutor.shutdownNow();
+    jobUpdateExecutor.shutdownNow();
   }
 
   /**
-   * Poll does the following:
+   * Poll reconciles the jobs that should run with the jobs that are running:
    *
    * <p>1) Checks DB and extracts jobs that have to run based on the specs available
    *
@@ -83,110 +141,583 @@ public class JobCoordinatorService {
    * <p>3) Updates job object in DB with status, feature sets
    *
    * <p>4) Updates Feature set statuses
+   *
+   * <p>Jobs are only reconciled if feature sets or stores have changed since the last poll, as
+   * tracked by the registry version of {@link FeatureSetWatchService}, or if the status of a job
+   * has changed or a job failed to start or update since. Changes to feature sets and stores
+   * trigger a poll right away, see {@link #scheduleReconcile()}, so the scheduled poll is only a
+   * safety net that picks up job status changes, failed updates and partitions taken over from
+   * other instances. The status of running jobs is refreshed separately by {@link
+   * #pollJobStatuses()}.
+   *
+   * <p>Only the jobs of stores in the partitions leased by this instance from {@link
+   * CoordinatorLeaseService} are reconciled. The registry version is read from the database, so
+   * changes made through other instances sharing the database are picked up as well.
+   *
+   * <p>Polls run one at a time on the reconcile executor, so that a poll only starts once the jobs
+   * started by the previous one have been committed. This method waits for the poll to complete.
    */
-  @Transactional
   @Scheduled(fixedDelayString = "${feast.jobs.polling_interval_milliseconds}")
-  public void Poll() throws InvalidProtocolBufferException {
+  public void Poll() {
+    Future<?> poll;
+    try {
+      poll = reconcileExecutor.submit(this::runPoll);
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      return;
+    }
+    try {
+      poll.get();
+    } catch (ExecutionException e) {
+      log.warn("Unable to reconcile jobs: {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Queues a poll on the reconcile executor, unless one is queued already, so that changes are
+   * acted upon without waiting for the scheduled poll.
+   */
+  void scheduleReconcile() {
+    if (reconcileScheduled.getAndSet(true)) {
+      return;
+    }
+    try {
+      reconcileExecutor.execute(this::runPoll);
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      reconcileScheduled.set(false);
+    }
+  }
+
+  /**
+   * Reconciles jobs, and records what has been reconciled once the reconciled jobs have been
+   * committed. Must only be run on the reconcile executor.
+   *
+   * <p>Starting or updating jobs blocks on the runner for up to the job update timeout, so no
+   * transaction is held meanwhile. The jobs to reconcile are planned in one short transaction, and
+   * the jobs started or updated are saved together with the resulting feature set statuses in
+   * another.
+   */
+  private void runPoll() {
+    reconcileScheduled.set(false);
+    try {
+      Reconciliation reconciliation = transactionTemplate.execute(status -> planIfChanged());
+      if (reconciliation == null) {
+        return;
+      }
+      runJobUpdates(reconciliation);
+      Boolean synchronizing =
+          transactionTemplate.execute(
+              status -> {
+                if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                  saveReconciliation(reconciliation);
+                  return false;
+                }
+                // Registered ahead of the feature set status updates published by the reconcile,
+                // so that those are known to be reconciled when they are published.
+                TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                      @Override
+                      public void afterCommit() {
+                        reconciliation.record();
+                      }
+                    });
+                saveReconciliation(reconciliation);
+                return true;
+              });
+      // Without transaction synchronization, the transaction has committed once it returns.
+      if (!Boolean.TRUE.equals(synchronizing)) {
+        reconciliation.record();
+      }
+    } catch (RuntimeException e) {
+      reconcileRequested.set(true);
+      log.warn("Unable to reconcile jobs: {}", e.getMessage());
+    }
+  }
+
+  /** @return the jobs to reconcile, or null if nothing has changed since the last poll */
+  private Reconciliation planIfChanged() {
+    Set<Integer> partitions = coordinatorLeaseService.getOwnedPartitions();
+    if (partitions.isEmpty()) {
+      log.debug("No partitions of jobs are leased by this instance.");
+      return null;
+    }
+    long version = featureSetWatchService.refreshVersion();
+    boolean requested = reconcileRequested.getAndSet(false);
+    if (version == reconciledVersion && partitions.equals(reconciledPartitions) && !requested) {
+      log.debug("No changes to feature sets, stores or jobs since the last poll.");
+      return null;
+    }
+    Reconciliation reconciliation = new Reconciliation(version, partitions);
+    planReconcile(reconciliation);
+    return reconciliation;
+  }
+
+  private void saveReconciliation(Reconciliation reconciliation) {
+    ownUpdates = 0;
+    try {
+      saveJobs(reconciliation);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException(e);
+    }
+    // Feature set statuses updated by the reconcile itself do not call for another one. The
+    // version is locked by this transaction once updated, so it only moves past those updates
+    // if changes were made through another instance before, which are then reconciled next.
+    long updatedVersion = reconciliation.plannedVersion + ownUpdates;
+    reconciliation.version =
+        ownUpdates > 0 && featureSetWatchService.getPersistedVersion() == updatedVersion
+            ? updatedVersion
+            : reconciliation.plannedVersion;
+  }
+
+  /**
+   * Refreshes the status of all active jobs of this runner, using as few calls to the runner as it
+   * allows. Jobs are reconciled on the next poll if the status of any job has changed, so that
+   * failed jobs are replaced and feature set statuses follow their jobs.
+   */
+  @Transactional
+  @Scheduled(fixedDelayString = "${feast.jobs.status_polling_interval_milliseconds}")
+  public void pollJobStatuses() {
+    List<Job> activeJobs =
+        jobRepository.findByStatusNotIn(JobStatus.getTerminalStates()).stream()
+            .filter(job -> job.getRunner() == jobManager.getRunnerType())
+            .filter(job -> coordinatorLeaseService.ownsStore(job.getStore().getName()))
+            .collect(Collectors.toList());
+    if (activeJobs.isEmpty()) {
+      return;
+    }
+    Map<String, JobStatus> statuses = jobManager.getJobStatuses(activeJobs);
+    List<Job> changedJobs = new ArrayList<>();
+    for (Job job : activeJobs) {
+      JobStatus status = statuses.get(job.getId());
+      // Statuses of stores taken over by another instance while polling are left to that instance.
+      if (status != null
+          && status != job.getStatus()
+          && coordinatorLeaseService.ownsStore(job.getStore().getName())) {
+        log.info("Job {} status changed from {} to {}", job.getId(), job.getStatus(), status);
+        job.setStatus(status);
+        changedJobs.add(job);
+      }
+    }
+    if (!changedJobs.isEmpty()) {
+      jobRepository.saveAll(changedJobs);
+      // Polls started before the statuses are committed would reconcile the old ones.
+      afterCommit(() -> reconcileRequested.set(true));
+    }
+  }
+
+  private void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              action.run();
+            }
+          });
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Plans the jobs that should run for the stores in the partitions leased by this instance, with
+   * the jobs of retired shards to abort. The feature sets of the planned jobs are loaded, so that
+   * the runners can be called once the transaction has ended.
+   */
+  private void planReconcile(Reconciliation reconciliation) {
     log.info("Polling for new jobs...");
     @Positive long updateTimeout = jobProperties.getJobUpdateTimeoutSeconds();
     List<JobUpdateTask> jobUpdateTasks = new ArrayList<>();
     ListStoresResponse listStoresResponse = specService.listStores(Filter.newBuilder().build());
+    // Loaded once per poll, and only if any store is leased, to resolve all subscriptions against.
+    List<FeatureSet> allFeatureSets = null;
 
     for (StoreProto.Store storeSpec : listStoresResponse.getStoreList()) {
-      Set<FeatureSet> featureSets = new HashSet<>();
+      if (!coordinatorLeaseService.ownsStore(storeSpec.getName())) {
+        continue;
+      }
+      if (allFeatureSets == null) {
+        allFeatureSets = featureSetRepository.findAllWithFields();
+      }
       Store store = Store.fromProto(storeSpec);
+      Set<FeatureSet> featureSets = getSubscribedFeatureSets(store, allFeatureSets);
 
-      for (Subscription subscription : store.getSubscriptions()) {
-        List<FeatureSet> featureSetsForSub =
-            featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc(
-                subscription.getName().replace('*', '%'),
-                subscription.getProject().replace('*', '%'));
-        featureSets.addAll(featureSetsForSub);
+      List<Job> activeJobs = getActiveJobs(store);
+      int shards = Math.max(1, jobProperties.getShardsPerSource());
+      for (List<Source> sources : packSources(featureSets, activeJobs)) {
+        List<FeatureSet> setsForSources =
+            featureSets.stream()
+                .filter(featureSet -> sources.contains(featureSet.getSource()))
+                .collect(Collectors.toList());
+        for (Map.Entry<Integer, List<FeatureSet>> shard :
+            shardFeatureSets(setsForSources, shards).entrySet()) {
+          // A shard of a group of sources is still read by the job it was packed from, if any.
+          Optional<Job> originalJob =
+              activeJobs.stream()
+                  .filter(job -> job.getShard() == shard.getKey())
+                  .filter(job -> !Collections.disjoint(getSources(job), sources))
+                  .findFirst();
+          Source source = originalJob.map(Job::getSource).orElse(sources.get(0));
+          jobUpdateTasks.add(
+              new JobUpdateTask(
+                  shard.getValue(),
+                  source,
+                  store,
+                  originalJob,
+                  jobManager,
+                  updateTimeout,
+                  jobProperties.getSpecsRefreshIntervalSeconds() > 0,
+                  shard.getKey()));
+        }
       }
-
-      featureSets.stream()
-          .collect(Collectors.groupingBy(FeatureSet::getSource))
-          .forEach(
-              (source, setsForSource) -> {
-                Optional<Job> originalJob = getJob(source, store);
-                jobUpdateTasks.add(
-                    new JobUpdateTask(
-                        setsForSource, source, store, originalJob, jobManager, updateTimeout));
-              });
+      reconciliation.retiredJobs.addAll(getRetiredJobs(activeJobs, shards));
     }
     if (jobUpdateTasks.isEmpty()) {
       log.info("No jobs found.");
+    }
+
+    // Only groups whose job is missing or out of date are acted upon. The status of the jobs of
+    // the other groups is kept up to date by pollJobStatuses.
+    for (JobUpdateTask task : jobUpdateTasks) {
+      if (task.requiresAction()) {
+        reconciliation.outdatedTasks.add(task);
+      }
+      task.getCurrentJob().ifPresent(job -> reconciliation.jobs.put(task, job));
+    }
+  }
+
+  /** Aborts the jobs of retired shards, and starts or updates the jobs that are out of date. */
+  private void runJobUpdates(Reconciliation reconciliation) {
+    reconciliation.changedJobs.addAll(abortJobs(reconciliation.retiredJobs));
+    if (!reconciliation.outdatedTasks.isEmpty()) {
+      log.info("Creating/Updating {} jobs...", reconciliation.outdatedTasks.size());
+      Map<JobUpdateTask, Job> startedJobs = startOrUpdateJobs(reconciliation.outdatedTasks);
+      reconciliation.jobs.putAll(startedJobs);
+      reconciliation.changedJobs.addAll(startedJobs.values());
+    }
+  }
+
+  /**
+   * Saves the jobs aborted, started or updated by the reconcile, and updates the statuses of the
+   * feature sets of the reconciled jobs.
+   *
+   * <p>The feature sets of the jobs were read before the jobs were started or updated, and may have
+   * been changed since. The jobs are saved with their feature sets read again instead, since the
+   * feature sets would be saved along with the jobs otherwise, and only their statuses are updated.
+   */
+  private void saveJobs(Reconciliation reconciliation) throws InvalidProtocolBufferException {
+    if (reconciliation.jobs.isEmpty() && reconciliation.changedJobs.isEmpty()) {
       return;
     }
+    Set<Long> ready = new HashSet<>();
+    Set<Long> pending = new HashSet<>();
+    for (Job job : reconciliation.jobs.values()) {
+      Set<Long> statusIds = job.isRunning() ? ready : pending;
+      job.getFeatureSets().forEach(featureSet -> statusIds.add(featureSet.getId()));
+    }
+    ready.removeAll(pending);
+
+    Set<Long> featureSetIds = new HashSet<>();
+    reconciliation.changedJobs.forEach(
+        job -> job.getFeatureSets().forEach(featureSet -> featureSetIds.add(featureSet.getId())));
+    featureSetIds.addAll(ready);
+    featureSetIds.addAll(pending);
+    Map<Long, FeatureSet> featureSets =
+        featureSetRepository.findAllWithFieldsByIdIn(featureSetIds).stream()
+            .collect(Collectors.toMap(FeatureSet::getId, featureSet -> featureSet, (a, b) -> a));
 
-    log.info("Creating/Updating {} jobs...", jobUpdateTasks.size());
-    startOrUpdateJobs(jobUpdateTasks);
+    if (!reconciliation.changedJobs.isEmpty()) {
+      for (Job job : reconciliation.changedJobs) {
+        job.setFeatureSets(
+            job.getFeatureSets().stream()
+                .map(featureSet -> featureSets.get(featureSet.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+      }
+      jobRepository.saveAll(reconciliation.changedJobs);
+    }
 
     log.info("Updating feature set status");
-    updateFeatureSetStatuses(jobUpdateTasks);
+    for (FeatureSet featureSet : featureSets.values()) {
+      if (ready.contains(featureSet.getId())) {
+        updateFeatureSetStatus(featureSet, FeatureSetStatus.STATUS_READY);
+      } else if (pending.contains(featureSet.getId())) {
+        updateFeatureSetStatus(featureSet, FeatureSetStatus.STATUS_JOB_STARTING);
+      }
+    }
+    featureSetRepository.flush();
+  }
+
+  /**
+   * Resolves the subscriptions of a store against the given feature sets.
+   *
+   * @param store store whose subscriptions to resolve
+   * @param featureSets all registered feature sets
+   * @return feature sets the store subscribes to
+   */
+  static Set<FeatureSet> getSubscribedFeatureSets(Store store, List<FeatureSet> featureSets) {
+    Set<FeatureSet> subscribed = new HashSet<>();
+    for (Subscription subscription : store.getSubscriptions()) {
+      Pattern projectRegex = WildcardPattern.compile(subscription.getProject());
+      Pattern nameRegex = WildcardPattern.compile(subscription.getName());
+      featureSets.stream()
+          .filter(featureSet -> projectRegex.matcher(featureSet.getProject().getName()).matches())
+          .filter(featureSet -> nameRegex.matcher(featureSet.getName()).matches())
+          .forEach(subscribed::add);
+    }
+    return subscribed;
+  }
+
+  /**
+   * Packs the sources of the given feature sets into groups of at most {@code
+   * feast.jobs.max_sources_per_job} sources, each of which is read by a single job writing to the
+   * store.
+   *
+   * <p>Sources stay with the active job that already reads them, so that packing is stable across
+   * polls. Sources that are not read by any active job first fill the spare capacity of existing
+   * groups, in order of source id, before new groups are started.
+   *
+   * @param featureSets feature sets the store subscribes to
+   * @param activeJobs jobs writing to the store that have not terminated, latest first
+   * @return groups of sources, each to be read by one job
+   */
+  List<List<Source>> packSources(Set<FeatureSet> featureSets, List<Job> activeJobs) {
+    int maxSourcesPerJob = Math.max(1, jobProperties.getMaxSourcesPerJob());
+    Set<Source> unpacked =
+        featureSets.stream()
+            .map(FeatureSet::getSource)
+            .sorted(Comparator.comparing(Source::getId))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    List<List<Source>> packs = new ArrayList<>();
+    for (Job job : activeJobs) {
+      List<Source> pack = new ArrayList<>();
+      for (Source source : getSources(job)) {
+        if (pack.size() < maxSourcesPerJob && unpacked.remove(source)) {
+          pack.add(source);
+        }
+      }
+      if (!pack.isEmpty()) {
+        packs.add(pack);
+      }
+    }
+
+    for (Source source : unpacked) {
+      List<Source> pack =
+          packs.stream()
+              .filter(p -> p.size() < maxSourcesPerJob)
+              .findFirst()
+              .orElseGet(
+                  () -> {
+                    List<Source> newPack = new ArrayList<>();
+                    packs.add(newPack);
+                    return newPack;
+                  });
+      pack.add(source);
+    }
+    return packs;
+  }
+
+  /**
+   * Splits the feature sets read from a group of sources into {@code feast.jobs.shards_per_source}
+   * shards, each of which is ingested by its own job. Feature sets are assigned to shards by the
+   * hash of their reference, so that they stay in the same shard as long as the number of shards is
+   * unchanged. Each job still reads all rows of its sources, and drops the rows of feature sets
+   * assigned to other shards, with the same assignment, before validating them.
+   *
+   * @param featureSets feature sets read from a group of sources
+   * @param shards number of shards
+   * @return non-empty shards of feature sets, by shard index
+   */
+  static SortedMap<Integer, List<FeatureSet>> shardFeatureSets(
+      List<FeatureSet> featureSets, int shards) {
+    SortedMap<Integer, List<FeatureSet>> featureSetsByShard = new TreeMap<>();
+    for (FeatureSet featureSet : featureSets) {
+      int shard = SpecUtil.getShard(featureSet.getReference(), shards);
+      featureSetsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(featureSet);
+    }
+    return featureSetsByShard;
   }
 
-  void startOrUpdateJobs(List<JobUpdateTask> tasks) {
-    ExecutorService executorService = Executors.newFixedThreadPool(tasks.size());
-    ExecutorCompletionService<Job> ecs = new ExecutorCompletionService<>(executorService);
-    tasks.forEach(ecs::submit);
+  /**
+   * @return the active jobs of shards that no longer exist, since the number of shards has been
+   *     reduced. Their feature sets have been assigned to the remaining shards.
+   */
+  private static List<Job> getRetiredJobs(List<Job> activeJobs, int shards) {
+    return activeJobs.stream().filter(job -> job.getShard() >= shards).collect(Collectors.toList());
+  }
 
-    int completedTasks = 0;
-    List<Job> startedJobs = new ArrayList<>();
-    while (completedTasks < tasks.size()) {
+  /**
+   * Aborts the given jobs of retired shards, unless their store has been taken over by another
+   * instance since the poll started.
+   *
+   * @return jobs aborted
+   */
+  private List<Job> abortJobs(List<Job> jobs) {
+    List<Job> abortedJobs = new ArrayList<>();
+    for (Job job : jobs) {
+      if (!coordinatorLeaseService.ownsStore(job.getStore().getName())) {
+        continue;
+      }
       try {
-        Job job = ecs.take().get();
+        jobManager.abortJob(job.getExtId());
+        job.setStatus(JobStatus.ABORTED);
+        abortedJobs.add(job);
+        log.info("Aborted job {} of retired shard {}", job.getId(), job.getShard());
+      } catch (RuntimeException e) {
+        log.warn("Unable to abort job {} of retired shard: {}", job.getId(), e.getMessage());
+      }
+    }
+    return abortedJobs;
+  }
+
+  /**
+   * Runs the given tasks on the job update executor. Jobs are reconciled again on the next poll if
+   * any task failed.
+   *
+   * @return jobs started or updated, by task
+   */
+  Map<JobUpdateTask, Job> startOrUpdateJobs(List<JobUpdateTask> tasks) {
+    Map<JobUpdateTask, Future<Job>> futures = new LinkedHashMap<>();
+    tasks.forEach(task -> futures.put(task, jobUpdateExecutor.submit(() -> callIfOwned(task))));
+
+    Map<JobUpdateTask, Job> startedJobs = new LinkedHashMap<>();
+    for (Map.Entry<JobUpdateTask, Future<Job>> future : futures.entrySet()) {
+      try {
+        Job job = future.getValue().get();
         if (job != null) {
-          startedJobs.add(job);
+          startedJobs.put(future.getKey(), job);
+        }
+        if (job == null || job.hasTerminated()) {
+          reconcileRequested.set(true);
         }
-      } catch (ExecutionException | InterruptedException e) {
+      } catch (ExecutionException e) {
         log.warn("Unable to start or update job: {}", e.getMessage());
+        reconcileRequested.set(true);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        reconcileRequested.set(true);
+        break;
       }
-      completedTasks++;
     }
-    jobRepository.saveAll(startedJobs);
-    executorService.shutdown();
+    return startedJobs;
   }
 
-  // TODO: make this more efficient
-  private void updateFeatureSetStatuses(List<JobUpdateTask> jobUpdateTasks) {
-    Set<FeatureSet> ready = new HashSet<>();
-    Set<FeatureSet> pending = new HashSet<>();
-    for (JobUpdateTask task : jobUpdateTasks) {
-      getJob(task.getSource(), task.getStore())
-          .ifPresent(
-              job -> {
-                if (job.isRunning()) {
-                  ready.addAll(job.getFeatureSets());
-                } else {
-                  pending.addAll(job.getFeatureSets());
-                }
-              });
+  /**
+   * Runs the job update task if this instance still coordinates the jobs of its store, which may
+   * have been taken over by another instance since the poll started.
+   */
+  private Job callIfOwned(JobUpdateTask task) {
+    if (!coordinatorLeaseService.ownsStore(task.getStore().getName())) {
+      log.warn("Skipping update of job for store {} that is no longer leased", task.getStore());
+      return null;
     }
-    ready.removeAll(pending);
-    ready.forEach(
-        fs -> {
-          fs.setStatus(FeatureSetStatus.STATUS_READY);
-          featureSetRepository.save(fs);
-        });
-    pending.forEach(
-        fs -> {
-          fs.setStatus(FeatureSetStatus.STATUS_JOB_STARTING);
-          featureSetRepository.save(fs);
-        });
-    featureSetRepository.flush();
+    return task.call();
+  }
+
+  private void updateFeatureSetStatus(FeatureSet featureSet, FeatureSetStatus status)
+      throws InvalidProtocolBufferException {
+    if (featureSet.getStatus() == status) {
+      return;
+    }
+    featureSet.setStatus(status);
+    featureSetRepository.save(featureSet);
+    featureSetWatchService.notifyUpdated(featureSet.toProto());
+    ownUpdates++;
+  }
+
+  // The source identifying the job comes first.
+  private static List<Source> getSources(Job job) {
+    List<Source> sources = new ArrayList<>();
+    sources.add(job.getSource());
+    job.getFeatureSets().stream()
+        .map(FeatureSet::getSource)
+        .filter(source -> !sources.contains(source))
+        .forEach(sources::add);
+    return sources;
+  }
+
+  private List<Job> getActiveJobs(Store store) {
+    return jobRepository.findByStoreName(store.getName()).stream()
+        .filter(job -> !job.hasTerminated())
+        .sorted(Comparator.comparing(Job::getLastUpdated).reversed())
+        .collect(Collectors.toList());
   }
 
   @Transactional
   public Optional<Job> getJob(Source source, Store store) {
+    return getJob(source, store, 0);
+  }
+
+  @Transactional
+  public Optional<Job> getJob(Source source, Store store, int shard) {
     List<Job> jobs =
         jobRepository.findBySourceIdAndStoreNameOrderByLastUpdatedDesc(
             source.getId(), store.getName());
-    jobs = jobs.stream().filter(job -> !job.hasTerminated()).collect(Collectors.toList());
+    jobs =
+        jobs.stream()
+            .filter(job -> !job.hasTerminated())
+            .filter(job -> job.getShard() == shard)
+            .collect(Collectors.toList());
     if (jobs.isEmpty()) {
       return Optional.empty();
     }
     // return the latest
     return Optional.of(jobs.get(0));
   }
+
+  /**
+   * Jobs reconciled by a poll, and the registry version and partitions they were reconciled at,
+   * recorded once the jobs have been committed.
+   */
+  private class Reconciliation {
+
+    // Registry version the jobs were planned at
+    private final long plannedVersion;
+    private final Set<Integer> partitions;
+    // Registry version reconciled, including the feature set status updates of the reconcile
+    private long version;
+
+    private final List<JobUpdateTask> outdatedTasks = new ArrayList<>();
+    private final List<Job> retiredJobs = new ArrayList<>();
+    // Jobs of the planned tasks, whose feature set statuses follow them
+    private final Map<JobUpdateTask, Job> jobs = new LinkedHashMap<>();
+    // Jobs aborted, started or updated, which have to be saved
+    private final List<Job> changedJobs = new ArrayList<>();
+
+    private Reconciliation(long plannedVersion, Set<Integer> partitions) {
+      this.plannedVersion = plannedVersion;
+      this.partitions = partitions;
+      this.version = plannedVersion;
+    }
+
+    private void record() {
+      reconciledVersion = version;
+      reconciledPartitions = partitions;
+    }
+  }
+
+  /**
+   * Reconciles jobs once feature set or store changes have been committed, unless the changes have
+   * been reconciled already, as the coordinator's own feature set status updates are.
+   */
+  private class ReconcileTrigger implements FeatureSetWatchService.Listener {
+
+    @Override
+    public void featureSetUpdated(FeatureSetProto.FeatureSet featureSet, long version) {
+      versionUpdated(version);
+    }
+
+    @Override
+    public void versionUpdated(long version) {
+      if (version <= reconciledVersion) {
+        return;
+      }
+      reconcileRequested.set(true);
+      scheduleReconcile();
+    }
+  }
 }
@@ -174,6 +174,7 @@ public class JobService {
 
     // restart job with job manager
     JobManager jobManager = this.jobManagers.get(job.getRunner());
+    job.recordFeatureSetSpecs();
     job = jobManager.restartJob(job);
     log.info(
         String.format(
@@ -19,6 +19,7 @@ package feast.core.service;
 import static feast.core.validators.Matchers.checkValidCharacters;
 import static feast.core.validators.Matchers.checkValidCharactersAllowAsterisk;
 
+import com.google.protobuf.Duration;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.dao.FeatureSetRepository;
 import feast.core.dao.ProjectRepository;
@@ -31,6 +32,7 @@ import feast.core.model.Store;
 import feast.core.validators.FeatureSetValidator;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetResponse;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetResponse.Status;
+import feast.proto.core.CoreServiceProto.ApplyFeatureSetsResponse;
 import feast.proto.core.CoreServiceProto.GetFeatureSetRequest;
 import feast.proto.core.CoreServiceProto.GetFeatureSetResponse;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
@@ -45,10 +47,22 @@ import feast.proto.core.FeatureSetProto.FeatureSetStatus;
 import feast.proto.core.SourceProto;
 import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.Subscription;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -64,17 +78,23 @@ public class SpecService {
   private final ProjectRepository projectRepository;
   private final StoreRepository storeRepository;
   private final Source defaultSource;
+  private final FeatureSetWatchService featureSetWatchService;
+  private final FeatureSetRegistry featureSetRegistry;
 
   @Autowired
   public SpecService(
       FeatureSetRepository featureSetRepository,
       StoreRepository storeRepository,
       ProjectRepository projectRepository,
-      Source defaultSource) {
+      Source defaultSource,
+      FeatureSetWatchService featureSetWatchService,
+      FeatureSetRegistry featureSetRegistry) {
     this.featureSetRepository = featureSetRepository;
     this.storeRepository = storeRepository;
     this.projectRepository = projectRepository;
     this.defaultSource = defaultSource;
+    this.featureSetWatchService = featureSetWatchService;
+    this.featureSetRegistry = featureSetRegistry;
   }
 
   /**
@@ -100,17 +120,100 @@ public class SpecService {
       request = request.toBuilder().setProject(Project.DEFAULT_NAME).build();
     }
 
-    FeatureSet featureSet;
+    String name = request.getName();
+    FeatureSetProto.FeatureSet featureSet =
+        featureSetRegistry
+            .get(request.getProject(), name)
+            .orElseThrow(
+                () ->
+                    new RetrievalException(
+                        String.format("Feature set with name \"%s\" could not be found.", name)));
+    return GetFeatureSetResponse.newBuilder().setFeatureSet(featureSet).build();
+  }
 
-    featureSet =
-        featureSetRepository.findFeatureSetByNameAndProject_Name(
-            request.getName(), request.getProject());
+  /**
+   * Return a page of the feature sets matching the filter in the request, ordered by feature set
+   * name and then project name. See {@link #listFeatureSets(ListFeatureSetsRequest.Filter)} for the
+   * filter semantics.
+   *
+   * <p>If a page size is given, at most that many feature sets are returned, together with a token
+   * that continues listing after the last returned feature set. Tokens identify a position in the
+   * ordering rather than an offset, so feature sets created between calls do not cause others to be
+   * skipped or repeated. Pages are retrieved from the database, starting at the position in the
+   * token, so that only the feature sets on the page are loaded.
+   *
+   * <p>If the request carries a registry version and the registry has not changed since, a
+   * NOT_MODIFIED response without feature sets is returned instead.
+   *
+   * @param request request containing the filter, page size, page token and registry version
+   * @return ListFeatureSetsResponse with the page of feature sets and the next page token, if any
+   */
+  public ListFeatureSetsResponse listFeatureSets(ListFeatureSetsRequest request)
+      throws InvalidProtocolBufferException {
+    // Read the version before the feature sets, so that the feature sets are at least as recent
+    long version = featureSetWatchService.refreshVersion();
+    if (isNotModified(request.getIfVersionNewerThan(), version)) {
+      return ListFeatureSetsResponse.newBuilder()
+          .setStatus(ListFeatureSetsResponse.Status.NOT_MODIFIED)
+          .setVersion(version)
+          .build();
+    }
 
-    if (featureSet == null) {
-      throw new RetrievalException(
-          String.format("Feature set with name \"%s\" could not be found.", request.getName()));
+    int pageSize = request.getPageSize();
+    if (pageSize < 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid listFeatureSetRequest. Page size must not be negative: %d", pageSize));
+    }
+    if (pageSize == 0 && request.getPageToken().isEmpty()) {
+      return listFeatureSets(request.getFilter()).toBuilder().setVersion(version).build();
+    }
+
+    ListFeatureSetsRequest.Filter filter = validateFilter(request.getFilter());
+    String afterName = "";
+    String afterProject = "";
+    if (!request.getPageToken().isEmpty()) {
+      String[] position = decodePageToken(request.getPageToken());
+      afterName = position[0];
+      afterProject = position[1];
+    }
+    // Retrieve one feature set more than requested, to find out whether there is a next page
+    List<Long> ids =
+        featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            toLikePattern(filter.getFeatureSetName()),
+            toLikePattern(filter.getProject()),
+            afterName,
+            afterProject,
+            pageSize == 0 ? Pageable.unpaged() : PageRequest.of(0, pageSize + 1));
+    boolean hasNextPage = pageSize > 0 && ids.size() > pageSize;
+    if (hasNextPage) {
+      ids = ids.subList(0, pageSize);
+    }
+
+    // Feature sets are returned in the order of their ids, which is the order of the database
+    // collation that the page token is compared under, rather than in the order of Java strings.
+    Map<Long, FeatureSetProto.FeatureSet> featureSetsById = new HashMap<>();
+    if (!ids.isEmpty()) {
+      for (FeatureSet featureSet : featureSetRepository.findAllWithFieldsByIdIn(ids)) {
+        featureSetsById.put(featureSet.getId(), featureSet.toProto());
+      }
+    }
+    ListFeatureSetsResponse.Builder response =
+        ListFeatureSetsResponse.newBuilder().setVersion(version);
+    FeatureSetProto.FeatureSet last = null;
+    for (Long id : ids) {
+      FeatureSetProto.FeatureSet featureSet = featureSetsById.get(id);
+      // Skip feature sets removed since their ids were read
+      if (featureSet != null) {
+        response.addFeatureSets(featureSet);
+        last = featureSet;
+      }
+    }
+    // The last feature set is the one of the last id, unless that has been removed since
+    if (hasNextPage && last != null) {
+      response.setNextPageToken(encodePageToken(last.getSpec()));
     }
-    return GetFeatureSetResponse.newBuilder().setFeatureSet(featureSet.toProto()).build();
+    return response.build();
   }
 
   /**
@@ -131,6 +234,31 @@ public class SpecService {
    */
   public ListFeatureSetsResponse listFeatureSets(ListFeatureSetsRequest.Filter filter)
       throws InvalidProtocolBufferException {
+    filter = validateFilter(filter);
+    String name = filter.getFeatureSetName();
+    String project = filter.getProject();
+
+    List<FeatureSetProto.FeatureSet> featureSets = new ArrayList<>();
+
+    if (project.contains("*") || name.contains("*")) {
+      // Find all feature sets matching a pattern
+      featureSets = featureSetRegistry.list(project, name);
+    } else {
+      // Find a specific feature set in a specific project
+      featureSetRegistry.get(project, name).ifPresent(featureSets::add);
+    }
+
+    return ListFeatureSetsResponse.newBuilder().addAllFeatureSets(featureSets).build();
+  }
+
+  /**
+   * Validate a feature set filter, see {@link #listFeatureSets(ListFeatureSetsRequest.Filter)}.
+   *
+   * @param filter filter to validate
+   * @return the filter, with the default project filled in if no project is given
+   */
+  private static ListFeatureSetsRequest.Filter validateFilter(
+      ListFeatureSetsRequest.Filter filter) {
     String name = filter.getFeatureSetName();
     String project = filter.getProject();
 
@@ -144,56 +272,40 @@ public class SpecService {
 
     // Autofill default project if project not specified
     if (project.isEmpty()) {
-      project = Project.DEFAULT_NAME;
+      return filter.toBuilder().setProject(Project.DEFAULT_NAME).build();
     }
 
-    List<FeatureSet> featureSets = new ArrayList<FeatureSet>() {};
-
-    if (project.contains("*")) {
-      // Matching a wildcard project
-      if (name.contains("*")) {
-        featureSets =
-            featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc(
-                name.replace('*', '%'), project.replace('*', '%'));
-      } else {
-        throw new IllegalArgumentException(
-            String.format(
-                "Invalid listFeatureSetRequest. Feature set name must be set to "
-                    + "\"*\" if the project name and feature set name aren't set explicitly: \n%s",
-                filter.toString()));
-      }
-    } else if (!project.contains("*")) {
-      // Matching a specific project
-      if (name.contains("*")) {
-        // Find all feature sets matching a pattern in a specific project
-        featureSets =
-            featureSetRepository.findAllByNameLikeAndProject_NameOrderByNameAsc(
-                name.replace('*', '%'), project);
-
-      } else if (!name.contains("*")) {
-        // Find a specific feature set in a specific project
-        FeatureSet featureSet =
-            featureSetRepository.findFeatureSetByNameAndProject_Name(name, project);
-        if (featureSet != null) {
-          featureSets.add(featureSet);
-        }
-      }
-    } else {
+    // Matching a wildcard project requires a feature set name pattern
+    if (project.contains("*") && !name.contains("*")) {
       throw new IllegalArgumentException(
           String.format(
-              "Invalid listFeatureSetRequest. Project name cannot be a pattern. It may only be"
-                  + "a specific project name or an asterisk: \n%s",
+              "Invalid listFeatureSetRequest. Feature set name must be set to "
+                  + "\"*\" if the project name and feature set name aren't set explicitly: \n%s",
               filter.toString()));
     }
+    return filter;
+  }
 
-    ListFeatureSetsResponse.Builder response = ListFeatureSetsResponse.newBuilder();
-    if (featureSets.size() > 0) {
-      for (FeatureSet featureSet : featureSets) {
-        response.addFeatureSets(featureSet.toProto());
-      }
+  /**
+   * Get stores matching the filter in the request. See {@link
+   * #listStores(ListStoresRequest.Filter)} for the filter semantics. If the request carries a
+   * registry version and the registry has not changed since, a NOT_MODIFIED response without stores
+   * is returned instead.
+   *
+   * @param request request containing the filter and registry version
+   * @return ListStoresResponse containing list of stores found matching the filter
+   */
+  @Transactional
+  public ListStoresResponse listStores(ListStoresRequest request) {
+    // Read the version before the stores, so that the stores are at least as recent
+    long version = featureSetWatchService.refreshVersion();
+    if (isNotModified(request.getIfVersionNewerThan(), version)) {
+      return ListStoresResponse.newBuilder()
+          .setStatus(ListStoresResponse.Status.NOT_MODIFIED)
+          .setVersion(version)
+          .build();
     }
-
-    return response.build();
+    return listStores(request.getFilter()).toBuilder().setVersion(version).build();
   }
 
   /**
@@ -240,16 +352,11 @@ public class SpecService {
    *
    * @param newFeatureSet Feature set that will be created or updated.
    */
+  @Transactional
   public ApplyFeatureSetResponse applyFeatureSet(FeatureSetProto.FeatureSet newFeatureSet)
       throws InvalidProtocolBufferException {
     // Autofill default project if not specified
-    if (newFeatureSet.getSpec().getProject().isEmpty()) {
-      newFeatureSet =
-          newFeatureSet
-              .toBuilder()
-              .setSpec(newFeatureSet.getSpec().toBuilder().setProject(Project.DEFAULT_NAME).build())
-              .build();
-    }
+    newFeatureSet = withDefaultProject(newFeatureSet);
 
     // Validate incoming feature set
     FeatureSetValidator.validateSpec(newFeatureSet);
@@ -267,13 +374,20 @@ public class SpecService {
     }
 
     // Set source to default if not set in proto
-    if (newFeatureSet.getSpec().getSource() == SourceProto.Source.getDefaultInstance()) {
-      newFeatureSet =
-          newFeatureSet
-              .toBuilder()
-              .setSpec(
-                  newFeatureSet.getSpec().toBuilder().setSource(defaultSource.toProto()).build())
-              .build();
+    newFeatureSet = withDefaultSource(newFeatureSet);
+
+    // If the featureSet remains unchanged, we do nothing. The registry is consulted first so that
+    // unchanged feature sets don't have to be loaded and rebuilt from the database, after picking
+    // up changes made through other Core instances.
+    featureSetWatchService.refreshVersion();
+    Optional<FeatureSetProto.FeatureSet> registeredFeatureSet =
+        featureSetRegistry.get(project_name, newFeatureSet.getSpec().getName());
+    if (registeredFeatureSet.isPresent()
+        && isUnchanged(registeredFeatureSet.get().getSpec(), newFeatureSet.getSpec())) {
+      return ApplyFeatureSetResponse.newBuilder()
+          .setFeatureSet(registeredFeatureSet.get())
+          .setStatus(Status.NO_CHANGE)
+          .build();
     }
 
     // Retrieve existing FeatureSet
@@ -289,7 +403,7 @@ public class SpecService {
       status = Status.CREATED;
     } else {
       // If the featureSet remains unchanged, we do nothing.
-      if (featureSet.toProto().getSpec().equals(newFeatureSet.getSpec())) {
+      if (isUnchanged(featureSet.toProto().getSpec(), newFeatureSet.getSpec())) {
         return ApplyFeatureSetResponse.newBuilder()
             .setFeatureSet(featureSet.toProto())
             .setStatus(Status.NO_CHANGE)
@@ -304,13 +418,153 @@ public class SpecService {
     project.addFeatureSet(featureSet);
     projectRepository.saveAndFlush(project);
 
+    // Notify watchers of the change
+    FeatureSetProto.FeatureSet appliedFeatureSet = featureSet.toProto();
+    featureSetWatchService.notifyUpdated(appliedFeatureSet);
+
     // Build ApplyFeatureSetResponse
     return ApplyFeatureSetResponse.newBuilder()
-        .setFeatureSet(featureSet.toProto())
+        .setFeatureSet(appliedFeatureSet)
         .setStatus(status)
         .build();
   }
 
+  /**
+   * Creates or updates several feature sets in the repository at once.
+   *
+   * <p>Each feature set is handled as in {@link #applyFeatureSet}. All feature sets are validated
+   * before any is persisted. Changed feature sets are then written in a single transaction, so that
+   * their inserts can be batched, and watchers are notified of all changes together once the
+   * transaction has committed.
+   *
+   * @param newFeatureSets Feature sets that will be created or updated.
+   * @return ApplyFeatureSetsResponse with the result for each feature set, in the given order.
+   */
+  @Transactional
+  public ApplyFeatureSetsResponse applyFeatureSets(List<FeatureSetProto.FeatureSet> newFeatureSets)
+      throws InvalidProtocolBufferException {
+    // Validate all incoming feature sets before making any change
+    List<FeatureSetProto.FeatureSet> validFeatureSets = new ArrayList<>();
+    Set<String> references = new HashSet<>();
+    for (FeatureSetProto.FeatureSet newFeatureSet : newFeatureSets) {
+      newFeatureSet = withDefaultProject(newFeatureSet);
+      FeatureSetValidator.validateSpec(newFeatureSet);
+      String reference =
+          String.format(
+              "%s/%s", newFeatureSet.getSpec().getProject(), newFeatureSet.getSpec().getName());
+      if (!references.add(reference)) {
+        throw new IllegalArgumentException(
+            String.format("Feature set is included more than once: %s", reference));
+      }
+      validFeatureSets.add(withDefaultSource(newFeatureSet));
+    }
+
+    // Find projects or create new ones if they do not exist
+    Map<String, Project> projects = new HashMap<>();
+    for (FeatureSetProto.FeatureSet newFeatureSet : validFeatureSets) {
+      String projectName = newFeatureSet.getSpec().getProject();
+      if (!projects.containsKey(projectName)) {
+        Project project = projectRepository.findById(projectName).orElse(new Project(projectName));
+        if (project.isArchived()) {
+          throw new IllegalArgumentException(String.format("Project is archived: %s", projectName));
+        }
+        projects.put(projectName, project);
+      }
+    }
+
+    // Feature sets unchanged according to the registry are not loaded. The others are retrieved
+    // with a single query, by their names and projects.
+    featureSetWatchService.refreshVersion();
+    List<FeatureSetProto.FeatureSet> registeredFeatureSets = new ArrayList<>();
+    Set<String> changedReferences = new HashSet<>();
+    Set<String> changedNames = new HashSet<>();
+    Set<String> changedProjects = new HashSet<>();
+    for (FeatureSetProto.FeatureSet newFeatureSet : validFeatureSets) {
+      FeatureSetProto.FeatureSet registeredFeatureSet =
+          featureSetRegistry
+              .get(newFeatureSet.getSpec().getProject(), newFeatureSet.getSpec().getName())
+              .filter(fs -> isUnchanged(fs.getSpec(), newFeatureSet.getSpec()))
+              .orElse(null);
+      registeredFeatureSets.add(registeredFeatureSet);
+      if (registeredFeatureSet == null) {
+        changedReferences.add(
+            String.format(
+                "%s/%s", newFeatureSet.getSpec().getProject(), newFeatureSet.getSpec().getName()));
+        changedNames.add(newFeatureSet.getSpec().getName());
+        changedProjects.add(newFeatureSet.getSpec().getProject());
+      }
+    }
+    Map<String, FeatureSet> existingFeatureSets = new HashMap<>();
+    if (!changedReferences.isEmpty()) {
+      // Feature sets whose names were applied in another project only are not needed.
+      for (FeatureSet featureSet :
+          featureSetRepository.findAllByNameInAndProject_NameIn(changedNames, changedProjects)) {
+        if (changedReferences.contains(featureSet.getReference())) {
+          existingFeatureSets.put(featureSet.getReference(), featureSet);
+        }
+      }
+    }
+
+    List<ApplyFeatureSetResponse> results = new ArrayList<>();
+    Map<Integer, FeatureSet> appliedFeatureSets = new LinkedHashMap<>();
+    Set<Project> updatedProjects = new LinkedHashSet<>();
+    for (int i = 0; i < validFeatureSets.size(); i++) {
+      FeatureSetProto.FeatureSet newFeatureSet = validFeatureSets.get(i);
+      if (registeredFeatureSets.get(i) != null) {
+        results.add(
+            ApplyFeatureSetResponse.newBuilder()
+                .setFeatureSet(registeredFeatureSets.get(i))
+                .setStatus(Status.NO_CHANGE)
+                .build());
+        continue;
+      }
+
+      Project project = projects.get(newFeatureSet.getSpec().getProject());
+      FeatureSet featureSet =
+          existingFeatureSets.get(
+              String.format("%s/%s", project.getName(), newFeatureSet.getSpec().getName()));
+      Status status;
+      if (featureSet == null) {
+        featureSet = FeatureSet.fromProto(newFeatureSet);
+        status = Status.CREATED;
+      } else if (isUnchanged(featureSet.toProto().getSpec(), newFeatureSet.getSpec())) {
+        results.add(
+            ApplyFeatureSetResponse.newBuilder()
+                .setFeatureSet(featureSet.toProto())
+                .setStatus(Status.NO_CHANGE)
+                .build());
+        continue;
+      } else {
+        featureSet.updateFromProto(newFeatureSet);
+        status = Status.UPDATED;
+      }
+
+      featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+      project.addFeatureSet(featureSet);
+      updatedProjects.add(project);
+      appliedFeatureSets.put(results.size(), featureSet);
+      results.add(ApplyFeatureSetResponse.newBuilder().setStatus(status).build());
+    }
+
+    // Persist all changes at once and fill in the applied feature sets
+    if (!updatedProjects.isEmpty()) {
+      projectRepository.saveAll(updatedProjects);
+      projectRepository.flush();
+    }
+    List<FeatureSetProto.FeatureSet> appliedProtos = new ArrayList<>();
+    for (Map.Entry<Integer, FeatureSet> applied : appliedFeatureSets.entrySet()) {
+      FeatureSetProto.FeatureSet appliedProto = applied.getValue().toProto();
+      appliedProtos.add(appliedProto);
+      int i = applied.getKey();
+      results.set(i, results.get(i).toBuilder().setFeatureSet(appliedProto).build());
+    }
+
+    // Notify watchers of all changes together
+    featureSetWatchService.notifyUpdated(appliedProtos);
+
+    return ApplyFeatureSetsResponse.newBuilder().addAllResults(results).build();
+  }
+
   /**
    * UpdateStore updates the repository with the new given store.
    *
@@ -342,9 +596,84 @@ public class SpecService {
 
     Store newStore = Store.fromProto(newStoreProto);
     storeRepository.save(newStore);
+    featureSetWatchService.notifyStoreUpdated();
     return UpdateStoreResponse.newBuilder()
         .setStatus(UpdateStoreResponse.Status.UPDATED)
         .setStore(updateStoreRequest.getStore())
         .build();
   }
+
+  private static FeatureSetProto.FeatureSet withDefaultProject(
+      FeatureSetProto.FeatureSet featureSet) {
+    if (!featureSet.getSpec().getProject().isEmpty()) {
+      return featureSet;
+    }
+    return featureSet
+        .toBuilder()
+        .setSpec(featureSet.getSpec().toBuilder().setProject(Project.DEFAULT_NAME).build())
+        .build();
+  }
+
+  private FeatureSetProto.FeatureSet withDefaultSource(FeatureSetProto.FeatureSet featureSet) {
+    if (featureSet.getSpec().getSource() != SourceProto.Source.getDefaultInstance()) {
+      return featureSet;
+    }
+    return featureSet
+        .toBuilder()
+        .setSpec(featureSet.getSpec().toBuilder().setSource(defaultSource.toProto()).build())
+        .build();
+  }
+
+  /**
+   * Check whether a requested feature set spec is equivalent to the registered one. Both specs are
+   * compared in the form feature sets are persisted in: entities and features are unordered, and
+   * the maximum age has a precision of seconds and defaults to zero.
+   */
+  private static boolean isUnchanged(
+      FeatureSetProto.FeatureSetSpec registeredSpec, FeatureSetProto.FeatureSetSpec requestedSpec) {
+    return normalize(registeredSpec).equals(normalize(requestedSpec));
+  }
+
+  private static FeatureSetProto.FeatureSetSpec normalize(FeatureSetProto.FeatureSetSpec spec) {
+    List<FeatureSetProto.EntitySpec> entities = new ArrayList<>(spec.getEntitiesList());
+    entities.sort(Comparator.comparing(FeatureSetProto.EntitySpec::getName));
+    List<FeatureSetProto.FeatureSpec> features = new ArrayList<>(spec.getFeaturesList());
+    features.sort(Comparator.comparing(FeatureSetProto.FeatureSpec::getName));
+    return spec.toBuilder()
+        .clearEntities()
+        .addAllEntities(entities)
+        .clearFeatures()
+        .addAllFeatures(features)
+        .setMaxAge(Duration.newBuilder().setSeconds(spec.getMaxAge().getSeconds()))
+        .build();
+  }
+
+  private static boolean isNotModified(long ifVersionNewerThan, long version) {
+    return ifVersionNewerThan > 0 && version <= ifVersionNewerThan;
+  }
+
+  /** Translate a name pattern with asterisks into an SQL LIKE pattern with backslash escapes. */
+  private static String toLikePattern(String pattern) {
+    return pattern.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("*", "%");
+  }
+
+  private static String encodePageToken(FeatureSetProto.FeatureSetSpec spec) {
+    String position = String.format("%s/%s", spec.getName(), spec.getProject());
+    return Base64.getUrlEncoder().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String[] decodePageToken(String pageToken) {
+    String[] position;
+    try {
+      position =
+          new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8).split("/");
+    } catch (IllegalArgumentException e) {
+      position = new String[0];
+    }
+    if (position.length != 2) {
+      throw new IllegalArgumentException(
+          String.format("Invalid listFeatureSetRequest. Malformed page token: %s", pageToken));
+    }
+    return position;
+  }
 }
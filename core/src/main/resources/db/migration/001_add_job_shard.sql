@@ -0,0 +1,7 @@
+-- Schema changes to databases created by earlier versions of Feast Core. Scripts in this directory
+-- run on startup, before Hibernate updates the schema, in the order of their names, and must be
+-- safe to run again on every startup.
+
+-- Shard of the feature sets of its sources that a job ingests. Existing jobs ingest all feature sets
+-- of their sources, which is shard 0 of a single shard.
+ALTER TABLE IF EXISTS jobs ADD COLUMN IF NOT EXISTS shard integer DEFAULT 0 NOT NULL;
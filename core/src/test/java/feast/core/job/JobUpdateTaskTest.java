@@ -24,14 +24,18 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import feast.core.model.Feature;
 import feast.core.model.FeatureSet;
 import feast.core.model.Job;
 import feast.core.model.JobStatus;
 import feast.core.model.Source;
 import feast.core.model.Store;
 import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetMeta;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSetStatus;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
 import feast.proto.core.SourceProto;
 import feast.proto.core.SourceProto.KafkaSourceConfig;
 import feast.proto.core.SourceProto.SourceType;
@@ -39,6 +43,7 @@ import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.RedisConfig;
 import feast.proto.core.StoreProto.Store.StoreType;
 import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.ValueProto.ValueType.Enum;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -99,6 +104,39 @@ public class JobUpdateTaskTest {
     return new JobUpdateTask(featureSets, source, store, currentJob, jobManager, 100L);
   }
 
+  JobUpdateTask makeRefreshingTask(FeatureSet featureSet, Job currentJob) {
+    return new JobUpdateTask(
+        Collections.singletonList(featureSet),
+        source,
+        store,
+        Optional.of(currentJob),
+        jobManager,
+        100L,
+        true);
+  }
+
+  FeatureSet makeFeatureSetWithFields() {
+    FeatureSet featureSet =
+        FeatureSet.fromProto(
+            FeatureSetProto.FeatureSet.newBuilder()
+                .setSpec(
+                    FeatureSetSpec.newBuilder()
+                        .setProject("project")
+                        .setName("featureSet")
+                        .addEntities(
+                            EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+                        .addFeatures(makeFeatureSpec("feature_1", Enum.INT64)))
+                .setMeta(FeatureSetMeta.newBuilder())
+                .build());
+    featureSet.setSource(source);
+    featureSet.setStatus(FeatureSetStatus.STATUS_READY);
+    return featureSet;
+  }
+
+  FeatureSpec makeFeatureSpec(String name, Enum valueType) {
+    return FeatureSpec.newBuilder().setName(name).setValueType(valueType).build();
+  }
+
   @Test
   public void shouldUpdateJobIfPresent() {
     FeatureSet featureSet2 =
@@ -117,6 +155,78 @@ public class JobUpdateTaskTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  public void shouldOnlyUpdateJobForUpdatedFeatureSetIfSpecsAreNotRefreshed() {
+    featureSet1.setStatus(FeatureSetStatus.STATUS_PENDING);
+    var featureSets = Collections.singletonList(featureSet1);
+    Job originalJob = makeJob("ext", featureSets, JobStatus.RUNNING);
+    originalJob.recordFeatureSetSpecs();
+
+    assertThat(
+        makeTask(featureSets, Optional.of(originalJob)).requiresUpdate(originalJob), is(true));
+    JobUpdateTask refreshingTask =
+        new JobUpdateTask(
+            featureSets, source, store, Optional.of(originalJob), jobManager, 100L, true);
+    assertThat(refreshingTask.requiresUpdate(originalJob), is(false));
+  }
+
+  @Test
+  public void shouldNotUpdateJobRefreshingSpecsForAddedFeature() {
+    FeatureSet featureSet = makeFeatureSetWithFields();
+    Job originalJob = makeJob("ext", Collections.singletonList(featureSet), JobStatus.RUNNING);
+    originalJob.recordFeatureSetSpecs();
+
+    featureSet.addFeature(Feature.fromProto(makeFeatureSpec("feature_2", Enum.STRING)));
+    featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+
+    assertThat(makeRefreshingTask(featureSet, originalJob).requiresUpdate(originalJob), is(false));
+  }
+
+  @Test
+  public void shouldUpdateJobRefreshingSpecsForRemovedFeature() {
+    FeatureSet featureSet = makeFeatureSetWithFields();
+    Job originalJob = makeJob("ext", Collections.singletonList(featureSet), JobStatus.RUNNING);
+    originalJob.recordFeatureSetSpecs();
+
+    featureSet.getFeatures().forEach(Feature::archive);
+    featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+
+    assertThat(makeRefreshingTask(featureSet, originalJob).requiresUpdate(originalJob), is(true));
+  }
+
+  @Test
+  public void shouldUpdateJobRefreshingSpecsForRetypedFeature() {
+    FeatureSet featureSet = makeFeatureSetWithFields();
+    Job originalJob = makeJob("ext", Collections.singletonList(featureSet), JobStatus.RUNNING);
+    originalJob.recordFeatureSetSpecs();
+
+    featureSet.getFeatures().forEach(feature -> feature.setType(Enum.STRING.toString()));
+    featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+
+    assertThat(makeRefreshingTask(featureSet, originalJob).requiresUpdate(originalJob), is(true));
+  }
+
+  @Test
+  public void shouldUpdateJobRefreshingSpecsForChangedEntity() {
+    FeatureSet featureSet = makeFeatureSetWithFields();
+    Job originalJob = makeJob("ext", Collections.singletonList(featureSet), JobStatus.RUNNING);
+    originalJob.recordFeatureSetSpecs();
+
+    featureSet.getEntities().forEach(entity -> entity.setType(Enum.STRING.toString()));
+    featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+
+    assertThat(makeRefreshingTask(featureSet, originalJob).requiresUpdate(originalJob), is(true));
+  }
+
+  @Test
+  public void shouldUpdateJobRefreshingSpecsIfSpecsWereNotRecorded() {
+    FeatureSet featureSet = makeFeatureSetWithFields();
+    Job originalJob = makeJob("ext", Collections.singletonList(featureSet), JobStatus.RUNNING);
+    featureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+
+    assertThat(makeRefreshingTask(featureSet, originalJob).requiresUpdate(originalJob), is(true));
+  }
+
   @Test
   public void shouldCreateJobIfNotPresent() {
     var featureSets = Collections.singletonList(featureSet1);
@@ -144,6 +254,29 @@ public class JobUpdateTaskTest {
     assertThat(updated.getStatus(), equalTo(JobStatus.ABORTING));
   }
 
+  @Test
+  public void shouldRecoverStandaloneJobNotRunningInThisInstance() {
+    var featureSets = Collections.singletonList(featureSet1);
+    Job originalJob =
+        new Job("job", "ext", Runner.STANDALONE, source, store, featureSets, JobStatus.UNKNOWN);
+    JobUpdateTask jobUpdateTask = makeTask(featureSets, Optional.of(originalJob));
+    Job expected =
+        new Job("job", "ext", Runner.STANDALONE, source, store, featureSets, JobStatus.RUNNING);
+    when(jobManager.restartJob(originalJob)).thenReturn(expected);
+
+    assertThat(jobUpdateTask.requiresAction(), is(true));
+    assertThat(jobUpdateTask.call(), equalTo(expected));
+  }
+
+  @Test
+  public void shouldNotRecoverJobsOfOtherRunnersWithUnknownStatus() {
+    var featureSets = Collections.singletonList(featureSet1);
+    Job originalJob = makeJob("ext", featureSets, JobStatus.UNKNOWN);
+    JobUpdateTask jobUpdateTask = makeTask(featureSets, Optional.of(originalJob));
+
+    assertThat(jobUpdateTask.requiresAction(), is(false));
+  }
+
   @Test
   public void shouldReturnJobWithErrorStatusIfFailedToSubmit() {
     var featureSets = Collections.singletonList(featureSet1);
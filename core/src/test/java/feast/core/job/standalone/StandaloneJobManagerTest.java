@@ -0,0 +1,214 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.job.standalone;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.Duration;
+import com.google.protobuf.util.JsonFormat;
+import feast.core.config.FeastProperties.MetricsProperties;
+import feast.core.exception.JobExecutionException;
+import feast.core.job.Runner;
+import feast.core.model.FeatureSet;
+import feast.core.model.Job;
+import feast.core.model.JobStatus;
+import feast.core.model.Source;
+import feast.core.model.Store;
+import feast.ingestion.options.ImportOptions;
+import feast.ingestion.standalone.StandaloneImportJob;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.SourceProto;
+import feast.proto.core.SourceProto.KafkaSourceConfig;
+import feast.proto.core.SourceProto.SourceType;
+import feast.proto.core.StoreProto;
+import feast.proto.core.StoreProto.Store.BigQueryConfig;
+import feast.proto.core.StoreProto.Store.RedisConfig;
+import feast.proto.core.StoreProto.Store.StoreType;
+import feast.proto.core.StoreProto.Store.Subscription;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class StandaloneJobManagerTest {
+  @Rule public final ExpectedException expectedException = ExpectedException.none();
+
+  private StandaloneJobManager jobManager;
+  private StandaloneImportJob importJob;
+  private SourceProto.Source source;
+  private FeatureSetProto.FeatureSet featureSet;
+
+  @Before
+  public void setUp() throws IOException {
+    Map<String, String> defaults = new HashMap<>();
+    defaults.put("consumersPerSource", "2");
+    MetricsProperties metricsProperties = new MetricsProperties();
+    metricsProperties.setEnabled(false);
+
+    jobManager = Mockito.spy(new StandaloneJobManager(defaults, metricsProperties));
+    importJob = mock(StandaloneImportJob.class);
+    doReturn(importJob).when(jobManager).createImportJob(any());
+
+    source =
+        SourceProto.Source.newBuilder()
+            .setType(SourceType.KAFKA)
+            .setKafkaSourceConfig(
+                KafkaSourceConfig.newBuilder()
+                    .setTopic("topic")
+                    .setBootstrapServers("servers:9092")
+                    .build())
+            .build();
+    featureSet =
+        FeatureSetProto.FeatureSet.newBuilder()
+            .setSpec(
+                FeatureSetSpec.newBuilder()
+                    .setName("featureSet")
+                    .setMaxAge(Duration.newBuilder())
+                    .setSource(source)
+                    .build())
+            .build();
+  }
+
+  @Test
+  public void shouldStartImportJobWithJobOptions() throws IOException {
+    StoreProto.Store store = redisStore();
+    Job job = newJob(store);
+
+    Job actual = jobManager.startJob(job);
+
+    ArgumentCaptor<ImportOptions> optionsCaptor = ArgumentCaptor.forClass(ImportOptions.class);
+    verify(jobManager, times(1)).createImportJob(optionsCaptor.capture());
+    verify(importJob, times(1)).start();
+    ImportOptions options = optionsCaptor.getValue();
+    assertThat(options.getJobName(), equalTo("job"));
+    assertThat(options.getConsumersPerSource(), equalTo(2));
+    assertThat(options.getConsumerGroup(), equalTo("feast_import_SERVING"));
+    assertThat(
+        options.getStoreJson(), equalTo(Lists.newArrayList(JsonFormat.printer().print(store))));
+    assertThat(actual.getExtId(), equalTo("job"));
+    assertThat(actual.getStatus(), equalTo(JobStatus.RUNNING));
+  }
+
+  @Test
+  public void shouldNotStartJobWritingToUnsupportedStore() throws IOException {
+    StoreProto.Store store =
+        StoreProto.Store.newBuilder()
+            .setName("WAREHOUSE")
+            .setType(StoreType.BIGQUERY)
+            .setBigqueryConfig(
+                BigQueryConfig.newBuilder().setProjectId("project").setDatasetId("dataset"))
+            .addSubscriptions(Subscription.newBuilder().setProject("*").setName("*").build())
+            .build();
+
+    expectedException.expect(JobExecutionException.class);
+    try {
+      jobManager.startJob(newJob(store));
+    } finally {
+      verify(jobManager, never()).createImportJob(any());
+    }
+  }
+
+  @Test
+  public void shouldReportStatusOfImportJob() throws IOException {
+    Job job = jobManager.startJob(newJob(redisStore()));
+
+    when(importJob.isRunning()).thenReturn(true);
+    assertThat(jobManager.getJobStatus(job), equalTo(JobStatus.RUNNING));
+
+    when(importJob.isRunning()).thenReturn(false);
+    when(importJob.getError()).thenReturn(new RuntimeException("consumer failed"));
+    assertThat(jobManager.getJobStatus(job), equalTo(JobStatus.ERROR));
+  }
+
+  @Test
+  public void shouldCloseImportJobOnAbort() throws IOException {
+    Job job = jobManager.startJob(newJob(redisStore()));
+
+    jobManager.abortJob(job.getExtId());
+
+    verify(importJob, times(1)).close();
+    assertThat(jobManager.getJobStatus(job), equalTo(JobStatus.ABORTED));
+  }
+
+  @Test
+  public void shouldStartImportJobOfShard() throws IOException {
+    Job job = newJob(redisStore());
+    job.setShard(1);
+
+    jobManager.startJob(job);
+
+    ArgumentCaptor<ImportOptions> optionsCaptor = ArgumentCaptor.forClass(ImportOptions.class);
+    verify(jobManager, times(1)).createImportJob(optionsCaptor.capture());
+    assertThat(optionsCaptor.getValue().getShard(), equalTo(1));
+    assertThat(optionsCaptor.getValue().getConsumerGroup(), equalTo("feast_import_SERVING_shard1"));
+  }
+
+  @Test
+  public void shouldShareConsumerGroupBetweenJobsOfTheSameShard() {
+    Job job = newJob(redisStore());
+    Job replacement = newJob(redisStore());
+    replacement.setId("replacement");
+    Job shard = newJob(redisStore());
+    shard.setShard(1);
+
+    assertThat(
+        StandaloneJobManager.getConsumerGroup(replacement),
+        equalTo(StandaloneJobManager.getConsumerGroup(job)));
+    assertThat(
+        StandaloneJobManager.getConsumerGroup(shard), equalTo("feast_import_SERVING_shard1"));
+  }
+
+  @Test
+  public void shouldReportJobsNotRunningInThisInstanceAsUnknown() {
+    assertThat(jobManager.getJobStatus(newJob(redisStore())), equalTo(JobStatus.UNKNOWN));
+  }
+
+  private StoreProto.Store redisStore() {
+    return StoreProto.Store.newBuilder()
+        .setName("SERVING")
+        .setType(StoreType.REDIS)
+        .setRedisConfig(RedisConfig.newBuilder().setHost("localhost").setPort(6379).build())
+        .addSubscriptions(Subscription.newBuilder().setProject("*").setName("*").build())
+        .build();
+  }
+
+  private Job newJob(StoreProto.Store store) {
+    return new Job(
+        "job",
+        "",
+        Runner.STANDALONE,
+        Source.fromProto(source),
+        Store.fromProto(store),
+        Lists.newArrayList(FeatureSet.fromProto(featureSet)),
+        JobStatus.PENDING);
+  }
+}
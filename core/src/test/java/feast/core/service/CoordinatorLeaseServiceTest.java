@@ -0,0 +1,168 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import feast.core.config.FeastProperties.JobProperties.CoordinatorProperties;
+import feast.core.dao.CoordinatorLeaseRepository;
+import feast.core.model.CoordinatorLease;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class CoordinatorLeaseServiceTest {
+
+  // Time of the database, skewed from the clock of the instance.
+  private static final Instant DATABASE_TIME = Instant.EPOCH.plusSeconds(3600);
+
+  @Mock private CoordinatorLeaseRepository leaseRepository;
+  @Mock private Clock clock;
+
+  private CoordinatorProperties properties;
+  private CoordinatorLeaseService leaseService;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    properties = new CoordinatorProperties();
+    properties.setLeaseEnabled(true);
+    properties.setPartitions(4);
+    when(clock.instant()).thenReturn(Instant.EPOCH);
+    when(leaseRepository.getCurrentTimestamp()).thenReturn(Date.from(DATABASE_TIME));
+    leaseService = new CoordinatorLeaseService(leaseRepository, properties, clock);
+  }
+
+  @Test
+  public void shouldCoordinateAllJobsIfLeasesAreDisabled() {
+    properties.setLeaseEnabled(false);
+    leaseService = new CoordinatorLeaseService(leaseRepository, properties, Clock.systemUTC());
+
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Set.of(0, 1, 2, 3)));
+    assertThat(leaseService.ownsStore("store"), equalTo(true));
+  }
+
+  @Test
+  public void shouldTakeShareOfFreePartitions() {
+    givenMembers(2);
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(0);
+    when(leaseRepository.create(anyString(), anyString(), any())).thenReturn(1);
+
+    leaseService.renew();
+
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Set.of(0, 1)));
+  }
+
+  @Test
+  public void shouldNotTakePartitionsLeasedByOtherInstances() {
+    givenMembers(1);
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(0);
+    when(leaseRepository.existsById(startsWith(CoordinatorLeaseService.PARTITION_PREFIX)))
+        .thenReturn(true);
+    when(leaseRepository.create(startsWith(CoordinatorLeaseService.MEMBER_PREFIX), any(), any()))
+        .thenReturn(1);
+
+    leaseService.renew();
+
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Collections.emptySet()));
+  }
+
+  @Test
+  public void shouldReleasePartitionsBeyondShareWhenInstanceJoins() {
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(1);
+    givenMembers(1);
+    leaseService.renew();
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Set.of(0, 1, 2, 3)));
+
+    givenMembers(2);
+    leaseService.renew();
+
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Set.of(0, 1)));
+    verify(leaseRepository, times(1)).release(eq("partition:2"), anyString(), any());
+    verify(leaseRepository, times(1)).release(eq("partition:3"), anyString(), any());
+  }
+
+  @Test
+  public void shouldTimeLeasesByTheDatabase() {
+    givenMembers(1);
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(1);
+
+    leaseService.renew();
+
+    Date expiresAt = Date.from(DATABASE_TIME.plusSeconds(properties.getLeaseSeconds()));
+    verify(leaseRepository, times(1)).renew(eq("partition:0"), anyString(), eq(expiresAt));
+    verify(leaseRepository, times(1))
+        .deleteExpired(CoordinatorLeaseService.MEMBER_PREFIX, Date.from(DATABASE_TIME));
+  }
+
+  @Test
+  public void shouldStopCoordinatingIfLeasesAreNotRenewedInTime() {
+    givenMembers(1);
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(1);
+    leaseService.renew();
+    assertThat(leaseService.ownsStore("store"), equalTo(true));
+
+    when(clock.instant()).thenReturn(Instant.EPOCH.plusSeconds(properties.getLeaseSeconds()));
+
+    assertThat(leaseService.getOwnedPartitions(), equalTo(Collections.emptySet()));
+    assertThat(leaseService.ownsStore("store"), equalTo(false));
+  }
+
+  @Test
+  public void shouldStopCoordinatingPartitionsBeforeReleasingThem() {
+    when(leaseRepository.renew(anyString(), anyString(), any())).thenReturn(1);
+    givenMembers(1);
+    leaseService.renew();
+
+    givenMembers(2);
+    when(leaseRepository.release(anyString(), anyString(), any()))
+        .thenAnswer(
+            invocation -> {
+              assertThat(leaseService.getOwnedPartitions(), equalTo(Set.of(0, 1)));
+              return 1;
+            });
+    leaseService.renew();
+
+    verify(leaseRepository, times(2)).release(startsWith("partition:"), anyString(), any());
+  }
+
+  private void givenMembers(int members) {
+    CoordinatorLease[] leases = new CoordinatorLease[members];
+    for (int i = 0; i < members; i++) {
+      leases[i] =
+          new CoordinatorLease(CoordinatorLeaseService.MEMBER_PREFIX + i, "core-" + i, new Date());
+    }
+    when(leaseRepository.findAllByNameStartingWithAndExpiresAtAfter(
+            eq(CoordinatorLeaseService.MEMBER_PREFIX), any()))
+        .thenReturn(Arrays.asList(leases));
+  }
+}
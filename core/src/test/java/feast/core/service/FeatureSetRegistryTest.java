@@ -0,0 +1,175 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import feast.core.dao.FeatureSetRepository;
+import feast.core.dao.RegistryVersionRepository;
+import feast.core.model.FeatureSet;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetStatus;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import io.prometheus.client.CollectorRegistry;
+import java.sql.Date;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class FeatureSetRegistryTest {
+
+  @Mock private FeatureSetRepository featureSetRepository;
+
+  private final AtomicLong persistedVersion = new AtomicLong(0);
+
+  private FeatureSetWatchService featureSetWatchService;
+  private FeatureSetRegistry featureSetRegistry;
+  private List<FeatureSet> featureSets;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    featureSets =
+        Arrays.asList(
+            newFeatureSet("fs2", "project1"),
+            newFeatureSet("fs1", "project1"),
+            newFeatureSet("other", "project1"),
+            newFeatureSet("fs1", "project2"));
+    when(featureSetRepository.findAllWithFields()).thenReturn(featureSets);
+
+    RegistryVersionRepository registryVersionRepository = mock(RegistryVersionRepository.class);
+    when(registryVersionRepository.findVersion())
+        .thenAnswer(invocation -> Optional.of(persistedVersion.get()));
+    when(registryVersionRepository.increment(anyLong()))
+        .thenAnswer(
+            invocation -> {
+              persistedVersion.addAndGet(invocation.getArgument(0));
+              return 1;
+            });
+    featureSetWatchService = new FeatureSetWatchService(registryVersionRepository, 1000);
+    featureSetRegistry = new FeatureSetRegistry(featureSetRepository, featureSetWatchService);
+  }
+
+  @Test
+  public void shouldLoadFeatureSetsFromRepositoryOnce() throws InvalidProtocolBufferException {
+    assertThat(
+        featureSetRegistry.get("project1", "fs1"),
+        equalTo(Optional.of(featureSets.get(1).toProto())));
+    assertThat(featureSetRegistry.get("project1", "missing"), equalTo(Optional.empty()));
+    assertThat(featureSetRegistry.get("missing", "fs1"), equalTo(Optional.empty()));
+    verify(featureSetRepository, times(1)).findAllWithFields();
+  }
+
+  @Test
+  public void shouldListFeatureSetsMatchingPatternsOrderedByName()
+      throws InvalidProtocolBufferException {
+    assertThat(
+        featureSetRegistry.list("project1", "fs*"),
+        equalTo(Arrays.asList(featureSets.get(1).toProto(), featureSets.get(0).toProto())));
+    assertThat(
+        featureSetRegistry.list("*", "fs1"),
+        equalTo(Arrays.asList(featureSets.get(1).toProto(), featureSets.get(3).toProto())));
+    assertThat(featureSetRegistry.list("*", "*").size(), equalTo(4));
+  }
+
+  @Test
+  public void shouldApplyPublishedChangesWithoutReloading() throws InvalidProtocolBufferException {
+    featureSetRegistry.get("project1", "fs1");
+
+    FeatureSetProto.FeatureSet updated =
+        featureSets
+            .get(1)
+            .toProto()
+            .toBuilder()
+            .setMeta(
+                featureSets
+                    .get(1)
+                    .toProto()
+                    .getMeta()
+                    .toBuilder()
+                    .setStatus(FeatureSetStatus.STATUS_PENDING))
+            .build();
+    FeatureSetProto.FeatureSet created = newFeatureSet("fs3", "project3").toProto();
+    featureSetWatchService.notifyUpdated(updated);
+    featureSetWatchService.notifyUpdated(created);
+
+    assertThat(featureSetRegistry.get("project1", "fs1"), equalTo(Optional.of(updated)));
+    assertThat(featureSetRegistry.get("project3", "fs3"), equalTo(Optional.of(created)));
+    assertThat(featureSetRegistry.getVersion(), equalTo(2L));
+    verify(featureSetRepository, times(1)).findAllWithFields();
+  }
+
+  @Test
+  public void shouldReloadAfterChangesMadeThroughOtherInstances()
+      throws InvalidProtocolBufferException {
+    featureSetRegistry.get("project1", "fs1");
+    persistedVersion.set(5);
+    featureSetWatchService.refreshVersion();
+    featureSetRegistry.get("project1", "fs1");
+
+    assertThat(featureSetRegistry.getVersion(), equalTo(5L));
+    verify(featureSetRepository, times(2)).findAllWithFields();
+  }
+
+  @Test
+  public void shouldCountLookupsByOutcome() throws InvalidProtocolBufferException {
+    double hits = getLookups("hit");
+    double loads = getLookups("load");
+
+    featureSetRegistry.get("project1", "fs1");
+    featureSetRegistry.list("*", "*");
+    featureSetRegistry.get("project1", "fs2");
+    featureSetRegistry.invalidate();
+    featureSetRegistry.get("project1", "fs1");
+
+    assertThat(getLookups("hit") - hits, equalTo(2.0));
+    assertThat(getLookups("load") - loads, equalTo(2.0));
+  }
+
+  private static double getLookups(String outcome) {
+    Double value =
+        CollectorRegistry.defaultRegistry.getSampleValue(
+            "feast_core_feature_set_registry_lookups_total",
+            new String[] {"outcome"},
+            new String[] {outcome});
+    return value == null ? 0 : value;
+  }
+
+  private FeatureSet newFeatureSet(String name, String project) {
+    FeatureSet featureSet =
+        TestObjectFactory.CreateFeatureSet(
+            name,
+            project,
+            Arrays.asList(TestObjectFactory.CreateEntity("entity", Enum.STRING)),
+            Arrays.asList(TestObjectFactory.CreateFeature("feature", Enum.INT64)));
+    featureSet.setCreated(Date.from(Instant.ofEpochSecond(10L)));
+    return featureSet;
+  }
+}
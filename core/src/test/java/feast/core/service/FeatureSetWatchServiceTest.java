@@ -0,0 +1,243 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.core.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import feast.core.dao.RegistryVersionRepository;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse.EventType;
+import feast.proto.core.FeatureSetProto.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class FeatureSetWatchServiceTest {
+
+  private AtomicLong persistedVersion;
+  private RegistryVersionRepository registryVersionRepository;
+  private FeatureSetWatchService featureSetWatchService;
+  private FeatureSet featureSet;
+
+  @Before
+  public void setUp() {
+    persistedVersion = new AtomicLong(0);
+    registryVersionRepository = mock(RegistryVersionRepository.class);
+    when(registryVersionRepository.findVersion())
+        .thenAnswer(invocation -> Optional.of(persistedVersion.get()));
+    when(registryVersionRepository.increment(anyLong()))
+        .thenAnswer(
+            invocation -> {
+              persistedVersion.addAndGet(invocation.getArgument(0));
+              return 1;
+            });
+    featureSetWatchService = new FeatureSetWatchService(registryVersionRepository, 2);
+    featureSet =
+        FeatureSet.newBuilder()
+            .setSpec(FeatureSetSpec.newBuilder().setProject("project1").setName("fs1"))
+            .build();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSendCurrentVersionFollowedByConsecutiveChanges() {
+    featureSetWatchService.notifyUpdated(featureSet);
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+    featureSetWatchService.notifyUpdated(featureSet);
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(2)).onNext(events.capture());
+    assertThat(
+        events.getAllValues().get(0),
+        equalTo(
+            WatchFeatureSetsResponse.newBuilder()
+                .setType(EventType.CURRENT_VERSION)
+                .setVersion(1)
+                .build()));
+    assertThat(
+        events.getAllValues().get(1),
+        equalTo(
+            WatchFeatureSetsResponse.newBuilder()
+                .setType(EventType.FEATURE_SET_UPDATED)
+                .setVersion(2)
+                .setFeatureSet(featureSet)
+                .build()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSendNewVersionWhenStoreIsUpdated() {
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+    featureSetWatchService.notifyStoreUpdated();
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(2)).onNext(events.capture());
+    assertThat(
+        events.getAllValues().get(1),
+        equalTo(
+            WatchFeatureSetsResponse.newBuilder()
+                .setType(EventType.CURRENT_VERSION)
+                .setVersion(1)
+                .build()));
+    assertThat(featureSetWatchService.getVersion(), equalTo(1L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSendEventPerFeatureSetUpdatedTogether() {
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+    featureSetWatchService.notifyUpdated(Arrays.asList(featureSet, featureSet));
+    featureSetWatchService.notifyUpdated(Collections.emptyList());
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(3)).onNext(events.capture());
+    assertThat(events.getAllValues().get(1).getVersion(), equalTo(1L));
+    assertThat(events.getAllValues().get(2).getVersion(), equalTo(2L));
+    assertThat(featureSetWatchService.getVersion(), equalTo(2L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldDropWatcherThatFailsToReceiveEvents() {
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+    doThrow(new IllegalStateException("call already closed")).when(watcher).onNext(any());
+
+    featureSetWatchService.notifyUpdated(featureSet);
+    featureSetWatchService.notifyUpdated(featureSet);
+
+    verify(watcher, times(2)).onNext(any());
+    assertThat(featureSetWatchService.getVersion(), equalTo(2L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldHoldEventsUntilWatcherIsReady() {
+    ServerCallStreamObserver<WatchFeatureSetsResponse> watcher =
+        mock(ServerCallStreamObserver.class);
+    when(watcher.isReady()).thenReturn(false);
+    featureSetWatchService.watch(watcher);
+    featureSetWatchService.notifyUpdated(featureSet);
+    verify(watcher, times(0)).onNext(any());
+
+    ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+    verify(watcher).setOnReadyHandler(onReady.capture());
+    when(watcher.isReady()).thenReturn(true);
+    onReady.getValue().run();
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(2)).onNext(events.capture());
+    assertThat(events.getAllValues().get(0).getVersion(), equalTo(0L));
+    assertThat(events.getAllValues().get(1).getVersion(), equalTo(1L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldDisconnectWatcherThatFallsBehind() {
+    ServerCallStreamObserver<WatchFeatureSetsResponse> slowWatcher =
+        mock(ServerCallStreamObserver.class);
+    when(slowWatcher.isReady()).thenReturn(false);
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(slowWatcher);
+    featureSetWatchService.watch(watcher);
+
+    featureSetWatchService.notifyUpdated(featureSet);
+    featureSetWatchService.notifyUpdated(featureSet);
+
+    ArgumentCaptor<StatusRuntimeException> error =
+        ArgumentCaptor.forClass(StatusRuntimeException.class);
+    verify(slowWatcher, times(0)).onNext(any());
+    verify(slowWatcher).onError(error.capture());
+    assertThat(error.getValue().getStatus().getCode(), equalTo(Status.Code.RESOURCE_EXHAUSTED));
+    verify(watcher, times(3)).onNext(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldResynchronizeWatchersWithChangesMadeThroughOtherInstances() {
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+    persistedVersion.set(5);
+
+    assertThat(featureSetWatchService.refreshVersion(), equalTo(5L));
+    assertThat(featureSetWatchService.refreshVersion(), equalTo(5L));
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(2)).onNext(events.capture());
+    assertThat(
+        events.getAllValues().get(1),
+        equalTo(
+            WatchFeatureSetsResponse.newBuilder()
+                .setType(EventType.CURRENT_VERSION)
+                .setVersion(5)
+                .build()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldResynchronizeOnGapAndSkipChangesPublishedLate() {
+    StreamObserver<WatchFeatureSetsResponse> watcher = mock(StreamObserver.class);
+    featureSetWatchService.watch(watcher);
+
+    featureSetWatchService.publishAll(List.of(featureSet), 3);
+    featureSetWatchService.publishAll(List.of(featureSet, featureSet), 1);
+
+    ArgumentCaptor<WatchFeatureSetsResponse> events =
+        ArgumentCaptor.forClass(WatchFeatureSetsResponse.class);
+    verify(watcher, times(2)).onNext(events.capture());
+    assertThat(events.getAllValues().get(1).getType(), equalTo(EventType.CURRENT_VERSION));
+    assertThat(events.getAllValues().get(1).getVersion(), equalTo(3L));
+    assertThat(featureSetWatchService.getVersion(), equalTo(3L));
+  }
+
+  @Test
+  public void shouldCreatePersistedVersionIfMissing() {
+    when(registryVersionRepository.findVersion())
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(42L));
+
+    assertThat(new FeatureSetWatchService(registryVersionRepository, 2).getVersion(), equalTo(42L));
+    verify(registryVersionRepository).create(anyInt(), anyLong());
+  }
+}
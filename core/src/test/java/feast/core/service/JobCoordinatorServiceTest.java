@@ -17,18 +17,27 @@
 package feast.core.service;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.config.FeastProperties;
 import feast.core.config.FeastProperties.JobProperties;
+import feast.core.config.FeastProperties.JobProperties.CoordinatorProperties;
+import feast.core.dao.CoordinatorLeaseRepository;
 import feast.core.dao.FeatureSetRepository;
 import feast.core.dao.JobRepository;
 import feast.core.job.JobManager;
@@ -39,10 +48,12 @@ import feast.core.model.Job;
 import feast.core.model.JobStatus;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest.Filter;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.ListStoresRequest;
 import feast.proto.core.CoreServiceProto.ListStoresResponse;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.FeatureSetProto.FeatureSetMeta;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSetStatus;
 import feast.proto.core.SourceProto.KafkaSourceConfig;
 import feast.proto.core.SourceProto.Source;
 import feast.proto.core.SourceProto.SourceType;
@@ -50,15 +61,23 @@ import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.RedisConfig;
 import feast.proto.core.StoreProto.Store.StoreType;
 import feast.proto.core.StoreProto.Store.Subscription;
+import java.time.Clock;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
 
 public class JobCoordinatorServiceTest {
 
@@ -67,8 +86,13 @@ public class JobCoordinatorServiceTest {
   @Mock JobManager jobManager;
   @Mock SpecService specService;
   @Mock FeatureSetRepository featureSetRepository;
+  @Mock FeatureSetWatchService featureSetWatchService;
+  @Mock CoordinatorLeaseRepository coordinatorLeaseRepository;
+  @Mock PlatformTransactionManager transactionManager;
 
   private FeastProperties feastProperties;
+  private CoordinatorLeaseService coordinatorLeaseService;
+  private long nextFeatureSetId = 1;
 
   @Before
   public void setUp() {
@@ -77,14 +101,25 @@ public class JobCoordinatorServiceTest {
     JobProperties jobProperties = new JobProperties();
     jobProperties.setJobUpdateTimeoutSeconds(5);
     feastProperties.setJobs(jobProperties);
+    coordinatorLeaseService =
+        new CoordinatorLeaseService(
+            coordinatorLeaseRepository, new CoordinatorProperties(), Clock.systemUTC());
   }
 
   @Test
   public void shouldDoNothingIfNoStoresFound() throws InvalidProtocolBufferException {
-    when(specService.listStores(any())).thenReturn(ListStoresResponse.newBuilder().build());
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().build());
     JobCoordinatorService jcs =
         new JobCoordinatorService(
-            jobRepository, featureSetRepository, specService, jobManager, feastProperties);
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
     jcs.Poll();
     verify(jobRepository, times(0)).saveAndFlush(any());
   }
@@ -98,14 +133,21 @@ public class JobCoordinatorServiceTest {
             .setRedisConfig(RedisConfig.newBuilder().build())
             .addSubscriptions(Subscription.newBuilder().setProject("*").setName("*").build())
             .build();
-    when(specService.listStores(any()))
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
         .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
     when(specService.listFeatureSets(
             Filter.newBuilder().setProject("*").setFeatureSetName("*").build()))
         .thenReturn(ListFeatureSetsResponse.newBuilder().build());
     JobCoordinatorService jcs =
         new JobCoordinatorService(
-            jobRepository, featureSetRepository, specService, jobManager, feastProperties);
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
     jcs.Poll();
     verify(jobRepository, times(0)).saveAndFlush(any());
   }
@@ -149,6 +191,8 @@ public class JobCoordinatorServiceTest {
             .setMeta(FeatureSetMeta.newBuilder())
             .build();
     FeatureSet featureSet2 = FeatureSet.fromProto(featureSetProto2);
+    featureSet1.setId(1);
+    featureSet2.setId(2);
     String extId = "ext";
     ArgumentCaptor<List<Job>> jobArgCaptor = ArgumentCaptor.forClass(List.class);
 
@@ -172,9 +216,8 @@ public class JobCoordinatorServiceTest {
             Arrays.asList(featureSet1, featureSet2),
             JobStatus.RUNNING);
 
-    when(featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc("%", "project1"))
-        .thenReturn(Lists.newArrayList(featureSet1, featureSet2));
-    when(specService.listStores(any()))
+    givenFeatureSets(featureSet1, featureSet2);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
         .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
 
     when(jobManager.startJob(argThat(new JobMatcher(expectedInput)))).thenReturn(expected);
@@ -182,7 +225,14 @@ public class JobCoordinatorServiceTest {
 
     JobCoordinatorService jcs =
         new JobCoordinatorService(
-            jobRepository, featureSetRepository, specService, jobManager, feastProperties);
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
     jcs.Poll();
     verify(jobRepository, times(1)).saveAll(jobArgCaptor.capture());
     List<Job> actual = jobArgCaptor.getValue();
@@ -238,6 +288,8 @@ public class JobCoordinatorServiceTest {
             .setMeta(FeatureSetMeta.newBuilder())
             .build();
     FeatureSet featureSet2 = FeatureSet.fromProto(featureSetProto2);
+    featureSet1.setId(1);
+    featureSet2.setId(2);
 
     Job expectedInput1 =
         new Job(
@@ -280,10 +332,9 @@ public class JobCoordinatorServiceTest {
             JobStatus.RUNNING);
     ArgumentCaptor<List<Job>> jobArgCaptor = ArgumentCaptor.forClass(List.class);
 
-    when(featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc("%", "project1"))
-        .thenReturn(Lists.newArrayList(featureSet1, featureSet2));
+    givenFeatureSets(featureSet1, featureSet2);
 
-    when(specService.listStores(any()))
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
         .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
 
     when(jobManager.startJob(argThat(new JobMatcher(expectedInput1)))).thenReturn(expected1);
@@ -292,7 +343,14 @@ public class JobCoordinatorServiceTest {
 
     JobCoordinatorService jcs =
         new JobCoordinatorService(
-            jobRepository, featureSetRepository, specService, jobManager, feastProperties);
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
     jcs.Poll();
 
     verify(jobRepository, times(1)).saveAll(jobArgCaptor.capture());
@@ -301,4 +359,640 @@ public class JobCoordinatorServiceTest {
     assertThat(actual.get(0), equalTo(expected1));
     assertThat(actual.get(1), equalTo(expected2));
   }
+
+  @Test
+  public void shouldPackSourcesIntoOneJobUpToMaxSourcesPerJob()
+      throws InvalidProtocolBufferException {
+    feastProperties.getJobs().setMaxSourcesPerJob(2);
+    StoreProto.Store store =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    FeatureSet featureSet1 = createFeatureSet("features1", createSource("topic1"));
+    FeatureSet featureSet2 = createFeatureSet("features2", createSource("topic2"));
+    ArgumentCaptor<Job> jobArgCaptor = ArgumentCaptor.forClass(Job.class);
+
+    givenFeatureSets(featureSet1, featureSet2);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
+    when(jobManager.startJob(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              job.setExtId("extId");
+              return job;
+            });
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    verify(jobManager, times(1)).startJob(jobArgCaptor.capture());
+    assertThat(
+        Sets.newHashSet(jobArgCaptor.getValue().getFeatureSets()),
+        equalTo(Sets.newHashSet(featureSet1, featureSet2)));
+  }
+
+  @Test
+  public void shouldKeepSourcesWithTheirActiveJobWhenPacking() {
+    feastProperties.getJobs().setMaxSourcesPerJob(2);
+    feast.core.model.Store store =
+        feast.core.model.Store.fromProto(
+            StoreProto.Store.newBuilder()
+                .setName("test")
+                .setType(StoreType.REDIS)
+                .setRedisConfig(RedisConfig.newBuilder().build())
+                .build());
+    FeatureSet featureSet1 = createFeatureSet("features1", createSource("topic1"));
+    FeatureSet featureSet2 = createFeatureSet("features2", createSource("topic2"));
+    FeatureSet featureSet3 = createFeatureSet("features3", createSource("topic3"));
+    Job activeJob =
+        new Job(
+            "job",
+            "extId",
+            Runner.DATAFLOW,
+            featureSet3.getSource(),
+            store,
+            Arrays.asList(featureSet3),
+            JobStatus.RUNNING);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    List<List<feast.core.model.Source>> packs =
+        jcs.packSources(
+            Sets.newHashSet(featureSet1, featureSet2, featureSet3),
+            Collections.singletonList(activeJob));
+
+    assertThat(
+        packs,
+        equalTo(
+            Arrays.asList(
+                Arrays.asList(featureSet3.getSource(), featureSet1.getSource()),
+                Collections.singletonList(featureSet2.getSource()))));
+  }
+
+  @Test
+  public void shouldShardFeatureSetsOfSourceAcrossJobs() throws InvalidProtocolBufferException {
+    feastProperties.getJobs().setShardsPerSource(2);
+    StoreProto.Store store =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    Source source = createSource("topic1");
+    FeatureSet featureSet1 = createFeatureSet("features1", source);
+    FeatureSet featureSet2 = createFeatureSet("features2", source);
+    FeatureSet featureSet3 = createFeatureSet("features3", source);
+    ArgumentCaptor<Job> jobArgCaptor = ArgumentCaptor.forClass(Job.class);
+
+    givenFeatureSets(featureSet1, featureSet2, featureSet3);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
+    when(jobManager.startJob(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              job.setExtId("extId");
+              return job;
+            });
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    verify(jobManager, times(2)).startJob(jobArgCaptor.capture());
+    Map<Integer, Set<FeatureSet>> featureSetsByShard =
+        jobArgCaptor.getAllValues().stream()
+            .collect(Collectors.toMap(Job::getShard, job -> Sets.newHashSet(job.getFeatureSets())));
+    assertThat(
+        featureSetsByShard,
+        equalTo(
+            Map.of(0, Sets.newHashSet(featureSet2), 1, Sets.newHashSet(featureSet1, featureSet3))));
+  }
+
+  @Test
+  public void shouldAbortJobsOfRetiredShards() throws InvalidProtocolBufferException {
+    StoreProto.Store storeSpec =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    feast.core.model.Store store = feast.core.model.Store.fromProto(storeSpec);
+    FeatureSet featureSet1 = createFeatureSet("features1", createSource("topic1"));
+    FeatureSet featureSet2 = createFeatureSet("features2", createSource("topic1"));
+    Job shard0Job =
+        new Job(
+            "job0",
+            "extId0",
+            Runner.DATAFLOW,
+            featureSet2.getSource(),
+            store,
+            Arrays.asList(featureSet2),
+            JobStatus.RUNNING,
+            0);
+    Job shard1Job =
+        new Job(
+            "job1",
+            "extId1",
+            Runner.DATAFLOW,
+            featureSet1.getSource(),
+            store,
+            Arrays.asList(featureSet1),
+            JobStatus.RUNNING,
+            1);
+
+    givenFeatureSets(featureSet1, featureSet2);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(storeSpec).build());
+    when(jobRepository.findByStoreName("test")).thenReturn(Arrays.asList(shard0Job, shard1Job));
+    when(jobManager.updateJob(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    verify(jobManager, times(1)).abortJob("extId1");
+    verify(jobManager, times(1)).updateJob(shard0Job);
+    assertThat(shard1Job.getStatus(), equalTo(JobStatus.ABORTED));
+    assertThat(
+        Sets.newHashSet(shard0Job.getFeatureSets()),
+        equalTo(Sets.newHashSet(featureSet1, featureSet2)));
+  }
+
+  @Test
+  public void shouldStartJobsOutsideOfTransactionsAndSaveThemWithFeatureSetsReadAgain()
+      throws InvalidProtocolBufferException {
+    StoreProto.Store storeSpec =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    FeatureSet featureSet = createFeatureSet("features1", createSource("topic1"));
+    // The feature set as read again once the job has started, after a change made meanwhile
+    FeatureSet changedFeatureSet = createFeatureSet("features1", createSource("topic1"));
+    changedFeatureSet.setId(featureSet.getId());
+    changedFeatureSet.setStatus(FeatureSetStatus.STATUS_PENDING);
+    ArgumentCaptor<List<Job>> jobArgCaptor = ArgumentCaptor.forClass(List.class);
+
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(storeSpec).build());
+    when(featureSetRepository.findAllWithFields()).thenReturn(Lists.newArrayList(featureSet));
+    when(featureSetRepository.findAllWithFieldsByIdIn(Set.of(featureSet.getId())))
+        .thenReturn(Lists.newArrayList(changedFeatureSet));
+    when(jobManager.startJob(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              job.setExtId("extId");
+              return job;
+            });
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    InOrder inOrder = inOrder(transactionManager, jobManager);
+    inOrder.verify(transactionManager).commit(any());
+    inOrder.verify(jobManager).startJob(any());
+    inOrder.verify(transactionManager).getTransaction(any());
+    inOrder.verify(transactionManager).commit(any());
+
+    verify(jobRepository, times(1)).saveAll(jobArgCaptor.capture());
+    assertThat(
+        jobArgCaptor.getValue().get(0).getFeatureSets().get(0), sameInstance(changedFeatureSet));
+    assertThat(changedFeatureSet.getStatus(), equalTo(FeatureSetStatus.STATUS_JOB_STARTING));
+    verify(featureSetRepository, times(1)).save(argThat(saved -> saved == changedFeatureSet));
+  }
+
+  @Test
+  public void shouldOnlyReconcileJobsAfterChanges() throws InvalidProtocolBufferException {
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().build());
+    when(featureSetWatchService.refreshVersion()).thenReturn(1L);
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+
+    jcs.Poll();
+    jcs.Poll();
+    verify(specService, times(1)).listStores(any(ListStoresRequest.Filter.class));
+
+    when(featureSetWatchService.refreshVersion()).thenReturn(2L);
+    jcs.Poll();
+    verify(specService, times(2)).listStores(any(ListStoresRequest.Filter.class));
+  }
+
+  @Test
+  public void shouldReconcileJobsAgainIfPollFailedToCommit() throws InvalidProtocolBufferException {
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().build());
+    when(featureSetWatchService.refreshVersion()).thenReturn(1L);
+    doThrow(new TransactionSystemException("Commit failed"))
+        .doNothing()
+        .when(transactionManager)
+        .commit(any());
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+
+    jcs.Poll();
+    jcs.Poll();
+    verify(specService, times(2)).listStores(any(ListStoresRequest.Filter.class));
+
+    jcs.Poll();
+    verify(specService, times(2)).listStores(any(ListStoresRequest.Filter.class));
+  }
+
+  @Test
+  public void shouldNotReconcileJobsAgainAfterOwnFeatureSetStatusUpdates()
+      throws InvalidProtocolBufferException {
+    StoreProto.Store storeSpec =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    FeatureSet featureSet = createFeatureSet("features1", createSource("topic1"));
+    Job runningJob =
+        new Job(
+            "job",
+            "extId",
+            Runner.DATAFLOW,
+            featureSet.getSource(),
+            feast.core.model.Store.fromProto(storeSpec),
+            Arrays.asList(featureSet),
+            JobStatus.RUNNING);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(storeSpec).build());
+    givenFeatureSets(featureSet);
+    when(jobRepository.findByStoreName("test")).thenReturn(Collections.singletonList(runningJob));
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+    when(featureSetWatchService.refreshVersion()).thenReturn(1L);
+    // The status update made by the reconcile increments the version.
+    when(featureSetWatchService.getPersistedVersion()).thenReturn(2L);
+    ArgumentCaptor<FeatureSetWatchService.Listener> listener =
+        ArgumentCaptor.forClass(FeatureSetWatchService.Listener.class);
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    verify(featureSetWatchService).addListener(listener.capture());
+
+    jcs.Poll();
+    assertThat(featureSet.getStatus(), equalTo(FeatureSetStatus.STATUS_READY));
+    verify(featureSetWatchService, times(1)).notifyUpdated(featureSet.toProto());
+
+    when(featureSetWatchService.refreshVersion()).thenReturn(2L);
+    listener.getValue().featureSetUpdated(featureSet.toProto(), 2L);
+    jcs.Poll();
+    verify(specService, after(200).times(1)).listStores(any(ListStoresRequest.Filter.class));
+  }
+
+  @Test
+  public void shouldReconcileJobsWhenFeatureSetsOrStoresChange()
+      throws InvalidProtocolBufferException {
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().build());
+    ArgumentCaptor<FeatureSetWatchService.Listener> listener =
+        ArgumentCaptor.forClass(FeatureSetWatchService.Listener.class);
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    verify(featureSetWatchService).addListener(listener.capture());
+
+    try {
+      // Store updates only change the registry version.
+      when(featureSetWatchService.refreshVersion()).thenReturn(1L);
+      listener.getValue().versionUpdated(1L);
+      verify(specService, timeout(5000).times(1)).listStores(any(ListStoresRequest.Filter.class));
+
+      when(featureSetWatchService.refreshVersion()).thenReturn(2L);
+      listener
+          .getValue()
+          .featureSetUpdated(createFeatureSet("features1", createSource("topic1")).toProto(), 2L);
+      verify(specService, timeout(5000).times(2)).listStores(any(ListStoresRequest.Filter.class));
+    } finally {
+      jcs.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldReconcileJobsAfterJobStatusChanged() throws InvalidProtocolBufferException {
+    feast.core.model.Store store =
+        feast.core.model.Store.fromProto(
+            StoreProto.Store.newBuilder()
+                .setName("test")
+                .setType(StoreType.REDIS)
+                .setRedisConfig(RedisConfig.newBuilder().build())
+                .build());
+    FeatureSet featureSet = createFeatureSet("features1", createSource("topic1"));
+    Job runningJob =
+        new Job(
+            "job",
+            "extId",
+            Runner.DATAFLOW,
+            featureSet.getSource(),
+            store,
+            Arrays.asList(featureSet),
+            JobStatus.RUNNING);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().build());
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+    when(jobRepository.findByStatusNotIn(JobStatus.getTerminalStates()))
+        .thenReturn(Collections.singletonList(runningJob));
+    when(jobManager.getJobStatuses(Collections.singletonList(runningJob)))
+        .thenReturn(Map.of("job", JobStatus.ERROR));
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    jcs.pollJobStatuses();
+    jcs.Poll();
+
+    assertThat(runningJob.getStatus(), equalTo(JobStatus.ERROR));
+    verify(jobRepository, times(1)).saveAll(Collections.singletonList(runningJob));
+    verify(specService, times(2)).listStores(any(ListStoresRequest.Filter.class));
+    verify(jobManager, times(0)).getJobStatus(any());
+  }
+
+  @Test
+  public void shouldOnlyReconcileJobsOfStoresInLeasedPartitions()
+      throws InvalidProtocolBufferException {
+    StoreProto.Store leasedStore =
+        StoreProto.Store.newBuilder()
+            .setName("leased")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*").build())
+            .build();
+    StoreProto.Store otherStore =
+        leasedStore
+            .toBuilder()
+            .setName("other")
+            .setSubscriptions(0, Subscription.newBuilder().setProject("project2").setName("*"))
+            .build();
+    FeatureSet featureSet1 = createFeatureSet("project1", "features1", createSource("topic1"));
+    FeatureSet featureSet2 = createFeatureSet("project2", "features2", createSource("topic1"));
+    CoordinatorLeaseService leaseService = mock(CoordinatorLeaseService.class);
+    when(leaseService.getOwnedPartitions()).thenReturn(Set.of(0));
+    when(leaseService.ownsStore("leased")).thenReturn(true);
+    when(leaseService.ownsStore("other")).thenReturn(false);
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(
+            ListStoresResponse.newBuilder().addStore(leasedStore).addStore(otherStore).build());
+    givenFeatureSets(featureSet1, featureSet2);
+    when(jobManager.startJob(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              job.setExtId("extId");
+              return job;
+            });
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+    ArgumentCaptor<Job> jobArgCaptor = ArgumentCaptor.forClass(Job.class);
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            leaseService,
+            transactionManager);
+    jcs.Poll();
+
+    verify(jobManager, times(1)).startJob(jobArgCaptor.capture());
+    assertThat(jobArgCaptor.getValue().getStore().getName(), equalTo("leased"));
+    assertThat(
+        Sets.newHashSet(jobArgCaptor.getValue().getFeatureSets()),
+        equalTo(Sets.newHashSet(featureSet1)));
+  }
+
+  @Test
+  public void shouldResolveSubscriptionsOfAllStoresWithOneQueryPerPoll()
+      throws InvalidProtocolBufferException {
+    StoreProto.Store store1 =
+        StoreProto.Store.newBuilder()
+            .setName("store1")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().build())
+            .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("*"))
+            .addSubscriptions(Subscription.newBuilder().setProject("project2").setName("*"))
+            .build();
+    StoreProto.Store store2 = store1.toBuilder().setName("store2").build();
+    when(specService.listStores(any(ListStoresRequest.Filter.class)))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(store1).addStore(store2).build());
+
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            coordinatorLeaseService,
+            transactionManager);
+    jcs.Poll();
+
+    verify(featureSetRepository, times(1)).findAllWithFields();
+  }
+
+  @Test
+  public void shouldMatchSubscriptionsByWildcardPatterns() {
+    feast.core.model.Store store =
+        feast.core.model.Store.fromProto(
+            StoreProto.Store.newBuilder()
+                .setName("test")
+                .setType(StoreType.REDIS)
+                .setRedisConfig(RedisConfig.newBuilder().build())
+                .addSubscriptions(Subscription.newBuilder().setProject("project1").setName("a_*"))
+                .addSubscriptions(Subscription.newBuilder().setProject("*").setName("exact"))
+                .build());
+    FeatureSet prefixed = createFeatureSet("project1", "a_b", createSource("topic1"));
+    FeatureSet underscoreNotMatched = createFeatureSet("project1", "axb", createSource("topic1"));
+    FeatureSet exact = createFeatureSet("project2", "exact", createSource("topic1"));
+    FeatureSet otherProject = createFeatureSet("project2", "a_b", createSource("topic1"));
+
+    Set<FeatureSet> subscribed =
+        JobCoordinatorService.getSubscribedFeatureSets(
+            store, Arrays.asList(prefixed, underscoreNotMatched, exact, otherProject));
+
+    assertThat(subscribed, equalTo(Sets.newHashSet(prefixed, exact)));
+  }
+
+  @Test
+  public void shouldNotUpdateJobStatusesOfStoresTakenOverWhilePolling() {
+    feast.core.model.Store store =
+        feast.core.model.Store.fromProto(
+            StoreProto.Store.newBuilder()
+                .setName("test")
+                .setType(StoreType.REDIS)
+                .setRedisConfig(RedisConfig.newBuilder().build())
+                .build());
+    FeatureSet featureSet = createFeatureSet("features1", createSource("topic1"));
+    Job runningJob =
+        new Job(
+            "job",
+            "extId",
+            Runner.DATAFLOW,
+            featureSet.getSource(),
+            store,
+            Arrays.asList(featureSet),
+            JobStatus.RUNNING);
+    CoordinatorLeaseService leaseService = mock(CoordinatorLeaseService.class);
+    // The lease of the store expires while the statuses are fetched from the runner.
+    when(leaseService.ownsStore("test")).thenReturn(true, false);
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+    when(jobRepository.findByStatusNotIn(JobStatus.getTerminalStates()))
+        .thenReturn(Collections.singletonList(runningJob));
+    when(jobManager.getJobStatuses(Collections.singletonList(runningJob)))
+        .thenReturn(Map.of("job", JobStatus.ERROR));
+    JobCoordinatorService jcs =
+        new JobCoordinatorService(
+            jobRepository,
+            featureSetRepository,
+            specService,
+            jobManager,
+            feastProperties,
+            featureSetWatchService,
+            leaseService,
+            transactionManager);
+
+    jcs.pollJobStatuses();
+
+    assertThat(runningJob.getStatus(), equalTo(JobStatus.RUNNING));
+    verify(jobRepository, times(0)).saveAll(any());
+  }
+
+  private Source createSource(String topic) {
+    return Source.newBuilder()
+        .setType(SourceType.KAFKA)
+        .setKafkaSourceConfig(
+            KafkaSourceConfig.newBuilder().setTopic(topic).setBootstrapServers("servers:9092"))
+        .build();
+  }
+
+  private FeatureSet createFeatureSet(String name, Source source) {
+    return createFeatureSet("project1", name, source);
+  }
+
+  private FeatureSet createFeatureSet(String project, String name, Source source) {
+    FeatureSet featureSet =
+        FeatureSet.fromProto(
+            FeatureSetProto.FeatureSet.newBuilder()
+                .setSpec(
+                    FeatureSetSpec.newBuilder()
+                        .setSource(source)
+                        .setProject(project)
+                        .setName(name))
+                .setMeta(FeatureSetMeta.newBuilder())
+                .build());
+    featureSet.setId(nextFeatureSetId++);
+    return featureSet;
+  }
+
+  // Feature sets are read when jobs are planned, and read again by id when the jobs are saved.
+  private void givenFeatureSets(FeatureSet... featureSets) {
+    when(featureSetRepository.findAllWithFields()).thenReturn(Lists.newArrayList(featureSets));
+    when(featureSetRepository.findAllWithFieldsByIdIn(any()))
+        .thenAnswer(
+            invocation -> {
+              Collection<Long> ids = invocation.getArgument(0);
+              return Arrays.stream(featureSets)
+                  .filter(featureSet -> ids.contains(featureSet.getId()))
+                  .collect(Collectors.toList());
+            });
+  }
 }
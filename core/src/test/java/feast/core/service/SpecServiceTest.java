@@ -19,6 +19,7 @@ package feast.core.service;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,8 +34,10 @@ import feast.core.exception.RetrievalException;
 import feast.core.model.*;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetResponse;
 import feast.proto.core.CoreServiceProto.ApplyFeatureSetResponse.Status;
+import feast.proto.core.CoreServiceProto.ApplyFeatureSetsResponse;
 import feast.proto.core.CoreServiceProto.GetFeatureSetRequest;
 import feast.proto.core.CoreServiceProto.GetFeatureSetResponse;
+import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest.Filter;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
 import feast.proto.core.CoreServiceProto.ListStoresRequest;
@@ -62,6 +65,7 @@ import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
 import org.tensorflow.metadata.v0.BoolDomain;
 import org.tensorflow.metadata.v0.FeaturePresence;
 import org.tensorflow.metadata.v0.FeaturePresenceWithinGroup;
@@ -86,6 +90,8 @@ public class SpecServiceTest {
 
   @Mock private ProjectRepository projectRepository;
 
+  @Mock private FeatureSetWatchService featureSetWatchService;
+
   @Rule public final ExpectedException expectedException = ExpectedException.none();
 
   private SpecService specService;
@@ -113,20 +119,11 @@ public class SpecServiceTest {
     FeatureSet featureSet4 = newDummyFeatureSet("f4", Project.DEFAULT_NAME);
     featureSets = Arrays.asList(featureSet1, featureSet2, featureSet3, featureSet4);
 
-    when(featureSetRepository.findAll()).thenReturn(featureSets);
-    when(featureSetRepository.findAllByOrderByNameAsc()).thenReturn(featureSets);
+    when(featureSetRepository.findAllWithFields()).thenReturn(featureSets);
     when(featureSetRepository.findFeatureSetByNameAndProject_Name("f1", "project1"))
         .thenReturn(featureSets.get(0));
     when(featureSetRepository.findFeatureSetByNameAndProject_Name("f2", "project1"))
         .thenReturn(featureSets.get(1));
-    when(featureSetRepository.findAllByNameLikeAndProject_NameOrderByNameAsc("f1", "project1"))
-        .thenReturn(featureSets.subList(0, 1));
-    when(featureSetRepository.findAllByNameLikeAndProject_NameOrderByNameAsc("asd", "project1"))
-        .thenReturn(Lists.newArrayList());
-    when(featureSetRepository.findAllByNameLikeAndProject_NameOrderByNameAsc("f%", "project1"))
-        .thenReturn(featureSets);
-    when(featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc("%", "%"))
-        .thenReturn(featureSets);
 
     when(projectRepository.findAllByArchivedIsFalse())
         .thenReturn(Collections.singletonList(new Project("project1")));
@@ -144,7 +141,13 @@ public class SpecServiceTest {
     when(storeRepository.findById("NOTFOUND")).thenReturn(Optional.empty());
 
     specService =
-        new SpecService(featureSetRepository, storeRepository, projectRepository, defaultSource);
+        new SpecService(
+            featureSetRepository,
+            storeRepository,
+            projectRepository,
+            defaultSource,
+            featureSetWatchService,
+            new FeatureSetRegistry(featureSetRepository, featureSetWatchService));
   }
 
   @Test
@@ -172,6 +175,7 @@ public class SpecServiceTest {
     List<FeatureSet> expectedFeatureSets =
         featureSets.stream()
             .filter(fs -> fs.getName().startsWith("f"))
+            .filter(fs -> fs.getProject().getName().equals("project1"))
             .collect(Collectors.toList());
     List<FeatureSetProto.FeatureSet> list = new ArrayList<>();
     for (FeatureSet expectedFeatureSet : expectedFeatureSets) {
@@ -183,6 +187,119 @@ public class SpecServiceTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  public void shouldListFeatureSetsInPages() throws InvalidProtocolBufferException {
+    for (int i = 0; i < featureSets.size(); i++) {
+      featureSets.get(i).setId(i + 1);
+    }
+    when(featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            "%", "%", "", "", PageRequest.of(0, 4)))
+        .thenReturn(Arrays.asList(1L, 2L, 3L, 4L));
+    when(featureSetRepository.findAllWithFieldsByIdIn(Arrays.asList(1L, 2L, 3L)))
+        .thenReturn(Arrays.asList(featureSets.get(2), featureSets.get(0), featureSets.get(1)));
+    when(featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            "%", "%", "f3", "project1", PageRequest.of(0, 4)))
+        .thenReturn(Collections.singletonList(4L));
+    when(featureSetRepository.findAllWithFieldsByIdIn(Collections.singletonList(4L)))
+        .thenReturn(Collections.singletonList(featureSets.get(3)));
+
+    Filter filter = Filter.newBuilder().setFeatureSetName("*").setProject("*").build();
+    ListFeatureSetsResponse firstPage =
+        specService.listFeatureSets(
+            ListFeatureSetsRequest.newBuilder().setFilter(filter).setPageSize(3).build());
+    ListFeatureSetsResponse secondPage =
+        specService.listFeatureSets(
+            ListFeatureSetsRequest.newBuilder()
+                .setFilter(filter)
+                .setPageSize(3)
+                .setPageToken(firstPage.getNextPageToken())
+                .build());
+
+    assertThat(
+        firstPage.getFeatureSetsList(),
+        equalTo(
+            Arrays.asList(
+                featureSets.get(0).toProto(),
+                featureSets.get(1).toProto(),
+                featureSets.get(2).toProto())));
+    assertThat(
+        secondPage.getFeatureSetsList(),
+        equalTo(Collections.singletonList(featureSets.get(3).toProto())));
+    assertThat(secondPage.getNextPageToken(), equalTo(""));
+  }
+
+  @Test
+  public void shouldListFeatureSetsInPagesInDatabaseOrder() throws InvalidProtocolBufferException {
+    // The database collation orders "a_b" before "aB", unlike String.compareTo.
+    FeatureSet underscored = newDummyFeatureSet("a_b", "project1");
+    underscored.setId(1);
+    FeatureSet upperCased = newDummyFeatureSet("aB", "project1");
+    upperCased.setId(2);
+    FeatureSet last = newDummyFeatureSet("ac", "project1");
+    last.setId(3);
+    when(featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            "%", "%", "", "", PageRequest.of(0, 3)))
+        .thenReturn(Arrays.asList(1L, 2L, 3L));
+    when(featureSetRepository.findAllWithFieldsByIdIn(Arrays.asList(1L, 2L)))
+        .thenReturn(Arrays.asList(upperCased, underscored));
+    when(featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            "%", "%", "aB", "project1", PageRequest.of(0, 3)))
+        .thenReturn(Collections.singletonList(3L));
+    when(featureSetRepository.findAllWithFieldsByIdIn(Collections.singletonList(3L)))
+        .thenReturn(Collections.singletonList(last));
+
+    Filter filter = Filter.newBuilder().setFeatureSetName("*").setProject("*").build();
+    ListFeatureSetsResponse firstPage =
+        specService.listFeatureSets(
+            ListFeatureSetsRequest.newBuilder().setFilter(filter).setPageSize(2).build());
+    ListFeatureSetsResponse secondPage =
+        specService.listFeatureSets(
+            ListFeatureSetsRequest.newBuilder()
+                .setFilter(filter)
+                .setPageSize(2)
+                .setPageToken(firstPage.getNextPageToken())
+                .build());
+
+    assertThat(
+        firstPage.getFeatureSetsList(),
+        equalTo(Arrays.asList(underscored.toProto(), upperCased.toProto())));
+    assertThat(secondPage.getFeatureSetsList(), equalTo(Collections.singletonList(last.toProto())));
+    assertThat(secondPage.getNextPageToken(), equalTo(""));
+  }
+
+  @Test
+  public void shouldEscapeLikeWildcardsWhenListingFeatureSetsInPages()
+      throws InvalidProtocolBufferException {
+    when(featureSetRepository.findIdsByNameLikeAndProjectLikeAfter(
+            ArgumentMatchers.any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.any(),
+            ArgumentMatchers.any()))
+        .thenReturn(Collections.emptyList());
+    specService.listFeatureSets(
+        ListFeatureSetsRequest.newBuilder()
+            .setFilter(Filter.newBuilder().setFeatureSetName("fs_*").setProject("my_project"))
+            .setPageSize(10)
+            .build());
+
+    verify(featureSetRepository)
+        .findIdsByNameLikeAndProjectLikeAfter(
+            "fs\\_%", "my\\_project", "", "", PageRequest.of(0, 11));
+    verify(featureSetRepository, times(0)).findAllWithFieldsByIdIn(ArgumentMatchers.any());
+  }
+
+  @Test
+  public void shouldThrowExceptionGivenMalformedPageToken() throws InvalidProtocolBufferException {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Malformed page token");
+    specService.listFeatureSets(
+        ListFeatureSetsRequest.newBuilder()
+            .setFilter(Filter.newBuilder().setFeatureSetName("*").setProject("*"))
+            .setPageToken("not-a-token")
+            .build());
+  }
+
   @Test
   public void shouldGetFeatureSetsByNameAndProject() throws InvalidProtocolBufferException {
     ListFeatureSetsResponse actual =
@@ -240,6 +357,49 @@ public class SpecServiceTest {
     assertThat(actual, equalTo(expected.build()));
   }
 
+  @Test
+  public void shouldReturnNotModifiedIfRegistryUnchangedSinceVersion()
+      throws InvalidProtocolBufferException {
+    when(featureSetWatchService.refreshVersion()).thenReturn(5L);
+    ListFeatureSetsResponse featureSetsResponse =
+        specService.listFeatureSets(
+            ListFeatureSetsRequest.newBuilder()
+                .setFilter(Filter.newBuilder().setFeatureSetName("*").setProject("*"))
+                .setIfVersionNewerThan(5L)
+                .build());
+    ListStoresResponse storesResponse =
+        specService.listStores(ListStoresRequest.newBuilder().setIfVersionNewerThan(5L).build());
+
+    assertThat(
+        featureSetsResponse,
+        equalTo(
+            ListFeatureSetsResponse.newBuilder()
+                .setStatus(ListFeatureSetsResponse.Status.NOT_MODIFIED)
+                .setVersion(5L)
+                .build()));
+    assertThat(
+        storesResponse,
+        equalTo(
+            ListStoresResponse.newBuilder()
+                .setStatus(ListStoresResponse.Status.NOT_MODIFIED)
+                .setVersion(5L)
+                .build()));
+    verify(storeRepository, times(0)).findAll();
+  }
+
+  @Test
+  public void shouldReturnStoresIfRegistryChangedSinceVersion()
+      throws InvalidProtocolBufferException {
+    when(featureSetWatchService.refreshVersion()).thenReturn(6L);
+    ListStoresResponse actual =
+        specService.listStores(ListStoresRequest.newBuilder().setIfVersionNewerThan(5L).build());
+    ListStoresResponse.Builder expected = ListStoresResponse.newBuilder().setVersion(6L);
+    for (Store expectedStore : stores) {
+      expected.addStore(expectedStore.toProto());
+    }
+    assertThat(actual, equalTo(expected.build()));
+  }
+
   @Test
   public void shouldThrowRetrievalExceptionIfNoStoresFoundWithName() {
     expectedException.expect(RetrievalException.class);
@@ -262,11 +422,33 @@ public class SpecServiceTest {
     assertThat(applyFeatureSetResponse.getFeatureSet(), equalTo(featureSets.get(0).toProto()));
   }
 
+  @Test
+  public void applyFeatureSetShouldReturnNoChangeIfRegisteredFeatureSetIsEquivalent()
+      throws InvalidProtocolBufferException {
+    FeatureSetSpec registeredSpec = featureSets.get(2).toProto().getSpec();
+    List<FeatureSpec> features = Lists.newArrayList(registeredSpec.getFeaturesList());
+    Collections.reverse(features);
+    FeatureSetSpec incomingFeatureSetSpec =
+        registeredSpec.toBuilder().clearFeatures().addAllFeatures(features).build();
+
+    ApplyFeatureSetResponse applyFeatureSetResponse =
+        specService.applyFeatureSet(
+            FeatureSetProto.FeatureSet.newBuilder().setSpec(incomingFeatureSetSpec).build());
+
+    verify(projectRepository, times(0)).saveAndFlush(ArgumentMatchers.any(Project.class));
+    assertThat(applyFeatureSetResponse.getStatus(), equalTo(Status.NO_CHANGE));
+  }
+
   @Test
   public void applyFeatureSetShouldApplyFeatureSetIfNotExists()
       throws InvalidProtocolBufferException {
     when(featureSetRepository.findFeatureSetByNameAndProject_Name("f2", "project1"))
         .thenReturn(null);
+    when(featureSetRepository.findAllWithFields())
+        .thenReturn(
+            featureSets.stream()
+                .filter(fs -> !fs.getName().equals("f2"))
+                .collect(Collectors.toList()));
 
     FeatureSetProto.FeatureSet incomingFeatureSet = newDummyFeatureSet("f2", "project1").toProto();
 
@@ -541,6 +723,100 @@ public class SpecServiceTest {
     specService.applyFeatureSet(incomingFeatureSet);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void applyFeatureSetsShouldPersistAndNotifyChangesTogether()
+      throws InvalidProtocolBufferException {
+    when(featureSetRepository.findAllByNameInAndProject_NameIn(
+            ArgumentMatchers.any(), ArgumentMatchers.eq(Set.of("project1"))))
+        .thenReturn(featureSets.subList(0, 2));
+    FeatureSetProto.FeatureSet unchangedFeatureSet = featureSets.get(0).toProto();
+    FeatureSetProto.FeatureSet updatedFeatureSet = featureSets.get(1).toProto();
+    updatedFeatureSet =
+        updatedFeatureSet
+            .toBuilder()
+            .setSpec(
+                updatedFeatureSet
+                    .getSpec()
+                    .toBuilder()
+                    .addFeatures(
+                        FeatureSpec.newBuilder().setName("feature2").setValueType(Enum.STRING)))
+            .build();
+    FeatureSetProto.FeatureSet createdFeatureSet = newDummyFeatureSet("f5", "project1").toProto();
+
+    ApplyFeatureSetsResponse response =
+        specService.applyFeatureSets(
+            Arrays.asList(unchangedFeatureSet, updatedFeatureSet, createdFeatureSet));
+
+    assertThat(
+        response.getResultsList().stream()
+            .map(ApplyFeatureSetResponse::getStatus)
+            .collect(Collectors.toList()),
+        equalTo(Arrays.asList(Status.NO_CHANGE, Status.UPDATED, Status.CREATED)));
+    assertThat(response.getResults(2).getFeatureSet().getSpec().getName(), equalTo("f5"));
+    verify(projectRepository, times(1)).saveAll(ArgumentMatchers.any());
+    verify(projectRepository, times(0)).saveAndFlush(ArgumentMatchers.any(Project.class));
+    ArgumentCaptor<Collection<FeatureSetProto.FeatureSet>> notified =
+        ArgumentCaptor.forClass(Collection.class);
+    verify(featureSetWatchService, times(1)).notifyUpdated(notified.capture());
+    assertThat(
+        new ArrayList<>(notified.getValue()),
+        equalTo(
+            Arrays.asList(
+                response.getResults(1).getFeatureSet(), response.getResults(2).getFeatureSet())));
+  }
+
+  @Test
+  public void applyFeatureSetsShouldOnlyLoadChangedFeatureSets()
+      throws InvalidProtocolBufferException {
+    FeatureSetProto.FeatureSet createdFeatureSet = newDummyFeatureSet("f5", "project1").toProto();
+    FeatureSetProto.FeatureSet otherFeatureSet = newDummyFeatureSet("f6", "project2").toProto();
+    // Loaded because of the names and projects of the applied feature sets, but not applied itself
+    FeatureSet unrelatedFeatureSet = newDummyFeatureSet("f5", "project2");
+    when(featureSetRepository.findAllByNameInAndProject_NameIn(
+            Set.of("f5", "f6"), Set.of("project1", "project2")))
+        .thenReturn(List.of(unrelatedFeatureSet));
+
+    ApplyFeatureSetsResponse response =
+        specService.applyFeatureSets(Arrays.asList(createdFeatureSet, otherFeatureSet));
+
+    assertThat(
+        response.getResultsList().stream()
+            .map(ApplyFeatureSetResponse::getStatus)
+            .collect(Collectors.toList()),
+        equalTo(Arrays.asList(Status.CREATED, Status.CREATED)));
+    verify(featureSetRepository, times(1))
+        .findAllByNameInAndProject_NameIn(Set.of("f5", "f6"), Set.of("project1", "project2"));
+  }
+
+  @Test
+  public void applyFeatureSetsShouldNotPersistAnyFeatureSetIfOneIsInvalid()
+      throws InvalidProtocolBufferException {
+    FeatureSetProto.FeatureSet validFeatureSet = newDummyFeatureSet("f5", "project1").toProto();
+    FeatureSetProto.FeatureSet archivedFeatureSet =
+        newDummyFeatureSet("f6", "archivedproject").toProto();
+
+    try {
+      specService.applyFeatureSets(Arrays.asList(validFeatureSet, archivedFeatureSet));
+      fail("Expected feature sets of an archived project to be rejected");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), equalTo("Project is archived: archivedproject"));
+    }
+    verify(projectRepository, times(0)).saveAll(ArgumentMatchers.any());
+    verify(featureSetWatchService, times(0))
+        .notifyUpdated(ArgumentMatchers.<Collection<FeatureSetProto.FeatureSet>>any());
+  }
+
+  @Test
+  public void applyFeatureSetsShouldFailWhenFeatureSetIsIncludedTwice()
+      throws InvalidProtocolBufferException {
+    FeatureSetProto.FeatureSet featureSet = newDummyFeatureSet("f5", "project1").toProto();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Feature set is included more than once: project1/f5");
+    specService.applyFeatureSets(Arrays.asList(featureSet, featureSet));
+  }
+
   @Test
   public void applyFeatureSetShouldAcceptFeatureLabels() throws InvalidProtocolBufferException {
     List<EntitySpec> entitySpecs = new ArrayList<>();
@@ -657,6 +933,7 @@ public class SpecServiceTest {
     verify(storeRepository, times(1)).save(argumentCaptor.capture());
     assertThat(argumentCaptor.getValue().toProto(), equalTo(newStore));
     assertThat(actual, equalTo(expected));
+    verify(featureSetWatchService, times(1)).notifyStoreUpdated();
   }
 
   @Test
@@ -19,12 +19,14 @@ package feast.ingestion;
 import static feast.ingestion.utils.SpecUtil.getFeatureSetReference;
 import static feast.ingestion.utils.StoreUtil.getFeatureSink;
 
+import com.google.common.base.Preconditions;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.ingestion.options.BZip2Decompressor;
 import feast.ingestion.options.ImportOptions;
 import feast.ingestion.options.StringListStreamConverter;
 import feast.ingestion.transform.ProcessAndValidateFeatureRows;
 import feast.ingestion.transform.ReadFromSource;
+import feast.ingestion.transform.RefreshFeatureSetSpecs;
 import feast.ingestion.transform.metrics.WriteFailureMetricsTransform;
 import feast.ingestion.transform.metrics.WriteSuccessMetricsTransform;
 import feast.ingestion.utils.SpecUtil;
@@ -39,14 +41,25 @@ import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import feast.storage.connectors.bigquery.writer.BigQueryDeadletterSink;
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.PipelineOptionsValidator;
+import org.apache.beam.sdk.transforms.Filter;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.slf4j.Logger;
 
@@ -71,11 +84,21 @@ public class ImportJob {
 
   @SuppressWarnings("UnusedReturnValue")
   public static PipelineResult runPipeline(ImportOptions options) throws IOException {
+    return createPipeline(options).run();
+  }
+
+  /**
+   * Build the import pipeline without running it.
+   *
+   * @param options options of the import job
+   * @return the pipeline
+   */
+  public static Pipeline createPipeline(ImportOptions options) throws IOException {
     /*
      * Steps:
-     * 1. Read messages from Feast Source as FeatureRow
+     * 1. Read messages from every Feast Source as FeatureRow
      * 2. Validate the feature rows to ensure the schema matches what is registered to the system
-     * 3. Write FeatureRow to the corresponding Store
+     * 3. Write FeatureRow to every Store subscribing to its feature set
      * 4. Write elements that failed to be processed to a dead letter queue.
      * 5. Write metrics to a metrics sink
      */
@@ -91,84 +114,168 @@ public class ImportJob {
     List<FeatureSet> featureSets = SpecUtil.parseFeatureSetSpecJsonList(featureSetJson);
     List<Store> stores = SpecUtil.parseStoreJsonList(options.getStoreJson());
 
+    // Every source is read once, and rows of all sources are validated together against the
+    // feature sets of all stores, before being written to every store subscribing to them.
+    Map<String, FeatureSetSpec> featureSetSpecs = new HashMap<>();
+    Map<Store, List<FeatureSet>> subscribedFeatureSetsByStore = new LinkedHashMap<>();
     for (Store store : stores) {
       List<FeatureSet> subscribedFeatureSets =
           SpecUtil.getSubscribedFeatureSets(store.getSubscriptionsList(), featureSets);
-
-      // Generate tags by key
-      Map<String, FeatureSetSpec> featureSetSpecsByKey = new HashMap<>();
-      subscribedFeatureSets.stream()
-          .forEach(
-              fs -> {
-                String ref = getFeatureSetReference(fs.getSpec());
-                featureSetSpecsByKey.put(ref, fs.getSpec());
-              });
-
-      FeatureSink featureSink = getFeatureSink(store, featureSetSpecsByKey);
-
-      // TODO: make the source part of the job initialisation options
-      Source source = subscribedFeatureSets.get(0).getSpec().getSource();
-
       for (FeatureSet featureSet : subscribedFeatureSets) {
-        // Ensure Store has valid configuration and Feast can access it.
-        featureSink.prepareWrite(featureSet);
+        featureSetSpecs.put(getFeatureSetReference(featureSet.getSpec()), featureSet.getSpec());
       }
+      subscribedFeatureSetsByStore.put(store, subscribedFeatureSets);
+    }
+    Set<Source> sources =
+        featureSetSpecs.values().stream()
+            .map(FeatureSetSpec::getSource)
+            .sorted(Comparator.comparing(ImportJob::getSourceName))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    // TODO: make deadletter destination type configurable
+    DeadletterSink deadletterSink =
+        options.getDeadLetterTableSpec() != null
+            ? new BigQueryDeadletterSink(options.getDeadLetterTableSpec())
+            : null;
 
-      // Step 1. Read messages from Feast Source as FeatureRow.
+    // Step 1. Read messages from each Feast Source as FeatureRow.
+    PCollectionList<FeatureRow> sourceRows = PCollectionList.empty(pipeline);
+    for (Source source : sources) {
+      String sourceName = getSourceName(source);
       PCollectionTuple convertedFeatureRows =
           pipeline.apply(
-              "ReadFeatureRowFromSource",
+              stepName("ReadFeatureRowFromSource", sourceName, sources.size() > 1),
               ReadFromSource.newBuilder()
                   .setSource(source)
                   .setSuccessTag(FEATURE_ROW_OUT)
                   .setFailureTag(DEADLETTER_OUT)
                   .build());
-
-      // Step 2. Process and validate incoming FeatureRows
-      PCollectionTuple validatedRows =
-          convertedFeatureRows
-              .get(FEATURE_ROW_OUT)
-              .apply(
-                  ProcessAndValidateFeatureRows.newBuilder()
-                      .setDefaultProject(options.getDefaultFeastProject())
-                      .setFeatureSetSpecs(featureSetSpecsByKey)
-                      .setSuccessTag(FEATURE_ROW_OUT)
-                      .setFailureTag(DEADLETTER_OUT)
-                      .build());
-
-      // Step 3. Write FeatureRow to the corresponding Store.
-      WriteResult writeFeatureRows =
-          validatedRows.get(FEATURE_ROW_OUT).apply("WriteFeatureRowToStore", featureSink.writer());
+      sourceRows = sourceRows.and(convertedFeatureRows.get(FEATURE_ROW_OUT));
 
       // Step 4. Write FailedElements to a dead letter table in BigQuery.
-      if (options.getDeadLetterTableSpec() != null) {
-        // TODO: make deadletter destination type configurable
-        DeadletterSink deadletterSink =
-            new BigQueryDeadletterSink(options.getDeadLetterTableSpec());
-
+      if (deadletterSink != null) {
         convertedFeatureRows
             .get(DEADLETTER_OUT)
-            .apply("WriteFailedElements_ReadFromSource", deadletterSink.write());
+            .apply(
+                stepName("WriteFailedElements_ReadFromSource", sourceName, sources.size() > 1),
+                deadletterSink.write());
+      }
+    }
+    PCollection<FeatureRow> convertedRows =
+        sourceRows.size() == 1
+            ? sourceRows.get(0)
+            : sourceRows.apply("FlattenSources", Flatten.pCollections());
 
-        validatedRows
-            .get(DEADLETTER_OUT)
-            .apply("WriteFailedElements_ValidateRows", deadletterSink.write());
+    // Feature set specs are refreshed while the job runs, if enabled, so that added features are
+    // validated and written without restarting the job.
+    PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView = null;
+    if (options.getSpecsRefreshIntervalSec() > 0) {
+      Preconditions.checkArgument(
+          options.getCoreAddress() != null,
+          "Core address is required to refresh feature set specs.");
+      featureSetSpecsView =
+          pipeline.apply(
+              "RefreshFeatureSetSpecs",
+              RefreshFeatureSetSpecs.newBuilder()
+                  .setFeatureSetSpecs(featureSetSpecs)
+                  .setCoreAddress(options.getCoreAddress())
+                  .setRefreshIntervalSec(options.getSpecsRefreshIntervalSec())
+                  .build());
+    }
+
+    // Step 2. Process and validate incoming FeatureRows
+    PCollectionTuple validatedRows =
+        convertedRows.apply(
+            ProcessAndValidateFeatureRows.newBuilder()
+                .setDefaultProject(options.getDefaultFeastProject())
+                .setShard(options.getShard())
+                .setShardCount(options.getShardCount())
+                .setFeatureSetSpecs(featureSetSpecs)
+                .setFeatureSetSpecsView(featureSetSpecsView)
+                .setSuccessTag(FEATURE_ROW_OUT)
+                .setFailureTag(DEADLETTER_OUT)
+                .build());
+
+    // Step 4. Write FailedElements to a dead letter table in BigQuery.
+    if (deadletterSink != null) {
+      validatedRows
+          .get(DEADLETTER_OUT)
+          .apply("WriteFailedElements_ValidateRows", deadletterSink.write());
+    }
 
+    boolean multipleStores = stores.size() > 1;
+    for (Map.Entry<Store, List<FeatureSet>> entry : subscribedFeatureSetsByStore.entrySet()) {
+      Store store = entry.getKey();
+      List<FeatureSet> subscribedFeatureSets = entry.getValue();
+      if (subscribedFeatureSets.isEmpty()) {
+        continue;
+      }
+
+      // Generate tags by key
+      Map<String, FeatureSetSpec> featureSetSpecsByKey = new HashMap<>();
+      subscribedFeatureSets.forEach(
+          fs -> featureSetSpecsByKey.put(getFeatureSetReference(fs.getSpec()), fs.getSpec()));
+
+      FeatureSink featureSink = getFeatureSink(store, featureSetSpecsByKey);
+      for (FeatureSet featureSet : subscribedFeatureSets) {
+        // Ensure Store has valid configuration and Feast can access it.
+        featureSink.prepareWrite(featureSet);
+      }
+
+      // Only rows of the feature sets the store subscribes to are written to it.
+      PCollection<FeatureRow> rowsToWrite = validatedRows.get(FEATURE_ROW_OUT);
+      if (!featureSetSpecsByKey.keySet().containsAll(featureSetSpecs.keySet())) {
+        Set<String> subscribedRefs = new HashSet<>(featureSetSpecsByKey.keySet());
+        rowsToWrite =
+            rowsToWrite.apply(
+                stepName("FilterSubscribedFeatureRows", store.getName(), true),
+                Filter.by(row -> subscribedRefs.contains(row.getFeatureSet())));
+      }
+
+      // Step 3. Write FeatureRow to the corresponding Store.
+      WriteResult writeFeatureRows =
+          rowsToWrite.apply(
+              stepName("WriteFeatureRowToStore", store.getName(), multipleStores),
+              featureSetSpecsView == null
+                  ? featureSink.writer()
+                  : featureSink.writer(featureSetSpecsView));
+
+      // Step 4. Write FailedElements to a dead letter table in BigQuery.
+      if (deadletterSink != null) {
         writeFeatureRows
             .getFailedInserts()
-            .apply("WriteFailedElements_WriteFeatureRowToStore", deadletterSink.write());
+            .apply(
+                stepName(
+                    "WriteFailedElements_WriteFeatureRowToStore", store.getName(), multipleStores),
+                deadletterSink.write());
       }
 
       // Step 5. Write metrics to a metrics sink.
       writeFeatureRows
           .getSuccessfulInserts()
-          .apply("WriteSuccessMetrics", WriteSuccessMetricsTransform.create(store.getName()));
+          .apply(
+              stepName("WriteSuccessMetrics", store.getName(), multipleStores),
+              WriteSuccessMetricsTransform.create(store.getName()));
 
       writeFeatureRows
           .getFailedInserts()
-          .apply("WriteFailureMetrics", WriteFailureMetricsTransform.create(store.getName()));
+          .apply(
+              stepName("WriteFailureMetrics", store.getName(), multipleStores),
+              WriteFailureMetricsTransform.create(store.getName()));
     }
 
-    return pipeline.run();
+    return pipeline;
+  }
+
+  private static String getSourceName(Source source) {
+    return source.getKafkaSourceConfig().getTopic()
+        + "@"
+        + source.getKafkaSourceConfig().getBootstrapServers();
+  }
+
+  // Steps repeated for several sources or stores are qualified, so that their names stay unique
+  // and stable.
+  private static String stepName(String name, String qualifier, boolean qualify) {
+    return qualify ? name + "_" + qualifier : name;
   }
 }
@@ -100,4 +100,52 @@ public interface ImportOptions extends PipelineOptions, DataflowPipelineOptions,
   int getWindowSizeInSecForFeatureValueMetric();
 
   void setWindowSizeInSecForFeatureValueMetric(int seconds);
+
+  @Description(
+      "Interval in seconds at which the specs of the feature sets the job was launched with are "
+          + "refreshed from Feast Core, so that added features are ingested without restarting the "
+          + "job. Refreshing is disabled if 0 (default).")
+  @Default.Integer(0)
+  int getSpecsRefreshIntervalSec();
+
+  void setSpecsRefreshIntervalSec(int seconds);
+
+  @Description(
+      "Address of Feast Core, in host:port format, to refresh feature set specs from. Required if "
+          + "the specs refresh interval is set.")
+  String getCoreAddress();
+
+  void setCoreAddress(String coreAddress);
+
+  @Description(
+      "Number of Kafka consumers per source when the job is run by the standalone runner. Partitions "
+          + "of the source topic are divided between the consumers (default 1).")
+  @Default.Integer(1)
+  int getConsumersPerSource();
+
+  void setConsumersPerSource(int consumersPerSource);
+
+  @Description(
+      "Shard of the feature sets of its sources that the job ingests, if the feature sets of a "
+          + "source are split between several jobs. Rows of feature sets of other shards are "
+          + "dropped (default 0).")
+  @Default.Integer(0)
+  int getShard();
+
+  void setShard(int shard);
+
+  @Description("Number of shards the feature sets of a source are split into (default 1).")
+  @Default.Integer(1)
+  int getShardCount();
+
+  void setShardCount(int shardCount);
+
+  @Description(
+      "Prefix of the Kafka consumer groups of the job when it is run by the standalone runner. Each "
+          + "source topic is consumed with its own group, so jobs replacing each other under the "
+          + "same prefix resume from the committed offsets. Defaults to one derived from the job "
+          + "name.")
+  String getConsumerGroup();
+
+  void setConsumerGroup(String consumerGroup);
 }
@@ -0,0 +1,219 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.standalone;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import feast.ingestion.transform.metrics.IngestionMetricsReporter;
+import feast.ingestion.validation.FeatureRowValidator;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import feast.storage.api.writer.FeatureRowWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+
+/**
+ * Consumes feature rows from a Kafka topic, validates them and writes them to a store.
+ *
+ * <p>Each poll is handled as one batch: its rows are parsed and validated, and the valid rows are
+ * written to the store. Offsets are only committed once the store has acknowledged the write, so
+ * rows are delivered at least once. If the write fails, the consumer rewinds to the start of the
+ * batch and retries it with exponential backoff.
+ *
+ * <p>Partitions of the topic are divided between all consumers of the job by Kafka's consumer group
+ * assignment.
+ */
+class SourceConsumer implements Runnable {
+
+  private static final Logger log = org.slf4j.LoggerFactory.getLogger(SourceConsumer.class);
+
+  static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+  static final long INITIAL_BACKOFF_MS = 100;
+  static final long MAX_BACKOFF_MS = 10_000;
+
+  private final Consumer<byte[], byte[]> consumer;
+  private final String topic;
+  private final Map<String, FeatureSet> featureSets;
+  private final FeatureRowWriter writer;
+  private final FeatureRowValidator validator;
+  private final IngestionMetricsReporter metrics;
+  private final String jobName;
+  private volatile boolean running = true;
+
+  /**
+   * @param consumer Kafka consumer, used by this consumer only
+   * @param topic topic to subscribe to
+   * @param featureSets feature sets to validate rows against, by reference
+   * @param writer writer of the store rows are written to, used by this consumer only
+   * @param validator validator of the rows, used by this consumer only
+   * @param metrics reporter of ingestion metrics, or null if metrics are not reported
+   * @param jobName name of the ingestion job
+   */
+  SourceConsumer(
+      Consumer<byte[], byte[]> consumer,
+      String topic,
+      Map<String, FeatureSet> featureSets,
+      FeatureRowWriter writer,
+      FeatureRowValidator validator,
+      IngestionMetricsReporter metrics,
+      String jobName) {
+    this.consumer = consumer;
+    this.topic = topic;
+    this.featureSets = featureSets;
+    this.writer = writer;
+    this.validator = validator;
+    this.metrics = metrics;
+    this.jobName = jobName;
+  }
+
+  /**
+   * Create a consumer of the given topic. Like the Beam runners, a consumer group without committed
+   * offsets starts consuming at the end of the topic.
+   *
+   * @param bootstrapServers Kafka servers to connect to
+   * @param consumerGroup prefix of the consumer group, qualified by the topic
+   * @param topic topic that will be consumed
+   * @return consumer committing offsets to the consumer group of the topic
+   */
+  static Consumer<byte[], byte[]> createConsumer(
+      String bootstrapServers, String consumerGroup, String topic) {
+    Properties properties = new Properties();
+    properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    properties.put(ConsumerConfig.GROUP_ID_CONFIG, getGroupId(consumerGroup, topic));
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+    return new KafkaConsumer<>(
+        properties, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+  }
+
+  static String getGroupId(String consumerGroup, String topic) {
+    return consumerGroup + "_" + topic;
+  }
+
+  @Override
+  public void run() {
+    try {
+      writer.open();
+      consumer.subscribe(Collections.singletonList(topic));
+      long backoffMs = INITIAL_BACKOFF_MS;
+      while (running) {
+        ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+        if (records.isEmpty()) {
+          continue;
+        }
+        if (process(records)) {
+          backoffMs = INITIAL_BACKOFF_MS;
+        } else {
+          rewind(records);
+          Thread.sleep(backoffMs);
+          backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        throw e;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      consumer.close();
+      writer.close();
+    }
+  }
+
+  /** Stop consuming. Rows polled but not yet written will be consumed again on restart. */
+  void stop() {
+    running = false;
+    consumer.wakeup();
+  }
+
+  /**
+   * Validate the polled rows and write the valid ones to the store.
+   *
+   * @return whether the rows have been written and their offsets committed
+   */
+  boolean process(ConsumerRecords<byte[], byte[]> records) {
+    List<FeatureRow> validRows = new ArrayList<>(records.count());
+    for (ConsumerRecord<byte[], byte[]> record : records) {
+      FeatureRow featureRow;
+      try {
+        featureRow = FeatureRow.parseFrom(record.value());
+      } catch (InvalidProtocolBufferException e) {
+        recordFailed(
+            FailedElement.newBuilder()
+                .setTransformName("KafkaRecordToFeatureRow")
+                .setStackTrace(ExceptionUtils.getStackTrace(e))
+                .setJobName(jobName)
+                .setPayload(new String(Base64.getEncoder().encode(record.value())))
+                .setErrorMessage(e.getMessage())
+                .build());
+        continue;
+      }
+      validator.validate(featureRow, featureSets, jobName, validRows::add, this::recordFailed);
+    }
+
+    try {
+      writer.write(validRows);
+    } catch (Exception e) {
+      log.warn(
+          "Failed to write {} feature rows from topic {}, retrying: {}",
+          validRows.size(),
+          topic,
+          e.getMessage());
+      return false;
+    }
+    consumer.commitSync();
+    if (metrics != null) {
+      validRows.forEach(metrics::recordWritten);
+    }
+    return true;
+  }
+
+  /** Seek back to the first polled offset of each partition, so that the batch is polled again. */
+  private void rewind(ConsumerRecords<byte[], byte[]> records) {
+    Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+    for (TopicPartition partition : records.partitions()) {
+      firstOffsets.put(partition, records.records(partition).get(0).offset());
+    }
+    firstOffsets.forEach(consumer::seek);
+  }
+
+  private void recordFailed(FailedElement failedElement) {
+    log.debug(
+        "Dropping invalid feature row from topic {}: {}", topic, failedElement.getErrorMessage());
+    if (metrics != null) {
+      metrics.recordFailed(failedElement);
+    }
+  }
+}
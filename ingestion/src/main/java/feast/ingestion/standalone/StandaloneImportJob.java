@@ -0,0 +1,231 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.standalone;
+
+import static feast.ingestion.utils.SpecUtil.getFeatureSetReference;
+import static feast.ingestion.utils.StoreUtil.getFeatureSink;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import feast.ingestion.options.BZip2Decompressor;
+import feast.ingestion.options.ImportOptions;
+import feast.ingestion.options.StringListStreamConverter;
+import feast.ingestion.transform.metrics.IngestionMetricsReporter;
+import feast.ingestion.utils.SpecUtil;
+import feast.ingestion.validation.FeatureRowValidator;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.SourceProto.KafkaSourceConfig;
+import feast.proto.core.StoreProto.Store;
+import feast.storage.api.writer.FeatureSink;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.PipelineOptionsValidator;
+import org.slf4j.Logger;
+
+/**
+ * Ingests feature rows from Kafka into an online store without Beam.
+ *
+ * <p>The job takes the same options as {@link feast.ingestion.ImportJob}, validates rows the same
+ * way and writes them with the same store clients, but runs its consumers on a small thread pool in
+ * the current process. Each source is read by {@link ImportOptions#getConsumersPerSource()}
+ * consumers of the same consumer group, each with its own store connection. Offsets are committed
+ * once rows have been written, so a job restarted with the same name resumes where it left off.
+ *
+ * <p>Only stores that support writing outside of a pipeline can be ingested into. Failed rows are
+ * logged and counted, but not written to a deadletter table.
+ */
+public class StandaloneImportJob implements AutoCloseable {
+
+  private static final Logger log = org.slf4j.LoggerFactory.getLogger(StandaloneImportJob.class);
+
+  private final ImportOptions options;
+  private final Store store;
+  private final Map<String, FeatureSetSpec> featureSetSpecs;
+  private final Set<KafkaSourceConfig> sources;
+  private final List<SourceConsumer> consumers = new CopyOnWriteArrayList<>();
+  private ExecutorService executor;
+  private ScheduledExecutorService metricsScheduler;
+  private IngestionMetricsReporter metrics;
+  private volatile Throwable error;
+
+  /**
+   * @param options options of the job
+   * @throws IOException if the feature sets or stores cannot be parsed
+   */
+  public StandaloneImportJob(ImportOptions options) throws IOException {
+    PipelineOptionsValidator.validate(ImportOptions.class, options);
+    Preconditions.checkArgument(
+        options.getConsumersPerSource() > 0, "Consumers per source must be positive.");
+    this.options = options;
+
+    BZip2Decompressor<List<String>> decompressor =
+        new BZip2Decompressor<>(new StringListStreamConverter());
+    List<String> featureSetJson = decompressor.decompress(options.getFeatureSetJson());
+    List<FeatureSetProto.FeatureSet> featureSets =
+        SpecUtil.parseFeatureSetSpecJsonList(featureSetJson);
+    List<Store> stores = SpecUtil.parseStoreJsonList(options.getStoreJson());
+    Preconditions.checkArgument(
+        stores.size() == 1, "Standalone import job must write to exactly one store.");
+    this.store = stores.get(0);
+
+    this.featureSetSpecs = new HashMap<>();
+    this.sources = new LinkedHashSet<>();
+    for (FeatureSetProto.FeatureSet featureSet :
+        SpecUtil.getSubscribedFeatureSets(store.getSubscriptionsList(), featureSets)) {
+      featureSetSpecs.put(getFeatureSetReference(featureSet.getSpec()), featureSet.getSpec());
+      sources.add(featureSet.getSpec().getSource().getKafkaSourceConfig());
+    }
+  }
+
+  /**
+   * @param args options of the job
+   * @throws IOException if the feature sets or stores cannot be parsed
+   */
+  public static void main(String[] args) throws IOException {
+    ImportOptions options =
+        PipelineOptionsFactory.fromArgs(args).withValidation().create().as(ImportOptions.class);
+    StandaloneImportJob job = new StandaloneImportJob(options);
+    Runtime.getRuntime().addShutdownHook(new Thread(job::close));
+    job.start();
+  }
+
+  /** Start consuming from all sources. */
+  public synchronized void start() {
+    Preconditions.checkState(executor == null, "Standalone import job has already been started.");
+    log.info("Starting standalone import job with settings: \n{}", options.toString());
+    if (options.getDeadLetterTableSpec() != null) {
+      log.warn("Standalone import job does not write failed rows to the deadletter table.");
+    }
+
+    FeatureSink featureSink = getFeatureSink(store, featureSetSpecs);
+    Preconditions.checkArgument(
+        featureSink.supportsRowWriter(),
+        "Store %s of type %s can only be written to by a pipeline.",
+        store.getName(),
+        store.getType());
+    featureSetSpecs.values().forEach(spec -> featureSink.prepareWrite(toProto(spec)));
+
+    if ("statsd".equals(options.getMetricsExporterType())) {
+      metrics =
+          new IngestionMetricsReporter(
+              store.getName(),
+              options.getJobName(),
+              options.getStatsdHost(),
+              options.getStatsdPort(),
+              Clock.systemUTC());
+      metricsScheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat(options.getJobName() + "-metrics")
+                  .setDaemon(true)
+                  .build());
+      long windowSec = options.getWindowSizeInSecForFeatureValueMetric();
+      metricsScheduler.scheduleAtFixedRate(metrics::report, windowSec, windowSec, TimeUnit.SECONDS);
+    }
+
+    Map<String, FeatureSet> validationFeatureSets = new HashMap<>();
+    featureSetSpecs.forEach((ref, spec) -> validationFeatureSets.put(ref, new FeatureSet(spec)));
+
+    executor =
+        Executors.newFixedThreadPool(
+            sources.size() * options.getConsumersPerSource(),
+            new ThreadFactoryBuilder()
+                .setNameFormat(options.getJobName() + "-consumer-%d")
+                .build());
+    String consumerGroup =
+        options.getConsumerGroup() != null
+            ? options.getConsumerGroup()
+            : "feast_import_job_" + options.getJobName();
+    for (KafkaSourceConfig source : sources) {
+      for (int i = 0; i < options.getConsumersPerSource(); i++) {
+        SourceConsumer consumer =
+            new SourceConsumer(
+                SourceConsumer.createConsumer(
+                    source.getBootstrapServers(), consumerGroup, source.getTopic()),
+                source.getTopic(),
+                validationFeatureSets,
+                featureSink.rowWriter(),
+                new FeatureRowValidator(
+                    options.getDefaultFeastProject(), options.getShard(), options.getShardCount()),
+                metrics,
+                options.getJobName());
+        consumers.add(consumer);
+        executor.execute(() -> runConsumer(consumer));
+      }
+    }
+  }
+
+  /** @return whether the job is consuming from its sources */
+  public boolean isRunning() {
+    return executor != null && !executor.isShutdown() && error == null;
+  }
+
+  /** @return error that stopped the job, or null if the job has not failed */
+  public Throwable getError() {
+    return error;
+  }
+
+  /** Stop all consumers and wait for them to close their connections. */
+  @Override
+  public synchronized void close() {
+    if (executor == null || executor.isShutdown()) {
+      return;
+    }
+    consumers.forEach(SourceConsumer::stop);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    if (metrics != null) {
+      metricsScheduler.shutdownNow();
+      metrics.close();
+    }
+  }
+
+  // A consumer that fails stops the whole job, so that the job is reported as failed and restarted.
+  private void runConsumer(SourceConsumer consumer) {
+    try {
+      consumer.run();
+    } catch (RuntimeException e) {
+      log.error("Standalone import job {} failed", options.getJobName(), e);
+      error = e;
+      consumers.forEach(SourceConsumer::stop);
+    }
+  }
+
+  private static FeatureSetProto.FeatureSet toProto(FeatureSetSpec spec) {
+    return FeatureSetProto.FeatureSet.newBuilder().setSpec(spec).build();
+  }
+}
@@ -17,18 +17,20 @@
 package feast.ingestion.transform;
 
 import com.google.auto.value.AutoValue;
-import feast.ingestion.transform.fn.ProcessFeatureRowDoFn;
-import feast.ingestion.transform.fn.ValidateFeatureRowDoFn;
+import feast.ingestion.transform.fn.ProcessAndValidateFeatureRowDoFn;
 import feast.ingestion.values.FeatureSet;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.storage.api.writer.FailedElement;
+import java.util.Collections;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.commons.lang3.tuple.Pair;
@@ -39,14 +41,25 @@ public abstract class ProcessAndValidateFeatureRows
 
   public abstract Map<String, FeatureSetProto.FeatureSetSpec> getFeatureSetSpecs();
 
+  /** @return view of refreshed feature set specs, or null if the specs are not refreshed */
+  @Nullable
+  public abstract PCollectionView<Map<String, FeatureSetProto.FeatureSetSpec>>
+      getFeatureSetSpecsView();
+
   public abstract String getDefaultProject();
 
+  /** @return shard of the feature sets of the source that are ingested */
+  public abstract int getShard();
+
+  /** @return number of shards the feature sets of the source are split into */
+  public abstract int getShardCount();
+
   public abstract TupleTag<FeatureRow> getSuccessTag();
 
   public abstract TupleTag<FailedElement> getFailureTag();
 
   public static Builder newBuilder() {
-    return new AutoValue_ProcessAndValidateFeatureRows.Builder();
+    return new AutoValue_ProcessAndValidateFeatureRows.Builder().setShard(0).setShardCount(1);
   }
 
   @AutoValue.Builder
@@ -55,8 +68,15 @@ public abstract class ProcessAndValidateFeatureRows
     public abstract Builder setFeatureSetSpecs(
         Map<String, FeatureSetProto.FeatureSetSpec> featureSets);
 
+    public abstract Builder setFeatureSetSpecsView(
+        PCollectionView<Map<String, FeatureSetProto.FeatureSetSpec>> featureSetSpecsView);
+
     public abstract Builder setDefaultProject(String defaultProject);
 
+    public abstract Builder setShard(int shard);
+
+    public abstract Builder setShardCount(int shardCount);
+
     public abstract Builder setSuccessTag(TupleTag<FeatureRow> successTag);
 
     public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
@@ -72,16 +92,22 @@ public abstract class ProcessAndValidateFeatureRows
             .map(e -> Pair.of(e.getKey(), new FeatureSet(e.getValue())))
             .collect(Collectors.toMap(Pair::getLeft, Pair::getRight));
 
-    return input
-        .apply("ProcessFeatureRows", ParDo.of(new ProcessFeatureRowDoFn(getDefaultProject())))
-        .apply(
-            "ValidateFeatureRows",
-            ParDo.of(
-                    ValidateFeatureRowDoFn.newBuilder()
-                        .setFeatureSets(featureSets)
-                        .setSuccessTag(getSuccessTag())
-                        .setFailureTag(getFailureTag())
-                        .build())
-                .withOutputTags(getSuccessTag(), TupleTagList.of(getFailureTag())));
+    return input.apply(
+        "ProcessAndValidateFeatureRows",
+        ParDo.of(
+                ProcessAndValidateFeatureRowDoFn.newBuilder()
+                    .setFeatureSets(featureSets)
+                    .setFeatureSetSpecsView(getFeatureSetSpecsView())
+                    .setDefaultProject(getDefaultProject())
+                    .setShard(getShard())
+                    .setShardCount(getShardCount())
+                    .setSuccessTag(getSuccessTag())
+                    .setFailureTag(getFailureTag())
+                    .build())
+            .withSideInputs(
+                getFeatureSetSpecsView() == null
+                    ? Collections.emptyList()
+                    : Collections.singletonList(getFeatureSetSpecsView()))
+            .withOutputTags(getSuccessTag(), TupleTagList.of(getFailureTag())));
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.transform.fn.FetchFeatureSetSpecsDoFn;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import java.util.Map;
+import org.apache.beam.sdk.coders.MapCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.io.GenerateSequence;
+import org.apache.beam.sdk.transforms.Latest;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.AfterProcessingTime;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.Repeatedly;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.joda.time.Duration;
+
+/**
+ * Periodically refreshes the specs of the feature sets the job was launched with from Feast Core,
+ * and provides them as a singleton side input, so that features added to a feature set are ingested
+ * without restarting the job.
+ *
+ * <p>Until the first refresh completes, steps reading the side input wait for it.
+ */
+@AutoValue
+public abstract class RefreshFeatureSetSpecs
+    extends PTransform<PBegin, PCollectionView<Map<String, FeatureSetSpec>>> {
+
+  public abstract Map<String, FeatureSetSpec> getFeatureSetSpecs();
+
+  public abstract String getCoreAddress();
+
+  public abstract int getRefreshIntervalSec();
+
+  public static Builder newBuilder() {
+    return new AutoValue_RefreshFeatureSetSpecs.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSetSpecs(Map<String, FeatureSetSpec> featureSetSpecs);
+
+    public abstract Builder setCoreAddress(String coreAddress);
+
+    public abstract Builder setRefreshIntervalSec(int refreshIntervalSec);
+
+    public abstract RefreshFeatureSetSpecs build();
+  }
+
+  @Override
+  public PCollectionView<Map<String, FeatureSetSpec>> expand(PBegin input) {
+    return input
+        .apply(
+            "RefreshInterval",
+            GenerateSequence.from(0).withRate(1, Duration.standardSeconds(getRefreshIntervalSec())))
+        .apply(
+            Window.<Long>into(new GlobalWindows())
+                .triggering(Repeatedly.forever(AfterProcessingTime.pastFirstElementInPane()))
+                .discardingFiredPanes())
+        .apply(
+            "FetchFeatureSetSpecs",
+            ParDo.of(new FetchFeatureSetSpecsDoFn(getCoreAddress(), getFeatureSetSpecs())))
+        .setCoder(MapCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class)))
+        // A pane may hold several refreshes if fetching falls behind, of which the last is kept.
+        .apply(Latest.globally())
+        .apply(View.asSingleton());
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import feast.ingestion.utils.SpecUtil;
+import feast.proto.core.CoreServiceGrpc;
+import feast.proto.core.CoreServiceGrpc.CoreServiceBlockingStub;
+import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
+import feast.proto.core.FeatureSetProto.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.StatusRuntimeException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.slf4j.Logger;
+
+/**
+ * Fetches the current specs of the feature sets the job was launched with from Feast Core, once for
+ * every element received, and outputs them whenever they have changed.
+ *
+ * <p>All specs are fetched with a single conditional ListFeatureSets call, which returns no feature
+ * sets if the registry has not changed since the previous call.
+ *
+ * <p>A refreshed spec is only accepted if it adds to the spec the job was launched with, see {@link
+ * SpecUtil#isAdditiveUpdate}, since the job reads from that source, keys its writes by those
+ * entities and may have written those features. Feast Core restarts the job for other changes, so
+ * until then, and if Feast Core cannot be reached, the last accepted spec is kept. Refreshed specs
+ * are compared with the launch spec rather than the last accepted one, as Feast Core does, so that
+ * a feature added and then removed again does not hold back further updates.
+ */
+public class FetchFeatureSetSpecsDoFn extends DoFn<Long, Map<String, FeatureSetSpec>> {
+
+  private static final Logger log =
+      org.slf4j.LoggerFactory.getLogger(FetchFeatureSetSpecsDoFn.class);
+  private static final int FETCH_TIMEOUT_SEC = 10;
+
+  private final String coreAddress;
+  private final Map<String, FeatureSetSpec> featureSetSpecs;
+  private transient ManagedChannel channel;
+  private transient CoreServiceBlockingStub coreService;
+  private transient Map<String, FeatureSetSpec> currentSpecs;
+  private transient Map<String, FeatureSetSpec> outputSpecs;
+  // Registry version of the last successful fetch
+  private transient long version;
+
+  /**
+   * @param coreAddress address of Feast Core, in host:port format
+   * @param featureSetSpecs specs the job was launched with, by feature set reference
+   */
+  public FetchFeatureSetSpecsDoFn(String coreAddress, Map<String, FeatureSetSpec> featureSetSpecs) {
+    this.coreAddress = coreAddress;
+    this.featureSetSpecs = featureSetSpecs;
+  }
+
+  @Setup
+  public void setup() {
+    channel = createChannel();
+    coreService = CoreServiceGrpc.newBlockingStub(channel);
+    currentSpecs = new HashMap<>(featureSetSpecs);
+    outputSpecs = null;
+    version = 0;
+  }
+
+  @ProcessElement
+  public void processElement(ProcessContext context) {
+    Map<String, FeatureSetSpec> specs = fetch();
+    if (!specs.equals(outputSpecs)) {
+      context.output(specs);
+      outputSpecs = specs;
+    }
+  }
+
+  @Teardown
+  public void teardown() {
+    if (channel != null) {
+      channel.shutdownNow();
+    }
+  }
+
+  ManagedChannel createChannel() {
+    return ManagedChannelBuilder.forTarget(coreAddress).usePlaintext().build();
+  }
+
+  /** @return the current specs, by feature set reference */
+  Map<String, FeatureSetSpec> fetch() {
+    ListFeatureSetsResponse response;
+    try {
+      response =
+          coreService
+              .withDeadlineAfter(FETCH_TIMEOUT_SEC, TimeUnit.SECONDS)
+              .listFeatureSets(
+                  ListFeatureSetsRequest.newBuilder()
+                      .setFilter(getFilter())
+                      .setIfVersionNewerThan(version)
+                      .build());
+    } catch (StatusRuntimeException e) {
+      log.warn(
+          "Unable to refresh feature sets from Feast Core at {}: {}", coreAddress, e.getStatus());
+      return new HashMap<>(currentSpecs);
+    }
+    if (response.getStatus() == ListFeatureSetsResponse.Status.NOT_MODIFIED) {
+      return new HashMap<>(currentSpecs);
+    }
+    version = response.getVersion();
+
+    Map<String, FeatureSetSpec> refreshedSpecs = new HashMap<>();
+    for (FeatureSet featureSet : response.getFeatureSetsList()) {
+      refreshedSpecs.put(getReference(featureSet.getSpec()), featureSet.getSpec());
+    }
+    for (Map.Entry<String, FeatureSetSpec> entry : currentSpecs.entrySet()) {
+      FeatureSetSpec spec = entry.getValue();
+      FeatureSetSpec refreshedSpec = refreshedSpecs.get(getReference(spec));
+      if (refreshedSpec == null) {
+        log.warn(
+            "Unable to refresh feature set {}: it is not registered in Feast Core.",
+            entry.getKey());
+        continue;
+      }
+      if (!SpecUtil.isAdditiveUpdate(featureSetSpecs.get(entry.getKey()), refreshedSpec)) {
+        log.warn(
+            "Ignoring refreshed spec of feature set {}: its source or entities changed, or "
+                + "features were removed or changed type, which requires the job to be restarted.",
+            entry.getKey());
+        continue;
+      }
+      entry.setValue(refreshedSpec);
+    }
+    return new HashMap<>(currentSpecs);
+  }
+
+  /**
+   * @return filter matching all feature sets of the project of the job's feature sets, or of all
+   *     projects if they belong to several
+   */
+  private ListFeatureSetsRequest.Filter getFilter() {
+    Set<String> projects =
+        featureSetSpecs.values().stream()
+            .map(FeatureSetSpec::getProject)
+            .collect(Collectors.toSet());
+    return ListFeatureSetsRequest.Filter.newBuilder()
+        .setProject(projects.size() == 1 ? projects.iterator().next() : "*")
+        .setFeatureSetName("*")
+        .build();
+  }
+
+  private static String getReference(FeatureSetSpec spec) {
+    return spec.getProject() + "/" + spec.getName();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.validation.FeatureRowValidator;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+
+/**
+ * Validates each FeatureRow against its feature set with a {@link FeatureRowValidator}, sending
+ * rows that fail validation to the failure tag.
+ *
+ * <p>If a view of refreshed feature set specs is given, rows are validated against the specs in the
+ * view instead of the feature sets the DoFn was created with. The view is checked for refreshed
+ * specs once per bundle, by comparing them with the specs last read from it. Their hash codes are
+ * compared first, so that the specs themselves are only compared if the hash codes are equal.
+ */
+@AutoValue
+public abstract class ProcessAndValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow> {
+
+  private transient FeatureRowValidator validator;
+  // Refreshed specs last read from the side input, and the feature sets converted from them
+  private transient Map<String, FeatureSetSpec> refreshedSpecs;
+  private transient Map<String, FeatureSet> refreshedFeatureSets;
+  private transient boolean refreshedInBundle;
+
+  public abstract Map<String, FeatureSet> getFeatureSets();
+
+  @Nullable
+  public abstract PCollectionView<Map<String, FeatureSetSpec>> getFeatureSetSpecsView();
+
+  public abstract String getDefaultProject();
+
+  /** @return shard of the feature sets of the source that are ingested */
+  public abstract int getShard();
+
+  /** @return number of shards the feature sets of the source are split into */
+  public abstract int getShardCount();
+
+  public abstract TupleTag<FeatureRow> getSuccessTag();
+
+  public abstract TupleTag<FailedElement> getFailureTag();
+
+  public static Builder newBuilder() {
+    return new AutoValue_ProcessAndValidateFeatureRowDoFn.Builder().setShard(0).setShardCount(1);
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSets(Map<String, FeatureSet> featureSets);
+
+    public abstract Builder setFeatureSetSpecsView(
+        PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView);
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setShard(int shard);
+
+    public abstract Builder setShardCount(int shardCount);
+
+    public abstract Builder setSuccessTag(TupleTag<FeatureRow> successTag);
+
+    public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
+
+    public abstract ProcessAndValidateFeatureRowDoFn build();
+  }
+
+  @Setup
+  public void setup() {
+    validator = new FeatureRowValidator(getDefaultProject(), getShard(), getShardCount());
+  }
+
+  @StartBundle
+  public void startBundle() {
+    refreshedInBundle = false;
+  }
+
+  @ProcessElement
+  public void processElement(ProcessContext context) {
+    validator.validate(
+        context.element(),
+        getFeatureSets(context),
+        context.getPipelineOptions().getJobName(),
+        row -> context.output(getSuccessTag(), row),
+        failedElement -> context.output(getFailureTag(), failedElement));
+  }
+
+  private Map<String, FeatureSet> getFeatureSets(ProcessContext context) {
+    if (getFeatureSetSpecsView() == null) {
+      return getFeatureSets();
+    }
+    if (!refreshedInBundle) {
+      Map<String, FeatureSetSpec> specs = context.sideInput(getFeatureSetSpecsView());
+      // Protobuf messages memoize their hash code, so each spec instance is hashed only once.
+      if (refreshedSpecs == null
+          || specs.hashCode() != refreshedSpecs.hashCode()
+          || !specs.equals(refreshedSpecs)) {
+        refreshedFeatureSets =
+            specs.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> new FeatureSet(e.getValue())));
+        refreshedSpecs = specs;
+      }
+      refreshedInBundle = true;
+    }
+    return refreshedFeatureSets;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import com.google.protobuf.util.Timestamps;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics of the feature rows of a single feature set: the lag of the rows, and for each feature
+ * the lag and distribution of its values. Statistics of partial inputs can be merged, so that they
+ * are computed incrementally by {@link FeatureSetStatisticsCombineFn} instead of from the full set
+ * of rows.
+ */
+class FeatureSetStatistics implements Serializable {
+
+  private final FeatureStatistics rowLag = new FeatureStatistics();
+  private final Map<String, FeatureStatistics> featureLags = new HashMap<>();
+  private final Map<String, FeatureStatistics> featureValues = new HashMap<>();
+
+  /**
+   * @param featureRow row to add
+   * @param currentTimeMillis time the lag of the row is measured against
+   */
+  void add(FeatureRow featureRow, long currentTimeMillis) {
+    long featureRowLag = currentTimeMillis - Timestamps.toMillis(featureRow.getEventTimestamp());
+    rowLag.add(featureRowLag);
+
+    for (Field field : featureRow.getFieldsList()) {
+      FeatureStatistics lag =
+          featureLags.computeIfAbsent(field.getName(), name -> new FeatureStatistics());
+      if (field.getValue().getValCase().equals(Value.ValCase.VAL_NOT_SET)) {
+        lag.addMissing();
+      } else {
+        lag.add(featureRowLag);
+      }
+      addValue(
+          featureValues.computeIfAbsent(field.getName(), name -> new FeatureStatistics()),
+          field.getValue());
+    }
+  }
+
+  void merge(FeatureSetStatistics other) {
+    rowLag.merge(other.rowLag);
+    mergeByFeature(featureLags, other.featureLags);
+    mergeByFeature(featureValues, other.featureValues);
+  }
+
+  /** @return lag in milliseconds of the rows */
+  FeatureStatistics getRowLag() {
+    return rowLag;
+  }
+
+  /** @return lag in milliseconds of the values of each feature, with their missing count */
+  Map<String, FeatureStatistics> getFeatureLags() {
+    return featureLags;
+  }
+
+  /** @return distribution of the numerical values of each feature */
+  Map<String, FeatureStatistics> getFeatureValues() {
+    return featureValues;
+  }
+
+  private static void mergeByFeature(
+      Map<String, FeatureStatistics> target, Map<String, FeatureStatistics> source) {
+    source.forEach(
+        (featureName, statistics) ->
+            target.computeIfAbsent(featureName, name -> new FeatureStatistics()).merge(statistics));
+  }
+
+  // Only numerical values are of concern in metrics data, so other values are ignored. For boolean
+  // values, true and false are treated as numerical values of 1 and 0 respectively.
+  private static void addValue(FeatureStatistics stats, Value value) {
+    switch (value.getValCase()) {
+      case INT32_VAL:
+        stats.add(value.getInt32Val());
+        break;
+      case INT64_VAL:
+        stats.add(value.getInt64Val());
+        break;
+      case DOUBLE_VAL:
+        stats.add(value.getDoubleVal());
+        break;
+      case FLOAT_VAL:
+        stats.add(value.getFloatVal());
+        break;
+      case BOOL_VAL:
+        stats.add(value.getBoolVal() ? 1 : 0);
+        break;
+      case INT32_LIST_VAL:
+        for (Integer val : value.getInt32ListVal().getValList()) {
+          stats.add(val);
+        }
+        break;
+      case INT64_LIST_VAL:
+        for (Long val : value.getInt64ListVal().getValList()) {
+          stats.add(val);
+        }
+        break;
+      case DOUBLE_LIST_VAL:
+        for (Double val : value.getDoubleListVal().getValList()) {
+          stats.add(val);
+        }
+        break;
+      case FLOAT_LIST_VAL:
+        for (Float val : value.getFloatListVal().getValList()) {
+          stats.add(val);
+        }
+        break;
+      case BOOL_LIST_VAL:
+        for (Boolean val : value.getBoolListVal().getValList()) {
+          stats.add(val ? 1 : 0);
+        }
+        break;
+      case BYTES_VAL:
+      case BYTES_LIST_VAL:
+      case STRING_VAL:
+      case STRING_LIST_VAL:
+      case VAL_NOT_SET:
+      default:
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.time.Clock;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+
+/**
+ * Combines the feature rows of a feature set into {@link FeatureSetStatistics}.
+ *
+ * <p>Unlike grouping the rows, combining lets the runner compute partial statistics before the
+ * shuffle, so that only the fixed size statistics are shuffled instead of every row.
+ */
+class FeatureSetStatisticsCombineFn
+    extends CombineFn<FeatureRow, FeatureSetStatistics, FeatureSetStatistics> {
+
+  private final Clock clock;
+
+  /** @param clock clock the lag of the rows is measured with */
+  FeatureSetStatisticsCombineFn(Clock clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public FeatureSetStatistics createAccumulator() {
+    return new FeatureSetStatistics();
+  }
+
+  @Override
+  public FeatureSetStatistics addInput(FeatureSetStatistics accumulator, FeatureRow featureRow) {
+    accumulator.add(featureRow, clock.millis());
+    return accumulator;
+  }
+
+  @Override
+  public FeatureSetStatistics mergeAccumulators(Iterable<FeatureSetStatistics> accumulators) {
+    FeatureSetStatistics merged = createAccumulator();
+    for (FeatureSetStatistics accumulator : accumulators) {
+      merged.merge(accumulator);
+    }
+    return merged;
+  }
+
+  @Override
+  public FeatureSetStatistics extractOutput(FeatureSetStatistics accumulator) {
+    return accumulator;
+  }
+
+  @Override
+  public Coder<FeatureSetStatistics> getAccumulatorCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return SerializableCoder.of(FeatureSetStatistics.class);
+  }
+
+  @Override
+  public Coder<FeatureSetStatistics> getDefaultOutputCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return SerializableCoder.of(FeatureSetStatistics.class);
+  }
+}
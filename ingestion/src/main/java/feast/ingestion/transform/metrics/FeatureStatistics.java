@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import java.io.Serializable;
+
+/**
+ * Mergeable summary of a stream of values: count, number of missing values, min, max, mean and a
+ * {@link QuantileSketch} for percentiles.
+ */
+class FeatureStatistics implements Serializable {
+
+  private long count;
+  private long missingCount;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private double sum;
+  private final QuantileSketch sketch = new QuantileSketch();
+
+  void add(double value) {
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    sum += value;
+    sketch.add(value);
+  }
+
+  void addMissing() {
+    missingCount++;
+  }
+
+  void merge(FeatureStatistics other) {
+    count += other.count;
+    missingCount += other.missingCount;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sum += other.sum;
+    sketch.merge(other.sketch);
+  }
+
+  /** @return number of values added, excluding missing values */
+  long getCount() {
+    return count;
+  }
+
+  long getMissingCount() {
+    return missingCount;
+  }
+
+  /** @return smallest value, or positive infinity if there are no values */
+  double getMin() {
+    return min;
+  }
+
+  /** @return largest value, or negative infinity if there are no values */
+  double getMax() {
+    return max;
+  }
+
+  /** @return mean of the values, or NaN if there are no values */
+  double getMean() {
+    return count > 0 ? sum / count : Double.NaN;
+  }
+
+  /**
+   * @param percentile percentile between 0 and 100
+   * @return approximate percentile of the values, or NaN if there are no values
+   */
+  double getPercentile(double percentile) {
+    return sketch.quantile(percentile / 100);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports the StatsD metrics of the ingestion pipeline for feature rows ingested outside of Beam.
+ *
+ * <p>Statistics of written rows are combined per feature set until {@link #report()} is called,
+ * which is meant to be done once per metrics window, as {@link WriteSuccessMetricsTransform} does
+ * per fixed window. Failed rows are reported as they occur, as by {@link
+ * WriteFailureMetricsTransform}. Metrics may be recorded from several threads.
+ */
+public class IngestionMetricsReporter implements AutoCloseable {
+
+  private final String jobName;
+  private final Clock clock;
+  private final WriteRowMetricsDoFn rowMetrics;
+  private final WriteFeatureValueMetricsDoFn featureValueMetrics;
+  private final WriteDeadletterRowMetricsDoFn deadletterRowMetrics;
+  private Map<String, FeatureSetStatistics> statistics = new HashMap<>();
+
+  /**
+   * @param storeName name of the store rows are written to
+   * @param jobName name of the ingestion job
+   * @param statsdHost host of the StatsD server
+   * @param statsdPort port of the StatsD server
+   * @param clock clock the lag of rows is measured by
+   */
+  public IngestionMetricsReporter(
+      String storeName, String jobName, String statsdHost, int statsdPort, Clock clock) {
+    this.jobName = jobName;
+    this.clock = clock;
+    this.rowMetrics = WriteRowMetricsDoFn.create(storeName, statsdHost, statsdPort);
+    this.featureValueMetrics =
+        WriteFeatureValueMetricsDoFn.newBuilder()
+            .setStoreName(storeName)
+            .setStatsdHost(statsdHost)
+            .setStatsdPort(statsdPort)
+            .build();
+    this.deadletterRowMetrics =
+        WriteDeadletterRowMetricsDoFn.newBuilder()
+            .setStoreName(storeName)
+            .setStatsdHost(statsdHost)
+            .setStatsdPort(statsdPort)
+            .build();
+    rowMetrics.setup();
+    featureValueMetrics.setup();
+    deadletterRowMetrics.setup();
+  }
+
+  /** @param featureRow row that has been written to the store */
+  public synchronized void recordWritten(FeatureRow featureRow) {
+    statistics
+        .computeIfAbsent(featureRow.getFeatureSet(), ref -> new FeatureSetStatistics())
+        .add(featureRow, clock.millis());
+  }
+
+  /** @param failedElement row that failed validation or could not be written */
+  public void recordFailed(FailedElement failedElement) {
+    deadletterRowMetrics.writeMetrics(failedElement, jobName);
+  }
+
+  /** Report the statistics of the rows written since the last report. */
+  public void report() {
+    Map<String, FeatureSetStatistics> window;
+    synchronized (this) {
+      window = statistics;
+      statistics = new HashMap<>();
+    }
+    window.forEach(
+        (featureSetRef, featureSetStatistics) -> {
+          rowMetrics.writeMetrics(featureSetRef, featureSetStatistics, jobName);
+          featureValueMetrics.writeMetrics(featureSetRef, featureSetStatistics, jobName);
+        });
+  }
+
+  /** Report the remaining statistics and close the StatsD clients. */
+  @Override
+  public void close() {
+    report();
+    if (rowMetrics.statsd != null) {
+      rowMetrics.statsd.close();
+    }
+    featureValueMetrics.tearDown();
+    if (deadletterRowMetrics.statsd != null) {
+      deadletterRowMetrics.statsd.close();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mergeable sketch of a stream of doubles that answers approximate quantile queries in bounded
+ * memory, after the KLL sketch by Karnin, Lang and Liberty.
+ *
+ * <p>Values are kept in levels, where a value on level h stands for 2^h input values. When a level
+ * reaches its capacity it is sorted and every other value is promoted to the next level. Capacities
+ * shrink geometrically towards the lower levels, so the sketch holds at most about 3k values. Until
+ * the first compaction the sketch holds every value and quantiles are exact.
+ */
+class QuantileSketch implements Serializable {
+
+  private static final int DEFAULT_K = 200;
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+  private static final int MIN_CAPACITY = 2;
+
+  private final int k;
+  private double[][] levels = {new double[MIN_CAPACITY]};
+  private int[] sizes = {0};
+
+  QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /** @param k capacity of the top level, which bounds the rank error to about 1.7 / k */
+  QuantileSketch(int k) {
+    this.k = k;
+  }
+
+  void add(double value) {
+    append(0, value);
+    compress();
+  }
+
+  void merge(QuantileSketch other) {
+    for (int level = 0; level < other.levels.length; level++) {
+      for (int i = 0; i < other.sizes[level]; i++) {
+        append(level, other.levels[level][i]);
+      }
+    }
+    compress();
+  }
+
+  boolean isEmpty() {
+    for (int size : sizes) {
+      if (size > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the value of the given rank, using the nearest rank method.
+   *
+   * @param fraction rank as a fraction of the number of values, between 0 and 1
+   * @return approximate quantile, or NaN if the sketch is empty
+   */
+  double quantile(double fraction) {
+    int size = 0;
+    for (int levelSize : sizes) {
+      size += levelSize;
+    }
+    if (size == 0) {
+      return Double.NaN;
+    }
+
+    double[] values = new double[size];
+    long[] weights = new long[size];
+    int n = 0;
+    for (int level = 0; level < levels.length; level++) {
+      for (int i = 0; i < sizes[level]; i++) {
+        values[n] = levels[level][i];
+        weights[n] = 1L << level;
+        n++;
+      }
+    }
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+    long totalWeight = 0;
+    for (long weight : weights) {
+      totalWeight += weight;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * totalWeight));
+    long cumulativeWeight = 0;
+    for (int i : order) {
+      cumulativeWeight += weights[i];
+      if (cumulativeWeight >= rank) {
+        return values[i];
+      }
+    }
+    return values[order[size - 1]];
+  }
+
+  private void append(int level, double value) {
+    while (levels.length <= level) {
+      levels = Arrays.copyOf(levels, levels.length + 1);
+      levels[levels.length - 1] = new double[MIN_CAPACITY];
+      sizes = Arrays.copyOf(sizes, sizes.length + 1);
+    }
+    if (sizes[level] == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+    }
+    levels[level][sizes[level]++] = value;
+  }
+
+  private int capacity(int level) {
+    int depth = levels.length - 1 - level;
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+  }
+
+  private void compress() {
+    // Compacting a level may add a new top level, which lowers the capacity of the levels below.
+    for (int level = 0; level < levels.length; level++) {
+      if (sizes[level] >= capacity(level)) {
+        compact(level);
+      }
+    }
+  }
+
+  private void compact(int level) {
+    double[] values = levels[level];
+    int size = sizes[level];
+    Arrays.sort(values, 0, size);
+    int offset = ThreadLocalRandom.current().nextInt(2);
+    for (int pair = 0; pair < size / 2; pair++) {
+      append(level + 1, values[2 * pair + offset]);
+    }
+    // With an odd number of values, the largest one stays on this level.
+    if (size % 2 == 1) {
+      values[0] = values[size - 1];
+      sizes[level] = 1;
+    } else {
+      sizes[level] = 0;
+    }
+  }
+}
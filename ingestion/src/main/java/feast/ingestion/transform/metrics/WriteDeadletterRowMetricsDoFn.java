@@ -68,7 +68,10 @@ public abstract class WriteDeadletterRowMetricsDoFn extends DoFn<FailedElement,
 
   @ProcessElement
   public void processElement(ProcessContext c) {
-    FailedElement ignored = c.element();
+    writeMetrics(c.element(), c.getPipelineOptions().getJobName());
+  }
+
+  void writeMetrics(FailedElement ignored, String jobName) {
     try {
       statsd.count(
           "deadletter_row_count",
@@ -76,7 +79,7 @@ public abstract class WriteDeadletterRowMetricsDoFn extends DoFn<FailedElement,
           STORE_TAG_KEY + ":" + getStoreName(),
           PROJECT_TAG_KEY + ":" + ignored.getProjectName(),
           FEATURE_SET_NAME_TAG_KEY + ":" + ignored.getFeatureSetName(),
-          INGESTION_JOB_NAME_KEY + ":" + c.getPipelineOptions().getJobName());
+          INGESTION_JOB_NAME_KEY + ":" + jobName);
     } catch (StatsDClientException e) {
       log.warn("Unable to push metrics to server", e);
     }
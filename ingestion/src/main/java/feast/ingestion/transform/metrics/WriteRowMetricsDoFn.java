@@ -17,26 +17,16 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
-import com.google.protobuf.util.Timestamps;
 import com.timgroup.statsd.NonBlockingStatsDClient;
 import com.timgroup.statsd.StatsDClient;
-import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto.Value;
-import feast.proto.types.ValueProto.Value.ValCase;
-import java.time.Clock;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Map.Entry;
-import javax.annotation.Nullable;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.KV;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 
 @AutoValue
-public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<FeatureRow>>, Void> {
+public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, FeatureSetStatistics>, Void> {
 
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(WriteRowMetricsDoFn.class);
 
@@ -77,9 +67,6 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
 
   public abstract int getStatsdPort();
 
-  @Nullable
-  public abstract Clock getClock();
-
   public static WriteRowMetricsDoFn create(
       String newStoreName, String newStatsdHost, int newStatsdPort) {
     return newBuilder()
@@ -104,13 +91,6 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
 
     public abstract Builder setStatsdPort(int statsdPort);
 
-    /**
-     * setClock will override the default system clock used to calculate feature row lag.
-     *
-     * @param clock Clock instance
-     */
-    public abstract Builder setClock(Clock clock);
-
     public abstract WriteRowMetricsDoFn build();
   }
 
@@ -127,16 +107,22 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
     }
   }
 
-  @SuppressWarnings("DuplicatedCode")
   @ProcessElement
   public void processElement(
-      ProcessContext c, @Element KV<String, Iterable<FeatureRow>> featureSetRefToFeatureRows) {
+      ProcessContext c, @Element KV<String, FeatureSetStatistics> featureSetRefToStatistics) {
+    writeMetrics(
+        featureSetRefToStatistics.getKey(),
+        featureSetRefToStatistics.getValue(),
+        c.getPipelineOptions().getJobName());
+  }
+
+  @SuppressWarnings("DuplicatedCode")
+  void writeMetrics(String featureSetRef, FeatureSetStatistics statistics, String jobName) {
     if (statsd == null) {
       log.error("StatsD client is null, likely because it encounters an error during setup");
       return;
     }
 
-    String featureSetRef = featureSetRefToFeatureRows.getKey();
     if (featureSetRef == null) {
       log.error(
           "Feature set reference in the feature row is null. Please check the input feature rows from previous steps");
@@ -154,51 +140,17 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
     String featureSetProject = slashSplits[0];
     String featureSetName = slashSplits[1];
 
-    // featureRowLagStats is stats for feature row lag for feature set "featureSetName"
-    DescriptiveStatistics featureRowLagStats = new DescriptiveStatistics();
-    // featureNameToLagStats is stats for feature lag for all features in feature set
-    // "featureSetName"
-    Map<String, DescriptiveStatistics> featureNameToLagStats = new HashMap<>();
-    // featureNameToMissingCount is count for "value_not_set" for all features in feature set
-    // "featureSetName"
-    Map<String, Long> featureNameToMissingCount = new HashMap<>();
-
-    for (FeatureRow featureRow : featureSetRefToFeatureRows.getValue()) {
-      long currentTime = getClock() == null ? System.currentTimeMillis() : getClock().millis();
-      long featureRowLag = currentTime - Timestamps.toMillis(featureRow.getEventTimestamp());
-      featureRowLagStats.addValue(featureRowLag);
-
-      for (Field field : featureRow.getFieldsList()) {
-        String featureName = field.getName();
-        Value featureValue = field.getValue();
-        if (!featureNameToLagStats.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToLagStats.put(featureName, new DescriptiveStatistics());
-        }
-        if (!featureNameToMissingCount.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToMissingCount.put(featureName, 0L);
-        }
-        if (featureValue.getValCase().equals(ValCase.VAL_NOT_SET)) {
-          featureNameToMissingCount.put(
-              featureName, featureNameToMissingCount.get(featureName) + 1);
-        } else {
-          featureNameToLagStats.get(featureName).addValue(featureRowLag);
-        }
-      }
-    }
+    FeatureStatistics featureRowLagStats = statistics.getRowLag();
 
     String[] tags = {
       STORE_TAG_KEY + ":" + getStoreName(),
       FEATURE_SET_PROJECT_TAG_KEY + ":" + featureSetProject,
       FEATURE_SET_NAME_TAG_KEY + ":" + featureSetName,
-      INGESTION_JOB_NAME_KEY + ":" + c.getPipelineOptions().getJobName(),
+      INGESTION_JOB_NAME_KEY + ":" + jobName,
     };
 
-    statsd.count(COUNT_NAME_FEATURE_ROW_INGESTED, featureRowLagStats.getN(), tags);
-    // DescriptiveStatistics returns invalid NaN value for getMin(), getMax(), ... when there is no
-    // items in the stats.
-    if (featureRowLagStats.getN() > 0) {
+    statsd.count(COUNT_NAME_FEATURE_ROW_INGESTED, featureRowLagStats.getCount(), tags);
+    if (featureRowLagStats.getCount() > 0) {
       statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MIN, featureRowLagStats.getMin(), tags);
       statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MAX, featureRowLagStats.getMax(), tags);
       statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MEAN, featureRowLagStats.getMean(), tags);
@@ -210,11 +162,11 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
           GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_99, featureRowLagStats.getPercentile(99), tags);
     }
 
-    for (Entry<String, DescriptiveStatistics> entry : featureNameToLagStats.entrySet()) {
+    for (Entry<String, FeatureStatistics> entry : statistics.getFeatureLags().entrySet()) {
       String featureName = entry.getKey();
       String[] tagsWithFeatureName = ArrayUtils.add(tags, FEATURE_TAG_KEY + ":" + featureName);
-      DescriptiveStatistics stats = entry.getValue();
-      if (stats.getN() > 0) {
+      FeatureStatistics stats = entry.getValue();
+      if (stats.getCount() > 0) {
         statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MIN, stats.getMin(), tagsWithFeatureName);
         statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MAX, stats.getMax(), tagsWithFeatureName);
         statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MEAN, stats.getMean(), tagsWithFeatureName);
@@ -231,10 +183,7 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
             stats.getPercentile(99),
             tagsWithFeatureName);
       }
-      statsd.count(
-          COUNT_NAME_FEATURE_VALUE_MISSING,
-          featureNameToMissingCount.get(featureName),
-          tagsWithFeatureName);
+      statsd.count(COUNT_NAME_FEATURE_VALUE_MISSING, stats.getMissingCount(), tagsWithFeatureName);
     }
   }
 }
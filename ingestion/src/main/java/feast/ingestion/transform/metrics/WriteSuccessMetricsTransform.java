@@ -19,6 +19,7 @@ package feast.ingestion.transform.metrics;
 import com.google.auto.value.AutoValue;
 import feast.ingestion.options.ImportOptions;
 import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.time.Clock;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.*;
@@ -63,8 +64,9 @@ public abstract class WriteSuccessMetricsTransform
 
         // Fixed window is applied so the metric collector will not be overwhelmed with the metrics
         // data. For validation, only summaries of the values are usually required vs the actual
-        // values.
-        PCollection<KV<String, Iterable<FeatureRow>>> validRowsGroupedByRef =
+        // values, so the rows are combined into mergeable statistics rather than grouped, which
+        // lets the runner pre-aggregate them before the shuffle.
+        PCollection<KV<String, FeatureSetStatistics>> statisticsByRef =
             input
                 .apply(
                     "FixedWindow",
@@ -82,9 +84,11 @@ public abstract class WriteSuccessMetricsTransform
                             c.output(KV.of(featureRow.getFeatureSet(), featureRow));
                           }
                         }))
-                .apply("GroupByFeatureSetRef", GroupByKey.create());
+                .apply(
+                    "CombineFeatureSetStatistics",
+                    Combine.perKey(new FeatureSetStatisticsCombineFn(Clock.systemUTC())));
 
-        validRowsGroupedByRef.apply(
+        statisticsByRef.apply(
             "WriteRowMetrics",
             ParDo.of(
                 WriteRowMetricsDoFn.newBuilder()
@@ -93,7 +97,7 @@ public abstract class WriteSuccessMetricsTransform
                     .setStoreName(getStoreName())
                     .build()));
 
-        validRowsGroupedByRef.apply(
+        statisticsByRef.apply(
             "WriteFeatureValueMetrics",
             ParDo.of(
                 WriteFeatureValueMetricsDoFn.newBuilder()
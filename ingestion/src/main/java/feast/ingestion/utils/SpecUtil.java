@@ -25,8 +25,10 @@ import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
 import feast.proto.core.StoreProto.Store;
 import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.ValueProto.ValueType;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -37,6 +39,46 @@ public class SpecUtil {
     return String.format("%s/%s", featureSetSpec.getProject(), featureSetSpec.getName());
   }
 
+  /**
+   * Get the shard of a feature set, when the feature sets of a source are ingested by several jobs.
+   * Feast Core assigns feature sets to the jobs of shards with the same function.
+   *
+   * @param featureSetReference reference of the feature set, in project/name format
+   * @param shardCount number of shards
+   * @return index of the shard of the feature set
+   */
+  public static int getShard(String featureSetReference, int shardCount) {
+    return Math.floorMod(featureSetReference.hashCode(), shardCount);
+  }
+
+  /**
+   * Check whether an updated spec of a feature set only adds to its spec, so that a running job can
+   * switch to the updated spec without being restarted. The updated spec must keep the source and
+   * the entities, as well as every feature with its value type. Other properties, such as the max
+   * age, may change.
+   *
+   * @param spec spec of the feature set
+   * @param updatedSpec updated spec of the same feature set
+   * @return true if the update is additive
+   */
+  public static boolean isAdditiveUpdate(FeatureSetSpec spec, FeatureSetSpec updatedSpec) {
+    if (!updatedSpec.getSource().equals(spec.getSource())
+        || !new HashSet<>(updatedSpec.getEntitiesList())
+            .equals(new HashSet<>(spec.getEntitiesList()))) {
+      return false;
+    }
+    Map<String, ValueType.Enum> updatedTypes = new HashMap<>();
+    for (FeatureSpec featureSpec : updatedSpec.getFeaturesList()) {
+      updatedTypes.put(featureSpec.getName(), featureSpec.getValueType());
+    }
+    for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+      if (updatedTypes.get(featureSpec.getName()) != featureSpec.getValueType()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /** Get only feature set specs that matches the subscription */
   public static List<FeatureSet> getSubscribedFeatureSets(
       List<Subscription> subscriptions, List<FeatureSet> featureSets) {
@@ -25,6 +25,7 @@ import feast.proto.core.StoreProto.Store.StoreType;
 import feast.proto.types.ValueProto.ValueType.Enum;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.connectors.bigquery.writer.BigQueryFeatureSink;
+import feast.storage.connectors.file.writer.FileFeatureSink;
 import feast.storage.connectors.redis.writer.RedisFeatureSink;
 import feast.storage.connectors.rediscluster.writer.RedisClusterFeatureSink;
 import java.util.HashMap;
@@ -89,6 +90,8 @@ public class StoreUtil {
         return RedisFeatureSink.fromConfig(store.getRedisConfig(), featureSetSpecs);
       case BIGQUERY:
         return BigQueryFeatureSink.fromConfig(store.getBigqueryConfig(), featureSetSpecs);
+      case FILE:
+        return FileFeatureSink.fromConfig(store.getFileConfig(), featureSetSpecs);
       default:
         throw new RuntimeException(String.format("Store type '%s' is unsupported", storeType));
     }
@@ -0,0 +1,186 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.validation;
+
+import feast.ingestion.utils.SpecUtil;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto;
+import feast.proto.types.ValueProto.Value.ValCase;
+import feast.storage.api.writer.FailedElement;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Normalizes the feature set reference of each FeatureRow and validates its fields against the
+ * feature set, in a single pass over the row.
+ *
+ * <p>The version suffix is stripped from the feature set reference, and the default project is
+ * applied if the reference has no project. Fields that are not part of the feature set and repeated
+ * occurrences of a field are dropped. Rows referencing unknown feature sets or containing values of
+ * the wrong type, including in repeated occurrences of a field, are failed. Rows that need no
+ * changes are passed on as is.
+ *
+ * <p>If the feature sets of a source are sharded across several jobs, rows of feature sets that
+ * belong to the shards of other jobs are dropped without being failed, since they are ingested by
+ * those jobs.
+ *
+ * <p>A validator keeps state between rows, and must not be shared between threads.
+ */
+public class FeatureRowValidator {
+
+  // Fields already seen in the current row, by feature set field index
+  private final BitSet seenFields = new BitSet();
+  // Positions of the fields in the current row that are kept
+  private final BitSet keptFields = new BitSet();
+
+  private final String defaultProject;
+  private final int shard;
+  private final int shardCount;
+
+  /** @param defaultProject project applied to feature set references without a project */
+  public FeatureRowValidator(String defaultProject) {
+    this(defaultProject, 0, 1);
+  }
+
+  /**
+   * @param defaultProject project applied to feature set references without a project
+   * @param shard shard of the feature sets of the source that are validated
+   * @param shardCount number of shards the feature sets of the source are split into
+   */
+  public FeatureRowValidator(String defaultProject, int shard, int shardCount) {
+    this.defaultProject = defaultProject;
+    this.shard = shard;
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * Validate a feature row.
+   *
+   * @param featureRow row to validate
+   * @param featureSets feature sets to validate against, by reference
+   * @param jobName name of the job, recorded in failed elements
+   * @param success receives the normalized row if it is valid
+   * @param failure receives the failed element if the row is invalid
+   */
+  public void validate(
+      FeatureRow featureRow,
+      Map<String, FeatureSet> featureSets,
+      String jobName,
+      Consumer<FeatureRow> success,
+      Consumer<FailedElement> failure) {
+    String featureSetRef = normalizeFeatureSetReference(featureRow.getFeatureSet());
+    FeatureSet featureSet = featureSets.get(featureSetRef);
+    if (featureSet == null) {
+      if (shardCount > 1 && SpecUtil.getShard(featureSetRef, shardCount) != shard) {
+        return;
+      }
+      failure.accept(
+          toFailedElement(
+              featureRow,
+              featureSetRef,
+              null,
+              jobName,
+              String.format(
+                  "FeatureRow contains invalid feature set id %s. Please check that the feature rows are being published to the correct topic on the feature stream.",
+                  featureSetRef)));
+      return;
+    }
+
+    seenFields.clear();
+    keptFields.clear();
+    int fieldsCount = featureRow.getFieldsCount();
+    for (int i = 0; i < fieldsCount; i++) {
+      FieldProto.Field field = featureRow.getFields(i);
+      int fieldIndex = featureSet.getFieldIndex(field.getName());
+      if (fieldIndex < 0) {
+        // Skip fields not in the feature set
+        continue;
+      }
+      // If value is set in the FeatureRow, make sure the value type matches
+      // that defined in FeatureSetSpec
+      ValCase valCase = field.getValue().getValCase();
+      if (valCase != ValCase.VAL_NOT_SET
+          && valCase.getNumber() != featureSet.getFieldTypeNumber(fieldIndex)) {
+        failure.accept(
+            toFailedElement(
+                featureRow,
+                featureSetRef,
+                featureSet,
+                jobName,
+                String.format(
+                    "FeatureRow contains field '%s' with invalid type '%s'. Feast expects the field type to match that in FeatureSet '%s'. Please check the FeatureRow data.",
+                    field.getName(), valCase, featureSet.getField(fieldIndex).getType())));
+        return;
+      }
+      if (seenFields.get(fieldIndex)) {
+        // Skip repeated fields once their type has been checked
+        continue;
+      }
+      seenFields.set(fieldIndex);
+      keptFields.set(i);
+    }
+
+    boolean fieldsChanged = keptFields.cardinality() != fieldsCount;
+    boolean featureSetRefChanged = !featureSetRef.equals(featureRow.getFeatureSet());
+    if (!fieldsChanged && !featureSetRefChanged) {
+      success.accept(featureRow);
+      return;
+    }
+
+    FeatureRow.Builder featureRowBuilder = featureRow.toBuilder().setFeatureSet(featureSetRef);
+    if (fieldsChanged) {
+      featureRowBuilder.clearFields();
+      for (int i = keptFields.nextSetBit(0); i >= 0; i = keptFields.nextSetBit(i + 1)) {
+        featureRowBuilder.addFields(featureRow.getFields(i));
+      }
+    }
+    success.accept(featureRowBuilder.build());
+  }
+
+  private String normalizeFeatureSetReference(String featureSetRef) {
+    // For backward compatibility. Will be deprecated eventually.
+    int versionSeparator = featureSetRef.indexOf(':');
+    if (versionSeparator >= 0) {
+      featureSetRef = featureSetRef.substring(0, versionSeparator);
+    }
+    if (featureSetRef.indexOf('/') < 0) {
+      featureSetRef = defaultProject + "/" + featureSetRef;
+    }
+    return featureSetRef;
+  }
+
+  private static FailedElement toFailedElement(
+      FeatureRow featureRow,
+      String featureSetRef,
+      FeatureSet featureSet,
+      String jobName,
+      String error) {
+    FailedElement.Builder failedElement =
+        FailedElement.newBuilder()
+            .setTransformName("ValidateFeatureRow")
+            .setJobName(jobName)
+            .setPayload(featureRow.toBuilder().setFeatureSet(featureSetRef).build().toString())
+            .setErrorMessage(error);
+    if (featureSet != null) {
+      String[] split = featureSet.getReference().split("/");
+      failedElement = failedElement.setProjectName(split[0]).setFeatureSetName(split[1]);
+    }
+    return failedElement.build();
+  }
+}
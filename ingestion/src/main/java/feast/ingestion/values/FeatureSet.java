@@ -17,26 +17,58 @@
 package feast.ingestion.values;
 
 import static feast.ingestion.utils.SpecUtil.getFeatureSetReference;
-import static feast.ingestion.utils.SpecUtil.getFieldsByName;
 
 import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.ValueProto.ValueType;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * This class represents {@link feast.proto.core.FeatureSetProto.FeatureSetSpec} but contains fields
  * directly accessible by name for feature validation purposes.
  *
- * <p>The use for this class is mainly for validating the Fields in FeatureRow.
+ * <p>The use for this class is mainly for validating the Fields in FeatureRow. Fields are assigned
+ * dense indexes, so that validation can track fields by index and compare value types against a
+ * precomputed array instead of looking up field specs.
  */
 public class FeatureSet implements Serializable {
   private final String reference;
 
-  private final Map<String, Field> fields;
+  private final Map<String, Integer> fieldIndexes;
+  private final Field[] fields;
+  private final int[] fieldTypeNumbers;
 
   public FeatureSet(FeatureSetProto.FeatureSetSpec featureSetSpec) {
     this.reference = getFeatureSetReference(featureSetSpec);
-    this.fields = getFieldsByName(featureSetSpec);
+
+    this.fieldIndexes = new HashMap<>();
+    List<Field> fieldList = new ArrayList<>();
+    for (EntitySpec entitySpec : featureSetSpec.getEntitiesList()) {
+      addField(fieldList, new Field(entitySpec.getName(), entitySpec.getValueType()));
+    }
+    for (FeatureSpec featureSpec : featureSetSpec.getFeaturesList()) {
+      addField(fieldList, new Field(featureSpec.getName(), featureSpec.getValueType()));
+    }
+    this.fields = fieldList.toArray(new Field[0]);
+    this.fieldTypeNumbers = new int[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      fieldTypeNumbers[i] = fields[i].getType().getNumber();
+    }
+  }
+
+  private void addField(List<Field> fieldList, Field field) {
+    Integer index = fieldIndexes.get(field.getName());
+    if (index == null) {
+      fieldIndexes.put(field.getName(), fieldList.size());
+      fieldList.add(field);
+    } else {
+      fieldList.set(index, field);
+    }
   }
 
   public String getReference() {
@@ -44,6 +76,34 @@ public class FeatureSet implements Serializable {
   }
 
   public Field getField(String fieldName) {
-    return fields.getOrDefault(fieldName, null);
+    int index = getFieldIndex(fieldName);
+    return index < 0 ? null : fields[index];
+  }
+
+  /** @return number of distinct fields in the feature set */
+  public int getFieldCount() {
+    return fields.length;
+  }
+
+  /**
+   * @param fieldName name of the field
+   * @return index of the field, or -1 if the feature set has no such field
+   */
+  public int getFieldIndex(String fieldName) {
+    Integer index = fieldIndexes.get(fieldName);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param index index of the field
+   * @return number of the {@link ValueType.Enum} of the field, which matches the number of the
+   *     corresponding {@link feast.proto.types.ValueProto.Value.ValCase}
+   */
+  public int getFieldTypeNumber(int index) {
+    return fieldTypeNumbers[index];
+  }
+
+  public Field getField(int index) {
+    return fields[index];
   }
 }
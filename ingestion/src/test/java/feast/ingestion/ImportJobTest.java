@@ -21,6 +21,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
 import feast.ingestion.options.BZip2Compressor;
 import feast.ingestion.options.ImportOptions;
+import feast.ingestion.transform.ReadFromSource;
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSet;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
@@ -47,15 +48,19 @@ import io.lettuce.core.codec.ByteArrayCodec;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.PipelineResult.State;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.runners.TransformHierarchy;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.joda.time.Duration;
 import org.junit.AfterClass;
@@ -64,6 +69,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.embedded.RedisServer;
 
 public class ImportJobTest {
 
@@ -84,6 +90,7 @@ public class ImportJobTest {
 
   private static final String REDIS_HOST = "localhost";
   private static final int REDIS_PORT = 6380;
+  private static final int SECOND_REDIS_PORT = 6381;
 
   // No of samples of feature row that will be generated and used for testing.
   // Note that larger no of samples will increase completion time for ingestion.
@@ -114,6 +121,94 @@ public class ImportJobTest {
     LocalKafka.stop();
   }
 
+  @Test
+  public void runPipeline_ShouldReadSharedSourceOnceAndWriteSubscribedRowsToEachStore()
+      throws IOException, InterruptedException {
+    String topic = "topic_2";
+    FeatureSetSpec sharedSpec = createSpec("shared_feature_set", topic);
+    FeatureSetSpec otherSpec = createSpec("other_feature_set", topic);
+
+    // The first store subscribes to both feature sets, the second to only one of them
+    Store allStore = createRedisStore("redis_all", REDIS_PORT, "*");
+    Store sharedStore = createRedisStore("redis_shared", SECOND_REDIS_PORT, sharedSpec.getName());
+
+    ImportOptions options = PipelineOptionsFactory.create().as(ImportOptions.class);
+    BZip2Compressor<List<FeatureSetSpec>> compressor =
+        new BZip2Compressor<>(
+            specs -> {
+              JsonFormat.Printer printer =
+                  JsonFormat.printer().omittingInsignificantWhitespace().printingEnumsAsInts();
+              List<String> json = new ArrayList<>();
+              for (FeatureSetSpec spec : specs) {
+                json.add(printer.print(spec));
+              }
+              return String.join("\n", json).getBytes();
+            });
+    options.setFeatureSetJson(compressor.compress(Arrays.asList(sharedSpec, otherSpec)));
+    options.setStoreJson(
+        Arrays.asList(
+            JsonFormat.printer().print(allStore), JsonFormat.printer().print(sharedStore)));
+    options.setDefaultFeastProject("myproject");
+    options.setProject("");
+    options.setBlockOnRun(false);
+
+    List<FeatureRow> sharedRows = new ArrayList<>();
+    List<FeatureRow> otherRows = new ArrayList<>();
+    for (int i = 0; i < 32; i++) {
+      sharedRows.add(TestUtil.createRandomFeatureRow(sharedSpec));
+      otherRows.add(TestUtil.createRandomFeatureRow(otherSpec));
+    }
+    List<FeatureRow> input = new ArrayList<>(sharedRows);
+    input.addAll(otherRows);
+
+    RedisServer secondRedis = new RedisServer(SECOND_REDIS_PORT);
+    secondRedis.start();
+    RedisClient allClient = RedisClient.create(RedisURI.create(REDIS_HOST, REDIS_PORT));
+    RedisClient sharedClient = RedisClient.create(RedisURI.create(REDIS_HOST, SECOND_REDIS_PORT));
+    try {
+      Pipeline pipeline = ImportJob.createPipeline(options);
+      AtomicInteger sourceReads = new AtomicInteger();
+      pipeline.traverseTopologically(
+          new Pipeline.PipelineVisitor.Defaults() {
+            @Override
+            public CompositeBehavior enterCompositeTransform(TransformHierarchy.Node node) {
+              if (node.getTransform() instanceof ReadFromSource) {
+                sourceReads.incrementAndGet();
+              }
+              return CompositeBehavior.ENTER_TRANSFORM;
+            }
+          });
+      Assert.assertEquals(1, sourceReads.get());
+
+      PipelineResult pipelineResult = pipeline.run();
+      Thread.sleep(Duration.standardSeconds(IMPORT_JOB_READY_DURATION_SEC).getMillis());
+      Assert.assertEquals(State.RUNNING, pipelineResult.getState());
+
+      TestUtil.publishFeatureRowsToKafka(
+          KAFKA_BOOTSTRAP_SERVERS,
+          topic,
+          input,
+          ByteArraySerializer.class,
+          KAFKA_PUBLISH_TIMEOUT_SEC);
+
+      RedisCommands<byte[], byte[]> all = allClient.connect(new ByteArrayCodec()).sync();
+      RedisCommands<byte[], byte[]> shared = sharedClient.connect(new ByteArrayCodec()).sync();
+      awaitKeys(all, sharedSpec, sharedRows);
+      awaitKeys(all, otherSpec, otherRows);
+      awaitKeys(shared, sharedSpec, sharedRows);
+      for (FeatureRow row : otherRows) {
+        Assert.assertNull(
+            "Row of an unsubscribed feature set was written to the store",
+            shared.get(TestUtil.createRedisKey(otherSpec, row).toByteArray()));
+      }
+      pipelineResult.cancel();
+    } finally {
+      allClient.shutdown();
+      sharedClient.shutdown();
+      secondRedis.stop();
+    }
+  }
+
   @Test
   public void runPipeline_ShouldWriteToRedisCorrectlyGivenValidSpecAndFeatureRow()
       throws IOException, InterruptedException {
@@ -266,4 +361,48 @@ public class ImportJobTest {
         });
     redisClient.shutdown();
   }
+
+  private static FeatureSetSpec createSpec(String name, String topic) {
+    return FeatureSetSpec.newBuilder()
+        .setName(name)
+        .setProject("myproject")
+        .addEntities(EntitySpec.newBuilder().setName("entity_id").setValueType(Enum.INT64))
+        .addFeatures(FeatureSpec.newBuilder().setName("feature").setValueType(Enum.STRING))
+        .setSource(
+            Source.newBuilder()
+                .setType(SourceType.KAFKA)
+                .setKafkaSourceConfig(
+                    KafkaSourceConfig.newBuilder()
+                        .setBootstrapServers(KAFKA_BOOTSTRAP_SERVERS)
+                        .setTopic(topic)))
+        .build();
+  }
+
+  private static Store createRedisStore(String name, int port, String featureSetName) {
+    return Store.newBuilder()
+        .setName(name)
+        .setType(StoreType.REDIS)
+        .setRedisConfig(RedisConfig.newBuilder().setHost(REDIS_HOST).setPort(port))
+        .addSubscriptions(Subscription.newBuilder().setProject("myproject").setName(featureSetName))
+        .build();
+  }
+
+  /** Wait until the rows of a feature set have been written to a Redis store. */
+  private static void awaitKeys(
+      RedisCommands<byte[], byte[]> redis, FeatureSetSpec spec, List<FeatureRow> rows)
+      throws InterruptedException {
+    long deadline =
+        System.currentTimeMillis()
+            + Duration.standardSeconds(IMPORT_JOB_MAX_RUN_DURATION_SEC).getMillis();
+    for (FeatureRow row : rows) {
+      byte[] key = TestUtil.createRedisKey(spec, row).toByteArray();
+      while (redis.get(key) == null) {
+        if (System.currentTimeMillis() > deadline) {
+          Assert.fail(
+              String.format("Row of feature set %s was not written to the store", spec.getName()));
+        }
+        Thread.sleep(Duration.standardSeconds(1).getMillis());
+      }
+    }
+  }
 }
@@ -0,0 +1,136 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.standalone;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import feast.ingestion.validation.FeatureRowValidator;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.writer.FeatureRowWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class SourceConsumerTest {
+
+  private static final String TOPIC = "topic";
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+  private MockConsumer<byte[], byte[]> kafkaConsumer;
+  private FeatureRowWriter writer;
+  private SourceConsumer consumer;
+  private FeatureRow validRow;
+
+  @Before
+  public void setUp() {
+    FeatureSetSpec spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("myproject")
+            .setName("feature_set")
+            .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature").setValueType(Enum.STRING))
+            .build();
+    Map<String, FeatureSet> featureSets =
+        Collections.singletonMap("myproject/feature_set", new FeatureSet(spec));
+
+    kafkaConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    kafkaConsumer.assign(Collections.singletonList(PARTITION));
+    kafkaConsumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+    writer = mock(FeatureRowWriter.class);
+    consumer =
+        new SourceConsumer(
+            kafkaConsumer,
+            TOPIC,
+            featureSets,
+            writer,
+            new FeatureRowValidator("myproject"),
+            null,
+            "job");
+
+    validRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/feature_set")
+            .addFields(
+                Field.newBuilder().setName("entity").setValue(Value.newBuilder().setInt64Val(1)))
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature")
+                    .setValue(Value.newBuilder().setStringVal("value")))
+            .build();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldWriteValidRowsAndCommitOffsets() throws Exception {
+    FeatureRow invalidRow =
+        validRow
+            .toBuilder()
+            .setFields(
+                1, validRow.getFields(1).toBuilder().setValue(Value.newBuilder().setInt32Val(1)))
+            .build();
+    addRecord(0, validRow.toByteArray());
+    addRecord(1, "not a feature row".getBytes(StandardCharsets.UTF_8));
+    addRecord(2, invalidRow.toByteArray());
+
+    boolean written = consumer.process(kafkaConsumer.poll(Duration.ZERO));
+
+    ArgumentCaptor<List<FeatureRow>> rows = ArgumentCaptor.forClass(List.class);
+    verify(writer).write(rows.capture());
+    assertThat(written, equalTo(true));
+    assertThat(rows.getValue(), equalTo(Collections.singletonList(validRow)));
+    assertThat(kafkaConsumer.committed(PARTITION).offset(), equalTo(3L));
+  }
+
+  @Test
+  public void shouldNotCommitOffsetsIfWriteFails() throws Exception {
+    doThrow(new RuntimeException("store unavailable")).when(writer).write(any());
+    addRecord(0, validRow.toByteArray());
+
+    ConsumerRecords<byte[], byte[]> records = kafkaConsumer.poll(Duration.ZERO);
+    boolean written = consumer.process(records);
+
+    assertThat(written, equalTo(false));
+    assertThat(kafkaConsumer.committed(PARTITION), nullValue());
+  }
+
+  private void addRecord(long offset, byte[] value) {
+    kafkaConsumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, new byte[0], value));
+  }
+}
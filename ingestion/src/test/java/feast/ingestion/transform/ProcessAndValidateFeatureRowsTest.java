@@ -16,6 +16,7 @@
  */
 package feast.ingestion.transform;
 
+import feast.ingestion.utils.SpecUtil;
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
@@ -26,15 +27,20 @@ import feast.proto.types.ValueProto.ValueType.Enum;
 import feast.storage.api.writer.FailedElement;
 import feast.test.TestUtil;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.beam.sdk.coders.MapCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Count;
 import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.View;
 import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.junit.Rule;
 import org.junit.Test;
@@ -273,4 +279,247 @@ public class ProcessAndValidateFeatureRowsTest {
 
     p.run();
   }
+
+  @Test
+  public void shouldDropRepeatedFields() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValueType(Enum.INT32)
+                    .build())
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
+            .build();
+
+    Map<String, FeatureSetSpec> featureSets = new HashMap<>();
+    featureSets.put("myproject/feature_set", fs1);
+
+    FeatureRow randomRow = TestUtil.createRandomFeatureRow(fs1);
+    FeatureRow input =
+        randomRow
+            .toBuilder()
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature_1")
+                    .setValue(Value.newBuilder().setStringVal("repeated")))
+            .build();
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(featureSets)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).containsInAnyOrder(randomRow);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldFailRowsWithRepeatedFieldsOfInvalidType() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValueType(Enum.INT32)
+                    .build())
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
+            .build();
+
+    Map<String, FeatureSetSpec> featureSets = new HashMap<>();
+    featureSets.put("myproject/feature_set", fs1);
+
+    FeatureRow input =
+        TestUtil.createRandomFeatureRow(fs1)
+            .toBuilder()
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature_1")
+                    .setValue(Value.newBuilder().setInt64Val(1L)))
+            .build();
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(featureSets)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).empty();
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldFailRowsWithInvalidFieldTypes() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValueType(Enum.INT32)
+                    .build())
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
+            .build();
+
+    Map<String, FeatureSetSpec> featureSets = new HashMap<>();
+    featureSets.put("myproject/feature_set", fs1);
+
+    FeatureRow input =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/feature_set")
+            .addFields(
+                Field.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValue(Value.newBuilder().setInt32Val(1)))
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature_1")
+                    .setValue(Value.newBuilder().setInt64Val(1L)))
+            .build();
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(featureSets)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).empty();
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldValidateAgainstRefreshedSpecs() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValueType(Enum.INT32)
+                    .build())
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
+            .build();
+    FeatureSetSpec refreshedFs1 =
+        fs1.toBuilder()
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.INT64).build())
+            .build();
+
+    Map<String, FeatureSetSpec> featureSets = new HashMap<>();
+    featureSets.put("myproject/feature_set", fs1);
+    Map<String, FeatureSetSpec> refreshedFeatureSets = new HashMap<>();
+    refreshedFeatureSets.put("myproject/feature_set", refreshedFs1);
+
+    FeatureRow input = TestUtil.createRandomFeatureRow(refreshedFs1);
+
+    PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView =
+        p.apply(
+                "RefreshedSpecs",
+                Create.of(Collections.singletonList(refreshedFeatureSets))
+                    .withCoder(
+                        MapCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class))))
+            .apply(View.asSingleton());
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(featureSets)
+                    .setFeatureSetSpecsView(featureSetSpecsView)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).containsInAnyOrder(input);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldDropRowsOfFeatureSetsOfOtherShards() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder()
+                    .setName("entity_id_primary")
+                    .setValueType(Enum.INT32)
+                    .build())
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
+            .build();
+
+    Map<String, FeatureSetSpec> featureSetSpecs = new HashMap<>();
+    featureSetSpecs.put("myproject/feature_set", fs1);
+    int shard = SpecUtil.getShard("myproject/feature_set", 2);
+
+    FeatureRow validRow = TestUtil.createRandomFeatureRow(fs1);
+    List<FeatureRow> input = new ArrayList<>();
+    input.add(validRow);
+    // Rows of unknown feature sets are only failed by the job of their shard
+    input.add(FeatureRow.newBuilder().setFeatureSet(findFeatureSet(shard, 2, true)).build());
+    input.add(FeatureRow.newBuilder().setFeatureSet(findFeatureSet(shard, 2, false)).build());
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setShard(shard)
+                    .setShardCount(2)
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(featureSetSpecs)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).containsInAnyOrder(validRow);
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  /** Find the reference of an unknown feature set that is either in the given shard or not. */
+  private static String findFeatureSet(int shard, int shardCount, boolean inShard) {
+    for (int i = 0; ; i++) {
+      String featureSetRef = "myproject/unknown_" + i;
+      if ((SpecUtil.getShard(featureSetRef, shardCount) == shard) == inShard) {
+        return featureSetRef;
+      }
+    }
+  }
 }
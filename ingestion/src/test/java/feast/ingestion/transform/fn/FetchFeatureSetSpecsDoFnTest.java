@@ -0,0 +1,276 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import feast.proto.core.CoreServiceGrpc.CoreServiceImplBase;
+import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.SourceProto.KafkaSourceConfig;
+import feast.proto.core.SourceProto.Source;
+import feast.proto.core.SourceProto.SourceType;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FetchFeatureSetSpecsDoFnTest {
+
+  private static final String SERVER_NAME = "core";
+
+  private Map<String, FeatureSetSpec> coreSpecs;
+  private boolean coreAvailable;
+  private long coreVersion;
+  private int listCalls;
+  private Server server;
+  private FetchFeatureSetSpecsDoFn fetchFeatureSetSpecs;
+  private FeatureSetSpec launchSpec;
+
+  @Before
+  public void setUp() throws IOException {
+    coreSpecs = new HashMap<>();
+    coreAvailable = true;
+    coreVersion = 1;
+    listCalls = 0;
+    server =
+        InProcessServerBuilder.forName(SERVER_NAME)
+            .directExecutor()
+            .addService(new FakeCoreService())
+            .build()
+            .start();
+
+    launchSpec =
+        FeatureSetSpec.newBuilder()
+            .setProject("myproject")
+            .setName("feature_set")
+            .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.INT64))
+            .setSource(
+                Source.newBuilder()
+                    .setType(SourceType.KAFKA)
+                    .setKafkaSourceConfig(
+                        KafkaSourceConfig.newBuilder()
+                            .setBootstrapServers("localhost:9092")
+                            .setTopic("topic")))
+            .build();
+    fetchFeatureSetSpecs =
+        new FetchFeatureSetSpecsDoFn(
+            SERVER_NAME, Collections.singletonMap("myproject/feature_set", launchSpec)) {
+          @Override
+          ManagedChannel createChannel() {
+            return InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+          }
+        };
+    fetchFeatureSetSpecs.setup();
+  }
+
+  @After
+  public void tearDown() {
+    fetchFeatureSetSpecs.teardown();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void shouldFetchSpecsWithAddedFeatures() {
+    FeatureSetSpec refreshedSpec =
+        launchSpec
+            .toBuilder()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.STRING))
+            .build();
+    coreSpecs.put("myproject/feature_set", refreshedSpec);
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", refreshedSpec)));
+  }
+
+  @Test
+  public void shouldKeepSpecsWithChangedSourceOrEntities() {
+    coreSpecs.put(
+        "myproject/feature_set",
+        launchSpec
+            .toBuilder()
+            .addEntities(EntitySpec.newBuilder().setName("entity_2").setValueType(Enum.INT64))
+            .build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", launchSpec)));
+
+    coreVersion++;
+    coreSpecs.put(
+        "myproject/feature_set",
+        launchSpec
+            .toBuilder()
+            .setSource(
+                launchSpec
+                    .getSource()
+                    .toBuilder()
+                    .setKafkaSourceConfig(
+                        launchSpec
+                            .getSource()
+                            .getKafkaSourceConfig()
+                            .toBuilder()
+                            .setTopic("other")))
+            .build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", launchSpec)));
+  }
+
+  @Test
+  public void shouldKeepSpecsWithChangedEntity() {
+    coreSpecs.put(
+        "myproject/feature_set",
+        launchSpec
+            .toBuilder()
+            .setEntities(0, EntitySpec.newBuilder().setName("entity").setValueType(Enum.STRING))
+            .build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", launchSpec)));
+  }
+
+  @Test
+  public void shouldKeepSpecsWithRemovedFeature() {
+    coreSpecs.put(
+        "myproject/feature_set",
+        launchSpec
+            .toBuilder()
+            .setFeatures(0, FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.INT64))
+            .build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", launchSpec)));
+  }
+
+  @Test
+  public void shouldKeepSpecsWithRetypedFeature() {
+    coreSpecs.put(
+        "myproject/feature_set",
+        launchSpec
+            .toBuilder()
+            .setFeatures(0, FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING))
+            .build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", launchSpec)));
+  }
+
+  @Test
+  public void shouldFetchSpecsWithoutFeaturesAddedSinceLaunch() {
+    FeatureSetSpec.Builder refreshedSpec =
+        launchSpec
+            .toBuilder()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.STRING));
+    coreSpecs.put("myproject/feature_set", refreshedSpec.build());
+    fetchFeatureSetSpecs.fetch();
+
+    // Feature 2 is removed again and feature 3 added, which Core does not restart the job for
+    coreVersion++;
+    refreshedSpec
+        .removeFeatures(1)
+        .addFeatures(FeatureSpec.newBuilder().setName("feature_3").setValueType(Enum.STRING));
+    coreSpecs.put("myproject/feature_set", refreshedSpec.build());
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", refreshedSpec.build())));
+  }
+
+  @Test
+  public void shouldKeepLastFetchedSpecsIfCoreIsUnavailable() {
+    FeatureSetSpec refreshedSpec =
+        launchSpec
+            .toBuilder()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.STRING))
+            .build();
+    coreSpecs.put("myproject/feature_set", refreshedSpec);
+    fetchFeatureSetSpecs.fetch();
+
+    coreAvailable = false;
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", refreshedSpec)));
+  }
+
+  @Test
+  public void shouldFetchAllSpecsInOneCallAndKeepThemIfNotModified() {
+    FeatureSetSpec refreshedSpec =
+        launchSpec
+            .toBuilder()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.STRING))
+            .build();
+    coreSpecs.put("myproject/feature_set", refreshedSpec);
+    coreSpecs.put("myproject/other_feature_set", launchSpec.toBuilder().setName("other").build());
+    fetchFeatureSetSpecs.fetch();
+    assertThat(listCalls, equalTo(1));
+
+    // Not returned by Core, since the registry version is unchanged
+    coreSpecs.put("myproject/feature_set", launchSpec);
+
+    assertThat(
+        fetchFeatureSetSpecs.fetch(),
+        equalTo(Collections.singletonMap("myproject/feature_set", refreshedSpec)));
+    assertThat(listCalls, equalTo(2));
+  }
+
+  private class FakeCoreService extends CoreServiceImplBase {
+
+    @Override
+    public void listFeatureSets(
+        ListFeatureSetsRequest request, StreamObserver<ListFeatureSetsResponse> responseObserver) {
+      listCalls++;
+      if (!coreAvailable) {
+        responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+        return;
+      }
+      ListFeatureSetsResponse.Builder response =
+          ListFeatureSetsResponse.newBuilder().setVersion(coreVersion);
+      if (request.getIfVersionNewerThan() == coreVersion) {
+        response.setStatus(ListFeatureSetsResponse.Status.NOT_MODIFIED);
+      } else {
+        coreSpecs.values().stream()
+            .filter(spec -> spec.getProject().equals(request.getFilter().getProject()))
+            .forEach(spec -> response.addFeatureSets(FeatureSet.newBuilder().setSpec(spec)));
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+  @Test
+  public void shouldReturnExactQuantilesForSmallInputs() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.add(6);
+    sketch.add(1);
+    sketch.add(5);
+
+    assertThat(sketch.quantile(0.25), equalTo(1.0));
+    assertThat(sketch.quantile(0.5), equalTo(5.0));
+    assertThat(sketch.quantile(0.9), equalTo(6.0));
+  }
+
+  @Test
+  public void shouldReturnNaNIfEmpty() {
+    assertThat(Double.isNaN(new QuantileSketch().quantile(0.5)), equalTo(true));
+  }
+
+  @Test
+  public void shouldApproximateQuantilesOfMergedSketches() {
+    int size = 100000;
+    QuantileSketch merged = new QuantileSketch();
+    for (int part = 0; part < 10; part++) {
+      QuantileSketch sketch = new QuantileSketch();
+      for (int i = part; i < size; i += 10) {
+        sketch.add(i);
+      }
+      merged.merge(sketch);
+    }
+
+    for (double fraction : new double[] {0.25, 0.5, 0.9, 0.99}) {
+      assertThat(merged.quantile(fraction), closeTo(fraction * size, 0.02 * size));
+    }
+  }
+}
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -45,9 +46,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.junit.Rule;
@@ -70,7 +76,12 @@ public class WriteFeatureValueMetricsDoFnTest {
         readTestOutput("feast/ingestion/transform/WriteFeatureValueMetricsDoFnTest.output");
 
     pipeline
-        .apply(Create.of(input))
+        .apply(
+            Create.of(input)
+                .withCoder(
+                    KvCoder.of(
+                        StringUtf8Coder.of(), IterableCoder.of(ProtoCoder.of(FeatureRow.class)))))
+        .apply(Combine.groupedValues(new FeatureSetStatisticsCombineFn(Clock.systemUTC())))
         .apply(
             ParDo.of(
                 WriteFeatureValueMetricsDoFn.newBuilder()
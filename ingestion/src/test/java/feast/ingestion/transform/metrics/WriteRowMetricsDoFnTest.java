@@ -28,9 +28,14 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.junit.Rule;
@@ -52,14 +57,21 @@ public class WriteRowMetricsDoFnTest {
         readTestOutput("feast/ingestion/transform/WriteRowMetricsDoFnTest.output");
 
     pipeline
-        .apply(Create.of(input))
+        .apply(
+            Create.of(input)
+                .withCoder(
+                    KvCoder.of(
+                        StringUtf8Coder.of(), IterableCoder.of(ProtoCoder.of(FeatureRow.class)))))
+        .apply(
+            Combine.groupedValues(
+                new FeatureSetStatisticsCombineFn(
+                    Clock.fixed(Instant.ofEpochSecond(1585548645), ZoneId.of("UTC")))))
         .apply(
             ParDo.of(
                 WriteRowMetricsDoFn.newBuilder()
                     .setStatsdHost("localhost")
                     .setStatsdPort(STATSD_SERVER_PORT)
                     .setStoreName("store")
-                    .setClock(Clock.fixed(Instant.ofEpochSecond(1585548645), ZoneId.of("UTC")))
                     .build()));
     pipeline.run(pipelineOptions).waitUntilFinish();
     // Wait until StatsD has finished processed all messages, 3 sec is a reasonable duration
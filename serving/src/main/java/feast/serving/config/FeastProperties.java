@@ -99,6 +99,15 @@ public class FeastProperties {
   /* Metric tracing properties. */
   private TracingProperties tracing;
 
+  /* Local spec snapshot properties. */
+  private SpecSnapshotProperties specSnapshot = new SpecSnapshotProperties();
+
+  /* Reuse of historical retrieval results properties. */
+  private ResultCacheProperties resultCache = new ResultCacheProperties();
+
+  /* Historical retrieval job executor properties. */
+  private JobExecutorProperties jobExecutor = new JobExecutorProperties();
+
   /**
    * Gets Serving store configuration as a list of {@link Store}.
    *
@@ -262,6 +271,10 @@ public class FeastProperties {
               StoreProto.Store.CassandraConfig.newBuilder();
           JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), cassandraConfig);
           return storeProtoBuilder.setCassandraConfig(cassandraConfig.build()).build();
+        case FILE:
+          StoreProto.Store.FileConfig.Builder fileConfig = StoreProto.Store.FileConfig.newBuilder();
+          JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), fileConfig);
+          return storeProtoBuilder.setFileConfig(fileConfig.build()).build();
         default:
           throw new InvalidProtocolBufferException("Invalid store set");
       }
@@ -427,6 +440,60 @@ public class FeastProperties {
     this.tracing = tracing;
   }
 
+  /**
+   * Gets spec snapshot properties
+   *
+   * @return spec snapshot properties
+   */
+  public SpecSnapshotProperties getSpecSnapshot() {
+    return specSnapshot;
+  }
+
+  /**
+   * Sets the spec snapshot configuration.
+   *
+   * @param specSnapshot the spec snapshot properties
+   */
+  public void setSpecSnapshot(SpecSnapshotProperties specSnapshot) {
+    this.specSnapshot = specSnapshot;
+  }
+
+  /**
+   * Gets result cache properties
+   *
+   * @return result cache properties
+   */
+  public ResultCacheProperties getResultCache() {
+    return resultCache;
+  }
+
+  /**
+   * Sets the result cache configuration.
+   *
+   * @param resultCache the result cache properties
+   */
+  public void setResultCache(ResultCacheProperties resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /**
+   * Gets job executor properties
+   *
+   * @return job executor properties
+   */
+  public JobExecutorProperties getJobExecutor() {
+    return jobExecutor;
+  }
+
+  /**
+   * Sets the job executor configuration.
+   *
+   * @param jobExecutor the job executor properties
+   */
+  public void setJobExecutor(JobExecutorProperties jobExecutor) {
+    this.jobExecutor = jobExecutor;
+  }
+
   /** The type Job store properties. */
   public static class JobStoreProperties {
 
@@ -539,4 +606,205 @@ public class FeastProperties {
       this.serviceName = serviceName;
     }
   }
+
+  /** Local snapshot of the specs retrieved from Feast Core */
+  public static class SpecSnapshotProperties {
+
+    /** Spec snapshot enabled/disabled */
+    private boolean enabled;
+
+    /** Path of the spec snapshot file */
+    private String path;
+
+    /** Interval in seconds at which the spec snapshot is rewritten if the specs have changed */
+    private long writeIntervalSeconds = 60;
+
+    /** Maximum age in seconds of a spec snapshot that can still be loaded at startup */
+    private long maxAgeSeconds;
+
+    /**
+     * Is the spec snapshot enabled
+     *
+     * @return boolean flag
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * Sets spec snapshot enabled or disabled.
+     *
+     * @param enabled flag
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * Gets the path of the spec snapshot file.
+     *
+     * @return the spec snapshot path
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Sets the path of the spec snapshot file.
+     *
+     * @param path the spec snapshot path
+     */
+    public void setPath(String path) {
+      this.path = path;
+    }
+
+    /**
+     * Gets the interval in seconds at which the spec snapshot is rewritten.
+     *
+     * @return the snapshot write interval in seconds
+     */
+    public long getWriteIntervalSeconds() {
+      return writeIntervalSeconds;
+    }
+
+    /**
+     * Sets the interval in seconds at which the spec snapshot is rewritten.
+     *
+     * @param writeIntervalSeconds the snapshot write interval in seconds
+     */
+    public void setWriteIntervalSeconds(long writeIntervalSeconds) {
+      this.writeIntervalSeconds = writeIntervalSeconds;
+    }
+
+    /**
+     * Gets the maximum age in seconds of a spec snapshot that can be loaded at startup.
+     *
+     * @return the maximum snapshot age in seconds
+     */
+    public long getMaxAgeSeconds() {
+      return maxAgeSeconds;
+    }
+
+    /**
+     * Sets the maximum age in seconds of a spec snapshot that can be loaded at startup.
+     *
+     * @param maxAgeSeconds the maximum snapshot age in seconds
+     */
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+      this.maxAgeSeconds = maxAgeSeconds;
+    }
+  }
+
+  /** Reuse of the results of identical historical retrievals */
+  public static class ResultCacheProperties {
+
+    /** Result cache enabled/disabled */
+    private boolean enabled;
+
+    /** Time in seconds for which the result of a retrieval is reused */
+    private long retentionSeconds;
+
+    /** Maximum number of retrieval results remembered */
+    private long maxEntries;
+
+    /**
+     * Is the result cache enabled
+     *
+     * @return boolean flag
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * Sets result cache enabled or disabled.
+     *
+     * @param enabled flag
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * Gets the time in seconds for which the result of a retrieval is reused.
+     *
+     * @return the retention in seconds
+     */
+    public long getRetentionSeconds() {
+      return retentionSeconds;
+    }
+
+    /**
+     * Sets the time in seconds for which the result of a retrieval is reused.
+     *
+     * @param retentionSeconds the retention in seconds
+     */
+    public void setRetentionSeconds(long retentionSeconds) {
+      this.retentionSeconds = retentionSeconds;
+    }
+
+    /**
+     * Gets the maximum number of retrieval results remembered.
+     *
+     * @return the maximum number of entries
+     */
+    public long getMaxEntries() {
+      return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of retrieval results remembered.
+     *
+     * @param maxEntries the maximum number of entries
+     */
+    public void setMaxEntries(long maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+  }
+
+  /** Execution of historical retrieval jobs */
+  public static class JobExecutorProperties {
+
+    /** Maximum number of retrieval jobs run at the same time */
+    private int maxConcurrentJobs = 4;
+
+    /** Maximum number of retrieval jobs waiting to be run */
+    private int maxQueuedJobs = 100;
+
+    /**
+     * Gets the maximum number of retrieval jobs run at the same time.
+     *
+     * @return the maximum number of concurrent jobs
+     */
+    public int getMaxConcurrentJobs() {
+      return maxConcurrentJobs;
+    }
+
+    /**
+     * Sets the maximum number of retrieval jobs run at the same time.
+     *
+     * @param maxConcurrentJobs the maximum number of concurrent jobs
+     */
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+      this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    /**
+     * Gets the maximum number of retrieval jobs waiting to be run.
+     *
+     * @return the maximum number of queued jobs
+     */
+    public int getMaxQueuedJobs() {
+      return maxQueuedJobs;
+    }
+
+    /**
+     * Sets the maximum number of retrieval jobs waiting to be run.
+     *
+     * @param maxQueuedJobs the maximum number of queued jobs
+     */
+    public void setMaxQueuedJobs(int maxQueuedJobs) {
+      this.maxQueuedJobs = maxQueuedJobs;
+    }
+  }
 }
@@ -31,7 +31,8 @@ public class JobServiceConfig {
   @Bean
   public JobService jobService(FeastProperties feastProperties)
       throws InvalidProtocolBufferException, JsonProcessingException {
-    if (!feastProperties.getActiveStore().toProto().getType().equals(StoreType.BIGQUERY)) {
+    StoreType storeType = feastProperties.getActiveStore().toProto().getType();
+    if (!storeType.equals(StoreType.BIGQUERY) && !storeType.equals(StoreType.FILE)) {
       return new NoopJobService();
     }
     return new RedisBackedJobService(feastProperties.getJobStore());
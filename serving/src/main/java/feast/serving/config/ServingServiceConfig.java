@@ -23,11 +23,13 @@ import feast.serving.service.HistoricalServingService;
 import feast.serving.service.JobService;
 import feast.serving.service.NoopJobService;
 import feast.serving.service.OnlineServingService;
+import feast.serving.service.RetrievalJobExecutor;
 import feast.serving.service.ServingService;
 import feast.serving.specs.CachedSpecService;
 import feast.storage.api.retriever.HistoricalRetriever;
 import feast.storage.api.retriever.OnlineRetriever;
 import feast.storage.connectors.bigquery.retriever.BigQueryHistoricalRetriever;
+import feast.storage.connectors.file.retriever.FileHistoricalRetriever;
 import feast.storage.connectors.redis.retriever.RedisOnlineRetriever;
 import feast.storage.connectors.rediscluster.retriever.RedisClusterOnlineRetriever;
 import io.opentracing.Tracer;
@@ -46,6 +48,7 @@ public class ServingServiceConfig {
       FeastProperties feastProperties,
       CachedSpecService specService,
       JobService jobService,
+      RetrievalJobExecutor jobExecutor,
       Tracer tracer)
       throws InvalidProtocolBufferException, JsonProcessingException {
     ServingService servingService = null;
@@ -68,7 +71,27 @@ public class ServingServiceConfig {
               "Unable to instantiate JobService which is required by BigQueryHistoricalRetriever.");
         }
         HistoricalRetriever bqRetriever = BigQueryHistoricalRetriever.create(config);
-        servingService = new HistoricalServingService(bqRetriever, specService, jobService);
+        servingService =
+            new HistoricalServingService(
+                bqRetriever,
+                specService,
+                jobService,
+                jobExecutor,
+                feastProperties.getResultCache());
+        break;
+      case FILE:
+        if (jobService.getClass() == NoopJobService.class) {
+          throw new IllegalArgumentException(
+              "Unable to instantiate JobService which is required by FileHistoricalRetriever.");
+        }
+        HistoricalRetriever fileRetriever = FileHistoricalRetriever.create(config);
+        servingService =
+            new HistoricalServingService(
+                fileRetriever,
+                specService,
+                jobService,
+                jobExecutor,
+                feastProperties.getResultCache());
         break;
       case CASSANDRA:
       case UNRECOGNIZED:
@@ -81,4 +104,15 @@ public class ServingServiceConfig {
 
     return servingService;
   }
+
+  /** Threads of the executor are only started once a retrieval job is submitted. */
+  @Bean(destroyMethod = "shutdown")
+  public RetrievalJobExecutor retrievalJobExecutor(
+      FeastProperties feastProperties, JobService jobService) {
+    FeastProperties.JobExecutorProperties jobExecutorProperties = feastProperties.getJobExecutor();
+    return new RetrievalJobExecutor(
+        jobService,
+        jobExecutorProperties.getMaxConcurrentJobs(),
+        jobExecutorProperties.getMaxQueuedJobs());
+  }
 }
@@ -19,8 +19,12 @@ package feast.serving.config;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.proto.core.StoreProto;
+import feast.serving.config.FeastProperties.SpecSnapshotProperties;
 import feast.serving.specs.CachedSpecService;
 import feast.serving.specs.CoreSpecService;
+import feast.serving.specs.SpecSnapshotStore;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -45,15 +49,24 @@ public class SpecServiceConfig {
 
   @Bean
   public ScheduledExecutorService cachedSpecServiceScheduledExecutorService(
-      CachedSpecService cachedSpecStorage) {
+      CachedSpecService cachedSpecStorage, FeastProperties feastProperties) {
     ScheduledExecutorService scheduledExecutorService =
         Executors.newSingleThreadScheduledExecutor();
-    // reload all specs including new ones periodically
+    // reload all specs periodically whenever the feature set watch stream is not open
     scheduledExecutorService.scheduleAtFixedRate(
         cachedSpecStorage::scheduledPopulateCache,
         CACHE_REFRESH_RATE_SECONDS,
         CACHE_REFRESH_RATE_SECONDS,
         TimeUnit.SECONDS);
+    SpecSnapshotProperties specSnapshotProperties = feastProperties.getSpecSnapshot();
+    if (specSnapshotProperties.isEnabled()) {
+      // write the spec snapshot at most once per interval, however often the specs change
+      scheduledExecutorService.scheduleWithFixedDelay(
+          cachedSpecStorage::writeSnapshotIfOutdated,
+          0,
+          specSnapshotProperties.getWriteIntervalSeconds(),
+          TimeUnit.SECONDS);
+    }
     return scheduledExecutorService;
   }
 
@@ -62,12 +75,25 @@ public class SpecServiceConfig {
       throws InvalidProtocolBufferException, JsonProcessingException {
     CoreSpecService coreService = new CoreSpecService(feastCoreHost, feastCorePort);
     StoreProto.Store storeProto = feastProperties.getActiveStore().toProto();
-    CachedSpecService cachedSpecStorage = new CachedSpecService(coreService, storeProto);
-    try {
-      cachedSpecStorage.populateCache();
-    } catch (Exception e) {
-      log.error("Unable to preload feast's spec");
+    SpecSnapshotProperties specSnapshotProperties = feastProperties.getSpecSnapshot();
+    SpecSnapshotStore specSnapshotStore = null;
+    if (specSnapshotProperties.isEnabled()) {
+      if (specSnapshotProperties.getPath() == null
+          || specSnapshotProperties.getPath().trim().isEmpty()) {
+        throw new IllegalArgumentException(
+            "Spec snapshot is enabled, but no path is configured for it. "
+                + "Set feast.spec_snapshot.path or disable the spec snapshot.");
+      }
+      specSnapshotStore =
+          new SpecSnapshotStore(
+              Paths.get(specSnapshotProperties.getPath()),
+              Duration.ofSeconds(specSnapshotProperties.getMaxAgeSeconds()));
     }
+    CachedSpecService cachedSpecStorage =
+        new CachedSpecService(coreService, storeProto, specSnapshotStore);
+    // The cache has either been populated from core or loaded from the snapshot on construction.
+    // Either way it is synchronized with core in the background once the feature set watch is open.
+    cachedSpecStorage.watchFeatureSets();
     return cachedSpecStorage;
   }
 }
@@ -16,6 +16,8 @@
  */
 package feast.serving.controller;
 
+import feast.proto.serving.ServingAPIProto.CancelJobRequest;
+import feast.proto.serving.ServingAPIProto.CancelJobResponse;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoRequest;
@@ -116,4 +118,17 @@ public class ServingServiceGRpcController extends ServingServiceImplBase {
       responseObserver.onError(e);
     }
   }
+
+  @Override
+  public void cancelJob(
+      CancelJobRequest request, StreamObserver<CancelJobResponse> responseObserver) {
+    try {
+      CancelJobResponse response = servingService.cancelJob(request);
+      responseObserver.onNext(response);
+      responseObserver.onCompleted();
+    } catch (Exception e) {
+      log.warn("Failed to cancel Job", e);
+      responseObserver.onError(e);
+    }
+  }
 }
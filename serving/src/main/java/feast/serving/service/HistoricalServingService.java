@@ -16,9 +16,12 @@
  */
 package feast.serving.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import feast.proto.serving.ServingAPIProto;
 import feast.proto.serving.ServingAPIProto.*;
 import feast.proto.serving.ServingAPIProto.Job.Builder;
+import feast.serving.config.FeastProperties.ResultCacheProperties;
 import feast.serving.specs.CachedSpecService;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.HistoricalRetrievalResult;
@@ -27,8 +30,20 @@ import io.grpc.Status;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 
+/**
+ * Serves historical retrievals as asynchronous jobs.
+ *
+ * <p>Retrievals are run as jobs by a {@link RetrievalJobExecutor}, which bounds the number of
+ * retrievals running at the same time and queues the rest.
+ *
+ * <p>If enabled, the results of retrievals are remembered by the fingerprint of their inputs, as
+ * computed by the retriever within the retrieval job. A retrieval with the same fingerprint as an
+ * earlier one is completed with the files of the earlier result, as long as these still exist.
+ */
 public class HistoricalServingService implements ServingService {
 
   private static final Logger log =
@@ -37,12 +52,26 @@ public class HistoricalServingService implements ServingService {
   private final HistoricalRetriever retriever;
   private final CachedSpecService specService;
   private final JobService jobService;
+  private final RetrievalJobExecutor jobExecutor;
+  private final Cache<String, HistoricalRetrievalResult> resultCache;
 
   public HistoricalServingService(
-      HistoricalRetriever retriever, CachedSpecService specService, JobService jobService) {
+      HistoricalRetriever retriever,
+      CachedSpecService specService,
+      JobService jobService,
+      RetrievalJobExecutor jobExecutor,
+      ResultCacheProperties resultCacheProperties) {
     this.retriever = retriever;
     this.specService = specService;
     this.jobService = jobService;
+    this.jobExecutor = jobExecutor;
+    this.resultCache =
+        resultCacheProperties.isEnabled()
+            ? CacheBuilder.newBuilder()
+                .expireAfterWrite(resultCacheProperties.getRetentionSeconds(), TimeUnit.SECONDS)
+                .maximumSize(resultCacheProperties.getMaxEntries())
+                .build()
+            : null;
   }
 
   /** {@inheritDoc} */
@@ -67,27 +96,13 @@ public class HistoricalServingService implements ServingService {
     List<FeatureSetRequest> featureSetRequests =
         specService.getFeatureSets(getFeaturesRequest.getFeaturesList());
     String retrievalId = UUID.randomUUID().toString();
-    Job runningJob =
-        Job.newBuilder()
-            .setId(retrievalId)
-            .setType(JobType.JOB_TYPE_DOWNLOAD)
-            .setStatus(JobStatus.JOB_STATUS_RUNNING)
-            .build();
-    jobService.upsert(runningJob);
-    Thread thread =
-        new Thread(
-            new Runnable() {
-              @Override
-              public void run() {
-                HistoricalRetrievalResult result =
-                    retriever.getHistoricalFeatures(
-                        retrievalId, getFeaturesRequest.getDatasetSource(), featureSetRequests);
-                jobService.upsert(resultToJob(result));
-              }
-            });
-    thread.start();
+    Job job =
+        jobExecutor.submit(
+            Job.newBuilder().setId(retrievalId).setType(JobType.JOB_TYPE_DOWNLOAD).build(),
+            getProject(featureSetRequests),
+            () -> retrieve(retrievalId, getFeaturesRequest, featureSetRequests));
 
-    return GetBatchFeaturesResponse.newBuilder().setJob(runningJob).build();
+    return GetBatchFeaturesResponse.newBuilder().setJob(job).build();
   }
 
   /** {@inheritDoc} */
@@ -102,6 +117,83 @@ public class HistoricalServingService implements ServingService {
     return GetJobResponse.newBuilder().setJob(job.get()).build();
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public CancelJobResponse cancelJob(CancelJobRequest cancelJobRequest) {
+    String jobId = cancelJobRequest.getJob().getId();
+    Optional<Job> job = jobService.get(jobId);
+    if (!job.isPresent()) {
+      throw Status.NOT_FOUND
+          .withDescription(String.format("Job not found: %s", jobId))
+          .asRuntimeException();
+    }
+    if (job.get().getStatus() == JobStatus.JOB_STATUS_DONE) {
+      return CancelJobResponse.newBuilder().setJob(job.get()).build();
+    }
+    Optional<Job> cancelledJob = jobExecutor.cancel(jobId);
+    if (!cancelledJob.isPresent()) {
+      throw Status.FAILED_PRECONDITION
+          .withDescription(
+              String.format("Job %s is not being run by this Feast Serving instance", jobId))
+          .asRuntimeException();
+    }
+    return CancelJobResponse.newBuilder().setJob(cancelledJob.get()).build();
+  }
+
+  /** Jobs are queued fairly by the projects of the requested feature sets. */
+  private String getProject(List<FeatureSetRequest> featureSetRequests) {
+    return featureSetRequests.stream()
+        .map(featureSetRequest -> featureSetRequest.getSpec().getProject())
+        .distinct()
+        .sorted()
+        .collect(Collectors.joining(","));
+  }
+
+  /**
+   * Run a retrieval, or reuse the result of an earlier one with the same fingerprint. The
+   * fingerprint takes store requests to compute, so it is computed here rather than on the request
+   * path.
+   *
+   * @return the job in its final state
+   */
+  private Job retrieve(
+      String retrievalId,
+      GetBatchFeaturesRequest getFeaturesRequest,
+      List<FeatureSetRequest> featureSetRequests) {
+    Optional<String> fingerprint = getResultFingerprint(getFeaturesRequest, featureSetRequests);
+    if (fingerprint.isPresent()) {
+      HistoricalRetrievalResult cachedResult = resultCache.getIfPresent(fingerprint.get());
+      if (cachedResult != null && retriever.isResultAvailable(cachedResult.getFileUris())) {
+        log.info(
+            "Reusing result of retrieval {} for retrieval {}", cachedResult.getId(), retrievalId);
+        return resultToJob(
+            HistoricalRetrievalResult.success(
+                retrievalId, cachedResult.getFileUris(), cachedResult.getDataFormat()));
+      }
+    }
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            retrievalId, getFeaturesRequest.getDatasetSource(), featureSetRequests);
+    if (fingerprint.isPresent() && !result.hasError()) {
+      resultCache.put(fingerprint.get(), result);
+    }
+    return resultToJob(result);
+  }
+
+  private Optional<String> getResultFingerprint(
+      GetBatchFeaturesRequest getFeaturesRequest, List<FeatureSetRequest> featureSetRequests) {
+    if (resultCache == null) {
+      return Optional.empty();
+    }
+    try {
+      return retriever.getResultFingerprint(
+          getFeaturesRequest.getDatasetSource(), featureSetRequests);
+    } catch (RuntimeException e) {
+      log.warn("Unable to fingerprint retrieval, its result will not be reused", e);
+      return Optional.empty();
+    }
+  }
+
   private Job resultToJob(HistoricalRetrievalResult result) {
     Builder builder =
         Job.newBuilder()
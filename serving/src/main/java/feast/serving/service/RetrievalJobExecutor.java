@@ -0,0 +1,283 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import feast.proto.serving.ServingAPIProto.Job;
+import feast.proto.serving.ServingAPIProto.JobStatus;
+import feast.serving.util.Metrics;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+
+/**
+ * Runs retrieval jobs on a bounded number of threads and keeps their state in the {@link
+ * JobService}.
+ *
+ * <p>Jobs that cannot be run straight away wait in a bounded queue with status {@code
+ * JOB_STATUS_PENDING}. Queued jobs are grouped by project and the projects take turns, so that a
+ * burst of jobs for one project does not hold up the jobs of others. Submissions are rejected once
+ * the queue is full.
+ *
+ * <p>A cancelled job is removed from the queue, or has its thread interrupted if it is running.
+ * Retrievers are expected to cancel the work they started in the store when interrupted. The state
+ * transitions of each job are serialized on the job's task, so the outcome of a job that was
+ * cancelled is never published. Job state is stored outside of the executor's monitor, so that
+ * submissions and cancellations of other jobs do not wait for the {@link JobService}.
+ *
+ * <p>Locks are taken in the order task, then executor.
+ */
+public class RetrievalJobExecutor {
+
+  private static final Logger log = org.slf4j.LoggerFactory.getLogger(RetrievalJobExecutor.class);
+
+  static final String CANCELLED_ERROR = "Job was cancelled";
+
+  private final JobService jobService;
+  private final int maxConcurrentJobs;
+  private final int maxQueuedJobs;
+  private final ExecutorService workers;
+
+  // Queued jobs by project, in the order in which the projects take their next turn
+  private final Map<String, Deque<Task>> queues = new LinkedHashMap<>();
+  // Queued and running jobs by id. These and the queues are guarded by the executor's monitor.
+  private final Map<String, Task> tasks = new HashMap<>();
+  private int queued;
+  private int running;
+
+  public RetrievalJobExecutor(JobService jobService, int maxConcurrentJobs, int maxQueuedJobs) {
+    if (maxConcurrentJobs <= 0) {
+      throw new IllegalArgumentException(
+          "Maximum number of concurrent jobs must be positive: " + maxConcurrentJobs);
+    }
+    this.jobService = jobService;
+    this.maxConcurrentJobs = maxConcurrentJobs;
+    this.maxQueuedJobs = maxQueuedJobs;
+    this.workers =
+        Executors.newFixedThreadPool(
+            maxConcurrentJobs,
+            new ThreadFactoryBuilder().setNameFormat("retrieval-job-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Submit a job to be run. The job is stored as pending and is marked as running once it is
+   * started.
+   *
+   * @param job the job, identified by its id
+   * @param project project the job is scheduled fairly within
+   * @param retrieval runs the job and returns it in its final state
+   * @return the job as stored on submission
+   * @throws io.grpc.StatusRuntimeException with status RESOURCE_EXHAUSTED if the queue is full
+   */
+  public Job submit(Job job, String project, Supplier<Job> retrieval) {
+    Job pendingJob = job.toBuilder().setStatus(JobStatus.JOB_STATUS_PENDING).build();
+    Task task = new Task(pendingJob, project, retrieval);
+    // The task is held until the job is stored, so that the job is not marked as running or
+    // cancelled before it is stored as pending
+    synchronized (task) {
+      synchronized (this) {
+        if (queued >= maxQueuedJobs) {
+          throw Status.RESOURCE_EXHAUSTED
+              .withDescription(
+                  String.format(
+                      "Too many retrieval jobs are queued (%d), please retry later", maxQueuedJobs))
+              .asRuntimeException();
+        }
+        tasks.put(pendingJob.getId(), task);
+        queues.computeIfAbsent(project, p -> new ArrayDeque<>()).add(task);
+        queued++;
+        dispatch();
+        updateGauges();
+      }
+      try {
+        jobService.upsert(pendingJob);
+      } catch (RuntimeException e) {
+        // The job is not run if it could not be stored. A thread the job was started on waits for
+        // the task, and then finds the job cancelled.
+        task.cancelled = true;
+        synchronized (this) {
+          tasks.remove(pendingJob.getId());
+          dequeue(task);
+        }
+        throw e;
+      }
+    }
+    return pendingJob;
+  }
+
+  /**
+   * Cancel a job that is queued or running.
+   *
+   * @param jobId id of the job
+   * @return the cancelled job, or empty if the job is not queued or running in this executor
+   */
+  public Optional<Job> cancel(String jobId) {
+    Task task;
+    synchronized (this) {
+      task = tasks.remove(jobId);
+      if (task == null) {
+        return Optional.empty();
+      }
+      dequeue(task);
+    }
+    Job cancelledJob =
+        task.job.toBuilder().setStatus(JobStatus.JOB_STATUS_DONE).setError(CANCELLED_ERROR).build();
+    synchronized (task) {
+      // The job may have completed before it was removed from the running jobs
+      if (task.completedJob != null) {
+        return Optional.of(task.completedJob);
+      }
+      task.cancelled = true;
+      if (task.thread != null) {
+        task.thread.interrupt();
+      }
+      jobService.upsert(cancelledJob);
+    }
+    log.info("Cancelled retrieval job {}", jobId);
+    return Optional.of(cancelledJob);
+  }
+
+  /** Stop running jobs and discard the queue. */
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /** Start queued jobs while there are free threads, taking one job per project in turn. */
+  private void dispatch() {
+    while (running < maxConcurrentJobs && !queues.isEmpty()) {
+      Iterator<Map.Entry<String, Deque<Task>>> turns = queues.entrySet().iterator();
+      Map.Entry<String, Deque<Task>> turn = turns.next();
+      turns.remove();
+      Task task = turn.getValue().poll();
+      if (!turn.getValue().isEmpty()) {
+        // Move the project to the back of the line
+        queues.put(turn.getKey(), turn.getValue());
+      }
+      queued--;
+      running++;
+      task.started = true;
+      workers.execute(() -> run(task));
+    }
+  }
+
+  private void run(Task task) {
+    boolean cancelled;
+    synchronized (task) {
+      cancelled = task.cancelled;
+      if (!cancelled) {
+        task.thread = Thread.currentThread();
+        jobService.upsert(task.job.toBuilder().setStatus(JobStatus.JOB_STATUS_RUNNING).build());
+      }
+    }
+    if (cancelled) {
+      finish(task);
+      return;
+    }
+    long startTime = System.nanoTime();
+    Metrics.retrievalWaitTime.observe((startTime - task.submitTime) / 1e9);
+
+    Job completedJob;
+    try {
+      completedJob = task.retrieval.get();
+    } catch (RuntimeException e) {
+      log.error("Retrieval job {} failed", task.job.getId(), e);
+      completedJob =
+          task.job
+              .toBuilder()
+              .setStatus(JobStatus.JOB_STATUS_DONE)
+              .setError(String.valueOf(e.getMessage()))
+              .build();
+    }
+
+    String outcome;
+    synchronized (task) {
+      if (task.cancelled) {
+        outcome = "cancelled";
+      } else {
+        outcome = completedJob.getError().isEmpty() ? "done" : "failed";
+        jobService.upsert(completedJob);
+        task.completedJob = completedJob;
+      }
+      task.thread = null;
+      // Clear an interrupt that arrived after the retrieval returned
+      Thread.interrupted();
+    }
+    Metrics.retrievalDuration.labels(outcome).observe((System.nanoTime() - startTime) / 1e9);
+    finish(task);
+  }
+
+  /**
+   * Remove a job from the queue if it has not started. The running count of a started job is
+   * released by its task once its thread returns.
+   */
+  private void dequeue(Task task) {
+    if (task.started) {
+      return;
+    }
+    Deque<Task> queue = queues.get(task.project);
+    queue.remove(task);
+    if (queue.isEmpty()) {
+      queues.remove(task.project);
+    }
+    queued--;
+    updateGauges();
+  }
+
+  private synchronized void finish(Task task) {
+    if (tasks.get(task.job.getId()) == task) {
+      tasks.remove(task.job.getId());
+    }
+    running--;
+    dispatch();
+    updateGauges();
+  }
+
+  private void updateGauges() {
+    Metrics.queuedRetrievals.set(queued);
+    Metrics.runningRetrievals.set(running);
+  }
+
+  private static class Task {
+
+    private final Job job;
+    private final String project;
+    private final Supplier<Job> retrieval;
+    private final long submitTime = System.nanoTime();
+
+    // Guarded by the executor
+    private boolean started;
+    // Guarded by the task
+    private boolean cancelled;
+    private Thread thread;
+    private Job completedJob;
+
+    Task(Job job, String project, Supplier<Job> retrieval) {
+      this.job = job;
+      this.project = project;
+      this.retrieval = retrieval;
+    }
+  }
+}
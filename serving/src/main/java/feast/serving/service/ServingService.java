@@ -16,6 +16,8 @@
  */
 package feast.serving.service;
 
+import feast.proto.serving.ServingAPIProto.CancelJobRequest;
+import feast.proto.serving.ServingAPIProto.CancelJobResponse;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoRequest;
@@ -97,4 +99,17 @@ public interface ServingService {
    * @return {@link GetJobResponse}
    */
   GetJobResponse getJob(GetJobRequest getJobRequest);
+
+  /**
+   * Cancel a retrieval job from a batch serving store that has not completed yet.
+   *
+   * <p>A job that is still pending is removed from the queue, and a running job has the work it
+   * started in the store cancelled. The cancelled job is returned with status JOB_STATUS_DONE and
+   * an error stating that it was cancelled. Jobs that have already completed are returned
+   * unchanged.
+   *
+   * @param cancelJobRequest {@link CancelJobRequest} containing reference to a retrieval job
+   * @return {@link CancelJobResponse}
+   */
+  CancelJobResponse cancelJob(CancelJobRequest cancelJobRequest);
 }
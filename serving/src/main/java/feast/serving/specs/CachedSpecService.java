@@ -25,6 +25,8 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
 import feast.proto.core.FeatureSetProto.FeatureSet;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
@@ -34,13 +36,19 @@ import feast.proto.core.StoreProto.Store.Subscription;
 import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.serving.exception.SpecRetrievalException;
 import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.common.pattern.WildcardPattern;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.prometheus.client.Gauge;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -51,6 +59,8 @@ import org.slf4j.Logger;
 public class CachedSpecService {
 
   private static final int MAX_SPEC_COUNT = 1000;
+  // Number of feature sets requested per ListFeatureSets call when populating the cache
+  private static final int LIST_FEATURE_SETS_PAGE_SIZE = 500;
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(CachedSpecService.class);
   private static final String DEFAULT_PROJECT_NAME = "default";
   // flag to signal that multiple featuresets match a specific
@@ -59,11 +69,32 @@ public class CachedSpecService {
 
   private final CoreSpecService coreService;
 
-  private Map<String, String> featureToFeatureSetMapping;
+  // Specs of all feature sets matching the store's subscriptions, by feature set reference. The
+  // feature set cache only fronts lookups into this map, so specs evicted from it are not lost.
+  private volatile Map<String, FeatureSetSpec> featureSets;
+  // Feature sets that each string feature reference refers to, kept up to date along with the
+  // feature to feature set mapping derived from it.
+  private Map<String, Set<String>> featureSetsByFeatureRef;
+  private volatile Map<String, String> featureToFeatureSetMapping;
 
   private final LoadingCache<String, FeatureSetSpec> featureSetCache;
   private Store store;
 
+  private final SpecSnapshotStore specSnapshotStore;
+  // store configuration as configured locally, which identifies the specs in the snapshot
+  private final Store configuredStore;
+  // whether the cache has changed since the spec snapshot was last written
+  private boolean snapshotOutdated = false;
+  // whether the cache was seeded from the local spec snapshot rather than from core
+  private final boolean loadedFromSnapshot;
+  // whether the store configuration has been registered with core
+  private boolean storeRegistered = false;
+
+  // stream of feature set changes from core that is currently open, or null if there is none
+  private volatile FeatureSetWatch watch;
+  // registry version the cache reflects, or 0 if unknown
+  private long registryVersion = 0;
+
   private static Gauge featureSetsCount =
       Gauge.build()
           .name("feature_set_count")
@@ -78,16 +109,46 @@ public class CachedSpecService {
           .register();
 
   public CachedSpecService(CoreSpecService coreService, StoreProto.Store store) {
+    this(coreService, store, null);
+  }
+
+  /**
+   * Create a spec cache that is seeded from a local spec snapshot if a usable one exists. In that
+   * case, the store is only registered with core and the specs are only retrieved from core on the
+   * first refresh, so that the cache can be constructed while core is unavailable.
+   *
+   * @param coreService client for Feast Core
+   * @param store store configuration of this serving instance
+   * @param specSnapshotStore store for the local spec snapshot, or null to disable snapshots
+   */
+  public CachedSpecService(
+      CoreSpecService coreService, StoreProto.Store store, SpecSnapshotStore specSnapshotStore) {
     this.coreService = coreService;
-    this.store = coreService.registerStore(store);
+    this.specSnapshotStore = specSnapshotStore;
+    this.configuredStore = store;
 
-    Map<String, FeatureSetSpec> featureSets = getFeatureSetMap();
-    featureToFeatureSetMapping =
-        new ConcurrentHashMap<>(getFeatureToFeatureSetMapping(featureSets));
-    CacheLoader<String, FeatureSetSpec> featureSetCacheLoader = CacheLoader.from(featureSets::get);
+    Map<String, FeatureSetSpec> featureSets = new HashMap<>();
+    Optional<List<FeatureSetSpec>> snapshot =
+        specSnapshotStore == null ? Optional.empty() : specSnapshotStore.read(store);
+    if (snapshot.isPresent()) {
+      log.info("Loaded {} feature set specs from spec snapshot", snapshot.get().size());
+      this.store = store;
+      snapshot.get().forEach(spec -> featureSets.put(generateFeatureSetStringRef(spec), spec));
+    } else {
+      this.store = coreService.registerStore(store);
+      this.storeRegistered = true;
+      Pair<Long, Map<String, FeatureSetSpec>> listing = getFeatureSetMap(0).get();
+      this.registryVersion = listing.getLeft();
+      featureSets.putAll(listing.getRight());
+      this.snapshotOutdated = true;
+    }
+    this.loadedFromSnapshot = snapshot.isPresent();
+
+    CacheLoader<String, FeatureSetSpec> featureSetCacheLoader =
+        CacheLoader.from(featureSetRef -> this.featureSets.get(featureSetRef));
     featureSetCache =
         CacheBuilder.newBuilder().maximumSize(MAX_SPEC_COUNT).build(featureSetCacheLoader);
-    featureSetCache.putAll(featureSets);
+    replaceFeatureSets(featureSets);
   }
 
   /**
@@ -99,6 +160,16 @@ public class CachedSpecService {
     return this.store;
   }
 
+  /**
+   * Whether the cache was seeded from the local spec snapshot. If so, the cache has not yet been
+   * synchronized with core when it is constructed.
+   *
+   * @return true if the cache was loaded from the spec snapshot
+   */
+  public boolean isLoadedFromSnapshot() {
+    return loadedFromSnapshot;
+  }
+
   public FeatureSetSpec getFeatureSetSpec(String featureSetRef) throws ExecutionException {
     return featureSetCache.get(featureSetRef);
   }
@@ -168,100 +239,328 @@ public class CachedSpecService {
 
   /**
    * Reload the store configuration from the given config path, then retrieve the necessary specs
-   * from core to preload the cache.
+   * from core to preload the cache. The cache is left as is if the registry in core has not changed
+   * since the version the cache reflects.
+   *
+   * @return whether the cache was refreshed because the registry has changed
    */
-  public void populateCache() {
-    Map<String, FeatureSetSpec> featureSetMap = getFeatureSetMap();
-
-    featureSetCache.invalidateAll();
-    featureSetCache.putAll(featureSetMap);
-
-    featureToFeatureSetMapping = getFeatureToFeatureSetMapping(featureSetMap);
+  public synchronized boolean populateCache() {
+    if (!storeRegistered) {
+      this.store = coreService.registerStore(store);
+      storeRegistered = true;
+    }
+    Optional<Pair<Long, Map<String, FeatureSetSpec>>> listing = getFeatureSetMap(registryVersion);
+    if (listing.isEmpty()) {
+      log.debug("Registry unchanged since version {}, skipping cache refresh", registryVersion);
+      cacheLastUpdated.set(System.currentTimeMillis());
+      return false;
+    }
+    registryVersion = listing.get().getLeft();
+    replaceFeatureSets(listing.get().getRight());
 
-    featureSetsCount.set(featureSetCache.size());
     cacheLastUpdated.set(System.currentTimeMillis());
+    snapshotOutdated = true;
+    return true;
   }
 
+  /**
+   * Refresh the cache by polling core, and (re)open the stream of feature set changes. While the
+   * stream is open, polling only checks that the registry has not changed past the version the
+   * cache reflects. If it has, the stream has silently stopped delivering changes, so it is
+   * cancelled and reopened.
+   */
   public void scheduledPopulateCache() {
+    FeatureSetWatch openWatch = watch;
     try {
-      populateCache();
+      if (!populateCache() && openWatch != null) {
+        return;
+      }
     } catch (Exception e) {
       log.warn("Error updating store configuration and specs: {}", e.getMessage());
+      if (openWatch != null) {
+        return;
+      }
     }
+    if (openWatch != null) {
+      log.warn("Feature set watch missed registry changes, reopening it");
+      openWatch.cancel("Feature set watch missed registry changes", null);
+    }
+    watchFeatureSets();
   }
 
-  private Map<String, FeatureSetSpec> getFeatureSetMap() {
+  /**
+   * Open a stream of feature set changes from core. The cache is fully resynchronized once the
+   * stream is open, after which changes are applied incrementally. If a gap in the registry version
+   * is detected, the cache falls back to a full resynchronization. If the stream fails, the cache
+   * is refreshed by polling until the stream is reopened.
+   */
+  public void watchFeatureSets() {
+    FeatureSetWatch newWatch = new FeatureSetWatch();
+    watch = newWatch;
+    coreService.watchFeatureSets(WatchFeatureSetsRequest.newBuilder().build(), newWatch);
+  }
+
+  /**
+   * Observer of a single stream of feature set changes. Once another stream has replaced it,
+   * changes delivered by this stream are ignored, and its closing no longer affects the cache.
+   */
+  private class FeatureSetWatch
+      implements ClientResponseObserver<WatchFeatureSetsRequest, WatchFeatureSetsResponse> {
+    private ClientCallStreamObserver<WatchFeatureSetsRequest> requestStream;
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<WatchFeatureSetsRequest> requestStream) {
+      this.requestStream = requestStream;
+    }
+
+    @Override
+    public void onNext(WatchFeatureSetsResponse event) {
+      if (watch != this) {
+        return;
+      }
+      try {
+        applyChange(event);
+      } catch (Exception e) {
+        log.warn("Unable to apply feature set change: {}", e.getMessage());
+        cancel("Unable to apply feature set change", e);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (watch == this) {
+        log.warn("Feature set watch closed, falling back to polling: {}", t.getMessage());
+      }
+      close();
+    }
+
+    @Override
+    public void onCompleted() {
+      close();
+    }
+
+    void cancel(String message, Throwable cause) {
+      close();
+      if (requestStream != null) {
+        requestStream.cancel(message, cause);
+      }
+    }
+
+    private void close() {
+      synchronized (CachedSpecService.this) {
+        if (watch == this) {
+          watch = null;
+        }
+      }
+    }
+  }
+
+  private synchronized void applyChange(WatchFeatureSetsResponse event) {
+    switch (event.getType()) {
+      case CURRENT_VERSION:
+        populateCache();
+        break;
+      case FEATURE_SET_UPDATED:
+        if (event.getVersion() != registryVersion + 1) {
+          log.info(
+              "Missed feature set changes between versions {} and {}, resynchronizing specs",
+              registryVersion,
+              event.getVersion());
+          populateCache();
+        } else {
+          updateFeatureSet(event.getFeatureSet().getSpec());
+          // A resynchronization sets the version of the listing, which may be newer than the event.
+          registryVersion = event.getVersion();
+        }
+        break;
+      default:
+        return;
+    }
+  }
+
+  /** Replace all specs, and rebuild the feature to feature set mapping from them. */
+  private void replaceFeatureSets(Map<String, FeatureSetSpec> specs) {
+    Map<String, Set<String>> index = new HashMap<>();
+    for (FeatureSetSpec spec : specs.values()) {
+      String featureSetRef = generateFeatureSetStringRef(spec);
+      for (String featureRef : getFeatureRefs(spec)) {
+        index.computeIfAbsent(featureRef, ref -> new HashSet<>()).add(featureSetRef);
+      }
+    }
+    Map<String, String> mapping = new ConcurrentHashMap<>();
+    index.forEach(
+        (featureRef, featureSetRefs) -> mapping.put(featureRef, toMapping(featureSetRefs)));
+
+    featureSets = new ConcurrentHashMap<>(specs);
+    featureSetsByFeatureRef = index;
+    featureToFeatureSetMapping = mapping;
+    featureSetCache.invalidateAll();
+    featureSetCache.putAll(specs);
+    featureSetsCount.set(specs.size());
+  }
+
+  /** Apply a change to a single spec, updating only the mappings of its features in place. */
+  private void updateFeatureSet(FeatureSetSpec spec) {
+    if (!isSubscribed(spec)) {
+      return;
+    }
+    String featureSetRef = generateFeatureSetStringRef(spec);
+    FeatureSetSpec previous = featureSets.put(featureSetRef, spec);
+    featureSetCache.put(featureSetRef, spec);
+
+    Set<String> changedFeatureRefs = new HashSet<>();
+    if (previous != null) {
+      for (String featureRef : getFeatureRefs(previous)) {
+        featureSetsByFeatureRef.get(featureRef).remove(featureSetRef);
+        changedFeatureRefs.add(featureRef);
+      }
+    }
+    for (String featureRef : getFeatureRefs(spec)) {
+      featureSetsByFeatureRef
+          .computeIfAbsent(featureRef, ref -> new HashSet<>())
+          .add(featureSetRef);
+      changedFeatureRefs.add(featureRef);
+    }
+    for (String featureRef : changedFeatureRefs) {
+      Set<String> featureSetRefs = featureSetsByFeatureRef.get(featureRef);
+      if (featureSetRefs.isEmpty()) {
+        featureSetsByFeatureRef.remove(featureRef);
+        featureToFeatureSetMapping.remove(featureRef);
+      } else {
+        featureToFeatureSetMapping.put(featureRef, toMapping(featureSetRefs));
+      }
+    }
+
+    featureSetsCount.set(featureSets.size());
+    cacheLastUpdated.set(System.currentTimeMillis());
+    snapshotOutdated = true;
+  }
+
+  /**
+   * @return the feature set a string feature reference maps to, or the conflict flag if it refers
+   *     to several feature sets
+   */
+  private static String toMapping(Set<String> featureSetRefs) {
+    return featureSetRefs.size() == 1
+        ? featureSetRefs.iterator().next()
+        : FEATURE_SET_CONFLICT_FLAG;
+  }
+
+  /**
+   * Write the cached specs to the spec snapshot if they have changed since the snapshot was last
+   * written. Called periodically rather than on every change, so that a burst of changes results in
+   * a single write.
+   */
+  public void writeSnapshotIfOutdated() {
+    if (specSnapshotStore == null) {
+      return;
+    }
+    List<FeatureSetSpec> featureSetSpecs;
+    synchronized (this) {
+      if (!snapshotOutdated) {
+        return;
+      }
+      featureSetSpecs = new ArrayList<>(featureSets.values());
+      snapshotOutdated = false;
+    }
+    try {
+      specSnapshotStore.write(configuredStore, featureSetSpecs);
+    } catch (IOException e) {
+      log.warn("Unable to write spec snapshot: {}", e.getMessage());
+      synchronized (this) {
+        snapshotOutdated = true;
+      }
+    }
+  }
+
+  private boolean isSubscribed(FeatureSetSpec spec) {
+    for (Subscription subscription : this.store.getSubscriptionsList()) {
+      if (WildcardPattern.matches(subscription.getProject(), spec.getProject())
+          && WildcardPattern.matches(subscription.getName(), spec.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Retrieve the specs matching the store's subscriptions from core. If a registry version is
+   * given, the first request is made conditional on it, so that nothing is retrieved if the
+   * registry has not changed since.
+   *
+   * @param ifVersionNewerThan registry version the cache reflects, or 0 to retrieve unconditionally
+   * @return registry version and specs retrieved, or empty if the registry has not changed
+   */
+  private Optional<Pair<Long, Map<String, FeatureSetSpec>>> getFeatureSetMap(
+      long ifVersionNewerThan) {
     HashMap<String, FeatureSetSpec> featureSets = new HashMap<>();
+    long version = 0;
+    boolean firstRequest = true;
 
     for (Subscription subscription : this.store.getSubscriptionsList()) {
       try {
-        ListFeatureSetsResponse featureSetsResponse =
-            coreService.listFeatureSets(
-                ListFeatureSetsRequest.newBuilder()
-                    .setFilter(
-                        ListFeatureSetsRequest.Filter.newBuilder()
-                            .setProject(subscription.getProject())
-                            .setFeatureSetName(subscription.getName()))
-                    .build());
-
-        for (FeatureSet featureSet : featureSetsResponse.getFeatureSetsList()) {
-          FeatureSetSpec spec = featureSet.getSpec();
-          featureSets.put(generateFeatureSetStringRef(spec), spec);
-        }
+        String pageToken = "";
+        do {
+          ListFeatureSetsResponse featureSetsResponse =
+              coreService.listFeatureSets(
+                  ListFeatureSetsRequest.newBuilder()
+                      .setFilter(
+                          ListFeatureSetsRequest.Filter.newBuilder()
+                              .setProject(subscription.getProject())
+                              .setFeatureSetName(subscription.getName()))
+                      .setPageSize(LIST_FEATURE_SETS_PAGE_SIZE)
+                      .setPageToken(pageToken)
+                      .setIfVersionNewerThan(firstRequest ? ifVersionNewerThan : 0)
+                      .build());
+          if (firstRequest) {
+            // The registry version covers all feature sets, so the first response tells whether
+            // anything has changed. Later responses can only reflect newer versions.
+            if (featureSetsResponse.getStatus() == ListFeatureSetsResponse.Status.NOT_MODIFIED) {
+              return Optional.empty();
+            }
+            version = featureSetsResponse.getVersion();
+            firstRequest = false;
+          }
+
+          for (FeatureSet featureSet : featureSetsResponse.getFeatureSetsList()) {
+            FeatureSetSpec spec = featureSet.getSpec();
+            featureSets.put(generateFeatureSetStringRef(spec), spec);
+          }
+          pageToken = featureSetsResponse.getNextPageToken();
+        } while (!pageToken.isEmpty());
       } catch (StatusRuntimeException e) {
         throw new RuntimeException(
             String.format("Unable to retrieve specs matching subscription %s", subscription), e);
       }
     }
-    return featureSets;
+    return Optional.of(Pair.of(version, featureSets));
   }
 
   /**
-   * Generate a feature to feature set mapping from the given feature sets map. Accounts for
-   * variations (missing project, feature_set) in string feature references generated by creating
-   * multiple entries in the returned mapping for each variation.
+   * Generate the string feature references that refer to the features of the given feature set.
+   * Accounts for variations (missing project, feature_set) in string feature references by
+   * generating a reference for each variation.
    *
-   * @param featureSets map of feature set name to feature set specs
-   * @return mapping of string feature references to name of feature sets
+   * @param featureSetSpec spec of the feature set
+   * @return string feature references referring to the features of the feature set
    */
-  private Map<String, String> getFeatureToFeatureSetMapping(
-      Map<String, FeatureSetSpec> featureSets) {
-    Map<String, String> mapping = new HashMap<>();
-
-    featureSets.values().stream()
-        .forEach(
-            featureSetSpec -> {
-              for (FeatureSpec featureSpec : featureSetSpec.getFeaturesList()) {
-                // Register the different permutations of string feature references
-                // that refers to this feature in the feature to featureset mapping.
-
-                // Features in FeatureSets in default project can be referenced without project.
-                boolean isInDefaultProject =
-                    featureSetSpec.getProject().equals(DEFAULT_PROJECT_NAME);
-
-                for (boolean hasProject : new boolean[] {true, false}) {
-                  if (!isInDefaultProject && !hasProject) continue;
-                  // Features can be referenced without a featureset if there are no conflicts.
-                  for (boolean hasFeatureSet : new boolean[] {true, false}) {
-                    // Get mapping between string feature reference and featureset
-                    Pair<String, String> singleMapping =
-                        this.generateFeatureToFeatureSetMapping(
-                            featureSpec, featureSetSpec, hasProject, hasFeatureSet);
-                    String featureRef = singleMapping.getKey();
-                    String featureSetRef = singleMapping.getValue();
-                    // Check if another feature set has already mapped to this
-                    // string feature reference. if so mark the conflict.
-                    if (mapping.containsKey(featureRef)) {
-                      mapping.put(featureRef, FEATURE_SET_CONFLICT_FLAG);
-                    } else {
-                      mapping.put(featureRef, featureSetRef);
-                    }
-                  }
-                }
-              }
-            });
-
-    return mapping;
+  private List<String> getFeatureRefs(FeatureSetSpec featureSetSpec) {
+    List<String> featureRefs = new ArrayList<>();
+    // Features in FeatureSets in default project can be referenced without project.
+    boolean isInDefaultProject = featureSetSpec.getProject().equals(DEFAULT_PROJECT_NAME);
+    for (FeatureSpec featureSpec : featureSetSpec.getFeaturesList()) {
+      for (boolean hasProject : new boolean[] {true, false}) {
+        if (!isInDefaultProject && !hasProject) continue;
+        // Features can be referenced without a featureset if there are no conflicts.
+        for (boolean hasFeatureSet : new boolean[] {true, false}) {
+          featureRefs.add(
+              this.generateFeatureToFeatureSetMapping(
+                      featureSpec, featureSetSpec, hasProject, hasFeatureSet)
+                  .getKey());
+        }
+      }
+    }
+    return featureRefs;
   }
 
   /**
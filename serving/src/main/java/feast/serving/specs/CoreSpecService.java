@@ -23,9 +23,13 @@ import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
 import feast.proto.core.CoreServiceProto.UpdateStoreRequest;
 import feast.proto.core.CoreServiceProto.UpdateStoreResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsRequest;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
 import feast.proto.core.StoreProto.Store;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 
 /** Client for interfacing with specs in Feast Core. */
@@ -33,11 +37,20 @@ public class CoreSpecService {
 
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(CoreSpecService.class);
   private final CoreServiceGrpc.CoreServiceBlockingStub blockingStub;
+  private final CoreServiceGrpc.CoreServiceStub asyncStub;
 
   public CoreSpecService(String feastCoreHost, int feastCorePort) {
+    // Keepalive pings detect a connection to core that has silently gone away, which would
+    // otherwise leave the stream of feature set changes open without delivering any changes.
+    // Core's gRPC server permits pings from clients at most every 5 minutes by default.
     ManagedChannel channel =
-        ManagedChannelBuilder.forAddress(feastCoreHost, feastCorePort).usePlaintext().build();
+        ManagedChannelBuilder.forAddress(feastCoreHost, feastCorePort)
+            .usePlaintext()
+            .keepAliveTime(5, TimeUnit.MINUTES)
+            .keepAliveTimeout(20, TimeUnit.SECONDS)
+            .build();
     blockingStub = CoreServiceGrpc.newBlockingStub(channel);
+    asyncStub = CoreServiceGrpc.newStub(channel);
   }
 
   public GetFeatureSetResponse getFeatureSet(GetFeatureSetRequest getFeatureSetRequest) {
@@ -48,6 +61,19 @@ public class CoreSpecService {
     return blockingStub.listFeatureSets(ListFeatureSetsRequest);
   }
 
+  /**
+   * Open a stream of feature set change events from Feast Core. Events are delivered to the given
+   * observer until the stream fails or is cancelled.
+   *
+   * @param watchFeatureSetsRequest request to open the stream with
+   * @param responseObserver observer that receives the change events
+   */
+  public void watchFeatureSets(
+      WatchFeatureSetsRequest watchFeatureSetsRequest,
+      StreamObserver<WatchFeatureSetsResponse> responseObserver) {
+    asyncStub.watchFeatureSets(watchFeatureSetsRequest, responseObserver);
+  }
+
   public UpdateStoreResponse updateStore(UpdateStoreRequest updateStoreRequest) {
     return blockingStub.updateStore(updateStoreRequest);
   }
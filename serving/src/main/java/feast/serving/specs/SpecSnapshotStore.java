@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.specs;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store;
+import feast.proto.serving.SpecSnapshotProto.SpecSnapshot;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+
+/**
+ * Persists the specs resolved by {@link CachedSpecService} to a local snapshot file, so that a
+ * serving instance can start from the snapshot instead of waiting for Feast Core.
+ *
+ * <p>Snapshots are checksummed and carry a format version and the store configuration they were
+ * taken for. Snapshots that are corrupt, written in another format, taken for another store
+ * configuration, or older than the configured maximum age are discarded.
+ */
+public class SpecSnapshotStore {
+
+  static final int FORMAT_VERSION = 1;
+  private static final Logger log = org.slf4j.LoggerFactory.getLogger(SpecSnapshotStore.class);
+
+  private final Path path;
+  private final Duration maxAge;
+
+  public SpecSnapshotStore(Path path, Duration maxAge) {
+    this.path = path;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Read the feature set specs from the snapshot, if a valid snapshot exists for the given store.
+   *
+   * @param store store configuration the specs should have been resolved for
+   * @return feature set specs in the snapshot, or empty if there is no usable snapshot
+   */
+  public Optional<List<FeatureSetSpec>> read(Store store) {
+    if (!Files.exists(path)) {
+      return Optional.empty();
+    }
+    try {
+      SpecSnapshot snapshot = SpecSnapshot.parseFrom(Files.readAllBytes(path));
+      if (snapshot.getFormatVersion() != FORMAT_VERSION) {
+        log.info(
+            "Ignoring spec snapshot {} with unsupported format version {}",
+            path,
+            snapshot.getFormatVersion());
+        return Optional.empty();
+      }
+      if (snapshot.getChecksum() != checksum(snapshot.getContents())) {
+        log.warn("Ignoring corrupt spec snapshot {}: checksum mismatch", path);
+        return Optional.empty();
+      }
+
+      SpecSnapshot.Contents contents = SpecSnapshot.Contents.parseFrom(snapshot.getContents());
+      if (!contents.getStore().equals(store)) {
+        log.info("Ignoring spec snapshot {} taken for a different store configuration", path);
+        return Optional.empty();
+      }
+      long ageMillis =
+          System.currentTimeMillis() - Timestamps.toMillis(contents.getCreatedTimestamp());
+      if (ageMillis > maxAge.toMillis()) {
+        log.info("Ignoring stale spec snapshot {} taken {} seconds ago", path, ageMillis / 1000);
+        return Optional.empty();
+      }
+      return Optional.of(contents.getFeatureSetSpecsList());
+    } catch (InvalidProtocolBufferException e) {
+      log.warn("Ignoring unreadable spec snapshot {}: {}", path, e.getMessage());
+      return Optional.empty();
+    } catch (IOException e) {
+      log.warn("Unable to read spec snapshot {}: {}", path, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Replace the snapshot with the given specs. The snapshot is written to a temporary file first
+   * and then moved into place, so that readers never observe a partially written snapshot.
+   *
+   * @param store store configuration the specs were resolved for
+   * @param featureSetSpecs feature set specs matching the store's subscriptions
+   * @throws IOException if the snapshot could not be written
+   */
+  public void write(Store store, Collection<FeatureSetSpec> featureSetSpecs) throws IOException {
+    ByteString contents =
+        SpecSnapshot.Contents.newBuilder()
+            .setCreatedTimestamp(Timestamps.fromMillis(System.currentTimeMillis()))
+            .setStore(store)
+            .addAllFeatureSetSpecs(featureSetSpecs)
+            .build()
+            .toByteString();
+    SpecSnapshot snapshot =
+        SpecSnapshot.newBuilder()
+            .setFormatVersion(FORMAT_VERSION)
+            .setChecksum(checksum(contents))
+            .setContents(contents)
+            .build();
+
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (OutputStream outputStream = Files.newOutputStream(tmpPath)) {
+      snapshot.writeTo(outputStream);
+    }
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static int checksum(ByteString contents) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(contents.asReadOnlyByteBuffer());
+    return (int) crc32.getValue();
+  }
+}
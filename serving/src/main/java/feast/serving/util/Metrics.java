@@ -17,6 +17,7 @@
 package feast.serving.util;
 
 import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 
 public class Metrics {
@@ -69,4 +70,35 @@ public class Metrics {
           .help("number of grpc requests served")
           .labelNames("method", "status_code")
           .register();
+
+  public static final Gauge queuedRetrievals =
+      Gauge.build()
+          .name("historical_retrieval_queue_depth")
+          .subsystem("feast_serving")
+          .help("number of historical retrievals waiting to be run")
+          .register();
+
+  public static final Gauge runningRetrievals =
+      Gauge.build()
+          .name("historical_retrieval_running")
+          .subsystem("feast_serving")
+          .help("number of historical retrievals being run")
+          .register();
+
+  public static final Histogram retrievalWaitTime =
+      Histogram.build()
+          .buckets(0.1, 1, 5, 15, 30, 60, 120, 300, 600, 1800)
+          .name("historical_retrieval_wait_seconds")
+          .subsystem("feast_serving")
+          .help("Time in seconds historical retrievals spent in the queue")
+          .register();
+
+  public static final Histogram retrievalDuration =
+      Histogram.build()
+          .buckets(1, 5, 15, 30, 60, 120, 300, 600, 1200, 1800, 3600)
+          .name("historical_retrieval_duration_seconds")
+          .subsystem("feast_serving")
+          .help("Time in seconds taken to run historical retrievals")
+          .labelNames("outcome")
+          .register();
 }
@@ -19,6 +19,8 @@ package feast.serving.service;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,6 +28,8 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 import feast.proto.core.CoreServiceProto.ListFeatureSetsRequest;
 import feast.proto.core.CoreServiceProto.ListFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse;
+import feast.proto.core.CoreServiceProto.WatchFeatureSetsResponse.EventType;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
@@ -35,7 +39,13 @@ import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.serving.exception.SpecRetrievalException;
 import feast.serving.specs.CachedSpecService;
 import feast.serving.specs.CoreSpecService;
+import feast.serving.specs.SpecSnapshotStore;
 import feast.storage.api.retriever.FeatureSetRequest;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +53,8 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 public class CachedSpecServiceTest {
@@ -50,6 +62,7 @@ public class CachedSpecServiceTest {
   private Store store;
 
   @Rule public final ExpectedException expectedException = ExpectedException.none();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Mock CoreSpecService coreService;
 
@@ -105,14 +118,13 @@ public class CachedSpecServiceTest {
     FeatureSetProto.FeatureSet featureSet =
         FeatureSetProto.FeatureSet.newBuilder().setSpec(fsSpec).build();
 
+    ListFeatureSetsRequest.Filter filter =
+        ListFeatureSetsRequest.Filter.newBuilder()
+            .setProject(project)
+            .setFeatureSetName(name)
+            .build();
     when(coreService.listFeatureSets(
-            ListFeatureSetsRequest.newBuilder()
-                .setFilter(
-                    ListFeatureSetsRequest.Filter.newBuilder()
-                        .setProject(project)
-                        .setFeatureSetName(name)
-                        .build())
-                .build()))
+            argThat(request -> request != null && request.getFilter().equals(filter))))
         .thenReturn(ListFeatureSetsResponse.newBuilder().addFeatureSets(featureSet).build());
   }
 
@@ -255,4 +267,363 @@ public class CachedSpecServiceTest {
     expectedException.expect(SpecRetrievalException.class);
     cachedSpecService.getFeatureSets(List.of(fs2fr4, fs3fr4));
   }
+
+  @Test
+  public void shouldFollowPageTokensWhenPopulatingCache() {
+    FeatureSetSpec fs4Spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("paged")
+            .setName("fs4")
+            .addFeatures(FeatureSpec.newBuilder().setName("feature6"))
+            .build();
+    FeatureSetSpec fs5Spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("paged")
+            .setName("fs5")
+            .addFeatures(FeatureSpec.newBuilder().setName("feature7"))
+            .build();
+    Store pagedStore =
+        Store.newBuilder()
+            .addSubscriptions(Subscription.newBuilder().setProject("paged").setName("*"))
+            .build();
+    ListFeatureSetsRequest firstPageRequest =
+        ListFeatureSetsRequest.newBuilder()
+            .setFilter(
+                ListFeatureSetsRequest.Filter.newBuilder()
+                    .setProject("paged")
+                    .setFeatureSetName("*"))
+            .setPageSize(500)
+            .build();
+    when(coreService.registerStore(pagedStore)).thenReturn(pagedStore);
+    when(coreService.listFeatureSets(firstPageRequest))
+        .thenReturn(
+            ListFeatureSetsResponse.newBuilder()
+                .addFeatureSets(FeatureSetProto.FeatureSet.newBuilder().setSpec(fs4Spec))
+                .setNextPageToken("page2")
+                .build());
+    when(coreService.listFeatureSets(firstPageRequest.toBuilder().setPageToken("page2").build()))
+        .thenReturn(
+            ListFeatureSetsResponse.newBuilder()
+                .addFeatureSets(FeatureSetProto.FeatureSet.newBuilder().setSpec(fs5Spec))
+                .build());
+
+    CachedSpecService pagedSpecService = new CachedSpecService(coreService, pagedStore);
+    pagedSpecService.populateCache();
+
+    FeatureReference fs5fr7 =
+        FeatureReference.newBuilder()
+            .setProject("paged")
+            .setName("feature7")
+            .setFeatureSet("fs5")
+            .build();
+    assertThat(
+        pagedSpecService.getFeatureSets(List.of(fs5fr7)),
+        equalTo(
+            List.of(
+                FeatureSetRequest.newBuilder()
+                    .addFeatureReference(fs5fr7)
+                    .setSpec(fs5Spec)
+                    .build())));
+  }
+
+  @Test
+  public void shouldSkipCacheRefreshIfRegistryUnchanged() {
+    FeatureSetSpec fs6Spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("versioned")
+            .setName("fs6")
+            .addFeatures(FeatureSpec.newBuilder().setName("feature8"))
+            .build();
+    Store versionedStore =
+        Store.newBuilder()
+            .addSubscriptions(Subscription.newBuilder().setProject("versioned").setName("fs6"))
+            .build();
+    ListFeatureSetsRequest request =
+        ListFeatureSetsRequest.newBuilder()
+            .setFilter(
+                ListFeatureSetsRequest.Filter.newBuilder()
+                    .setProject("versioned")
+                    .setFeatureSetName("fs6"))
+            .setPageSize(500)
+            .build();
+    ListFeatureSetsRequest conditionalRequest =
+        request.toBuilder().setIfVersionNewerThan(7L).build();
+    when(coreService.registerStore(versionedStore)).thenReturn(versionedStore);
+    when(coreService.listFeatureSets(request))
+        .thenReturn(
+            ListFeatureSetsResponse.newBuilder()
+                .addFeatureSets(FeatureSetProto.FeatureSet.newBuilder().setSpec(fs6Spec))
+                .setVersion(7L)
+                .build());
+    when(coreService.listFeatureSets(conditionalRequest))
+        .thenReturn(
+            ListFeatureSetsResponse.newBuilder()
+                .setStatus(ListFeatureSetsResponse.Status.NOT_MODIFIED)
+                .setVersion(7L)
+                .build());
+
+    CachedSpecService versionedSpecService = new CachedSpecService(coreService, versionedStore);
+    versionedSpecService.populateCache();
+
+    verify(coreService, times(1)).listFeatureSets(request);
+    verify(coreService, times(1)).listFeatureSets(conditionalRequest);
+    FeatureReference fs6fr8 =
+        FeatureReference.newBuilder()
+            .setProject("versioned")
+            .setName("feature8")
+            .setFeatureSet("fs6")
+            .build();
+    assertThat(
+        versionedSpecService.getFeatureSets(List.of(fs6fr8)),
+        equalTo(
+            List.of(
+                FeatureSetRequest.newBuilder()
+                    .addFeatureReference(fs6fr8)
+                    .setSpec(fs6Spec)
+                    .build())));
+  }
+
+  @Test
+  public void shouldApplyFeatureSetChangesFromWatchIncrementally() {
+    StreamObserver<WatchFeatureSetsResponse> watch = startWatch();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.CURRENT_VERSION)
+            .setVersion(5)
+            .build());
+    verify(coreService, times(6)).listFeatureSets(any());
+
+    FeatureSetSpec updatedSpec =
+        featureSetSpecs
+            .get("fs1")
+            .toBuilder()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature6"))
+            .build();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.FEATURE_SET_UPDATED)
+            .setVersion(6)
+            .setFeatureSet(FeatureSetProto.FeatureSet.newBuilder().setSpec(updatedSpec))
+            .build());
+
+    FeatureReference fs1fr6 =
+        FeatureReference.newBuilder().setProject("project").setName("feature6").build();
+    assertThat(
+        cachedSpecService.getFeatureSets(List.of(fs1fr6)),
+        equalTo(
+            List.of(
+                FeatureSetRequest.newBuilder()
+                    .addFeatureReference(fs1fr6)
+                    .setSpec(updatedSpec)
+                    .build())));
+    verify(coreService, times(6)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldUpdateMappingsOfChangedFeatureSetOnlyFromWatch() {
+    StreamObserver<WatchFeatureSetsResponse> watch = startWatch();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.CURRENT_VERSION)
+            .setVersion(5)
+            .build());
+
+    // fs3 drops feature4, which no longer conflicts with feature4 of fs2.
+    FeatureSetSpec updatedSpec =
+        featureSetSpecs
+            .get("fs3")
+            .toBuilder()
+            .clearFeatures()
+            .addFeatures(FeatureSpec.newBuilder().setName("feature7"))
+            .build();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.FEATURE_SET_UPDATED)
+            .setVersion(6)
+            .setFeatureSet(FeatureSetProto.FeatureSet.newBuilder().setSpec(updatedSpec))
+            .build());
+
+    FeatureReference fs2fr4 = FeatureReference.newBuilder().setName("feature4").build();
+    FeatureReference fs1fr1 =
+        FeatureReference.newBuilder().setProject("project").setName("feature").build();
+    assertThat(
+        cachedSpecService.getFeatureSets(List.of(fs2fr4, fs1fr1)),
+        containsInAnyOrder(
+            FeatureSetRequest.newBuilder()
+                .addFeatureReference(fs2fr4)
+                .setSpec(featureSetSpecs.get("fs2"))
+                .build(),
+            FeatureSetRequest.newBuilder()
+                .addFeatureReference(fs1fr1)
+                .setSpec(featureSetSpecs.get("fs1"))
+                .build()));
+    verify(coreService, times(6)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldReopenWatchIfRegistryChangedWithoutEvents() {
+    StreamObserver<WatchFeatureSetsResponse> staleWatch = startWatch();
+    staleWatch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.CURRENT_VERSION)
+            .setVersion(5)
+            .build());
+    when(coreService.listFeatureSets(any()))
+        .thenReturn(
+            ListFeatureSetsResponse.newBuilder()
+                .setStatus(ListFeatureSetsResponse.Status.NOT_MODIFIED)
+                .setVersion(5)
+                .build());
+
+    // the registry is unchanged, so the watch is left open
+    cachedSpecService.scheduledPopulateCache();
+    verify(coreService, times(1)).watchFeatureSets(any(), any());
+
+    when(coreService.listFeatureSets(any()))
+        .thenReturn(ListFeatureSetsResponse.newBuilder().setVersion(7).build());
+    cachedSpecService.scheduledPopulateCache();
+    verify(coreService, times(2)).watchFeatureSets(any(), any());
+    verify(coreService, times(10)).listFeatureSets(any());
+
+    // changes still delivered by the replaced watch are ignored
+    staleWatch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.CURRENT_VERSION)
+            .setVersion(8)
+            .build());
+    verify(coreService, times(10)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldResynchronizeWhenWatchVersionGapDetected() {
+    StreamObserver<WatchFeatureSetsResponse> watch = startWatch();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.CURRENT_VERSION)
+            .setVersion(5)
+            .build());
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.FEATURE_SET_UPDATED)
+            .setVersion(8)
+            .setFeatureSet(
+                FeatureSetProto.FeatureSet.newBuilder().setSpec(featureSetSpecs.get("fs1")))
+            .build());
+    verify(coreService, times(9)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldKeepListingVersionAfterResynchronizing() {
+    // Listings of the store's subscriptions are at version 9, past the version of the event.
+    when(coreService.listFeatureSets(any()))
+        .thenAnswer(
+            invocation -> {
+              ListFeatureSetsRequest request = invocation.getArgument(0);
+              FeatureSetSpec spec = featureSetSpecs.get(request.getFilter().getFeatureSetName());
+              return ListFeatureSetsResponse.newBuilder()
+                  .addFeatureSets(FeatureSetProto.FeatureSet.newBuilder().setSpec(spec))
+                  .setVersion(9)
+                  .build();
+            });
+    StreamObserver<WatchFeatureSetsResponse> watch = startWatch();
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.FEATURE_SET_UPDATED)
+            .setVersion(8)
+            .setFeatureSet(
+                FeatureSetProto.FeatureSet.newBuilder().setSpec(featureSetSpecs.get("fs1")))
+            .build());
+    verify(coreService, times(6)).listFeatureSets(any());
+
+    // The next change follows the listing, so it is applied without resynchronizing.
+    watch.onNext(
+        WatchFeatureSetsResponse.newBuilder()
+            .setType(EventType.FEATURE_SET_UPDATED)
+            .setVersion(10)
+            .setFeatureSet(
+                FeatureSetProto.FeatureSet.newBuilder().setSpec(featureSetSpecs.get("fs1")))
+            .build());
+    verify(coreService, times(6)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldLoadFeatureSetsFromSnapshotWithoutContactingCore() throws IOException {
+    SpecSnapshotStore specSnapshotStore =
+        new SpecSnapshotStore(
+            temporaryFolder.getRoot().toPath().resolve("spec_snapshot.pb"), Duration.ofHours(1));
+    specSnapshotStore.write(store, featureSetSpecs.values());
+
+    CachedSpecService snapshotSpecService =
+        new CachedSpecService(coreService, store, specSnapshotStore);
+    verify(coreService, times(1)).registerStore(any());
+    verify(coreService, times(3)).listFeatureSets(any());
+
+    FeatureReference fs2fr3 = FeatureReference.newBuilder().setName("feature3").build();
+    assertThat(snapshotSpecService.isLoadedFromSnapshot(), equalTo(true));
+    assertThat(
+        snapshotSpecService.getFeatureSets(List.of(fs2fr3)),
+        equalTo(
+            List.of(
+                FeatureSetRequest.newBuilder()
+                    .addFeatureReference(fs2fr3)
+                    .setSpec(featureSetSpecs.get("fs2"))
+                    .build())));
+
+    // store is registered and specs are resynchronized on the first refresh
+    snapshotSpecService.populateCache();
+    verify(coreService, times(2)).registerStore(any());
+    verify(coreService, times(6)).listFeatureSets(any());
+  }
+
+  @Test
+  public void shouldWriteSnapshotForConfiguredStoreOnlyWhenOutdated() throws IOException {
+    // core may return the store configuration in a different form than configured locally
+    when(coreService.registerStore(store))
+        .thenReturn(store.toBuilder().setName("registered").build());
+    Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("spec_snapshot.pb");
+    SpecSnapshotStore specSnapshotStore = new SpecSnapshotStore(snapshotPath, Duration.ofHours(1));
+
+    CachedSpecService specService = new CachedSpecService(coreService, store, specSnapshotStore);
+    assertThat(specService.isLoadedFromSnapshot(), equalTo(false));
+    specService.writeSnapshotIfOutdated();
+    assertThat(
+        new CachedSpecService(coreService, store, specSnapshotStore).isLoadedFromSnapshot(),
+        equalTo(true));
+
+    Files.delete(snapshotPath);
+    specService.writeSnapshotIfOutdated();
+    assertThat(Files.exists(snapshotPath), equalTo(false));
+  }
+
+  @Test
+  public void shouldWriteAllFeatureSetsToSnapshot() throws IOException {
+    Store wildcardStore =
+        Store.newBuilder()
+            .addSubscriptions(Subscription.newBuilder().setProject("project").setName("*"))
+            .build();
+    ListFeatureSetsResponse.Builder response = ListFeatureSetsResponse.newBuilder().setVersion(1);
+    for (int i = 0; i < 1500; i++) {
+      response.addFeatureSets(
+          FeatureSetProto.FeatureSet.newBuilder()
+              .setSpec(FeatureSetSpec.newBuilder().setProject("project").setName("fs" + i)));
+    }
+    when(coreService.registerStore(wildcardStore)).thenReturn(wildcardStore);
+    when(coreService.listFeatureSets(any())).thenReturn(response.build());
+    SpecSnapshotStore specSnapshotStore =
+        new SpecSnapshotStore(
+            temporaryFolder.getRoot().toPath().resolve("spec_snapshot.pb"), Duration.ofHours(1));
+
+    new CachedSpecService(coreService, wildcardStore, specSnapshotStore).writeSnapshotIfOutdated();
+
+    assertThat(specSnapshotStore.read(wildcardStore).get().size(), equalTo(1500));
+  }
+
+  @SuppressWarnings("unchecked")
+  private StreamObserver<WatchFeatureSetsResponse> startWatch() {
+    ArgumentCaptor<StreamObserver<WatchFeatureSetsResponse>> observerCaptor =
+        ArgumentCaptor.forClass(StreamObserver.class);
+    cachedSpecService.watchFeatureSets();
+    verify(coreService).watchFeatureSets(any(), observerCaptor.capture());
+    return observerCaptor.getValue();
+  }
 }
@@ -0,0 +1,173 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.DatasetSource.FileSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
+import feast.proto.serving.ServingAPIProto.Job;
+import feast.proto.serving.ServingAPIProto.JobStatus;
+import feast.serving.config.FeastProperties.ResultCacheProperties;
+import feast.serving.specs.CachedSpecService;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.api.retriever.HistoricalRetriever;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class HistoricalServingServiceTest {
+
+  private static final List<String> FILE_URIS =
+      Collections.singletonList("gs://bucket/staging/retrieval/000000000000.avro");
+
+  @Mock CachedSpecService specService;
+
+  @Mock HistoricalRetriever retriever;
+
+  @Mock JobService jobService;
+
+  private HistoricalServingService historicalServingService;
+  private GetBatchFeaturesRequest request;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    ResultCacheProperties resultCacheProperties = new ResultCacheProperties();
+    resultCacheProperties.setEnabled(true);
+    resultCacheProperties.setRetentionSeconds(3600);
+    resultCacheProperties.setMaxEntries(10);
+    historicalServingService =
+        new HistoricalServingService(
+            retriever,
+            specService,
+            jobService,
+            new RetrievalJobExecutor(jobService, 1, 10),
+            resultCacheProperties);
+
+    FeatureReference featureReference =
+        FeatureReference.newBuilder().setProject("project").setName("feature1").build();
+    request =
+        GetBatchFeaturesRequest.newBuilder()
+            .addFeatures(featureReference)
+            .setDatasetSource(
+                DatasetSource.newBuilder()
+                    .setFileSource(
+                        FileSource.newBuilder()
+                            .addFileUris("gs://bucket/entities.avro")
+                            .setDataFormat(DataFormat.DATA_FORMAT_AVRO)))
+            .build();
+    List<FeatureSetRequest> featureSetRequests =
+        Collections.singletonList(
+            FeatureSetRequest.newBuilder()
+                .setSpec(FeatureSetSpec.newBuilder().setProject("project").setName("fs").build())
+                .addFeatureReference(featureReference)
+                .build());
+    when(specService.getFeatureSets(request.getFeaturesList())).thenReturn(featureSetRequests);
+    when(retriever.getHistoricalFeatures(anyString(), any(), any()))
+        .thenAnswer(
+            invocation ->
+                HistoricalRetrievalResult.success(
+                    invocation.getArgument(0), FILE_URIS, DataFormat.DATA_FORMAT_AVRO));
+  }
+
+  @Test
+  public void shouldReuseResultOfRetrievalWithSameFingerprint() {
+    when(retriever.getResultFingerprint(any(), anyList())).thenReturn(Optional.of("fingerprint"));
+    when(retriever.isResultAvailable(FILE_URIS)).thenReturn(true);
+
+    Job firstJob = historicalServingService.getBatchFeatures(request).getJob();
+    verify(jobService, timeout(5000).times(3)).upsert(any());
+    Job secondJob = historicalServingService.getBatchFeatures(request).getJob();
+    ArgumentCaptor<Job> jobs = ArgumentCaptor.forClass(Job.class);
+    verify(jobService, timeout(5000).times(6)).upsert(jobs.capture());
+
+    verify(retriever, times(1)).getHistoricalFeatures(anyString(), any(), any());
+    assertThat(secondJob.getId(), not(equalTo(firstJob.getId())));
+    assertThat(secondJob.getStatus(), equalTo(JobStatus.JOB_STATUS_PENDING));
+    Job reusedJob = jobs.getAllValues().get(5);
+    assertThat(reusedJob.getId(), equalTo(secondJob.getId()));
+    assertThat(reusedJob.getStatus(), equalTo(JobStatus.JOB_STATUS_DONE));
+    assertThat(reusedJob.getFileUrisList(), contains(FILE_URIS.toArray()));
+  }
+
+  @Test(timeout = 5000)
+  public void shouldNotFingerprintRetrievalOnRequestPath() throws InterruptedException {
+    CountDownLatch fingerprinted = new CountDownLatch(1);
+    when(retriever.getResultFingerprint(any(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              fingerprinted.await();
+              return Optional.of("fingerprint");
+            });
+
+    try {
+      Job job = historicalServingService.getBatchFeatures(request).getJob();
+      assertThat(job.getStatus(), not(equalTo(JobStatus.JOB_STATUS_DONE)));
+    } finally {
+      fingerprinted.countDown();
+    }
+    verify(retriever, timeout(5000)).getHistoricalFeatures(anyString(), any(), any());
+  }
+
+  @Test
+  public void shouldRetrieveAgainIfPreviousResultIsNoLongerAvailable() {
+    when(retriever.getResultFingerprint(any(), anyList())).thenReturn(Optional.of("fingerprint"));
+    when(retriever.isResultAvailable(FILE_URIS)).thenReturn(false);
+
+    historicalServingService.getBatchFeatures(request);
+    verify(jobService, timeout(5000).times(3)).upsert(any());
+    Job secondJob = historicalServingService.getBatchFeatures(request).getJob();
+
+    assertThat(secondJob.getStatus(), equalTo(JobStatus.JOB_STATUS_PENDING));
+    verify(retriever, timeout(5000).times(2)).getHistoricalFeatures(anyString(), any(), any());
+  }
+
+  @Test
+  public void shouldNotReuseResultWithoutFingerprint() {
+    when(retriever.getResultFingerprint(any(), anyList())).thenReturn(Optional.empty());
+
+    historicalServingService.getBatchFeatures(request);
+    verify(jobService, timeout(5000).times(3)).upsert(any());
+    historicalServingService.getBatchFeatures(request);
+
+    verify(retriever, never()).isResultAvailable(anyList());
+    verify(retriever, timeout(5000).times(2)).getHistoricalFeatures(anyString(), any(), any());
+  }
+}
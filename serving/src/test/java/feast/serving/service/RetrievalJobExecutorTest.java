@@ -0,0 +1,226 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import feast.proto.serving.ServingAPIProto.Job;
+import feast.proto.serving.ServingAPIProto.JobStatus;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetrievalJobExecutorTest {
+
+  private InMemoryJobService jobService;
+  private RetrievalJobExecutor executor;
+  private CountDownLatch release;
+  private List<String> started;
+
+  @Before
+  public void setUp() {
+    jobService = new InMemoryJobService();
+    executor = new RetrievalJobExecutor(jobService, 1, 2);
+    release = new CountDownLatch(1);
+    started = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldQueueJobsBeyondConcurrencyLimit() throws InterruptedException {
+    executor.submit(job("blocking"), "project", blockingRetrieval("blocking"));
+    Job queuedJob = executor.submit(job("queued"), "project", retrieval("queued"));
+
+    assertThat(queuedJob.getStatus(), equalTo(JobStatus.JOB_STATUS_PENDING));
+    assertThat(jobService.awaitStatus("blocking", JobStatus.JOB_STATUS_RUNNING), equalTo(true));
+    assertThat(jobService.get("queued").get().getStatus(), equalTo(JobStatus.JOB_STATUS_PENDING));
+
+    release.countDown();
+    assertThat(jobService.awaitStatus("queued", JobStatus.JOB_STATUS_DONE), equalTo(true));
+    assertThat(started, contains("blocking", "queued"));
+  }
+
+  @Test
+  public void shouldRunQueuedJobsOfProjectsInTurn() throws InterruptedException {
+    executor = new RetrievalJobExecutor(jobService, 1, 10);
+    executor.submit(job("blocking"), "project0", blockingRetrieval("blocking"));
+    executor.submit(job("a1"), "project1", retrieval("a1"));
+    executor.submit(job("a2"), "project1", retrieval("a2"));
+    executor.submit(job("b1"), "project2", retrieval("b1"));
+
+    release.countDown();
+    assertThat(jobService.awaitStatus("a2", JobStatus.JOB_STATUS_DONE), equalTo(true));
+    assertThat(started, contains("blocking", "a1", "b1", "a2"));
+  }
+
+  @Test
+  public void shouldRejectJobsWhenQueueIsFull() {
+    executor.submit(job("blocking"), "project", blockingRetrieval("blocking"));
+    executor.submit(job("queued1"), "project", retrieval("queued1"));
+    executor.submit(job("queued2"), "project", retrieval("queued2"));
+
+    try {
+      executor.submit(job("rejected"), "project", retrieval("rejected"));
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.RESOURCE_EXHAUSTED));
+      assertFalse(jobService.get("rejected").isPresent());
+      return;
+    }
+    throw new AssertionError("Expected the job to be rejected");
+  }
+
+  @Test
+  public void shouldCancelQueuedJob() throws InterruptedException {
+    executor.submit(job("blocking"), "project", blockingRetrieval("blocking"));
+    executor.submit(job("queued"), "project", retrieval("queued"));
+
+    Optional<Job> cancelledJob = executor.cancel("queued");
+    release.countDown();
+
+    assertTrue(cancelledJob.isPresent());
+    assertThat(cancelledJob.get().getStatus(), equalTo(JobStatus.JOB_STATUS_DONE));
+    assertThat(cancelledJob.get().getError(), equalTo(RetrievalJobExecutor.CANCELLED_ERROR));
+    assertThat(jobService.awaitStatus("blocking", JobStatus.JOB_STATUS_DONE), equalTo(true));
+    assertThat(started, contains("blocking"));
+    assertThat(jobService.get("queued").get(), equalTo(cancelledJob.get()));
+  }
+
+  @Test
+  public void shouldInterruptCancelledRunningJobAndKeepItCancelled() throws InterruptedException {
+    executor.submit(job("blocking"), "project", blockingRetrieval("blocking"));
+    executor.submit(job("queued"), "project", retrieval("queued"));
+    assertThat(jobService.awaitStatus("blocking", JobStatus.JOB_STATUS_RUNNING), equalTo(true));
+
+    Optional<Job> cancelledJob = executor.cancel("blocking");
+
+    assertTrue(cancelledJob.isPresent());
+    // The blocking retrieval only returns once interrupted, which lets the queued job run
+    assertThat(jobService.awaitStatus("queued", JobStatus.JOB_STATUS_DONE), equalTo(true));
+    assertThat(jobService.get("blocking").get(), equalTo(cancelledJob.get()));
+    assertFalse(executor.cancel("blocking").isPresent());
+  }
+
+  @Test
+  public void shouldNotHoldUpOtherJobsWhileStoringJob() throws Exception {
+    CountDownLatch storing = new CountDownLatch(1);
+    CountDownLatch stored = new CountDownLatch(1);
+    InMemoryJobService slowJobService =
+        new InMemoryJobService() {
+          @Override
+          public void upsert(Job job) {
+            if (job.getId().equals("slow")) {
+              storing.countDown();
+              try {
+                stored.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            super.upsert(job);
+          }
+        };
+    executor = new RetrievalJobExecutor(slowJobService, 1, 10);
+    Thread slowSubmit =
+        new Thread(() -> executor.submit(job("slow"), "project1", retrieval("slow")));
+    slowSubmit.start();
+    assertTrue(storing.await(5, TimeUnit.SECONDS));
+
+    try {
+      Job queuedJob = executor.submit(job("queued"), "project2", retrieval("queued"));
+      assertThat(queuedJob.getStatus(), equalTo(JobStatus.JOB_STATUS_PENDING));
+      assertTrue(executor.cancel("queued").isPresent());
+    } finally {
+      stored.countDown();
+      slowSubmit.join();
+    }
+    assertThat(slowJobService.awaitStatus("slow", JobStatus.JOB_STATUS_DONE), equalTo(true));
+  }
+
+  private static Job job(String id) {
+    return Job.newBuilder().setId(id).build();
+  }
+
+  private Supplier<Job> retrieval(String id) {
+    return () -> {
+      started.add(id);
+      return job(id).toBuilder().setStatus(JobStatus.JOB_STATUS_DONE).build();
+    };
+  }
+
+  /** Retrieval that runs until released or interrupted. */
+  private Supplier<Job> blockingRetrieval(String id) {
+    return () -> {
+      started.add(id);
+      try {
+        release.await();
+        return job(id).toBuilder().setStatus(JobStatus.JOB_STATUS_DONE).build();
+      } catch (InterruptedException e) {
+        return job(id)
+            .toBuilder()
+            .setStatus(JobStatus.JOB_STATUS_DONE)
+            .setError("interrupted")
+            .build();
+      }
+    };
+  }
+
+  private static class InMemoryJobService implements JobService {
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Job> get(String id) {
+      return Optional.ofNullable(jobs.get(id));
+    }
+
+    @Override
+    public void upsert(Job job) {
+      jobs.put(job.getId(), job);
+    }
+
+    boolean awaitStatus(String id, JobStatus status) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (System.nanoTime() < deadline) {
+        Job job = jobs.get(id);
+        if (job != null && job.getStatus() == status) {
+          return true;
+        }
+        Thread.sleep(10);
+      }
+      return false;
+    }
+  }
+}
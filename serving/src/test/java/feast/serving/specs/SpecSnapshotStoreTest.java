@@ -0,0 +1,121 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.specs;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store;
+import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.serving.SpecSnapshotProto.SpecSnapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpecSnapshotStoreTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path path;
+  private Store store;
+  private List<FeatureSetSpec> featureSetSpecs;
+  private SpecSnapshotStore specSnapshotStore;
+
+  @Before
+  public void setUp() {
+    path = temporaryFolder.getRoot().toPath().resolve("snapshot").resolve("spec_snapshot.pb");
+    store =
+        Store.newBuilder()
+            .setName("SERVING")
+            .addSubscriptions(Subscription.newBuilder().setProject("*").setName("*"))
+            .build();
+    featureSetSpecs =
+        List.of(
+            FeatureSetSpec.newBuilder()
+                .setProject("project")
+                .setName("fs1")
+                .addFeatures(FeatureSpec.newBuilder().setName("feature"))
+                .build());
+    specSnapshotStore = new SpecSnapshotStore(path, Duration.ofHours(1));
+  }
+
+  @Test
+  public void shouldReadWrittenSnapshot() throws IOException {
+    specSnapshotStore.write(store, featureSetSpecs);
+    assertThat(specSnapshotStore.read(store), equalTo(Optional.of(featureSetSpecs)));
+  }
+
+  @Test
+  public void shouldIgnoreMissingSnapshot() {
+    assertThat(specSnapshotStore.read(store), equalTo(Optional.empty()));
+  }
+
+  @Test
+  public void shouldIgnoreSnapshotForDifferentStore() throws IOException {
+    specSnapshotStore.write(store, featureSetSpecs);
+    Store otherStore = store.toBuilder().setName("OTHER").build();
+    assertThat(specSnapshotStore.read(otherStore), equalTo(Optional.empty()));
+  }
+
+  @Test
+  public void shouldIgnoreCorruptSnapshot() throws IOException {
+    specSnapshotStore.write(store, featureSetSpecs);
+    SpecSnapshot snapshot = SpecSnapshot.parseFrom(Files.readAllBytes(path));
+    byte[] contents = snapshot.getContents().toByteArray();
+    contents[contents.length - 1] ^= 1;
+    Files.write(
+        path,
+        snapshot.toBuilder().setContents(ByteString.copyFrom(contents)).build().toByteArray());
+    assertThat(specSnapshotStore.read(store), equalTo(Optional.empty()));
+  }
+
+  @Test
+  public void shouldIgnoreStaleSnapshot() throws IOException {
+    ByteString contents =
+        SpecSnapshot.Contents.newBuilder()
+            .setCreatedTimestamp(
+                Timestamps.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()))
+            .setStore(store)
+            .addAllFeatureSetSpecs(featureSetSpecs)
+            .build()
+            .toByteString();
+    CRC32 crc32 = new CRC32();
+    crc32.update(contents.toByteArray());
+    Files.createDirectories(path.getParent());
+    Files.write(
+        path,
+        SpecSnapshot.newBuilder()
+            .setFormatVersion(SpecSnapshotStore.FORMAT_VERSION)
+            .setChecksum((int) crc32.getValue())
+            .setContents(contents)
+            .build()
+            .toByteArray());
+    assertThat(specSnapshotStore.read(store), equalTo(Optional.empty()));
+  }
+}
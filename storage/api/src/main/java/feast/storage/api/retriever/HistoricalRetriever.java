@@ -18,6 +18,7 @@ package feast.storage.api.retriever;
 
 import feast.proto.serving.ServingAPIProto.DatasetSource;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A historical retriever is a feature retriever that retrieves feature data corresponding to
@@ -36,6 +37,9 @@ public interface HistoricalRetriever {
   /**
    * Get all features corresponding to the provided batch features request.
    *
+   * <p>Retrievals are cancelled by interrupting the calling thread. Implementations should then
+   * stop any work they started in the store and return an error result.
+   *
    * @param retrievalId String that uniquely identifies this retrieval request.
    * @param datasetSource {@link DatasetSource} containing source to load the dataset containing
    *     entity columns.
@@ -46,4 +50,31 @@ public interface HistoricalRetriever {
    */
   HistoricalRetrievalResult getHistoricalFeatures(
       String retrievalId, DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests);
+
+  /**
+   * Compute a fingerprint of everything the result of a retrieval depends on, so that the result of
+   * an earlier retrieval with the same fingerprint can be returned instead of retrieving the
+   * features again. Retrievers that cannot tell whether their inputs have changed return an empty
+   * fingerprint, which disables reuse.
+   *
+   * @param datasetSource {@link DatasetSource} containing source to load the dataset containing
+   *     entity columns.
+   * @param featureSetRequests List of {@link FeatureSetRequest} to feature references in the
+   *     request tied to that feature set.
+   * @return fingerprint of the retrieval inputs, or empty if the result must not be reused
+   */
+  default Optional<String> getResultFingerprint(
+      DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    return Optional.empty();
+  }
+
+  /**
+   * Check whether the files of an earlier retrieval result can still be read.
+   *
+   * @param fileUris locations of the files of the result
+   * @return true if all files still exist
+   */
+  default boolean isResultAvailable(List<String> fileUris) {
+    return false;
+  }
 }
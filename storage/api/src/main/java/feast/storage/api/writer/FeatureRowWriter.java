@@ -0,0 +1,39 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.api.writer;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.util.List;
+
+/** Interface for writing feature rows to a store outside of a Beam pipeline. */
+public interface FeatureRowWriter extends AutoCloseable {
+
+  /** Set up the writer and connect to the store. This method will be called once before writes. */
+  void open();
+
+  /**
+   * Write the given feature rows to the store, returning once the store has acknowledged them.
+   *
+   * @param featureRows validated feature rows of the feature sets the writer was created for
+   * @throws Exception if any of the rows could not be written
+   */
+  void write(List<FeatureRow> featureRows) throws Exception;
+
+  /** Release the connections to the store. */
+  @Override
+  void close();
+}
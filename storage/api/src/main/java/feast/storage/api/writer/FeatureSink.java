@@ -17,10 +17,13 @@
 package feast.storage.api.writer;
 
 import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import java.io.Serializable;
+import java.util.Map;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
 
 /** Interface for implementing user defined feature sink functionality. */
 public interface FeatureSink extends Serializable {
@@ -51,4 +54,36 @@ public interface FeatureSink extends Serializable {
    * @return {@link PTransform}
    */
   PTransform<PCollection<FeatureRow>, WriteResult> writer();
+
+  /**
+   * Get a {@link PTransform} that writes feature rows to the store according to the feature set
+   * specs in the given view, which may be refreshed while the pipeline runs. Stores that cannot
+   * pick up refreshed specs ignore the view and write with the specs they were created with.
+   *
+   * @param featureSetSpecsView singleton view of feature set specs by reference
+   * @return {@link PTransform}
+   */
+  default PTransform<PCollection<FeatureRow>, WriteResult> writer(
+      PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView) {
+    return writer();
+  }
+
+  /**
+   * @return whether the store can be written to outside of a Beam pipeline, with {@link
+   *     #rowWriter()}
+   */
+  default boolean supportsRowWriter() {
+    return false;
+  }
+
+  /**
+   * Get a {@link FeatureRowWriter} that writes feature rows to the store outside of a Beam
+   * pipeline. Only stores for which {@link #supportsRowWriter()} is true support this.
+   *
+   * @return {@link FeatureRowWriter}
+   * @throws UnsupportedOperationException if the store can only be written to by a pipeline
+   */
+  default FeatureRowWriter rowWriter() {
+    throw new UnsupportedOperationException("Store can only be written to by a pipeline");
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.common.batch;
+
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.CombiningState;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+/**
+ * Groups the values of each key into batches that are buffered across bundles, in the style of
+ * Beam's {@code GroupIntoBatches}.
+ *
+ * <p>A batch is emitted once it holds the maximum number of values, once the oldest value in it has
+ * been buffered for the maximum latency in processing time, or when the window expires, whichever
+ * happens first.
+ *
+ * @param <K> type of the keys the values are batched by
+ * @param <V> type of the values
+ */
+public class GroupIntoBoundedBatches<K, V>
+    extends PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>> {
+
+  private final int maxBatchSize;
+  private final Duration maxLatency;
+
+  private GroupIntoBoundedBatches(int maxBatchSize, Duration maxLatency) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatency = maxLatency;
+  }
+
+  /**
+   * @param maxBatchSize maximum number of values in a batch
+   * @param maxLatency maximum time a value is buffered before its batch is emitted
+   * @return transform grouping values into batches
+   */
+  public static <K, V> GroupIntoBoundedBatches<K, V> of(int maxBatchSize, Duration maxLatency) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+    }
+    return new GroupIntoBoundedBatches<>(maxBatchSize, maxLatency);
+  }
+
+  @Override
+  public PCollection<KV<K, Iterable<V>>> expand(PCollection<KV<K, V>> input) {
+    if (!(input.getCoder() instanceof KvCoder)) {
+      throw new IllegalStateException("GroupIntoBoundedBatches requires its input to use KvCoder");
+    }
+    KvCoder<K, V> inputCoder = (KvCoder<K, V>) input.getCoder();
+    return input
+        .apply(
+            ParDo.of(
+                new BatchDoFn<>(
+                    maxBatchSize,
+                    maxLatency,
+                    inputCoder.getKeyCoder(),
+                    inputCoder.getValueCoder())))
+        .setCoder(
+            KvCoder.of(inputCoder.getKeyCoder(), IterableCoder.of(inputCoder.getValueCoder())));
+  }
+
+  static class BatchDoFn<K, V> extends DoFn<KV<K, V>, KV<K, Iterable<V>>> {
+
+    private final int maxBatchSize;
+    private final Duration maxLatency;
+
+    @StateId("key")
+    private final StateSpec<ValueState<K>> keySpec;
+
+    @StateId("batch")
+    private final StateSpec<BagState<V>> batchSpec;
+
+    @StateId("count")
+    private final StateSpec<CombiningState<Long, long[], Long>> countSpec =
+        StateSpecs.combining(Sum.ofLongs());
+
+    @TimerId("endOfWindow")
+    private final TimerSpec endOfWindowSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    @TimerId("maxLatency")
+    private final TimerSpec maxLatencySpec = TimerSpecs.timer(TimeDomain.PROCESSING_TIME);
+
+    BatchDoFn(int maxBatchSize, Duration maxLatency, Coder<K> keyCoder, Coder<V> valueCoder) {
+      this.maxBatchSize = maxBatchSize;
+      this.maxLatency = maxLatency;
+      this.keySpec = StateSpecs.value(keyCoder);
+      this.batchSpec = StateSpecs.bag(valueCoder);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, V> element,
+        @StateId("key") ValueState<K> key,
+        @StateId("batch") BagState<V> batch,
+        @StateId("count") CombiningState<Long, long[], Long> count,
+        @TimerId("endOfWindow") Timer endOfWindow,
+        @TimerId("maxLatency") Timer maxLatencyTimer,
+        BoundedWindow window,
+        OutputReceiver<KV<K, Iterable<V>>> receiver) {
+      endOfWindow.set(window.maxTimestamp());
+      key.write(element.getKey());
+      batch.add(element.getValue());
+      count.add(1L);
+
+      long batchSize = count.read();
+      if (batchSize == 1) {
+        maxLatencyTimer.offset(maxLatency).setRelative();
+      }
+      if (batchSize >= maxBatchSize) {
+        flush(key, batch, count, receiver);
+      }
+    }
+
+    @OnTimer("endOfWindow")
+    public void onEndOfWindow(
+        @StateId("key") ValueState<K> key,
+        @StateId("batch") BagState<V> batch,
+        @StateId("count") CombiningState<Long, long[], Long> count,
+        OutputReceiver<KV<K, Iterable<V>>> receiver) {
+      flush(key, batch, count, receiver);
+    }
+
+    @OnTimer("maxLatency")
+    public void onMaxLatency(
+        @StateId("key") ValueState<K> key,
+        @StateId("batch") BagState<V> batch,
+        @StateId("count") CombiningState<Long, long[], Long> count,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        OutputReceiver<KV<K, Iterable<V>>> receiver) {
+      // Output of a processing time timer is timestamped with the input watermark. Once that has
+      // passed the end of the window, the batch is left to the end of window timer instead.
+      if (timestamp.isAfter(window.maxTimestamp())) {
+        return;
+      }
+      flush(key, batch, count, receiver);
+    }
+
+    private void flush(
+        ValueState<K> key,
+        BagState<V> batch,
+        CombiningState<Long, long[], Long> count,
+        OutputReceiver<KV<K, Iterable<V>>> receiver) {
+      // A latency timer can still fire after its batch was emitted for being full.
+      if (count.read() == 0) {
+        return;
+      }
+      receiver.output(KV.of(key.read(), batch.read()));
+      batch.clear();
+      count.clear();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.common.pattern;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Project and feature set name patterns, as used in store subscriptions and feature set filters. An
+ * asterisk matches any sequence of characters; every other character matches itself.
+ */
+public class WildcardPattern {
+
+  private WildcardPattern() {}
+
+  /**
+   * Compile a wildcard pattern into a regular expression.
+   *
+   * @param pattern name, or pattern matching names
+   * @return regular expression equivalent to the pattern
+   */
+  public static Pattern compile(String pattern) {
+    return Pattern.compile(
+        Arrays.stream(pattern.split("\\*", -1))
+            .map(Pattern::quote)
+            .collect(Collectors.joining(".*")));
+  }
+
+  /**
+   * Check whether a name matches a wildcard pattern.
+   *
+   * @param pattern name, or pattern matching names
+   * @param value name to check
+   * @return true if the whole name matches the pattern
+   */
+  public static boolean matches(String pattern, String value) {
+    return compile(pattern).matcher(value).matches();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.common.batch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.CombiningState;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.DoFn.OutputReceiver;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GroupIntoBoundedBatchesTest {
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  @Test
+  public void shouldEmitBatchOnceFull() {
+    TestStream<KV<String, Integer>> input =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), VarIntCoder.of()))
+            .addElements(KV.of("a", 1), KV.of("a", 2), KV.of("a", 3))
+            .advanceWatermarkToInfinity();
+
+    PCollection<List<Integer>> batches =
+        toLists(p.apply(input).apply(GroupIntoBoundedBatches.of(2, Duration.standardMinutes(10))));
+
+    PAssert.that(batches).containsInAnyOrder(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    p.run();
+  }
+
+  @Test
+  public void shouldEmitBatchOnceMaxLatencyHasPassed() {
+    TestStream<KV<String, Integer>> input =
+        TestStream.create(KvCoder.of(StringUtf8Coder.of(), VarIntCoder.of()))
+            .addElements(KV.of("a", 1))
+            .advanceProcessingTime(Duration.standardMinutes(2))
+            .addElements(KV.of("a", 2))
+            .advanceWatermarkToInfinity();
+
+    PCollection<List<Integer>> batches =
+        toLists(p.apply(input).apply(GroupIntoBoundedBatches.of(10, Duration.standardMinutes(1))));
+
+    PAssert.that(batches).containsInAnyOrder(Arrays.asList(Arrays.asList(1), Arrays.asList(2)));
+    p.run();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldLeaveBatchToEndOfWindowTimerOnceWatermarkHasPassedWindowEnd() {
+    GroupIntoBoundedBatches.BatchDoFn<String, Integer> batchDoFn =
+        new GroupIntoBoundedBatches.BatchDoFn<>(
+            10, Duration.standardMinutes(1), StringUtf8Coder.of(), VarIntCoder.of());
+    ValueState<String> key = mock(ValueState.class);
+    BagState<Integer> batch = mock(BagState.class);
+    CombiningState<Long, long[], Long> count = mock(CombiningState.class);
+    OutputReceiver<KV<String, Iterable<Integer>>> receiver = mock(OutputReceiver.class);
+    when(key.read()).thenReturn("a");
+    when(batch.read()).thenReturn(Arrays.asList(1, 2));
+    when(count.read()).thenReturn(2L);
+    IntervalWindow window = new IntervalWindow(new Instant(0), Duration.standardMinutes(1));
+
+    batchDoFn.onMaxLatency(
+        key, batch, count, window.maxTimestamp().plus(Duration.millis(1)), window, receiver);
+    verify(receiver, never()).output(any());
+
+    batchDoFn.onMaxLatency(key, batch, count, window.maxTimestamp(), window, receiver);
+    verify(receiver).output(KV.of("a", Arrays.asList(1, 2)));
+  }
+
+  private static PCollection<List<Integer>> toLists(
+      PCollection<KV<String, Iterable<Integer>>> batches) {
+    return batches.apply(
+        MapElements.into(TypeDescriptors.lists(TypeDescriptors.integers()))
+            .via(
+                batch -> {
+                  List<Integer> values = new ArrayList<>();
+                  batch.getValue().forEach(values::add);
+                  values.sort(Integer::compare);
+                  return values;
+                }));
+  }
+}
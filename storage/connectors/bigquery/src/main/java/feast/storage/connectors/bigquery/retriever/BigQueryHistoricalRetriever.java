@@ -16,27 +16,38 @@
  */
 package feast.storage.connectors.bigquery.retriever;
 
-import static feast.storage.connectors.bigquery.retriever.QueryTemplater.createEntityTableUUIDQuery;
-import static feast.storage.connectors.bigquery.retriever.QueryTemplater.createTimestampLimitQuery;
-
 import com.google.auto.value.AutoValue;
 import com.google.cloud.RetryOption;
 import com.google.cloud.bigquery.*;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
 import com.google.cloud.storage.StorageOptions;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.TextFormat;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.serving.ServingAPIProto;
 import feast.proto.serving.ServingAPIProto.DatasetSource;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.HistoricalRetrievalResult;
 import feast.storage.api.retriever.HistoricalRetriever;
 import io.grpc.Status;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.threeten.bp.Duration;
@@ -48,7 +59,6 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
       org.slf4j.LoggerFactory.getLogger(BigQueryHistoricalRetriever.class);
 
   public static final long TEMP_TABLE_EXPIRY_DURATION_MS = Duration.ofDays(1).toMillis();
-  private static final long SUBQUERY_TIMEOUT_SECS = 900; // 15 minutes
 
   public static HistoricalRetriever create(Map<String, String> config) {
 
@@ -130,12 +140,8 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
 
     // 1. load entity table
     Table entityTable;
-    String entityTableName;
     try {
       entityTable = loadEntities(datasetSource);
-
-      TableId entityTableWithUUIDs = generateUUIDs(entityTable);
-      entityTableName = generateFullTableName(entityTableWithUUIDs);
     } catch (Exception e) {
       return HistoricalRetrievalResult.error(
           retrievalId,
@@ -150,29 +156,32 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
             .filter(name -> !name.equals("event_timestamp"))
             .collect(Collectors.toList());
 
-    // 2. Retrieve the temporal bounds of the entity dataset provided
-    FieldValueList timestampLimits = getTimestampLimits(entityTableName);
-
-    // 3. Generate the subqueries
-    List<String> featureSetQueries =
-        generateQueries(entityTableName, timestampLimits, featureSetQueryInfos);
-
-    QueryJobConfiguration queryConfig;
-
     try {
-      // 4. Run the subqueries in parallel then collect the outputs
-      Job queryJob =
-          runBatchQuery(
-              entityTableName, entityTableColumnNames, featureSetQueryInfos, featureSetQueries);
-      queryConfig = queryJob.getConfiguration();
+      // 2. Run a single script generating the entity row UUIDs, retrieving the temporal bounds of
+      // the entity dataset and joining the features of all feature sets to it
+      TableId destinationTable = TableId.of(projectId(), datasetId(), createTempTableName());
+      String script =
+          QueryTemplater.createRetrievalScript(
+              featureSetQueryInfos,
+              entityTableColumnNames,
+              projectId(),
+              datasetId(),
+              generateFullTableName(entityTable.getTableId()),
+              entityTable.getNumRows().longValue(),
+              generateFullTableName(TableId.of(projectId(), datasetId(), createTempTableName())),
+              generateFullTableName(destinationTable),
+              TimeUnit.MILLISECONDS.toSeconds(TEMP_TABLE_EXPIRY_DURATION_MS));
+      Job scriptJob =
+          bigquery().create(JobInfo.of(QueryJobConfiguration.newBuilder(script).build()));
+      waitForJob(scriptJob);
+
       String exportTableDestinationUri =
           String.format("%s/%s/*.avro", jobStagingLocation(), retrievalId);
 
-      // 5. Export the table
+      // 3. Export the table
       // Hardcode the format to Avro for now
       ExtractJobConfiguration extractConfig =
-          ExtractJobConfiguration.of(
-              queryConfig.getDestinationTable(), exportTableDestinationUri, "Avro");
+          ExtractJobConfiguration.of(destinationTable, exportTableDestinationUri, "Avro");
       Job extractJob = bigquery().create(JobInfo.of(extractConfig));
       waitForJob(extractJob);
 
@@ -186,63 +195,161 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
         retrievalId, fileUris, ServingAPIProto.DataFormat.DATA_FORMAT_AVRO);
   }
 
-  private TableId generateUUIDs(Table loadedEntityTable) {
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The fingerprint covers the names and generations of the entity files, the feature set specs
+   * and feature references, and the last modification time of each feature set table. Rows still in
+   * a table's streaming buffer are not reflected in its modification time, so retrievals from
+   * tables that are being streamed into are never fingerprinted.
+   */
+  @Override
+  public Optional<String> getResultFingerprint(
+      DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    if (!datasetSource.hasFileSource()) {
+      return Optional.empty();
+    }
     try {
-      String uuidQuery =
-          createEntityTableUUIDQuery(generateFullTableName(loadedEntityTable.getTableId()));
-      QueryJobConfiguration queryJobConfig =
-          QueryJobConfiguration.newBuilder(uuidQuery)
-              .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
-              .build();
-      Job queryJob = bigquery().create(JobInfo.of(queryJobConfig));
-      Job completedJob = waitForJob(queryJob);
-      TableInfo expiry =
-          bigquery()
-              .getTable(queryJobConfig.getDestinationTable())
-              .toBuilder()
-              .setExpirationTime(System.currentTimeMillis() + TEMP_TABLE_EXPIRY_DURATION_MS)
-              .build();
-      bigquery().update(expiry);
-      queryJobConfig = completedJob.getConfiguration();
-      return queryJobConfig.getDestinationTable();
-    } catch (InterruptedException | BigQueryException e) {
-      throw Status.INTERNAL
-          .withDescription("Failed to load entity dataset into store")
-          .withCause(e)
-          .asRuntimeException();
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      DatasetSource.FileSource fileSource = datasetSource.getFileSource();
+      update(digest, fileSource.getDataFormat().name());
+      for (String fileUri : fileSource.getFileUrisList()) {
+        List<Blob> blobs = getEntityBlobs(fileUri);
+        if (blobs.isEmpty()) {
+          return Optional.empty();
+        }
+        update(digest, fileUri);
+        for (Blob blob : blobs) {
+          update(digest, blob.getName());
+          update(digest, String.valueOf(blob.getGeneration()));
+        }
+      }
+
+      List<FeatureSetRequest> sortedRequests = new ArrayList<>(featureSetRequests);
+      sortedRequests.sort(
+          Comparator.comparing(
+              (FeatureSetRequest request) ->
+                  request.getSpec().getProject() + "/" + request.getSpec().getName()));
+      for (FeatureSetRequest featureSetRequest : sortedRequests) {
+        FeatureSetSpec spec = featureSetRequest.getSpec();
+        update(digest, serializeDeterministically(spec));
+        featureSetRequest.getFeatureReferences().stream()
+            .map(TextFormat::shortDebugString)
+            .sorted()
+            .forEach(featureReference -> update(digest, featureReference));
+
+        Table table =
+            bigquery()
+                .getTable(
+                    TableId.of(
+                        projectId(),
+                        datasetId(),
+                        String.format("%s_%s", spec.getProject(), spec.getName())),
+                    BigQuery.TableOption.fields(
+                        BigQuery.TableField.LAST_MODIFIED_TIME,
+                        BigQuery.TableField.STREAMING_BUFFER));
+        if (table == null
+            || !(table.getDefinition() instanceof StandardTableDefinition)
+            || ((StandardTableDefinition) table.getDefinition()).getStreamingBuffer() != null) {
+          return Optional.empty();
+        }
+        update(digest, String.valueOf(table.getLastModifiedTime()));
+      }
+
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return Optional.of(hex.toString());
+    } catch (BigQueryException | StorageException | IOException e) {
+      log.warn("Unable to fingerprint retrieval, its result will not be reused: {}", e.toString());
+      return Optional.empty();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
     }
   }
 
-  private FieldValueList getTimestampLimits(String entityTableName) {
-    QueryJobConfiguration getTimestampLimitsQuery =
-        QueryJobConfiguration.newBuilder(createTimestampLimitQuery(entityTableName))
-            .setDefaultDataset(DatasetId.of(projectId(), datasetId()))
-            .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
-            .build();
-    try {
-      Job job = bigquery().create(JobInfo.of(getTimestampLimitsQuery));
-      TableResult getTimestampLimitsQueryResult = waitForJob(job).getQueryResults();
-      TableInfo expiry =
-          bigquery()
-              .getTable(getTimestampLimitsQuery.getDestinationTable())
-              .toBuilder()
-              .setExpirationTime(System.currentTimeMillis() + TEMP_TABLE_EXPIRY_DURATION_MS)
-              .build();
-      bigquery().update(expiry);
-      FieldValueList result = null;
-      for (FieldValueList fields : getTimestampLimitsQueryResult.getValues()) {
-        result = fields;
+  @Override
+  public boolean isResultAvailable(List<String> fileUris) {
+    List<BlobId> blobIds = new ArrayList<>();
+    for (String fileUri : fileUris) {
+      BlobId blobId = toBlobId(fileUri);
+      if (blobId == null) {
+        return false;
       }
-      if (result == null || result.get("min").isNull() || result.get("max").isNull()) {
-        throw new RuntimeException("query returned insufficient values");
+      blobIds.add(blobId);
+    }
+    if (blobIds.isEmpty()) {
+      return false;
+    }
+    try {
+      return storage().get(blobIds).stream().allMatch(Objects::nonNull);
+    } catch (StorageException e) {
+      log.warn("Unable to check files of previous retrieval: {}", e.toString());
+      return false;
+    }
+  }
+
+  /**
+   * Get the files matched by an entity source URI, which may contain a single wildcard as accepted
+   * by BigQuery load jobs.
+   *
+   * @return matching files ordered by name, or an empty list if there are none
+   */
+  private List<Blob> getEntityBlobs(String fileUri) {
+    BlobId blobId = toBlobId(fileUri);
+    if (blobId == null) {
+      return Collections.emptyList();
+    }
+    String name = blobId.getName();
+    int wildcard = name.indexOf('*');
+    if (wildcard < 0) {
+      Blob blob = storage().get(blobId);
+      return blob == null ? Collections.emptyList() : Collections.singletonList(blob);
+    }
+    String prefix = name.substring(0, wildcard);
+    String suffix = name.substring(wildcard + 1);
+    List<Blob> blobs = new ArrayList<>();
+    for (Blob blob :
+        storage().list(blobId.getBucket(), Storage.BlobListOption.prefix(prefix)).iterateAll()) {
+      if (blob.getName().length() >= prefix.length() + suffix.length()
+          && blob.getName().endsWith(suffix)) {
+        blobs.add(blob);
       }
-      return result;
-    } catch (InterruptedException e) {
-      throw Status.INTERNAL
-          .withDescription("Unable to extract min and max timestamps from query")
-          .withCause(e)
-          .asRuntimeException();
     }
+    blobs.sort(Comparator.comparing(Blob::getName));
+    return blobs;
+  }
+
+  private static BlobId toBlobId(String fileUri) {
+    if (!fileUri.startsWith("gs://")) {
+      return null;
+    }
+    String path = fileUri.substring("gs://".length());
+    int separator = path.indexOf('/');
+    if (separator <= 0 || separator == path.length() - 1) {
+      return null;
+    }
+    return BlobId.of(path.substring(0, separator), path.substring(separator + 1));
+  }
+
+  private static byte[] serializeDeterministically(FeatureSetSpec spec) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+    output.useDeterministicSerialization();
+    spec.writeTo(output);
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  /** Add a length prefixed value to the digest, so that consecutive values cannot run together. */
+  private static void update(MessageDigest digest, byte[] value) {
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value.length).array());
+    digest.update(value);
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    update(digest, value.getBytes(StandardCharsets.UTF_8));
   }
 
   private Table loadEntities(ServingAPIProto.DatasetSource datasetSource) {
@@ -270,14 +377,7 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
           Job job = bigquery().create(JobInfo.of(loadJobConfiguration));
           waitForJob(job);
 
-          TableInfo expiry =
-              bigquery()
-                  .getTable(tableId)
-                  .toBuilder()
-                  .setExpirationTime(System.currentTimeMillis() + TEMP_TABLE_EXPIRY_DURATION_MS)
-                  .build();
-          bigquery().update(expiry);
-
+          // The table is given its expiry by the retrieval script
           loadedEntityTable = bigquery().getTable(tableId);
           if (!loadedEntityTable.exists()) {
             throw new RuntimeException(
@@ -299,99 +399,6 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     }
   }
 
-  private List<String> generateQueries(
-      String entityTableName,
-      FieldValueList timestampLimits,
-      List<FeatureSetQueryInfo> featureSetQueryInfos) {
-    List<String> featureSetQueries = new ArrayList<>();
-    try {
-      for (FeatureSetQueryInfo featureSetInfo : featureSetQueryInfos) {
-        String query =
-            QueryTemplater.createFeatureSetPointInTimeQuery(
-                featureSetInfo,
-                projectId(),
-                datasetId(),
-                entityTableName,
-                timestampLimits.get("min").getStringValue(),
-                timestampLimits.get("max").getStringValue());
-        featureSetQueries.add(query);
-      }
-    } catch (IOException e) {
-      throw Status.INTERNAL
-          .withDescription("Unable to generate query for batch retrieval")
-          .withCause(e)
-          .asRuntimeException();
-    }
-    return featureSetQueries;
-  }
-
-  Job runBatchQuery(
-      String entityTableName,
-      List<String> entityTableColumnNames,
-      List<FeatureSetQueryInfo> featureSetQueryInfos,
-      List<String> featureSetQueries)
-      throws BigQueryException, InterruptedException, IOException {
-    ExecutorService executorService = Executors.newFixedThreadPool(featureSetQueries.size());
-    ExecutorCompletionService<FeatureSetQueryInfo> executorCompletionService =
-        new ExecutorCompletionService<>(executorService);
-
-    // For each of the feature sets requested, start an async job joining the features in that
-    // feature set to the provided entity table
-    for (int i = 0; i < featureSetQueries.size(); i++) {
-      QueryJobConfiguration queryJobConfig =
-          QueryJobConfiguration.newBuilder(featureSetQueries.get(i))
-              .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
-              .build();
-      Job subqueryJob = bigquery().create(JobInfo.of(queryJobConfig));
-      executorCompletionService.submit(
-          SubqueryCallable.builder()
-              .setBigquery(bigquery())
-              .setFeatureSetInfo(featureSetQueryInfos.get(i))
-              .setSubqueryJob(subqueryJob)
-              .build());
-    }
-
-    List<FeatureSetQueryInfo> completedFeatureSetQueryInfos = new ArrayList<>();
-
-    for (int i = 0; i < featureSetQueries.size(); i++) {
-      try {
-        // Try to retrieve the outputs of all the jobs. The timeout here is a formality;
-        // a stricter timeout is implemented in the actual SubqueryCallable.
-        FeatureSetQueryInfo featureSetInfo =
-            executorCompletionService.take().get(SUBQUERY_TIMEOUT_SECS, TimeUnit.SECONDS);
-        completedFeatureSetQueryInfos.add(featureSetInfo);
-      } catch (InterruptedException | ExecutionException | TimeoutException e) {
-        executorService.shutdownNow();
-        throw Status.INTERNAL
-            .withDescription("Error running batch query")
-            .withCause(e)
-            .asRuntimeException();
-      }
-    }
-
-    // Generate and run a join query to collect the outputs of all the
-    // subqueries into a single table.
-    String joinQuery =
-        QueryTemplater.createJoinQuery(
-            completedFeatureSetQueryInfos, entityTableColumnNames, entityTableName);
-    QueryJobConfiguration queryJobConfig =
-        QueryJobConfiguration.newBuilder(joinQuery)
-            .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
-            .build();
-    Job queryJob = bigquery().create(JobInfo.of(queryJobConfig));
-    Job completedQueryJob = waitForJob(queryJob);
-
-    TableInfo expiry =
-        bigquery()
-            .getTable(queryJobConfig.getDestinationTable())
-            .toBuilder()
-            .setExpirationTime(System.currentTimeMillis() + TEMP_TABLE_EXPIRY_DURATION_MS)
-            .build();
-    bigquery().update(expiry);
-
-    return completedQueryJob;
-  }
-
   private List<String> parseOutputFileURIs(String feastJobId) {
     String scheme = jobStagingLocation().substring(0, jobStagingLocation().indexOf("://"));
     String stagingLocationNoScheme =
@@ -412,11 +419,28 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     return fileUris;
   }
 
+  /**
+   * Wait for a BigQuery job to complete. If the calling thread is interrupted, the job is cancelled
+   * before the interruption is passed on, so that a cancelled retrieval does not leave its jobs
+   * running.
+   */
   private Job waitForJob(Job queryJob) throws InterruptedException {
-    Job completedJob =
-        queryJob.waitFor(
-            RetryOption.initialRetryDelay(Duration.ofSeconds(initialRetryDelaySecs())),
-            RetryOption.totalTimeout(Duration.ofSeconds(totalTimeoutSecs())));
+    Job completedJob;
+    try {
+      completedJob =
+          queryJob.waitFor(
+              RetryOption.initialRetryDelay(Duration.ofSeconds(initialRetryDelaySecs())),
+              RetryOption.totalTimeout(Duration.ofSeconds(totalTimeoutSecs())));
+    } catch (InterruptedException e) {
+      log.info("Retrieval interrupted, cancelling BigQuery job {}", queryJob.getJobId().getJob());
+      try {
+        bigquery().cancel(queryJob.getJobId());
+      } catch (BigQueryException cancelException) {
+        log.warn("Unable to cancel BigQuery job: {}", cancelException.getMessage());
+      }
+      Thread.currentThread().interrupt();
+      throw e;
+    }
     if (completedJob == null) {
       throw Status.INTERNAL.withDescription("Job no longer exists").asRuntimeException();
     } else if (completedJob.getStatus().getError() != null) {
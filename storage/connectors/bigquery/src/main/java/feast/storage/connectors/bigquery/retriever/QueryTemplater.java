@@ -38,29 +38,20 @@ public class QueryTemplater {
   private static final PebbleEngine engine = new PebbleEngine.Builder().build();
   private static final String FEATURESET_TEMPLATE_NAME = "templates/single_featureset_pit_join.sql";
   private static final String JOIN_TEMPLATE_NAME = "templates/join_featuresets.sql";
+  private static final String SCRIPT_TEMPLATE_NAME = "templates/retrieval_script.sql";
 
-  /**
-   * Get the query for retrieving the earliest and latest timestamps in the entity dataset.
-   *
-   * @param leftTableName full entity dataset name
-   * @return timestamp limit BQ SQL query
-   */
-  public static String createTimestampLimitQuery(String leftTableName) {
-    return String.format(
-        "SELECT DATETIME(MAX(event_timestamp)) as max, DATETIME(MIN(event_timestamp)) as min FROM `%s`",
-        leftTableName);
-  }
+  /** Variables of the retrieval script holding the temporal bounds of the entity dataset. */
+  private static final String MIN_TIMESTAMP_VARIABLE = "min_timestamp";
+
+  private static final String MAX_TIMESTAMP_VARIABLE = "max_timestamp";
 
   /**
-   * Creates a query that generates a UUID for the entity table, for left joins later on.
-   *
-   * @param leftTableName full entity dataset name
-   * @return uuid generation query
+   * Maximum number of rows of an entity dataset for which feature set tables are semi-joined
+   * against its entity keys before the point in time correctness join. Up to this size the key set
+   * is cheap to compute and broadcast, while it typically covers a small share of the entities of a
+   * feature set table, so that most of the table's rows are dropped early.
    */
-  public static String createEntityTableUUIDQuery(String leftTableName) {
-    return String.format(
-        "SELECT GENERATE_UUID() as uuid, `%s`.* from `%s`", leftTableName, leftTableName);
-  }
+  public static final long SEMI_JOIN_MAX_ENTITY_ROWS = 1_000_000L;
 
   /**
    * Generate the information necessary for the sql templating for point in time correctness join to
@@ -95,8 +86,10 @@ public class QueryTemplater {
    * @param projectId google project ID
    * @param datasetId feast bigquery dataset ID
    * @param leftTableName entity dataset name
-   * @param minTimestamp earliest allowed timestamp for the historical data in feast
-   * @param maxTimestamp latest allowed timestamp for the historical data in feast
+   * @param minTimestamp TIMESTAMP expression of the earliest timestamp in the entity dataset
+   * @param maxTimestamp TIMESTAMP expression of the latest timestamp in the entity dataset
+   * @param semiJoin whether to only process the feature set rows of entities in the entity dataset,
+   *     by semi-joining the feature set table against the dataset's entity keys first
    * @return point in time correctness join BQ SQL query
    */
   public static String createFeatureSetPointInTimeQuery(
@@ -105,7 +98,8 @@ public class QueryTemplater {
       String datasetId,
       String leftTableName,
       String minTimestamp,
-      String maxTimestamp)
+      String maxTimestamp,
+      boolean semiJoin)
       throws IOException {
 
     PebbleTemplate template = engine.getTemplate(FEATURESET_TEMPLATE_NAME);
@@ -116,6 +110,7 @@ public class QueryTemplater {
     context.put("minTimestamp", minTimestamp);
     context.put("maxTimestamp", maxTimestamp);
     context.put("leftTableName", leftTableName);
+    context.put("semiJoin", semiJoin);
 
     Writer writer = new StringWriter();
     template.evaluate(writer, context);
@@ -124,13 +119,15 @@ public class QueryTemplater {
 
   /**
    * @param featureSetInfos List of FeatureSetInfos containing information about the feature set
-   *     necessary for the query templating
+   *     necessary for the query templating, each named after its subquery
+   * @param featureSetQueries point in time correctness join query of each feature set
    * @param entityTableColumnNames list of column names in entity table
    * @param leftTableName entity dataset name
-   * @return query to join temporary feature set tables to the entity table
+   * @return query to join the feature set subqueries to the entity table
    */
   public static String createJoinQuery(
       List<FeatureSetQueryInfo> featureSetInfos,
+      List<String> featureSetQueries,
       List<String> entityTableColumnNames,
       String leftTableName)
       throws IOException {
@@ -138,6 +135,7 @@ public class QueryTemplater {
     Map<String, Object> context = new HashMap<>();
     context.put("entities", entityTableColumnNames);
     context.put("featureSets", featureSetInfos);
+    context.put("featureSetQueries", featureSetQueries);
     context.put("leftTableName", leftTableName);
 
     Writer writer = new StringWriter();
@@ -145,6 +143,73 @@ public class QueryTemplater {
     return writer.toString();
   }
 
+  /**
+   * Generate the script running a historical retrieval as a single BigQuery job. The script assigns
+   * UUIDs to the loaded entity rows, retrieves their temporal bounds and joins the features of all
+   * feature sets to them, writing the result to the destination table. All tables it creates or
+   * loads expire after the given duration.
+   *
+   * <p>If the entity dataset has at most {@link #SEMI_JOIN_MAX_ENTITY_ROWS} rows, feature set
+   * tables are semi-joined against its entity keys before the point in time correctness joins.
+   *
+   * @param featureSetInfos List of FeatureSetInfos containing information about the feature set
+   *     necessary for the query templating
+   * @param entityTableColumnNames list of column names in entity table
+   * @param projectId google project ID
+   * @param datasetId feast bigquery dataset ID
+   * @param entityTableName full name of the table the entity dataset was loaded to
+   * @param entityRowCount number of rows in the entity dataset
+   * @param entityTableWithUuidsName full name of the table to create with the entity rows and their
+   *     UUIDs
+   * @param destinationTableName full name of the table to create with the retrieved features
+   * @param tableExpirySeconds lifetime of the tables, in seconds
+   * @return retrieval BQ SQL script
+   */
+  public static String createRetrievalScript(
+      List<FeatureSetQueryInfo> featureSetInfos,
+      List<String> entityTableColumnNames,
+      String projectId,
+      String datasetId,
+      String entityTableName,
+      long entityRowCount,
+      String entityTableWithUuidsName,
+      String destinationTableName,
+      long tableExpirySeconds)
+      throws IOException {
+    boolean semiJoin = entityRowCount <= SEMI_JOIN_MAX_ENTITY_ROWS;
+    List<FeatureSetQueryInfo> subqueryInfos = new ArrayList<>();
+    List<String> subqueries = new ArrayList<>();
+    for (int i = 0; i < featureSetInfos.size(); i++) {
+      FeatureSetQueryInfo subqueryInfo =
+          new FeatureSetQueryInfo(featureSetInfos.get(i), String.format("feature_set_%d", i));
+      subqueryInfos.add(subqueryInfo);
+      subqueries.add(
+          createFeatureSetPointInTimeQuery(
+              subqueryInfo,
+              projectId,
+              datasetId,
+              entityTableWithUuidsName,
+              MIN_TIMESTAMP_VARIABLE,
+              MAX_TIMESTAMP_VARIABLE,
+              semiJoin));
+    }
+    String joinQuery =
+        createJoinQuery(
+            subqueryInfos, subqueries, entityTableColumnNames, entityTableWithUuidsName);
+
+    PebbleTemplate template = engine.getTemplate(SCRIPT_TEMPLATE_NAME);
+    Map<String, Object> context = new HashMap<>();
+    context.put("entityTableName", entityTableName);
+    context.put("entityTableWithUuidsName", entityTableWithUuidsName);
+    context.put("destinationTableName", destinationTableName);
+    context.put("tableExpirySeconds", tableExpirySeconds);
+    context.put("joinQuery", joinQuery);
+
+    Writer writer = new StringWriter();
+    template.evaluate(writer, context);
+    return writer.toString();
+  }
+
   public static String generateFullTableName(TableId tableId) {
     return String.format(
         "%s.%s.%s", tableId.getProject(), tableId.getDataset(), tableId.getTable());
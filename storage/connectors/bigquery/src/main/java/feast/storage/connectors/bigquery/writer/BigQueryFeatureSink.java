@@ -18,7 +18,10 @@ package feast.storage.connectors.bigquery.writer;
 
 import com.google.auto.value.AutoValue;
 import com.google.cloud.bigquery.*;
+import com.google.cloud.bigquery.BigQuery.TableField;
+import com.google.cloud.bigquery.spi.v2.BigQueryRpc;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.StoreProto.Store.BigQueryConfig;
 import feast.proto.types.FeatureRowProto;
@@ -26,8 +29,11 @@ import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import feast.storage.connectors.bigquery.common.TypeUtil;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.beam.repackaged.core.org.apache.commons.lang3.tuple.Pair;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.values.PCollection;
@@ -47,12 +53,32 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
   public static final String BIGQUERY_JOB_ID_FIELD_DESCRIPTION =
       "Feast import job ID for the FeatureRow";
 
+  // Types of the columns a table can be clustered by
+  private static final Set<StandardSQLTypeName> CLUSTERING_TYPES =
+      ImmutableSet.of(
+          StandardSQLTypeName.INT64, StandardSQLTypeName.STRING, StandardSQLTypeName.BOOL);
+  // Maximum number of columns a table can be clustered by
+  private static final int MAX_CLUSTERING_FIELDS = 4;
+
+  private static final String EVENT_TIMESTAMP_COLUMN = "event_timestamp";
+  private static final String DAY_PARTITIONING = "DAY";
+  private static final String HOUR_PARTITIONING = "HOUR";
+  // Tables are only read with their schema, as the client fails to parse hourly partitioning
+  private static final BigQuery.TableOption SCHEMA_ONLY =
+      BigQuery.TableOption.fields(TableField.SCHEMA);
+
   public abstract String getProjectId();
 
   public abstract String getDatasetId();
 
   public abstract BigQuery getBigQuery();
 
+  /** @return references of the feature sets whose tables are partitioned by hour */
+  public abstract List<String> getHourlyPartitionedFeatureSets();
+
+  /** @return whether existing tables are rewritten if their partitioning differs */
+  public abstract boolean getMigrateTables();
+
   /**
    * Initialize a {@link BigQueryFeatureSink.Builder} from a {@link BigQueryConfig}. This method
    * initializes a {@link BigQuery} client with default options. Use the builder method to inject
@@ -68,11 +94,15 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
         .setDatasetId(config.getDatasetId())
         .setProjectId(config.getProjectId())
         .setBigQuery(BigQueryOptions.getDefaultInstance().getService())
+        .setHourlyPartitionedFeatureSets(config.getHourlyPartitionedFeatureSetsList())
+        .setMigrateTables(config.getMigrateTables())
         .build();
   }
 
   public static Builder builder() {
-    return new AutoValue_BigQueryFeatureSink.Builder();
+    return new AutoValue_BigQueryFeatureSink.Builder()
+        .setHourlyPartitionedFeatureSets(Collections.emptyList())
+        .setMigrateTables(false);
   }
 
   @AutoValue.Builder
@@ -84,6 +114,11 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
 
     public abstract Builder setBigQuery(BigQuery bigQuery);
 
+    public abstract Builder setHourlyPartitionedFeatureSets(
+        List<String> hourlyPartitionedFeatureSets);
+
+    public abstract Builder setMigrateTables(boolean migrateTables);
+
     public abstract BigQueryFeatureSink build();
   }
 
@@ -104,16 +139,76 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
             .replaceAll("-", "_");
     TableId tableId = TableId.of(datasetId.getProject(), datasetId.getDataset(), tableName);
 
-    Table table = bigquery.getTable(tableId);
-    TableDefinition tableDefinition = createBigQueryTableDefinition(table, featureSet.getSpec());
+    // The client only models day partitioning, so the partitioning is neither read nor written
+    // through it. Updates leave the partitioning of a table unchanged.
+    Table table = bigquery.getTable(tableId, SCHEMA_ONLY);
+    StandardTableDefinition tableDefinition =
+        createBigQueryTableDefinition(table, featureSet.getSpec());
     TableInfo tableInfo = TableInfo.of(tableId, tableDefinition);
+    String partitioningType =
+        getHourlyPartitionedFeatureSets()
+                .contains(
+                    String.format("%s/%s", featureSetSpec.getProject(), featureSetSpec.getName()))
+            ? HOUR_PARTITIONING
+            : DAY_PARTITIONING;
+    log.info("Table partitioning: {} on {}", partitioningType, EVENT_TIMESTAMP_COLUMN);
+
     if (table != null) {
       log.info(
-          "Updating and writing to existing BigQuery table '{}:{}.{}'",
+          "Writing to existing BigQuery table '{}:{}.{}'",
           datasetId.getProject(),
           datasetId.getDataset(),
           tableName);
-      bigquery.update(tableInfo);
+      com.google.api.services.bigquery.model.Table tableState = getTableState(tableId);
+      // Fields added to the feature set or a changed clustering are applied through a table
+      // update. Clustering applies to rows written after the update.
+      if (!getFieldNames(table.getDefinition().getSchema())
+              .equals(getFieldNames(tableDefinition.getSchema()))
+          || !getClusteringFields(tableDefinition).equals(getClusteringFields(tableState))) {
+        log.info("Updating the schema and clustering of table '{}'", tableName);
+        bigquery.update(tableInfo, SCHEMA_ONLY);
+      }
+
+      String existingPartitioningType =
+          tableState.getTimePartitioning() != null
+              ? tableState.getTimePartitioning().getType()
+              : null;
+      if (partitioningType.equals(existingPartitioningType)) {
+        return;
+      }
+      if (!getMigrateTables()) {
+        log.warn(
+            "Table '{}' is partitioned by {} rather than {}. Enable migrate_tables to rewrite it with the configured partitioning.",
+            tableName,
+            existingPartitioningType,
+            partitioningType);
+        return;
+      }
+      // Rows streamed into the table while it is rewritten would be lost, so tables that are
+      // receiving streaming writes, such as from a job that is being replaced, are left as is.
+      if (tableState.getStreamingBuffer() != null) {
+        log.warn(
+            "Table '{}' is receiving streaming writes and will not be migrated from {} to {} partitioning. It will be migrated when a job writing to it starts after the streaming writes have stopped.",
+            tableName,
+            existingPartitioningType,
+            partitioningType);
+        return;
+      }
+      // The partitioning of a table cannot be changed in place, so the table is rewritten. The
+      // rewrite also clusters the rows written before the clustering was set.
+      log.info(
+          "Migrating table '{}' from {} to {} partitioning",
+          tableName,
+          existingPartitioningType,
+          partitioningType);
+      runDdl(
+          String.format(
+              "CREATE OR REPLACE TABLE `%s` %s AS SELECT * FROM `%s`",
+              generateFullTableName(tableId),
+              getPartitioningClause(tableDefinition, partitioningType),
+              generateFullTableName(tableId)));
+      // Column descriptions are not carried over by the rewrite
+      bigquery.update(tableInfo, SCHEMA_ONLY);
       return;
     }
 
@@ -122,7 +217,106 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
         tableId.getTable(),
         datasetId.getDataset(),
         datasetId.getProject());
-    bigquery.create(tableInfo);
+    if (partitioningType.equals(DAY_PARTITIONING)) {
+      bigquery.create(
+          TableInfo.of(
+              tableId,
+              tableDefinition
+                  .toBuilder()
+                  .setTimePartitioning(
+                      TimePartitioning.newBuilder(TimePartitioning.Type.DAY)
+                          .setField(EVENT_TIMESTAMP_COLUMN)
+                          .build())
+                  .build()));
+      return;
+    }
+    List<String> columns =
+        tableDefinition.getSchema().getFields().stream()
+            .map(BigQueryFeatureSink::getColumnDefinition)
+            .collect(Collectors.toList());
+    runDdl(
+        String.format(
+            "CREATE TABLE `%s` (%s) %s",
+            generateFullTableName(tableId),
+            String.join(", ", columns),
+            getPartitioningClause(tableDefinition, partitioningType)));
+    // Column descriptions are set through the client
+    bigquery.update(tableInfo, SCHEMA_ONLY);
+  }
+
+  /**
+   * Get the partitioning, clustering and streaming buffer of an existing table through the client's
+   * underlying RPC layer, which exposes the partitioning type as returned by BigQuery.
+   *
+   * @return table with only these properties set
+   */
+  private com.google.api.services.bigquery.model.Table getTableState(TableId tableId) {
+    BigQueryRpc rpc = (BigQueryRpc) getBigQuery().getOptions().getRpc();
+    com.google.api.services.bigquery.model.Table table =
+        rpc.getTable(
+            tableId.getProject(),
+            tableId.getDataset(),
+            tableId.getTable(),
+            ImmutableMap.of(
+                BigQueryRpc.Option.FIELDS, "timePartitioning,clustering,streamingBuffer"));
+    return table != null ? table : new com.google.api.services.bigquery.model.Table();
+  }
+
+  private static List<String> getFieldNames(Schema schema) {
+    if (schema == null) {
+      return Collections.emptyList();
+    }
+    return schema.getFields().stream().map(Field::getName).collect(Collectors.toList());
+  }
+
+  private static List<String> getClusteringFields(StandardTableDefinition tableDefinition) {
+    return tableDefinition.getClustering() != null
+        ? tableDefinition.getClustering().getFields()
+        : Collections.emptyList();
+  }
+
+  private static List<String> getClusteringFields(
+      com.google.api.services.bigquery.model.Table tableState) {
+    return tableState.getClustering() != null && tableState.getClustering().getFields() != null
+        ? tableState.getClustering().getFields()
+        : Collections.emptyList();
+  }
+
+  private static String getPartitioningClause(
+      StandardTableDefinition tableDefinition, String partitioningType) {
+    String clause =
+        String.format(
+            "PARTITION BY TIMESTAMP_TRUNC(%s, %s)", EVENT_TIMESTAMP_COLUMN, partitioningType);
+    if (tableDefinition.getClustering() != null) {
+      clause +=
+          String.format(
+              " CLUSTER BY %s", String.join(", ", tableDefinition.getClustering().getFields()));
+    }
+    return clause;
+  }
+
+  private static String getColumnDefinition(Field field) {
+    String type = field.getType().getStandardType().name();
+    return String.format(
+        "`%s` %s",
+        field.getName(),
+        field.getMode() == Field.Mode.REPEATED ? String.format("ARRAY<%s>", type) : type);
+  }
+
+  private void runDdl(String statement) {
+    log.info("Running DDL statement: {}", statement);
+    try {
+      getBigQuery().query(QueryJobConfiguration.of(statement));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(
+          String.format("Interrupted while running DDL statement: %s", statement), e);
+    }
+  }
+
+  private static String generateFullTableName(TableId tableId) {
+    return String.format(
+        "%s.%s.%s", tableId.getProject(), tableId.getDataset(), tableId.getTable());
   }
 
   @Override
@@ -137,9 +331,10 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
    * @param existingTable existing {@link Table} retrieved using bigquery.GetTable(). If the table
    *     does not exist, will be null.
    * @param spec FeatureSet spec that this table is for
-   * @return {@link TableDefinition} containing all tombstoned and active fields.
+   * @return {@link TableDefinition} containing all tombstoned and active fields, and the clustering
+   *     of the table. The partitioning of the table is not included.
    */
-  private TableDefinition createBigQueryTableDefinition(
+  private StandardTableDefinition createBigQueryTableDefinition(
       Table existingTable, FeatureSetProto.FeatureSetSpec spec) {
     List<Field> fields = new ArrayList<>();
     log.info("Table will have the following fields:");
@@ -190,9 +385,22 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
       fields.add(field);
     }
 
-    TimePartitioning timePartitioning =
-        TimePartitioning.newBuilder(TimePartitioning.Type.DAY).setField("event_timestamp").build();
-    log.info("Table partitioning: " + timePartitioning.toString());
+    // Cluster by the entities, so that the rows of the entities being retrieved are read without
+    // scanning all rows of each partition.
+    List<String> clusteringFields =
+        spec.getEntitiesList().stream()
+            .filter(
+                entitySpec ->
+                    CLUSTERING_TYPES.contains(
+                        TypeUtil.toStandardSqlType(entitySpec.getValueType())))
+            .map(FeatureSetProto.EntitySpec::getName)
+            .limit(MAX_CLUSTERING_FIELDS)
+            .collect(Collectors.toList());
+    Clustering clustering =
+        clusteringFields.isEmpty()
+            ? null
+            : Clustering.newBuilder().setFields(clusteringFields).build();
+    log.info("Table clustering: {}", clustering);
 
     List<Field> fieldsList = new ArrayList<>();
     if (existingTable != null) {
@@ -207,7 +415,7 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
     }
 
     return StandardTableDefinition.newBuilder()
-        .setTimePartitioning(timePartitioning)
+        .setClustering(clustering)
         .setSchema(Schema.of(FieldList.of(fieldsList)))
         .build();
   }
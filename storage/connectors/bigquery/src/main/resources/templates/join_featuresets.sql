@@ -1,7 +1,14 @@
 /*
- Joins the outputs of multiple point-in-time-correctness joins to a single table.
+ Joins the outputs of multiple point-in-time-correctness joins to a single table. Each
+ point-in-time-correctness join is included as a subquery named after its feature set's table.
  */
-WITH joined as (
+WITH
+{% for featureSet in featureSets %}
+{{ featureSet.table }} AS (
+{{ featureSetQueries[loop.index] | raw }}
+),
+{% endfor %}
+joined as (
 SELECT * FROM `{{ leftTableName }}`
 {% for featureSet in featureSets %}
 LEFT JOIN (
@@ -10,7 +17,7 @@ LEFT JOIN (
     {% for feature in featureSet.features %}
     {{ featureSet.project }}__{{ featureSet.name }}__{{ feature.name }}{% if loop.last %}{% else %}, {% endif %}
     {% endfor %}
-    FROM `{{ featureSet.table }}`
+    FROM {{ featureSet.table }}
 ) USING (uuid)
 {% endfor %}
 ) SELECT
@@ -0,0 +1,43 @@
+/*
+ Runs a historical retrieval as a single script, so that all of its steps take one job.
+ Tables are given their expiry as they are created, rather than by updating them afterwards.
+ */
+DECLARE min_timestamp TIMESTAMP;
+DECLARE max_timestamp TIMESTAMP;
+
+/*
+ 1. Expire the entity table loaded from the entity dataset.
+ */
+ALTER TABLE `{{ entityTableName }}` SET OPTIONS (
+  expiration_timestamp = TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL {{ tableExpirySeconds }} SECOND)
+);
+
+/*
+ 2. Assign each entity row a UUID, for left joins later on. The table is materialized, so that every
+ point-in-time correctness join sees the same UUIDs.
+ */
+CREATE TABLE `{{ entityTableWithUuidsName }}`
+OPTIONS (
+  expiration_timestamp = TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL {{ tableExpirySeconds }} SECOND)
+)
+AS SELECT GENERATE_UUID() AS uuid, * FROM `{{ entityTableName }}`;
+
+/*
+ 3. Retrieve the temporal bounds of the entity dataset, which limit the feature rows scanned.
+ */
+SET (min_timestamp, max_timestamp) = (
+  SELECT AS STRUCT
+    IFNULL(MIN(event_timestamp), ERROR('Entity dataset contains no event timestamps')),
+    MAX(event_timestamp)
+  FROM `{{ entityTableWithUuidsName }}`
+);
+
+/*
+ 4. Join the features of all feature sets to the entity rows in a single query.
+ */
+CREATE TABLE `{{ destinationTableName }}`
+OPTIONS (
+  expiration_timestamp = TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL {{ tableExpirySeconds }} SECOND)
+)
+AS
+{{ joinQuery | raw }};
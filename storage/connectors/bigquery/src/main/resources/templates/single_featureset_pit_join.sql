@@ -2,13 +2,39 @@
  This query template performs the point-in-time correctness join for a single feature set table
  to the provided entity table.
 
+ minTimestamp and maxTimestamp are TIMESTAMP expressions bounding the entity timestamps, such as
+ variables declared by the retrieval script.
+
+ 0. Select the rows of the feature set table within the temporal bounds of the entity dataset.
+ If semiJoin is set, only rows of entities in the entity dataset are selected, by joining the
+ table to the distinct entity keys of the entity dataset, so that later steps only process rows
+ of the requested entities. It is only set for entity datasets whose key set is small enough to
+ be broadcast to the workers scanning the feature set table.
+ */
+WITH
+{% if semiJoin %}
+entity_keys AS (
+SELECT DISTINCT {{ featureSet.entities | join(', ')}} FROM `{{leftTableName}}`
+),
+{% endif %}
+feature_rows AS (
+SELECT
+  feature_table.*
+FROM `{{projectId}}.{{datasetId}}.{{ featureSet.project }}_{{ featureSet.name }}` feature_table
+{% if semiJoin %}
+INNER JOIN entity_keys USING ({{ featureSet.entities | join(', ')}})
+{% endif %}
+WHERE event_timestamp <= {{ maxTimestamp }}
+{% if featureSet.maxAge == 0 %}{% else %} AND event_timestamp >= Timestamp_sub({{ minTimestamp }}, interval {{ featureSet.maxAge }} second){% endif %}
+),
+/*
  1. Concatenate the timestamp and entities from the feature set table with the entity dataset.
  Feature values are joined to this table later for improved efficiency.
  featureset_timestamp is equal to null in rows from the entity dataset.
  */
-WITH union_features AS (
+union_features AS (
 SELECT
-  -- uuid is a unique identifier for each row in the entity dataset. Generated by `QueryTemplater.createEntityTableUUIDQuery`
+  -- uuid is a unique identifier for each row in the entity dataset. Generated by the retrieval script
   uuid,
   -- event_timestamp contains the timestamps to join onto
   event_timestamp,
@@ -29,8 +55,7 @@ SELECT
   created_timestamp,
   {{ featureSet.entities | join(', ')}},
   false AS is_entity_table
-FROM `{{projectId}}.{{datasetId}}.{{ featureSet.project }}_{{ featureSet.name }}` WHERE event_timestamp <= '{{maxTimestamp}}'
-{% if featureSet.maxAge == 0 %}{% else %}AND event_timestamp >= Timestamp_sub(TIMESTAMP '{{ minTimestamp }}', interval {{ featureSet.maxAge }} second){% endif %}
+FROM feature_rows
 ),
 /*
  2. Window the data in the unioned dataset, partitioning by entity and ordering by event_timestamp, as
@@ -73,8 +98,7 @@ SELECT
   {% for feature in featureSet.features %}
   {{ feature.name }} as {{ featureSet.project }}__{{ featureSet.name }}__{{ feature.name }}{% if loop.last %}{% else %}, {% endif %}
   {% endfor %}
-FROM `{{ projectId }}.{{ datasetId }}.{{ featureSet.project }}_{{ featureSet.name }}` WHERE event_timestamp <= '{{maxTimestamp}}'
-{% if featureSet.maxAge == 0 %}{% else %}AND event_timestamp >= Timestamp_sub(TIMESTAMP '{{ minTimestamp }}', interval {{ featureSet.maxAge }} second){% endif %}
+FROM feature_rows
 ) USING ({{ featureSet.project }}_{{ featureSet.name }}_feature_timestamp, created_timestamp, {{ featureSet.entities | join(', ')}})
 WHERE is_entity_table
 )
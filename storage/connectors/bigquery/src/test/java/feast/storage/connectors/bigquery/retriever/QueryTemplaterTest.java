@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+import com.google.common.collect.ImmutableList;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+public class QueryTemplaterTest {
+
+  private static final String ENTITY_TABLE = "project.dataset.entities_123";
+  private static final String ENTITY_TABLE_WITH_UUIDS = "project.dataset.entities_uuids_123";
+  private static final String DESTINATION_TABLE = "project.dataset.query_123";
+
+  private static FeatureSetQueryInfo featureSetInfo(String name, long maxAge) {
+    return new FeatureSetQueryInfo(
+        "myproject",
+        name,
+        maxAge,
+        ImmutableList.of("driver_id"),
+        ImmutableList.of(
+            FeatureReference.newBuilder()
+                .setProject("myproject")
+                .setFeatureSet(name)
+                .setName("rating")
+                .build()),
+        "");
+  }
+
+  private static String createRetrievalScript(
+      List<FeatureSetQueryInfo> featureSetInfos, long entityRowCount) throws IOException {
+    return QueryTemplater.createRetrievalScript(
+        featureSetInfos,
+        ImmutableList.of("driver_id"),
+        "project",
+        "dataset",
+        ENTITY_TABLE,
+        entityRowCount,
+        ENTITY_TABLE_WITH_UUIDS,
+        DESTINATION_TABLE,
+        86400);
+  }
+
+  @Test
+  public void retrievalScriptShouldCreateExpiringTablesInASingleScript() throws IOException {
+    String script = createRetrievalScript(ImmutableList.of(featureSetInfo("drivers", 3600)), 10);
+
+    assertThat(
+        script, containsString(String.format("ALTER TABLE `%s` SET OPTIONS (", ENTITY_TABLE)));
+    assertThat(
+        script,
+        containsString(
+            String.format(
+                "CREATE TABLE `%s`\nOPTIONS (\n"
+                    + "  expiration_timestamp = TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL 86400 SECOND)\n"
+                    + ")\nAS SELECT GENERATE_UUID() AS uuid, * FROM `%s`;",
+                ENTITY_TABLE_WITH_UUIDS, ENTITY_TABLE)));
+    assertThat(script, containsString(String.format("CREATE TABLE `%s`", DESTINATION_TABLE)));
+    assertThat(script, containsString("SET (min_timestamp, max_timestamp) = ("));
+    assertThat(script, containsString(String.format("FROM `%s`\n);", ENTITY_TABLE_WITH_UUIDS)));
+  }
+
+  @Test
+  public void retrievalScriptShouldJoinEveryFeatureSetAsNamedSubquery() throws IOException {
+    String script =
+        createRetrievalScript(
+            ImmutableList.of(featureSetInfo("drivers", 3600), featureSetInfo("trips", 0)), 10);
+
+    assertThat(script, containsString("feature_set_0 AS ("));
+    assertThat(script, containsString("feature_set_1 AS ("));
+    assertThat(script, containsString("FROM `project.dataset.myproject_drivers` feature_table"));
+    assertThat(script, containsString("FROM `project.dataset.myproject_trips` feature_table"));
+    assertThat(script, containsString(",myproject__drivers__rating as drivers__rating"));
+    assertThat(script, containsString(",myproject__trips__rating as trips__rating"));
+    assertThat(script, not(containsString("{{")));
+  }
+
+  @Test
+  public void featureSetQueryShouldBoundEventTimestampsForPartitionPruning() throws IOException {
+    String query =
+        QueryTemplater.createFeatureSetPointInTimeQuery(
+            featureSetInfo("drivers", 3600),
+            "project",
+            "dataset",
+            ENTITY_TABLE_WITH_UUIDS,
+            "min_timestamp",
+            "max_timestamp",
+            false);
+
+    assertThat(query, containsString("WHERE event_timestamp <= max_timestamp"));
+    assertThat(
+        query,
+        containsString(
+            "AND event_timestamp >= Timestamp_sub(min_timestamp, interval 3600 second)"));
+  }
+
+  @Test
+  public void featureSetQueryWithoutMaxAgeShouldOnlyBoundLatestEventTimestamp() throws IOException {
+    String query =
+        QueryTemplater.createFeatureSetPointInTimeQuery(
+            featureSetInfo("drivers", 0),
+            "project",
+            "dataset",
+            ENTITY_TABLE_WITH_UUIDS,
+            "min_timestamp",
+            "max_timestamp",
+            false);
+
+    assertThat(query, containsString("WHERE event_timestamp <= max_timestamp"));
+    assertThat(query, not(containsString("min_timestamp")));
+  }
+
+  @Test
+  public void retrievalScriptShouldSemiJoinFeatureSetsAgainstSmallEntityDatasets()
+      throws IOException {
+    String script =
+        createRetrievalScript(
+            ImmutableList.of(featureSetInfo("drivers", 3600)),
+            QueryTemplater.SEMI_JOIN_MAX_ENTITY_ROWS);
+
+    assertThat(
+        script,
+        containsString(
+            String.format(
+                "entity_keys AS (\nSELECT DISTINCT driver_id FROM `%s`\n)",
+                ENTITY_TABLE_WITH_UUIDS)));
+    assertThat(script, containsString("INNER JOIN entity_keys USING (driver_id)"));
+  }
+
+  @Test
+  public void retrievalScriptShouldNotSemiJoinFeatureSetsAgainstLargeEntityDatasets()
+      throws IOException {
+    String script =
+        createRetrievalScript(
+            ImmutableList.of(featureSetInfo("drivers", 3600)),
+            QueryTemplater.SEMI_JOIN_MAX_ENTITY_ROWS + 1);
+
+    assertThat(script, not(containsString("entity_keys")));
+    assertThat(script, containsString("FROM `project.dataset.myproject_drivers` feature_table"));
+  }
+}
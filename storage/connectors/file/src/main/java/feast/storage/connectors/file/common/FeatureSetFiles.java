@@ -0,0 +1,211 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.common;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+
+/**
+ * Layout and schema of the files of a file store.
+ *
+ * <p>Rows of a feature set are stored in Avro files under [path]/[project]/[feature set
+ * name]/event_date=[yyyy-MM-dd]/, partitioned by the UTC date of their event timestamp.
+ */
+public class FeatureSetFiles {
+
+  public static final String EVENT_TIMESTAMP_COLUMN = "event_timestamp";
+  public static final String CREATED_TIMESTAMP_COLUMN = "created_timestamp";
+
+  private static final String PARTITION_PREFIX = "event_date=";
+  private static final String RECORD_NAME = "FeatureRow";
+
+  /**
+   * @param featureSetReference reference of the feature set, in the form project/name
+   * @param date event date of the rows in the partition
+   * @return path of the partition, relative to the store's path
+   */
+  public static String getPartition(String featureSetReference, LocalDate date) {
+    return String.format("%s/%s%s", featureSetReference, PARTITION_PREFIX, date);
+  }
+
+  /**
+   * @param storePath path of the store
+   * @param spec spec of the feature set
+   * @param date event date of the rows in the partition
+   * @return directory holding the partition's files
+   */
+  public static Path getPartitionDirectory(Path storePath, FeatureSetSpec spec, LocalDate date) {
+    return storePath
+        .resolve(spec.getProject())
+        .resolve(spec.getName())
+        .resolve(PARTITION_PREFIX + date);
+  }
+
+  /**
+   * Get the schema of the files of a feature set.
+   *
+   * @param spec spec of the feature set
+   * @return {@link Schema} of rows of all entities and features of the feature set
+   */
+  public static Schema getSchema(FeatureSetSpec spec) {
+    List<String> features = new ArrayList<>();
+    spec.getFeaturesList().forEach(feature -> features.add(feature.getName()));
+    return getSchema(spec, features);
+  }
+
+  /**
+   * Get a schema to read a subset of the features of a feature set with. Files written before a
+   * feature was added to the feature set are read with null values for it.
+   *
+   * @param spec spec of the feature set
+   * @param features names of the features to include
+   * @return {@link Schema} of rows of all entities and the given features of the feature set
+   */
+  public static Schema getSchema(FeatureSetSpec spec, Collection<String> features) {
+    List<Field> fields = new ArrayList<>();
+    fields.add(new Field(EVENT_TIMESTAMP_COLUMN, timestampSchema(), null, (Object) null));
+    fields.add(new Field(CREATED_TIMESTAMP_COLUMN, timestampSchema(), null, (Object) null));
+    for (EntitySpec entity : spec.getEntitiesList()) {
+      fields.add(
+          new Field(
+              entity.getName(),
+              TypeUtil.toAvroSchema(entity.getValueType()),
+              null,
+              JsonProperties.NULL_VALUE));
+    }
+    for (FeatureSpec feature : spec.getFeaturesList()) {
+      if (features.contains(feature.getName())) {
+        fields.add(
+            new Field(
+                feature.getName(),
+                TypeUtil.toAvroSchema(feature.getValueType()),
+                null,
+                JsonProperties.NULL_VALUE));
+      }
+    }
+    return Schema.createRecord(RECORD_NAME, null, null, false, fields);
+  }
+
+  /** @return schema of timestamps, as microseconds since the epoch */
+  public static Schema timestampSchema() {
+    return LogicalTypes.timestampMicros().addToSchema(Schema.create(Type.LONG));
+  }
+
+  /**
+   * List the Avro files of the given partitions of a feature set. Partitions without files are
+   * skipped.
+   *
+   * @param storePath path of the store
+   * @param spec spec of the feature set
+   * @param from first event date to list the files of
+   * @param to last event date to list the files of
+   * @return paths of the files
+   */
+  public static List<Path> listFiles(
+      Path storePath, FeatureSetSpec spec, LocalDate from, LocalDate to) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+      Path partition = getPartitionDirectory(storePath, spec, date);
+      if (Files.isDirectory(partition)) {
+        files.addAll(listFiles(partition, "*.avro"));
+      }
+    }
+    return files;
+  }
+
+  /**
+   * List the event dates of all partitions of a feature set.
+   *
+   * @param storePath path of the store
+   * @param spec spec of the feature set
+   * @return event dates in ascending order
+   */
+  public static List<LocalDate> listPartitions(Path storePath, FeatureSetSpec spec)
+      throws IOException {
+    Path featureSetDirectory = storePath.resolve(spec.getProject()).resolve(spec.getName());
+    List<LocalDate> dates = new ArrayList<>();
+    if (!Files.isDirectory(featureSetDirectory)) {
+      return dates;
+    }
+    for (Path partition : listFiles(featureSetDirectory, PARTITION_PREFIX + "*")) {
+      dates.add(
+          LocalDate.parse(partition.getFileName().toString().substring(PARTITION_PREFIX.length())));
+    }
+    dates.sort(LocalDate::compareTo);
+    return dates;
+  }
+
+  /**
+   * Resolve a file URI or path to the files it refers to. The last path segment may contain
+   * wildcards.
+   *
+   * @param uri path or file:// URI
+   * @return paths of the matching files
+   */
+  public static List<Path> resolve(String uri) throws IOException {
+    Path path = toPath(uri);
+    String fileName = path.getFileName().toString();
+    if (!fileName.contains("*") && !fileName.contains("?")) {
+      if (!Files.exists(path)) {
+        throw new IllegalArgumentException(String.format("File does not exist: %s", uri));
+      }
+      return Collections.singletonList(path);
+    }
+    return listFiles(path.getParent(), fileName);
+  }
+
+  /**
+   * @param uri path or file: URI
+   * @return path on the local filesystem
+   */
+  public static Path toPath(String uri) {
+    if (uri.contains(":")) {
+      if (!uri.startsWith("file:")) {
+        throw new IllegalArgumentException(
+            String.format("Only local files are supported by the file store: %s", uri));
+      }
+      return Paths.get(URI.create(uri));
+    }
+    return Paths.get(uri);
+  }
+
+  private static List<Path> listFiles(Path directory, String glob) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+      stream.forEach(files::add);
+    }
+    files.sort(Path::compareTo);
+    return files;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.common;
+
+import feast.proto.types.ValueProto;
+import feast.proto.types.ValueProto.ValueType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+
+public class TypeUtil {
+
+  private static final Map<ValueType.Enum, Type> VALUE_TYPE_TO_AVRO_TYPE = new HashMap<>();
+
+  static {
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.BYTES, Type.BYTES);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.STRING, Type.STRING);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.INT32, Type.INT);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.INT64, Type.LONG);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.DOUBLE, Type.DOUBLE);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.FLOAT, Type.FLOAT);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.BOOL, Type.BOOLEAN);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.BYTES_LIST, Type.BYTES);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.STRING_LIST, Type.STRING);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.INT32_LIST, Type.INT);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.INT64_LIST, Type.LONG);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.DOUBLE_LIST, Type.DOUBLE);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.FLOAT_LIST, Type.FLOAT);
+    VALUE_TYPE_TO_AVRO_TYPE.put(ValueType.Enum.BOOL_LIST, Type.BOOLEAN);
+  }
+
+  /**
+   * Converts {@link ValueType} to the schema of a nullable Avro field holding it. List types are
+   * converted to arrays.
+   *
+   * @param valueType value type to convert
+   * @return {@link Schema} of a union of null and the value's type
+   */
+  public static Schema toAvroSchema(ValueType.Enum valueType) {
+    Type type = VALUE_TYPE_TO_AVRO_TYPE.get(valueType);
+    if (type == null) {
+      throw new IllegalArgumentException(
+          String.format("Value type '%s' cannot be stored in Avro files", valueType));
+    }
+    Schema schema = Schema.create(type);
+    if (valueType.name().endsWith("_LIST")) {
+      schema = Schema.createArray(schema);
+    }
+    return Schema.createUnion(Schema.create(Type.NULL), schema);
+  }
+
+  /**
+   * Converts a {@link ValueProto.Value} to its Avro representation.
+   *
+   * @param value value to convert
+   * @return Avro value, or null if the value is not set
+   */
+  public static Object toAvroValue(ValueProto.Value value) {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        return ByteBuffer.wrap(value.getBytesVal().toByteArray());
+      case STRING_VAL:
+        return value.getStringVal();
+      case INT32_VAL:
+        return value.getInt32Val();
+      case INT64_VAL:
+        return value.getInt64Val();
+      case DOUBLE_VAL:
+        return value.getDoubleVal();
+      case FLOAT_VAL:
+        return value.getFloatVal();
+      case BOOL_VAL:
+        return value.getBoolVal();
+      case BYTES_LIST_VAL:
+        List<ByteBuffer> bytesList = new ArrayList<>();
+        value
+            .getBytesListVal()
+            .getValList()
+            .forEach(b -> bytesList.add(ByteBuffer.wrap(b.toByteArray())));
+        return bytesList;
+      case STRING_LIST_VAL:
+        return new ArrayList<>(value.getStringListVal().getValList());
+      case INT32_LIST_VAL:
+        return new ArrayList<>(value.getInt32ListVal().getValList());
+      case INT64_LIST_VAL:
+        return new ArrayList<>(value.getInt64ListVal().getValList());
+      case DOUBLE_LIST_VAL:
+        return new ArrayList<>(value.getDoubleListVal().getValList());
+      case FLOAT_LIST_VAL:
+        return new ArrayList<>(value.getFloatListVal().getValList());
+      case BOOL_LIST_VAL:
+        return new ArrayList<>(value.getBoolListVal().getValList());
+      case VAL_NOT_SET:
+      default:
+        return null;
+    }
+  }
+}
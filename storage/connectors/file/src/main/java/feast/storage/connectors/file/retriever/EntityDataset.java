@@ -0,0 +1,166 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Entity rows to retrieve features for, read from Avro files and held in memory column by column.
+ * Event timestamps are held as microseconds since the epoch.
+ */
+class EntityDataset {
+
+  private final Schema schema;
+  private final long[] eventTimestamps;
+  private final Map<String, Object[]> columns;
+
+  private EntityDataset(Schema schema, long[] eventTimestamps, Map<String, Object[]> columns) {
+    this.schema = schema;
+    this.eventTimestamps = eventTimestamps;
+    this.columns = columns;
+  }
+
+  /**
+   * Read the entity rows of the given files, which must all have the schema of the first file.
+   *
+   * @param files Avro files holding an event_timestamp column and entity columns
+   * @return {@link EntityDataset}
+   */
+  static EntityDataset read(List<Path> files) throws IOException {
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException("No files found for the entity dataset");
+    }
+    Schema schema;
+    try (DataFileReader<GenericRecord> reader =
+        new DataFileReader<>(files.get(0).toFile(), new GenericDatumReader<>())) {
+      schema = reader.getSchema();
+    }
+    Field eventTimestampField = schema.getField(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN);
+    if (eventTimestampField == null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Entity dataset is missing the column '%s'", FeatureSetFiles.EVENT_TIMESTAMP_COLUMN));
+    }
+    TimeUnit eventTimestampUnit = getTimestampUnit(eventTimestampField);
+
+    List<Long> eventTimestamps = new ArrayList<>();
+    Map<String, List<Object>> columns = new HashMap<>();
+    for (Field field : schema.getFields()) {
+      if (!field.equals(eventTimestampField)) {
+        columns.put(field.name(), new ArrayList<>());
+      }
+    }
+    for (Path file : files) {
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file.toFile(), new GenericDatumReader<>(null, schema))) {
+        for (GenericRecord record : reader) {
+          Object eventTimestamp = record.get(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN);
+          if (eventTimestamp == null) {
+            throw new IllegalArgumentException(
+                String.format("Entity row in file '%s' has no event timestamp", file));
+          }
+          eventTimestamps.add(eventTimestampUnit.toMicros((Long) eventTimestamp));
+          columns.forEach((name, values) -> values.add(record.get(name)));
+        }
+      }
+    }
+
+    long[] eventTimestampArray = new long[eventTimestamps.size()];
+    for (int i = 0; i < eventTimestampArray.length; i++) {
+      eventTimestampArray[i] = eventTimestamps.get(i);
+    }
+    Map<String, Object[]> columnArrays = new HashMap<>();
+    columns.forEach((name, values) -> columnArrays.put(name, values.toArray()));
+    return new EntityDataset(schema, eventTimestampArray, columnArrays);
+  }
+
+  /** @return schema of the files the entity rows were read from */
+  Schema getSchema() {
+    return schema;
+  }
+
+  /** @return number of entity rows */
+  int size() {
+    return eventTimestamps.length;
+  }
+
+  /** @return event timestamps of the entity rows, in microseconds since the epoch */
+  long[] getEventTimestamps() {
+    return eventTimestamps;
+  }
+
+  /**
+   * @param name name of a column other than event_timestamp
+   * @return values of the column, or null if there is no such column
+   */
+  Object[] getColumn(String name) {
+    return columns.get(name);
+  }
+
+  /**
+   * Normalize a value read from an Avro file so that it can be compared to values of the same
+   * entity read from other files: strings are converted to {@link String} and integers to {@link
+   * Long}.
+   */
+  static Object normalize(Object value) {
+    if (value instanceof Utf8) {
+      return value.toString();
+    }
+    if (value instanceof Integer) {
+      return ((Integer) value).longValue();
+    }
+    return value;
+  }
+
+  private static TimeUnit getTimestampUnit(Field field) {
+    Schema schema = field.schema();
+    if (schema.getType() == Type.UNION) {
+      for (Schema type : schema.getTypes()) {
+        if (type.getType() != Type.NULL) {
+          schema = type;
+        }
+      }
+    }
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType instanceof LogicalTypes.TimestampMicros) {
+      return TimeUnit.MICROSECONDS;
+    }
+    if (logicalType instanceof LogicalTypes.TimestampMillis) {
+      return TimeUnit.MILLISECONDS;
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "Column '%s' of the entity dataset must be a timestamp-millis or timestamp-micros",
+            field.name()));
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import com.google.auto.value.AutoValue;
+import feast.proto.serving.ServingAPIProto;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.api.retriever.HistoricalRetriever;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import feast.storage.connectors.file.common.TypeUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.slf4j.Logger;
+
+/**
+ * Retrieves historical features from the Avro files of a file store, performing the point-in-time
+ * join in process. Results are written as Avro files to the staging location.
+ *
+ * <p>The entity dataset and the joined features are held in memory, so this retriever is meant for
+ * small and mid-size datasets.
+ */
+@AutoValue
+public abstract class FileHistoricalRetriever implements HistoricalRetriever {
+
+  private static final Logger log =
+      org.slf4j.LoggerFactory.getLogger(FileHistoricalRetriever.class);
+
+  private static final String RECORD_NAME = "Root";
+  private static final int MIN_ROWS_PER_FILE = 100000;
+
+  public static HistoricalRetriever create(Map<String, String> config) {
+    String path = config.get("path");
+    String stagingLocation = config.get("staging_location");
+    if (path == null || stagingLocation == null) {
+      throw new IllegalArgumentException(
+          "Store type FILE requires both a path and a staging location");
+    }
+    if (stagingLocation.endsWith("/")) {
+      stagingLocation = stagingLocation.substring(0, stagingLocation.length() - 1);
+    }
+    return builder()
+        .setStorePath(FeatureSetFiles.toPath(path))
+        .setJobStagingLocation(stagingLocation)
+        .build();
+  }
+
+  public abstract Path storePath();
+
+  public abstract String jobStagingLocation();
+
+  public static Builder builder() {
+    return new AutoValue_FileHistoricalRetriever.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setStorePath(Path storePath);
+
+    public abstract Builder setJobStagingLocation(String jobStagingLocation);
+
+    public abstract FileHistoricalRetriever build();
+  }
+
+  @Override
+  public String getStagingLocation() {
+    return jobStagingLocation();
+  }
+
+  @Override
+  public HistoricalRetrievalResult getHistoricalFeatures(
+      String retrievalId, DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    try {
+      // 1. Read the entity dataset
+      EntityDataset entityDataset = loadEntities(datasetSource);
+
+      // 2. Join the features of each feature set to the entity rows
+      List<Field> featureFields = new ArrayList<>();
+      List<Object[]> featureValues = new ArrayList<>();
+      for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+        List<FeatureReference> featureReferences =
+            featureSetRequest.getFeatureReferences().asList();
+        List<String> features =
+            featureReferences.stream().map(FeatureReference::getName).collect(Collectors.toList());
+        Object[][] values =
+            new PointInTimeJoin(featureSetRequest.getSpec(), features)
+                .join(storePath(), entityDataset);
+        for (int i = 0; i < featureReferences.size(); i++) {
+          featureFields.add(createFeatureField(featureSetRequest, featureReferences.get(i)));
+          featureValues.add(values[i]);
+        }
+      }
+
+      // 3. Write the entity rows with their features to the staging location
+      Path outputDirectory = FeatureSetFiles.toPath(jobStagingLocation()).resolve(retrievalId);
+      List<String> fileUris =
+          writeResults(outputDirectory, entityDataset, featureFields, featureValues);
+      return HistoricalRetrievalResult.success(
+          retrievalId, fileUris, ServingAPIProto.DataFormat.DATA_FORMAT_AVRO);
+    } catch (Exception e) {
+      log.error("Exception has occurred in getHistoricalFeatures method: ", e);
+      return HistoricalRetrievalResult.error(retrievalId, e);
+    }
+  }
+
+  private EntityDataset loadEntities(DatasetSource datasetSource) throws IOException {
+    switch (datasetSource.getDatasetSourceCase()) {
+      case FILE_SOURCE:
+        // Currently only AVRO format is supported
+        if (datasetSource.getFileSource().getDataFormat()
+            != ServingAPIProto.DataFormat.DATA_FORMAT_AVRO) {
+          throw new IllegalArgumentException("Invalid file format, only AVRO is supported.");
+        }
+        List<Path> files = new ArrayList<>();
+        for (String uri : datasetSource.getFileSource().getFileUrisList()) {
+          files.addAll(FeatureSetFiles.resolve(uri));
+        }
+        return EntityDataset.read(files);
+      case DATASETSOURCE_NOT_SET:
+      default:
+        throw new IllegalArgumentException("Data source must be set.");
+    }
+  }
+
+  private static Field createFeatureField(
+      FeatureSetRequest featureSetRequest, FeatureReference featureReference) {
+    String name =
+        featureReference.getFeatureSet().isEmpty()
+            ? featureReference.getName()
+            : String.format(
+                "%s__%s", featureSetRequest.getSpec().getName(), featureReference.getName());
+    Schema schema =
+        featureSetRequest.getSpec().getFeaturesList().stream()
+            .filter(feature -> feature.getName().equals(featureReference.getName()))
+            .findFirst()
+            .map(feature -> TypeUtil.toAvroSchema(feature.getValueType()))
+            .orElseThrow(
+                () ->
+                    new IllegalArgumentException(
+                        String.format(
+                            "Feature '%s' is not part of feature set '%s'",
+                            featureReference.getName(), featureSetRequest.getSpec().getName())));
+    return new Field(name, schema, null, JsonProperties.NULL_VALUE);
+  }
+
+  /**
+   * Write the entity rows and their features to Avro files, which are written in parallel, each
+   * holding a contiguous range of rows.
+   *
+   * @return URIs of the files written
+   */
+  private List<String> writeResults(
+      Path outputDirectory,
+      EntityDataset entityDataset,
+      List<Field> featureFields,
+      List<Object[]> featureValues)
+      throws IOException {
+    List<Field> fields = new ArrayList<>();
+    fields.add(
+        new Field(
+            FeatureSetFiles.EVENT_TIMESTAMP_COLUMN,
+            FeatureSetFiles.timestampSchema(),
+            null,
+            (Object) null));
+    List<Object[]> columns = new ArrayList<>();
+    columns.add(null);
+    for (Field field : entityDataset.getSchema().getFields()) {
+      if (!field.name().equals(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN)) {
+        fields.add(new Field(field.name(), field.schema(), field.doc(), field.defaultVal()));
+        columns.add(entityDataset.getColumn(field.name()));
+      }
+    }
+    fields.addAll(featureFields);
+    columns.addAll(featureValues);
+    Schema schema = Schema.createRecord(RECORD_NAME, null, null, false, fields);
+
+    Files.createDirectories(outputDirectory);
+    int size = entityDataset.size();
+    int fileCount =
+        Math.max(
+            1,
+            Math.min(
+                ForkJoinPool.getCommonPoolParallelism(),
+                (size + MIN_ROWS_PER_FILE - 1) / MIN_ROWS_PER_FILE));
+    int rowsPerFile = (size + fileCount - 1) / fileCount;
+    return IntStream.range(0, fileCount)
+        .parallel()
+        .mapToObj(
+            i -> {
+              Path file = outputDirectory.resolve(String.format("part-%05d.avro", i));
+              int from = Math.min(size, i * rowsPerFile);
+              int to = Math.min(size, from + rowsPerFile);
+              writeRows(file, schema, entityDataset.getEventTimestamps(), columns, from, to);
+              return file.toUri().toString();
+            })
+        .collect(Collectors.toList());
+  }
+
+  private static void writeRows(
+      Path file, Schema schema, long[] eventTimestamps, List<Object[]> columns, int from, int to) {
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.setCodec(CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL));
+      writer.create(schema, file.toFile());
+      for (int row = from; row < to; row++) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put(0, eventTimestamps[row]);
+        for (int column = 1; column < columns.size(); column++) {
+          record.put(column, columns.get(column)[row]);
+        }
+        writer.append(record);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to write file '%s'", file), e);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Point-in-time join of the features of a feature set to the rows of an entity dataset.
+ *
+ * <p>Each entity row gets the feature values of the latest feature row of the same entity whose
+ * event timestamp is no later than the entity row's. If the feature set has a max age, the feature
+ * row must also be less than max age older than the entity row. Feature rows with the same event
+ * timestamp are ordered by their created timestamp.
+ *
+ * <p>Feature files are read in parallel, with only the columns needed for the join, and feature
+ * rows outside the time range of the entity dataset or of entities not in it are dropped as they
+ * are read. Rows are then hash partitioned by entity and the partitions are joined in parallel.
+ * Within a partition, the rows of each entity are sorted by event timestamp and merged.
+ */
+class PointInTimeJoin {
+
+  private final FeatureSetSpec spec;
+  private final List<String> features;
+  private final List<String> entities;
+  private final long maxAgeMicros;
+  private final int partitions;
+
+  /**
+   * @param spec spec of the feature set
+   * @param features names of the features to join
+   */
+  PointInTimeJoin(FeatureSetSpec spec, List<String> features) {
+    this.spec = spec;
+    this.features = features;
+    this.entities =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).collect(Collectors.toList());
+    this.maxAgeMicros = TimeUnit.SECONDS.toMicros(spec.getMaxAge().getSeconds());
+    this.partitions = ForkJoinPool.getCommonPoolParallelism() * 4;
+  }
+
+  /**
+   * Join the feature set's features stored under the given path to the entity rows.
+   *
+   * @param storePath path of the file store
+   * @param entityDataset entity rows to join the features to
+   * @return values of each feature, in the order of the features, for each entity row
+   */
+  Object[][] join(Path storePath, EntityDataset entityDataset) throws IOException {
+    Object[][] values = new Object[features.size()][entityDataset.size()];
+    if (entityDataset.size() == 0) {
+      return values;
+    }
+    long[] eventTimestamps = entityDataset.getEventTimestamps();
+    long minTimestamp = Arrays.stream(eventTimestamps).min().getAsLong();
+    long maxTimestamp = Arrays.stream(eventTimestamps).max().getAsLong();
+    long minFeatureTimestamp = maxAgeMicros == 0 ? Long.MIN_VALUE : minTimestamp - maxAgeMicros;
+
+    // Group the entity rows by entity and partition
+    List<Map<List<Object>, List<Integer>>> entityRows = new ArrayList<>();
+    for (int i = 0; i < partitions; i++) {
+      entityRows.add(new HashMap<>());
+    }
+    List<List<Object>> keys = getEntityKeys(entityDataset);
+    for (int row = 0; row < keys.size(); row++) {
+      List<Object> key = keys.get(row);
+      entityRows.get(partition(key)).computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+    Set<List<Object>> entityKeys = new HashSet<>(keys);
+
+    // Read the feature rows that may be joined to an entity row
+    List<Path> files = listFiles(storePath, minFeatureTimestamp, maxTimestamp);
+    Schema schema = FeatureSetFiles.getSchema(spec, features);
+    List<List<FeatureRow>> featureRows =
+        files
+            .parallelStream()
+            .map(file -> read(file, schema, entityKeys, minFeatureTimestamp, maxTimestamp))
+            .collect(Collectors.toList());
+    List<List<FeatureRow>> partitionedFeatureRows = new ArrayList<>();
+    for (int i = 0; i < partitions; i++) {
+      partitionedFeatureRows.add(new ArrayList<>());
+    }
+    for (List<FeatureRow> fileRows : featureRows) {
+      for (FeatureRow featureRow : fileRows) {
+        partitionedFeatureRows.get(partition(featureRow.key)).add(featureRow);
+      }
+    }
+
+    IntStream.range(0, partitions)
+        .parallel()
+        .forEach(
+            i ->
+                joinPartition(
+                    entityRows.get(i), partitionedFeatureRows.get(i), eventTimestamps, values));
+    return values;
+  }
+
+  private void joinPartition(
+      Map<List<Object>, List<Integer>> entityRows,
+      List<FeatureRow> featureRows,
+      long[] eventTimestamps,
+      Object[][] values) {
+    Map<List<Object>, List<FeatureRow>> featureRowsByEntity =
+        featureRows.stream().collect(Collectors.groupingBy(featureRow -> featureRow.key));
+    for (Map.Entry<List<Object>, List<Integer>> entity : entityRows.entrySet()) {
+      List<FeatureRow> entityFeatureRows = featureRowsByEntity.get(entity.getKey());
+      if (entityFeatureRows == null) {
+        continue;
+      }
+      entityFeatureRows.sort(
+          Comparator.<FeatureRow>comparingLong(featureRow -> featureRow.eventTimestamp)
+              .thenComparingLong(featureRow -> featureRow.createdTimestamp));
+      List<Integer> rows = entity.getValue();
+      rows.sort(Comparator.comparingLong(row -> eventTimestamps[row]));
+
+      int next = 0;
+      FeatureRow latest = null;
+      for (int row : rows) {
+        long eventTimestamp = eventTimestamps[row];
+        while (next < entityFeatureRows.size()
+            && entityFeatureRows.get(next).eventTimestamp <= eventTimestamp) {
+          latest = entityFeatureRows.get(next++);
+        }
+        if (latest == null
+            || (maxAgeMicros > 0 && latest.eventTimestamp <= eventTimestamp - maxAgeMicros)) {
+          continue;
+        }
+        for (int feature = 0; feature < features.size(); feature++) {
+          values[feature][row] = latest.values[feature];
+        }
+      }
+    }
+  }
+
+  private List<List<Object>> getEntityKeys(EntityDataset entityDataset) {
+    List<Object[]> columns = new ArrayList<>();
+    for (String entity : entities) {
+      Object[] column = entityDataset.getColumn(entity);
+      if (column == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Entity dataset is missing the column '%s' of feature set '%s/%s'",
+                entity, spec.getProject(), spec.getName()));
+      }
+      columns.add(column);
+    }
+    List<List<Object>> keys = new ArrayList<>(entityDataset.size());
+    for (int row = 0; row < entityDataset.size(); row++) {
+      List<Object> key = new ArrayList<>(columns.size());
+      for (Object[] column : columns) {
+        key.add(EntityDataset.normalize(column[row]));
+      }
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  private List<Path> listFiles(Path storePath, long minTimestamp, long maxTimestamp)
+      throws IOException {
+    List<LocalDate> partitionDates = FeatureSetFiles.listPartitions(storePath, spec);
+    if (partitionDates.isEmpty()) {
+      return new ArrayList<>();
+    }
+    LocalDate from = minTimestamp == Long.MIN_VALUE ? partitionDates.get(0) : toDate(minTimestamp);
+    return FeatureSetFiles.listFiles(storePath, spec, from, toDate(maxTimestamp));
+  }
+
+  private List<FeatureRow> read(
+      Path file,
+      Schema schema,
+      Set<List<Object>> entityKeys,
+      long minTimestamp,
+      long maxTimestamp) {
+    List<FeatureRow> featureRows = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader =
+        new DataFileReader<>(file.toFile(), new GenericDatumReader<>(null, schema))) {
+      for (GenericRecord record : reader) {
+        long eventTimestamp = (Long) record.get(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN);
+        if (eventTimestamp > maxTimestamp || eventTimestamp < minTimestamp) {
+          continue;
+        }
+        List<Object> key = new ArrayList<>(entities.size());
+        for (String entity : entities) {
+          key.add(EntityDataset.normalize(record.get(entity)));
+        }
+        if (!entityKeys.contains(key)) {
+          continue;
+        }
+        Object[] featureValues = new Object[features.size()];
+        for (int feature = 0; feature < features.size(); feature++) {
+          featureValues[feature] = record.get(features.get(feature));
+        }
+        featureRows.add(
+            new FeatureRow(
+                key,
+                eventTimestamp,
+                (Long) record.get(FeatureSetFiles.CREATED_TIMESTAMP_COLUMN),
+                featureValues));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to read file '%s'", file), e);
+    }
+    return featureRows;
+  }
+
+  private int partition(List<Object> key) {
+    return Math.floorMod(key.hashCode(), partitions);
+  }
+
+  private static LocalDate toDate(long micros) {
+    return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC).toLocalDate();
+  }
+
+  /** Feature row holding only the columns needed for the join. */
+  private static class FeatureRow {
+
+    private final List<Object> key;
+    private final long eventTimestamp;
+    private final long createdTimestamp;
+    private final Object[] values;
+
+    FeatureRow(List<Object> key, long eventTimestamp, long createdTimestamp, Object[] values) {
+      this.key = key;
+      this.eventTimestamp = eventTimestamp;
+      this.createdTimestamp = createdTimestamp;
+      this.values = values;
+    }
+  }
+}
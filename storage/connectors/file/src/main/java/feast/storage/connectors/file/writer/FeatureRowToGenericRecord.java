@@ -0,0 +1,67 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import com.google.protobuf.Timestamp;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import feast.storage.connectors.file.common.TypeUtil;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+
+/**
+ * Converts a {@link FeatureRow} to a {@link GenericRecord} of its feature set's schema. Fields that
+ * are not part of the schema are dropped.
+ */
+public class FeatureRowToGenericRecord extends SimpleFunction<FeatureRow, GenericRecord> {
+
+  // Avro schemas are not serializable, so the schema is shipped as JSON and parsed once per worker.
+  private final String schemaJson;
+  private transient Schema schema;
+
+  public FeatureRowToGenericRecord(Schema schema) {
+    this.schemaJson = schema.toString();
+    this.schema = schema;
+  }
+
+  @Override
+  public GenericRecord apply(FeatureRow row) {
+    if (schema == null) {
+      schema = new Schema.Parser().parse(schemaJson);
+    }
+    GenericRecord record = new GenericData.Record(schema);
+    record.put(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN, toMicros(row.getEventTimestamp()));
+    record.put(
+        FeatureSetFiles.CREATED_TIMESTAMP_COLUMN,
+        TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    for (Field field : row.getFieldsList()) {
+      if (schema.getField(field.getName()) != null) {
+        record.put(field.getName(), TypeUtil.toAvroValue(field.getValue()));
+      }
+    }
+    return record;
+  }
+
+  private static long toMicros(Timestamp timestamp) {
+    return TimeUnit.SECONDS.toMicros(timestamp.getSeconds())
+        + TimeUnit.NANOSECONDS.toMicros(timestamp.getNanos());
+  }
+}
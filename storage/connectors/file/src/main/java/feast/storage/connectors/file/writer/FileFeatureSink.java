@@ -0,0 +1,97 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import com.google.auto.value.AutoValue;
+import feast.proto.core.FeatureSetProto.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store.FileConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FeatureSink;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Duration;
+
+@AutoValue
+public abstract class FileFeatureSink implements FeatureSink {
+
+  private static final int DEFAULT_WRITE_INTERVAL_SECONDS = 60;
+
+  /**
+   * Initialize a {@link FileFeatureSink} from a {@link FileConfig}.
+   *
+   * @param fileConfig {@link FileConfig}
+   * @param featureSetSpecs specs of the feature sets to write, by reference
+   * @return {@link FileFeatureSink}
+   */
+  public static FeatureSink fromConfig(
+      FileConfig fileConfig, Map<String, FeatureSetSpec> featureSetSpecs) {
+    return builder().setFileConfig(fileConfig).setFeatureSetSpecs(featureSetSpecs).build();
+  }
+
+  public abstract FileConfig getFileConfig();
+
+  public abstract Map<String, FeatureSetSpec> getFeatureSetSpecs();
+
+  public static Builder builder() {
+    return new AutoValue_FileFeatureSink.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setFileConfig(FileConfig fileConfig);
+
+    public abstract Builder setFeatureSetSpecs(Map<String, FeatureSetSpec> featureSetSpecs);
+
+    public abstract FileFeatureSink build();
+  }
+
+  /** @param featureSet Feature set to be written */
+  @Override
+  public void prepareWrite(FeatureSet featureSet) {
+    Path featureSetDirectory =
+        FeatureSetFiles.toPath(getFileConfig().getPath())
+            .resolve(featureSet.getSpec().getProject())
+            .resolve(featureSet.getSpec().getName());
+    try {
+      Files.createDirectories(featureSetDirectory);
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Failed to create directory '%s' for feature set files. Please check that it is"
+                  + " writable by Feast.",
+              featureSetDirectory),
+          e);
+    }
+  }
+
+  @Override
+  public PTransform<PCollection<FeatureRow>, WriteResult> writer() {
+    int writeIntervalSeconds = getFileConfig().getWriteIntervalSeconds();
+    return new FileWrite(
+        FeatureSetFiles.toPath(getFileConfig().getPath()).toString(),
+        Duration.standardSeconds(
+            writeIntervalSeconds > 0 ? writeIntervalSeconds : DEFAULT_WRITE_INTERVAL_SECONDS),
+        getFeatureSetSpecs());
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.AvroCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.WriteFilesResult;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Partition;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.Wait;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.joda.time.Duration;
+
+/**
+ * A {@link PTransform} that writes {@link FeatureRow FeatureRows} to the Avro files of a file
+ * store, and returns a {@link WriteResult} containing the rows of unknown feature sets.
+ *
+ * <p>Rows are collected in fixed windows of the write interval, and each window's rows are written
+ * to one file per feature set partition. Rows of each feature set are converted to Avro records of
+ * its schema before being written, so that they are encoded with that schema between steps. Since
+ * files are only complete once the window closes, the rows of a window are emitted as successful
+ * writes once its files have been written.
+ */
+public class FileWrite extends PTransform<PCollection<FeatureRow>, WriteResult> {
+
+  private static final TupleTag<FeatureRow> KNOWN_ROWS = new TupleTag<FeatureRow>() {};
+  private static final TupleTag<FailedElement> UNKNOWN_ROWS = new TupleTag<FailedElement>() {};
+
+  private final String path;
+  private final Duration writeInterval;
+  private final Map<String, FeatureSetSpec> featureSetSpecs;
+
+  public FileWrite(
+      String path, Duration writeInterval, Map<String, FeatureSetSpec> featureSetSpecs) {
+    this.path = path;
+    this.writeInterval = writeInterval;
+    this.featureSetSpecs = featureSetSpecs;
+  }
+
+  @Override
+  public WriteResult expand(PCollection<FeatureRow> input) {
+    PCollectionTuple rows =
+        input.apply(
+            "FilterUnknownFeatureSets",
+            ParDo.of(new FilterUnknownFeatureSets(featureSetSpecs))
+                .withOutputTags(KNOWN_ROWS, TupleTagList.of(UNKNOWN_ROWS)));
+
+    PCollection<FeatureRow> windowedRows =
+        rows.get(KNOWN_ROWS)
+            .setCoder(input.getCoder())
+            .apply(
+                "WindowFeatureRows",
+                Window.<FeatureRow>into(FixedWindows.of(writeInterval))
+                    .withAllowedLateness(Duration.ZERO));
+    if (featureSetSpecs.isEmpty()) {
+      return WriteResult.in(input.getPipeline(), windowedRows, rows.get(UNKNOWN_ROWS));
+    }
+
+    List<String> featureSetReferences = new ArrayList<>(featureSetSpecs.keySet());
+    featureSetReferences.sort(String::compareTo);
+    PCollectionList<FeatureRow> rowsByFeatureSet =
+        windowedRows.apply(
+            "PartitionByFeatureSet",
+            Partition.of(
+                featureSetReferences.size(),
+                (FeatureRow row, int partitions) ->
+                    featureSetReferences.indexOf(row.getFeatureSet())));
+
+    List<PCollection<?>> writtenFiles = new ArrayList<>();
+    for (int i = 0; i < featureSetReferences.size(); i++) {
+      String featureSetReference = featureSetReferences.get(i);
+      Schema schema = FeatureSetFiles.getSchema(featureSetSpecs.get(featureSetReference));
+      WriteFilesResult<String> result =
+          rowsByFeatureSet
+              .get(i)
+              .apply(
+                  String.format("ConvertToAvro/%s", featureSetReference),
+                  MapElements.via(new FeatureRowToGenericRecord(schema)))
+              .setCoder(AvroCoder.of(schema))
+              .apply(
+                  String.format("WriteToFiles/%s", featureSetReference),
+                  FileIO.<String, GenericRecord>writeDynamic()
+                      .by(new GetPartition(featureSetReference))
+                      .withDestinationCoder(StringUtf8Coder.of())
+                      .via(AvroIO.sink(schema))
+                      .to(path)
+                      .withNaming(
+                          partition -> FileIO.Write.defaultNaming(partition + "/part", ".avro"))
+                      .withNumShards(1));
+      writtenFiles.add(result.getPerDestinationOutputFilenames());
+    }
+
+    // Rows of a window are held back until the files of the window have been written.
+    PCollection<FeatureRow> successfulInserts =
+        windowedRows.apply(
+            "WaitForFilesWritten", Wait.on(writtenFiles.toArray(new PCollection<?>[0])));
+
+    return WriteResult.in(input.getPipeline(), successfulInserts, rows.get(UNKNOWN_ROWS));
+  }
+
+  private static class FilterUnknownFeatureSets extends DoFn<FeatureRow, FeatureRow> {
+
+    private final Map<String, FeatureSetSpec> featureSetSpecs;
+
+    FilterUnknownFeatureSets(Map<String, FeatureSetSpec> featureSetSpecs) {
+      this.featureSetSpecs = featureSetSpecs;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context) {
+      FeatureRow row = context.element();
+      if (featureSetSpecs.containsKey(row.getFeatureSet())) {
+        context.output(row);
+        return;
+      }
+      context.output(
+          UNKNOWN_ROWS,
+          FailedElement.newBuilder()
+              .setJobName(context.getPipelineOptions().getJobName())
+              .setTransformName("FileWrite")
+              .setPayload(row.toString())
+              .setErrorMessage(
+                  String.format("Feature set '%s' is not known to the sink", row.getFeatureSet()))
+              .build());
+    }
+  }
+
+  /** Gets the partition of a feature set's record, by the UTC date of its event timestamp. */
+  private static class GetPartition implements SerializableFunction<GenericRecord, String> {
+
+    private final String featureSetReference;
+
+    GetPartition(String featureSetReference) {
+      this.featureSetReference = featureSetReference;
+    }
+
+    @Override
+    public String apply(GenericRecord record) {
+      long eventTimestampMicros = (Long) record.get(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN);
+      LocalDate date =
+          Instant.EPOCH
+              .plus(eventTimestampMicros, ChronoUnit.MICROS)
+              .atOffset(ZoneOffset.UTC)
+              .toLocalDate();
+      return FeatureSetFiles.getPartition(featureSetReference, date);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.google.protobuf.Duration;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.DatasetSource.FileSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileHistoricalRetrieverTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  // 2020-01-01T00:00:00Z
+  private static final long DAY_ONE_MICROS = TimeUnit.SECONDS.toMicros(1577836800L);
+  private static final long HOUR_MICROS = TimeUnit.HOURS.toMicros(1);
+
+  private FeatureSetSpec spec;
+  private FileHistoricalRetriever retriever;
+
+  @Before
+  public void setUp() throws IOException {
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("project")
+            .setName("driver")
+            .addEntities(EntitySpec.newBuilder().setName("driver_id").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(Enum.INT64))
+            .setMaxAge(Duration.newBuilder().setSeconds(3600))
+            .build();
+    retriever =
+        FileHistoricalRetriever.builder()
+            .setStorePath(folder.newFolder("store").toPath())
+            .setJobStagingLocation(folder.newFolder("staging").toURI().toString())
+            .build();
+
+    // Driver 1 has rows at 00:00 and 02:00 of day one, the latter written twice. Driver 2 has a
+    // row at 23:30 of day one, which falls into the partition of that day.
+    writeFeatureRows(
+        LocalDate.of(2020, 1, 1),
+        Arrays.asList(
+            featureRow(1, DAY_ONE_MICROS, DAY_ONE_MICROS, 10),
+            featureRow(1, DAY_ONE_MICROS + 2 * HOUR_MICROS, DAY_ONE_MICROS + 3 * HOUR_MICROS, 20),
+            featureRow(1, DAY_ONE_MICROS + 2 * HOUR_MICROS, DAY_ONE_MICROS + 4 * HOUR_MICROS, 21),
+            featureRow(
+                2, DAY_ONE_MICROS + 23 * HOUR_MICROS + HOUR_MICROS / 2, DAY_ONE_MICROS, 30)));
+  }
+
+  @Test
+  public void shouldJoinLatestFeatureValuesAsOfEntityTimestamps() throws IOException {
+    String entities =
+        writeEntityRows(
+            new long[] {1, 1, 1, 2, 3},
+            new long[] {
+              DAY_ONE_MICROS + HOUR_MICROS / 2,
+              DAY_ONE_MICROS + 2 * HOUR_MICROS,
+              DAY_ONE_MICROS + 3 * HOUR_MICROS,
+              DAY_ONE_MICROS + 24 * HOUR_MICROS,
+              DAY_ONE_MICROS + 24 * HOUR_MICROS
+            });
+
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            "retrieval", datasetSource(entities, DataFormat.DATA_FORMAT_AVRO), request());
+
+    assertThat(result.hasError(), equalTo(false));
+    assertThat(result.getDataFormat(), equalTo(DataFormat.DATA_FORMAT_AVRO));
+    List<GenericRecord> records = readRecords(result.getFileUris());
+    assertThat(records.size(), equalTo(5));
+    Map<Long, Object> trips = new HashMap<>();
+    for (GenericRecord record : records) {
+      trips.put(
+          (Long) record.get("event_timestamp") * 10 + (Long) record.get("driver_id"),
+          record.get("driver__trips"));
+    }
+    // Within the max age of the row at 00:00
+    assertThat(trips.get((DAY_ONE_MICROS + HOUR_MICROS / 2) * 10 + 1), equalTo(10L));
+    // Of the rows at 02:00, the one created last is returned
+    assertThat(trips.get((DAY_ONE_MICROS + 2 * HOUR_MICROS) * 10 + 1), equalTo(21L));
+    // The latest row is exactly the max age old
+    assertThat(trips.get((DAY_ONE_MICROS + 3 * HOUR_MICROS) * 10 + 1), nullValue());
+    // The latest row is in the partition of the previous day
+    assertThat(trips.get((DAY_ONE_MICROS + 24 * HOUR_MICROS) * 10 + 2), equalTo(30L));
+    // There are no rows of the entity
+    assertThat(trips.get((DAY_ONE_MICROS + 24 * HOUR_MICROS) * 10 + 3), nullValue());
+  }
+
+  @Test
+  public void shouldReturnErrorForUnsupportedDataFormat() throws IOException {
+    String entities = writeEntityRows(new long[] {1}, new long[] {DAY_ONE_MICROS});
+
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            "retrieval", datasetSource(entities, DataFormat.DATA_FORMAT_INVALID), request());
+
+    assertThat(result.hasError(), equalTo(true));
+    assertThat(result.getError(), equalTo("Invalid file format, only AVRO is supported."));
+  }
+
+  private List<FeatureSetRequest> request() {
+    return Collections.singletonList(
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(
+                FeatureReference.newBuilder()
+                    .setProject("project")
+                    .setFeatureSet("driver")
+                    .setName("trips")
+                    .build())
+            .build());
+  }
+
+  private static DatasetSource datasetSource(String uri, DataFormat dataFormat) {
+    return DatasetSource.newBuilder()
+        .setFileSource(FileSource.newBuilder().addFileUris(uri).setDataFormat(dataFormat))
+        .build();
+  }
+
+  private GenericRecord featureRow(
+      long driverId, long eventTimestamp, long createdTimestamp, long trips) {
+    GenericRecord record = new GenericData.Record(FeatureSetFiles.getSchema(spec));
+    record.put(FeatureSetFiles.EVENT_TIMESTAMP_COLUMN, eventTimestamp);
+    record.put(FeatureSetFiles.CREATED_TIMESTAMP_COLUMN, createdTimestamp);
+    record.put("driver_id", driverId);
+    record.put("trips", trips);
+    return record;
+  }
+
+  private void writeFeatureRows(LocalDate date, List<GenericRecord> records) throws IOException {
+    Path directory = FeatureSetFiles.getPartitionDirectory(retriever.storePath(), spec, date);
+    Files.createDirectories(directory);
+    write(directory.resolve("part-00000.avro").toFile(), FeatureSetFiles.getSchema(spec), records);
+  }
+
+  /** Write entity rows in the format users upload them in, with millisecond timestamps. */
+  private String writeEntityRows(long[] driverIds, long[] eventTimestamps) throws IOException {
+    Schema schema =
+        Schema.createRecord(
+            "Entity",
+            null,
+            null,
+            false,
+            Arrays.asList(
+                new Field(
+                    "event_timestamp",
+                    LogicalTypes.timestampMillis().addToSchema(Schema.create(Type.LONG)),
+                    null,
+                    (Object) null),
+                new Field("driver_id", Schema.create(Type.LONG), null, (Object) null)));
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < driverIds.length; i++) {
+      GenericRecord record = new GenericData.Record(schema);
+      record.put("event_timestamp", TimeUnit.MICROSECONDS.toMillis(eventTimestamps[i]));
+      record.put("driver_id", driverIds[i]);
+      records.add(record);
+    }
+    File file = folder.newFile("entities.avro");
+    write(file, schema, records);
+    return file.toURI().toString();
+  }
+
+  private static void write(File file, Schema schema, List<GenericRecord> records)
+      throws IOException {
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.create(schema, file);
+      for (GenericRecord record : records) {
+        writer.append(record);
+      }
+    }
+  }
+
+  private static List<GenericRecord> readRecords(List<String> uris) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    for (String uri : uris) {
+      File file = Paths.get(URI.create(uri)).toFile();
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.forEach(records::add);
+      }
+    }
+    return records;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import static feast.storage.common.testing.TestUtil.field;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store.FileConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.file.common.FeatureSetFiles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileFeatureSinkTest {
+  @Rule public transient TestPipeline p = TestPipeline.create();
+  @Rule public transient TemporaryFolder folder = new TemporaryFolder();
+
+  // 2020-01-01T00:00:00Z
+  private static final long DAY_ONE_SECONDS = 1577836800L;
+
+  private FeatureSetSpec spec;
+  private FileFeatureSink fileFeatureSink;
+
+  @Before
+  public void setUp() {
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setName("fs")
+            .setProject("myproject")
+            .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature").setValueType(Enum.STRING))
+            .build();
+    fileFeatureSink =
+        FileFeatureSink.builder()
+            .setFileConfig(
+                FileConfig.newBuilder().setPath(folder.getRoot().getAbsolutePath()).build())
+            .setFeatureSetSpecs(ImmutableMap.of("myproject/fs", spec))
+            .build();
+  }
+
+  @Test
+  public void shouldWriteRowsToPartitionsOfTheirEventDate() throws IOException {
+    List<FeatureRow> rows =
+        Arrays.asList(
+            featureRow("myproject/fs", 1, "one", DAY_ONE_SECONDS),
+            featureRow("myproject/fs", 2, "two", DAY_ONE_SECONDS + 3600),
+            featureRow("myproject/fs", 3, "three", DAY_ONE_SECONDS + 86400),
+            featureRow("myproject/unknown", 4, "four", DAY_ONE_SECONDS));
+
+    WriteResult result = p.apply(Create.of(rows)).apply(fileFeatureSink.writer());
+    PAssert.that(result.getFailedInserts().apply(Count.globally())).containsInAnyOrder(1L);
+    PAssert.that(result.getSuccessfulInserts()).containsInAnyOrder(rows.subList(0, 3));
+    p.run();
+
+    assertThat(
+        readEntities(LocalDate.of(2020, 1, 1)), equalTo(ImmutableMap.of(1L, "one", 2L, "two")));
+    assertThat(readEntities(LocalDate.of(2020, 1, 2)), equalTo(ImmutableMap.of(3L, "three")));
+  }
+
+  private Map<Long, String> readEntities(LocalDate date) throws IOException {
+    Path partition = FeatureSetFiles.getPartitionDirectory(folder.getRoot().toPath(), spec, date);
+    List<Path> files =
+        Files.list(partition)
+            .filter(file -> file.toString().endsWith(".avro"))
+            .collect(Collectors.toList());
+    Map<Long, String> values = new HashMap<>();
+    for (Path file : files) {
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file.toFile(), new GenericDatumReader<>())) {
+        List<GenericRecord> records = new ArrayList<>();
+        reader.forEach(records::add);
+        for (GenericRecord record : records) {
+          values.put((Long) record.get("entity"), record.get("feature").toString());
+        }
+      }
+    }
+    return values;
+  }
+
+  private static FeatureRow featureRow(
+      String featureSet, int entity, String feature, long eventTimestampSeconds) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet(featureSet)
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(eventTimestampSeconds))
+        .addFields(field("entity", entity, Enum.INT64))
+        .addFields(field("feature", feature, Enum.STRING))
+        .build();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.common;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Helpers for writing feature rows to Redis in event time order. */
+public class EventTimeOrdering {
+
+  private EventTimeOrdering() {}
+
+  /**
+   * Keep only the row with the newest event timestamp for each key in the batch. Of rows with the
+   * same event timestamp, the one that arrived last is kept.
+   *
+   * @param rows feature rows in arrival order
+   * @param keyFunction Redis key of a feature row
+   * @return newest row by Redis key, in the order the keys were first seen
+   */
+  public static Map<ByteBuffer, FeatureRow> getLatestRowsByKey(
+      List<FeatureRow> rows, Function<FeatureRow, byte[]> keyFunction) {
+    Map<ByteBuffer, FeatureRow> latestRows = new LinkedHashMap<>();
+    for (FeatureRow row : rows) {
+      latestRows.merge(
+          ByteBuffer.wrap(keyFunction.apply(row)),
+          row,
+          (current, incoming) ->
+              compareEventTimestamps(incoming, current) >= 0 ? incoming : current);
+    }
+    return latestRows;
+  }
+
+  /**
+   * Compare feature rows by event timestamp.
+   *
+   * @param left feature row
+   * @param right feature row
+   * @return negative, zero or positive if the left row is older, as old or newer than the right
+   */
+  public static int compareEventTimestamps(FeatureRow left, FeatureRow right) {
+    int result =
+        Long.compare(left.getEventTimestamp().getSeconds(), right.getEventTimestamp().getSeconds());
+    return result != 0
+        ? result
+        : Integer.compare(
+            left.getEventTimestamp().getNanos(), right.getEventTimestamp().getNanos());
+  }
+}
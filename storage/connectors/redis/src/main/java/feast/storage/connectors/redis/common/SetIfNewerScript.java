@@ -0,0 +1,203 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.common;
+
+import com.google.protobuf.Timestamp;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisScriptingAsyncCommands;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lua script that writes a serialized FeatureRow to a key unless the FeatureRow already stored under
+ * the key has a newer event timestamp. Of FeatureRows with the same event timestamp, the one written
+ * last is kept, as when rows are deduplicated within a batch by {@link EventTimeOrdering}.
+ *
+ * <p>The script is invoked by its SHA1 digest, so that only the digest is sent with each write. If
+ * Redis does not have the script cached, for example after a restart, the script is sent in full
+ * once, which also caches it again.
+ *
+ * <p>Lua numbers are doubles, so seconds and nanos are compared separately rather than combined
+ * into a single number of nanoseconds, which would lose precision.
+ */
+public class SetIfNewerScript {
+
+  // KEYS[1]: key, ARGV[1]: serialized FeatureRow, ARGV[2], ARGV[3]: event timestamp seconds and
+  // nanos of the FeatureRow. The event timestamp of the stored FeatureRow is read by decoding the
+  // protobuf wire format. Returns 1 if the value was written, 0 otherwise.
+  public static final String SCRIPT =
+      String.join(
+          "\n",
+          // Also returns the one's complement of the low 63 bits, from which negative int64 values
+          // are recovered exactly.
+          "local function varint(s, pos)",
+          "  local result, complement, multiplier = 0, 0, 1",
+          "  while true do",
+          "    local b = string.byte(s, pos)",
+          "    if not b then return nil, pos end",
+          "    pos = pos + 1",
+          "    result = result + (b % 128) * multiplier",
+          "    if multiplier < 2 ^ 63 then",
+          "      complement = complement + (127 - b % 128) * multiplier",
+          "    end",
+          "    if b < 128 then return result, pos, complement end",
+          "    multiplier = multiplier * 128",
+          "  end",
+          "end",
+          "local function fields(s, visit)",
+          "  local pos = 1",
+          "  while pos <= #s do",
+          "    local tag, value, complement",
+          "    tag, pos = varint(s, pos)",
+          "    if not tag then return false end",
+          "    local field, wire = math.floor(tag / 8), tag % 8",
+          "    if wire == 0 then",
+          "      value, pos, complement = varint(s, pos)",
+          "      if not value then return false end",
+          "      visit(field, value, complement)",
+          "    elseif wire == 2 then",
+          "      local size",
+          "      size, pos = varint(s, pos)",
+          "      if not size then return false end",
+          "      visit(field, string.sub(s, pos, pos + size - 1))",
+          "      pos = pos + size",
+          "    elseif wire == 1 then",
+          "      pos = pos + 8",
+          "    elseif wire == 5 then",
+          "      pos = pos + 4",
+          "    else",
+          "      return false",
+          "    end",
+          "  end",
+          "  return pos == #s + 1",
+          "end",
+          "local function event_timestamp(row)",
+          "  local timestamp = ''",
+          "  if not fields(row, function(field, value)",
+          "    if field == 3 and type(value) == 'string' then timestamp = value end",
+          "  end) then return nil end",
+          "  local seconds, nanos = 0, 0",
+          "  if not fields(timestamp, function(field, value, complement)",
+          "    if field == 1 and type(value) == 'number' then",
+          "      if value >= 2 ^ 63 then value = -(complement + 1) end",
+          "      seconds = value",
+          "    elseif field == 2 and type(value) == 'number' then",
+          "      nanos = value",
+          "    end",
+          "  end) then return nil end",
+          "  return seconds, nanos",
+          "end",
+          "local current = redis.call('GET', KEYS[1])",
+          "if current then",
+          "  local seconds, nanos = event_timestamp(current)",
+          "  local new_seconds, new_nanos = tonumber(ARGV[2]), tonumber(ARGV[3])",
+          "  if seconds and (seconds > new_seconds",
+          "      or (seconds == new_seconds and nanos > new_nanos)) then",
+          "    return 0",
+          "  end",
+          "end",
+          "redis.call('SET', KEYS[1], ARGV[1])",
+          "return 1");
+
+  public static final String DIGEST = sha1Hex(SCRIPT);
+
+  private SetIfNewerScript() {}
+
+  /**
+   * Write the value to the key unless the stored value has a newer event timestamp.
+   *
+   * @param commands Redis commands to execute the script with
+   * @param key Redis key
+   * @param value serialized FeatureRow
+   * @param eventTimestamp event timestamp of the FeatureRow
+   * @return future completing with 1 if the value was written, or 0 if the stored value is newer
+   */
+  public static CompletableFuture<Long> execute(
+      RedisScriptingAsyncCommands<byte[], byte[]> commands,
+      byte[] key,
+      byte[] value,
+      Timestamp eventTimestamp) {
+    byte[][] keys = new byte[][] {key};
+    byte[][] args = toArgs(value, eventTimestamp);
+
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    RedisFuture<Long> evalsha = evalsha(commands, key, value, eventTimestamp);
+    evalsha.whenComplete(
+        (written, error) -> {
+          if (error == null) {
+            result.complete(written);
+          } else if (error.getMessage() != null && error.getMessage().startsWith("NOSCRIPT")) {
+            RedisFuture<Long> eval = commands.eval(SCRIPT, ScriptOutputType.INTEGER, keys, args);
+            eval.whenComplete(
+                (evalWritten, evalError) -> {
+                  if (evalError == null) {
+                    result.complete(evalWritten);
+                  } else {
+                    result.completeExceptionally(evalError);
+                  }
+                });
+          } else {
+            result.completeExceptionally(error);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Run the script by its digest only, without falling back to sending the script if the server
+   * does not have it cached. The command then fails with a NOSCRIPT error.
+   *
+   * @param commands Redis commands to execute the script with
+   * @param key Redis key
+   * @param value serialized FeatureRow
+   * @param eventTimestamp event timestamp of the FeatureRow
+   * @return future completing with 1 if the value was written, or 0 if the stored value is newer
+   */
+  public static RedisFuture<Long> evalsha(
+      RedisScriptingAsyncCommands<byte[], byte[]> commands,
+      byte[] key,
+      byte[] value,
+      Timestamp eventTimestamp) {
+    return commands.evalsha(
+        DIGEST, ScriptOutputType.INTEGER, new byte[][] {key}, toArgs(value, eventTimestamp));
+  }
+
+  private static byte[][] toArgs(byte[] value, Timestamp eventTimestamp) {
+    return new byte[][] {
+      value,
+      Long.toString(eventTimestamp.getSeconds()).getBytes(StandardCharsets.UTF_8),
+      Integer.toString(eventTimestamp.getNanos()).getBytes(StandardCharsets.UTF_8)
+    };
+  }
+
+  private static String sha1Hex(String script) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.common.retry.Retriable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Writes batches of feature rows through a {@link RedisIngestionClient}, retrying batches that fail
+ * with retriable errors with backoff.
+ *
+ * <p>Batches are either written synchronously, or sent without waiting for them to be acknowledged
+ * so that several batches are in flight at once. Either way, batches are applied in the order they
+ * were written: when a batch in flight fails with a retriable error, it is resent together with
+ * every batch sent after it, once those have settled, so that the retry never overwrites values
+ * written by a later batch.
+ */
+public class RedisBatchWriter {
+
+  private static final int ACKNOWLEDGEMENT_TIMEOUT_SECONDS = 60;
+
+  private final RedisIngestionClient redisIngestionClient;
+  private final Consumer<List<FeatureRow>> rowWriter;
+  private final Class<? extends Exception> retriableException;
+  private final Deque<InFlightBatch> inFlightBatches = new ArrayDeque<>();
+
+  /**
+   * @param redisIngestionClient client to write through
+   * @param rowWriter issues the commands writing the given rows on the client
+   * @param retriableException type of the errors after which a batch is retried
+   */
+  public RedisBatchWriter(
+      RedisIngestionClient redisIngestionClient,
+      Consumer<List<FeatureRow>> rowWriter,
+      Class<? extends Exception> retriableException) {
+    this.redisIngestionClient = redisIngestionClient;
+    this.rowWriter = rowWriter;
+    this.retriableException = retriableException;
+  }
+
+  /**
+   * Write the rows and wait until they have been acknowledged, retrying with backoff.
+   *
+   * @param rows feature rows to write
+   * @throws Exception if the rows could not be written
+   */
+  public void write(List<FeatureRow> rows) throws Exception {
+    redisIngestionClient
+        .getBackOffExecutor()
+        .execute(
+            new Retriable() {
+              @Override
+              public void execute() throws ExecutionException, InterruptedException {
+                if (!redisIngestionClient.isConnected()) {
+                  redisIngestionClient.connect();
+                }
+                rowWriter.accept(rows);
+                redisIngestionClient.sync();
+              }
+
+              @Override
+              public Boolean isExceptionRetriable(Exception e) {
+                return retriableException.isInstance(e);
+              }
+
+              @Override
+              public void cleanUpAfterFailure() {}
+            });
+  }
+
+  /**
+   * Issue the writes for the rows without waiting for them to be acknowledged. The results are
+   * reported by {@link #complete(int, Consumer, BiConsumer)}.
+   *
+   * @param rows feature rows to write
+   */
+  public void send(List<FeatureRow> rows) {
+    CompletableFuture<Void> acknowledged;
+    try {
+      if (!redisIngestionClient.isConnected()) {
+        redisIngestionClient.connect();
+      }
+      rowWriter.accept(rows);
+      acknowledged = redisIngestionClient.syncAsync();
+    } catch (Exception e) {
+      if (!retriableException.isInstance(e)) {
+        throw e;
+      }
+      acknowledged = new CompletableFuture<>();
+      acknowledged.completeExceptionally(e);
+    }
+    inFlightBatches.add(new InFlightBatch(rows, acknowledged));
+  }
+
+  /**
+   * Report the results of batches in flight that have been acknowledged, oldest first, waiting for
+   * the oldest batches until no more than the given number remain in flight.
+   *
+   * @param maxRemaining number of batches that may remain in flight
+   * @param success called for every row written
+   * @param failure called for every row that could not be written, with the error
+   */
+  public void complete(
+      int maxRemaining, Consumer<FeatureRow> success, BiConsumer<FeatureRow, Exception> failure) {
+    while (!inFlightBatches.isEmpty()
+        && (inFlightBatches.size() > maxRemaining
+            || inFlightBatches.peek().acknowledged.isDone())) {
+      InFlightBatch batch = inFlightBatches.poll();
+      try {
+        batch.acknowledged.get(ACKNOWLEDGEMENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        batch.rows.forEach(success);
+      } catch (ExecutionException e) {
+        if (retriableException.isInstance(e.getCause())) {
+          List<InFlightBatch> batches = new ArrayList<>();
+          batches.add(batch);
+          batches.addAll(inFlightBatches);
+          inFlightBatches.clear();
+          resend(batches, success, failure);
+        } else {
+          Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+          batch.rows.forEach(row -> failure.accept(row, cause));
+        }
+      } catch (Exception e) {
+        batch.rows.forEach(row -> failure.accept(row, e));
+      }
+    }
+  }
+
+  /** Drop the batches in flight without reporting their results. */
+  public void clear() {
+    inFlightBatches.clear();
+  }
+
+  /**
+   * Write the batches again synchronously, in the order they were sent. Later batches may have been
+   * applied already, so they are resent as well after the failed batch, and only once their own
+   * writes have settled.
+   */
+  private void resend(
+      List<InFlightBatch> batches,
+      Consumer<FeatureRow> success,
+      BiConsumer<FeatureRow, Exception> failure) {
+    for (InFlightBatch batch : batches) {
+      try {
+        batch.acknowledged.get(ACKNOWLEDGEMENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        // The batch is resent regardless of its outcome.
+      }
+    }
+    for (InFlightBatch batch : batches) {
+      try {
+        write(batch.rows);
+        batch.rows.forEach(success);
+      } catch (Exception e) {
+        batch.rows.forEach(row -> failure.accept(row, e));
+      }
+    }
+  }
+
+  /** Rows whose writes have been issued, with the future of their acknowledgement. */
+  private static class InFlightBatch {
+    private final List<FeatureRow> rows;
+    private final CompletableFuture<Void> acknowledged;
+
+    InFlightBatch(List<FeatureRow> rows, CompletableFuture<Void> acknowledged) {
+      this.rows = rows;
+      this.acknowledged = acknowledged;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store.RedisConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FeatureRowWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes feature rows to Redis outside of a Beam pipeline, in the same way as {@link
+ * RedisCustomIO.Write} writes each batch.
+ */
+class RedisFeatureRowWriter implements FeatureRowWriter {
+
+  private final RedisCustomIO.Write.WriteDoFn writer;
+
+  RedisFeatureRowWriter(RedisConfig config, Map<String, FeatureSetSpec> featureSetSpecs) {
+    this.writer = new RedisCustomIO.Write.WriteDoFn(config, featureSetSpecs);
+  }
+
+  @Override
+  public void open() {
+    writer.setup();
+    writer.startBundle();
+  }
+
+  @Override
+  public void write(List<FeatureRow> featureRows) throws Exception {
+    writer.executeBatch(featureRows);
+  }
+
+  @Override
+  public void close() {
+    writer.teardown();
+  }
+}
@@ -22,6 +22,7 @@ import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.RedisConfig;
 import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FeatureRowWriter;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import io.lettuce.core.RedisClient;
@@ -30,6 +31,7 @@ import io.lettuce.core.RedisURI;
 import java.util.Map;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
 
 @AutoValue
 public abstract class RedisFeatureSink implements FeatureSink {
@@ -85,4 +87,21 @@ public abstract class RedisFeatureSink implements FeatureSink {
   public PTransform<PCollection<FeatureRow>, WriteResult> writer() {
     return new RedisCustomIO.Write(getRedisConfig(), getFeatureSetSpecs());
   }
+
+  @Override
+  public PTransform<PCollection<FeatureRow>, WriteResult> writer(
+      PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView) {
+    return new RedisCustomIO.Write(getRedisConfig(), getFeatureSetSpecs())
+        .withFeatureSetSpecsView(featureSetSpecsView);
+  }
+
+  @Override
+  public boolean supportsRowWriter() {
+    return true;
+  }
+
+  @Override
+  public FeatureRowWriter rowWriter() {
+    return new RedisFeatureRowWriter(getRedisConfig(), getFeatureSetSpecs());
+  }
 }
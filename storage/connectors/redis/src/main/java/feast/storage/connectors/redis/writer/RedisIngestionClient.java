@@ -16,8 +16,10 @@
  */
 package feast.storage.connectors.redis.writer;
 
+import com.google.protobuf.Timestamp;
 import feast.storage.common.retry.BackOffExecutor;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 public interface RedisIngestionClient extends Serializable {
 
@@ -33,12 +35,31 @@ public interface RedisIngestionClient extends Serializable {
 
   void sync();
 
+  /**
+   * Detach the commands issued since the last sync without waiting for them to complete, so that
+   * further commands can be issued while they are in flight.
+   *
+   * @return future that completes once all detached commands have completed, or completes
+   *     exceptionally if any of them failed
+   */
+  CompletableFuture<Void> syncAsync();
+
   void pexpire(byte[] key, Long expiryMillis);
 
   void append(byte[] key, byte[] value);
 
   void set(byte[] key, byte[] value);
 
+  /**
+   * Set the key to the serialized FeatureRow, unless the FeatureRow already stored under the key
+   * has a newer event timestamp. A FeatureRow with the same event timestamp is replaced.
+   *
+   * @param key Redis key
+   * @param value serialized FeatureRow
+   * @param eventTimestamp event timestamp of the FeatureRow
+   */
+  void setIfNewer(byte[] key, byte[] value, Timestamp eventTimestamp);
+
   void lpush(byte[] key, byte[] value);
 
   void rpush(byte[] key, byte[] value);
@@ -17,16 +17,19 @@
 package feast.storage.connectors.redis.writer;
 
 import com.google.common.collect.Lists;
+import com.google.protobuf.Timestamp;
 import feast.proto.core.StoreProto;
 import feast.storage.common.retry.BackOffExecutor;
+import feast.storage.connectors.redis.common.SetIfNewerScript;
 import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.joda.time.Duration;
 
@@ -38,7 +41,7 @@ public class RedisStandaloneIngestionClient implements RedisIngestionClient {
   private static final int DEFAULT_TIMEOUT = 2000;
   private StatefulRedisConnection<byte[], byte[]> connection;
   private RedisAsyncCommands<byte[], byte[]> commands;
-  private List<RedisFuture> futures = Lists.newArrayList();
+  private List<CompletableFuture<?>> futures = Lists.newArrayList();
 
   public RedisStandaloneIngestionClient(StoreProto.Store.RedisConfig redisConfig) {
     this.host = redisConfig.getHost();
@@ -82,12 +85,20 @@ public class RedisStandaloneIngestionClient implements RedisIngestionClient {
     // Wait for some time for futures to complete
     // TODO: should this be configurable?
     try {
-      LettuceFutures.awaitAll(60, TimeUnit.SECONDS, futures.toArray(new RedisFuture[0]));
+      LettuceFutures.awaitAll(60, TimeUnit.SECONDS, futures.toArray(new Future<?>[0]));
     } finally {
       futures.clear();
     }
   }
 
+  @Override
+  public CompletableFuture<Void> syncAsync() {
+    CompletableFuture<Void> acknowledged =
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    futures.clear();
+    return acknowledged;
+  }
+
   @Override
   public void pexpire(byte[] key, Long expiryMillis) {
     commands.pexpire(key, expiryMillis);
@@ -95,31 +106,36 @@ public class RedisStandaloneIngestionClient implements RedisIngestionClient {
 
   @Override
   public void append(byte[] key, byte[] value) {
-    futures.add(commands.append(key, value));
+    futures.add(commands.append(key, value).toCompletableFuture());
   }
 
   @Override
   public void set(byte[] key, byte[] value) {
-    futures.add(commands.set(key, value));
+    futures.add(commands.set(key, value).toCompletableFuture());
+  }
+
+  @Override
+  public void setIfNewer(byte[] key, byte[] value, Timestamp eventTimestamp) {
+    futures.add(SetIfNewerScript.execute(commands, key, value, eventTimestamp));
   }
 
   @Override
   public void lpush(byte[] key, byte[] value) {
-    futures.add(commands.lpush(key, value));
+    futures.add(commands.lpush(key, value).toCompletableFuture());
   }
 
   @Override
   public void rpush(byte[] key, byte[] value) {
-    futures.add(commands.rpush(key, value));
+    futures.add(commands.rpush(key, value).toCompletableFuture());
   }
 
   @Override
   public void sadd(byte[] key, byte[] value) {
-    futures.add(commands.sadd(key, value));
+    futures.add(commands.sadd(key, value).toCompletableFuture());
   }
 
   @Override
   public void zadd(byte[] key, Long score, byte[] value) {
-    futures.add(commands.zadd(key, score, value));
+    futures.add(commands.zadd(key, score, value).toCompletableFuture());
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.common;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Timestamp;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class EventTimeOrderingTest {
+
+  @Test
+  public void shouldKeepNewestRowOfEachKey() {
+    List<FeatureRow> rows =
+        ImmutableList.of(
+            featureRow("a", 100, 0), featureRow("b", 50, 0), featureRow("a", 50, 999));
+
+    Map<ByteBuffer, FeatureRow> latestRows =
+        EventTimeOrdering.getLatestRowsByKey(rows, EventTimeOrderingTest::key);
+
+    assertThat(
+        new ArrayList<>(latestRows.values()),
+        equalTo(ImmutableList.of(featureRow("a", 100, 0), featureRow("b", 50, 0))));
+  }
+
+  @Test
+  public void shouldKeepLastArrivedRowOfRowsWithTheSameEventTimestamp() {
+    FeatureRow first = featureRow("a", 100, 2).toBuilder().setIngestionId("first").build();
+    FeatureRow last = featureRow("a", 100, 2).toBuilder().setIngestionId("last").build();
+
+    Map<ByteBuffer, FeatureRow> latestRows =
+        EventTimeOrdering.getLatestRowsByKey(
+            ImmutableList.of(first, last), EventTimeOrderingTest::key);
+
+    assertThat(new ArrayList<>(latestRows.values()), equalTo(ImmutableList.of(last)));
+  }
+
+  private static FeatureRow featureRow(String featureSet, long seconds, int nanos) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet(featureSet)
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos))
+        .build();
+  }
+
+  private static byte[] key(FeatureRow row) {
+    return row.getFeatureSet().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.common.retry.BackOffExecutor;
+import io.lettuce.core.RedisConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RedisBatchWriterTest {
+
+  private RedisIngestionClient redisIngestionClient;
+  private List<List<FeatureRow>> writes;
+  private List<FeatureRow> succeeded;
+  private List<FeatureRow> failed;
+  private RedisBatchWriter batchWriter;
+
+  @Before
+  public void setUp() {
+    redisIngestionClient = mock(RedisIngestionClient.class);
+    when(redisIngestionClient.isConnected()).thenReturn(true);
+    when(redisIngestionClient.getBackOffExecutor())
+        .thenReturn(new BackOffExecutor(1, Duration.millis(1)));
+    writes = new ArrayList<>();
+    succeeded = new ArrayList<>();
+    failed = new ArrayList<>();
+    batchWriter =
+        new RedisBatchWriter(redisIngestionClient, writes::add, RedisConnectionException.class);
+  }
+
+  @Test
+  public void shouldResendFailedBatchTogetherWithLaterBatchesInOrder() {
+    CompletableFuture<Void> connectionLost = new CompletableFuture<>();
+    connectionLost.completeExceptionally(new RedisConnectionException("connection lost"));
+    when(redisIngestionClient.syncAsync())
+        .thenReturn(connectionLost)
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    List<FeatureRow> first = ImmutableList.of(featureRow("first"));
+    List<FeatureRow> second = ImmutableList.of(featureRow("second"));
+    batchWriter.send(first);
+    batchWriter.send(second);
+    batchWriter.complete(0, succeeded::add, (row, e) -> failed.add(row));
+
+    assertThat(writes, equalTo(ImmutableList.of(first, second, first, second)));
+    assertThat(succeeded, equalTo(ImmutableList.of(first.get(0), second.get(0))));
+    assertThat(failed.isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void shouldFailBatchWithoutResendingOnOtherErrors() {
+    CompletableFuture<Void> rejected = new CompletableFuture<>();
+    rejected.completeExceptionally(new IllegalStateException("rejected"));
+    when(redisIngestionClient.syncAsync())
+        .thenReturn(rejected)
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    List<FeatureRow> first = ImmutableList.of(featureRow("first"));
+    List<FeatureRow> second = ImmutableList.of(featureRow("second"));
+    batchWriter.send(first);
+    batchWriter.send(second);
+    batchWriter.complete(0, succeeded::add, (row, e) -> failed.add(row));
+
+    assertThat(writes, equalTo(ImmutableList.of(first, second)));
+    assertThat(succeeded, equalTo(second));
+    assertThat(failed, equalTo(first));
+  }
+
+  private static FeatureRow featureRow(String featureSet) {
+    return FeatureRow.newBuilder().setFeatureSet(featureSet).build();
+  }
+}
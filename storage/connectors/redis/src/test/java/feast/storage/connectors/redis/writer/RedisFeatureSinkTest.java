@@ -33,6 +33,7 @@ import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto.Value;
 import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.writer.FeatureRowWriter;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
@@ -165,6 +166,203 @@ public class RedisFeatureSinkTest {
         });
   }
 
+  @Test
+  public void shouldWriteWithRowWriter() throws Exception {
+    FeatureRow featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addFields(field("entity", 1, Enum.INT64))
+            .addFields(field("feature", "one", Enum.STRING))
+            .build();
+
+    try (FeatureRowWriter writer = redisFeatureSink.rowWriter()) {
+      writer.open();
+      writer.write(ImmutableList.of(featureRow));
+    }
+
+    RedisKey key =
+        RedisKey.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addEntities(field("entity", 1, Enum.INT64))
+            .build();
+    FeatureRow expected =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.getDefaultInstance())
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal("one")))
+            .build();
+    assertThat(sync.get(key.toByteArray()), equalTo(expected.toByteArray()));
+  }
+
+  @Test
+  public void shouldOnlyWriteNewerEventsIfEventTimeOrderingEnabled() {
+    RedisConfig redisConfig =
+        redisFeatureSink.getRedisConfig().toBuilder().setEventTimeOrdering(true).build();
+    RedisFeatureSink orderedSink = redisFeatureSink.toBuilder().setRedisConfig(redisConfig).build();
+
+    sync.set(redisKey(1).toByteArray(), storedValue("stored", 100).toByteArray());
+    sync.set(redisKey(2).toByteArray(), storedValue("stored", 100).toByteArray());
+
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            featureRow(1, "late", 50),
+            featureRow(2, "newest", 200),
+            featureRow(2, "newer", 150),
+            featureRow(3, "first", 10));
+
+    p.apply(Create.of(featureRows)).apply(orderedSink.writer());
+    p.run();
+
+    assertThat(
+        sync.get(redisKey(1).toByteArray()), equalTo(storedValue("stored", 100).toByteArray()));
+    assertThat(
+        sync.get(redisKey(2).toByteArray()), equalTo(storedValue("newest", 200).toByteArray()));
+    assertThat(
+        sync.get(redisKey(3).toByteArray()), equalTo(storedValue("first", 10).toByteArray()));
+  }
+
+  @Test
+  public void shouldReplaceStoredEventsWithTheSameEventTimestamp() {
+    RedisConfig redisConfig =
+        redisFeatureSink.getRedisConfig().toBuilder().setEventTimeOrdering(true).build();
+    RedisFeatureSink orderedSink = redisFeatureSink.toBuilder().setRedisConfig(redisConfig).build();
+
+    Timestamp stored = Timestamp.newBuilder().setSeconds(1600000000L).setNanos(2).build();
+    sync.set(redisKey(1).toByteArray(), storedValue("stored", stored).toByteArray());
+
+    p.apply(Create.of(featureRow(1, "replacement", stored))).apply(orderedSink.writer());
+    p.run();
+
+    assertThat(
+        sync.get(redisKey(1).toByteArray()),
+        equalTo(storedValue("replacement", stored).toByteArray()));
+  }
+
+  @Test
+  public void shouldCompareEventTimestampsToTheNanosecond() {
+    RedisConfig redisConfig =
+        redisFeatureSink.getRedisConfig().toBuilder().setEventTimeOrdering(true).build();
+    RedisFeatureSink orderedSink = redisFeatureSink.toBuilder().setRedisConfig(redisConfig).build();
+
+    Timestamp stored = Timestamp.newBuilder().setSeconds(1600000000L).setNanos(2).build();
+    Timestamp storedBeforeEpoch =
+        Timestamp.newBuilder().setSeconds(-1600000000L).setNanos(2).build();
+    sync.set(redisKey(1).toByteArray(), storedValue("stored", stored).toByteArray());
+    sync.set(redisKey(2).toByteArray(), storedValue("stored", stored).toByteArray());
+    sync.set(redisKey(3).toByteArray(), storedValue("stored", storedBeforeEpoch).toByteArray());
+    sync.set(redisKey(4).toByteArray(), storedValue("stored", storedBeforeEpoch).toByteArray());
+
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            featureRow(1, "older", stored.toBuilder().setNanos(1).build()),
+            featureRow(2, "newer", stored.toBuilder().setNanos(3).build()),
+            featureRow(3, "older", storedBeforeEpoch.toBuilder().setNanos(1).build()),
+            featureRow(4, "newer", storedBeforeEpoch.toBuilder().setNanos(3).build()));
+
+    p.apply(Create.of(featureRows)).apply(orderedSink.writer());
+    p.run();
+
+    assertThat(
+        sync.get(redisKey(1).toByteArray()), equalTo(storedValue("stored", stored).toByteArray()));
+    assertThat(
+        sync.get(redisKey(2).toByteArray()),
+        equalTo(storedValue("newer", stored.toBuilder().setNanos(3).build()).toByteArray()));
+    assertThat(
+        sync.get(redisKey(3).toByteArray()),
+        equalTo(storedValue("stored", storedBeforeEpoch).toByteArray()));
+    assertThat(
+        sync.get(redisKey(4).toByteArray()),
+        equalTo(
+            storedValue("newer", storedBeforeEpoch.toBuilder().setNanos(3).build()).toByteArray()));
+  }
+
+  @Test
+  public void shouldWriteAllBatchesIfMultipleBatchesAreInFlight() {
+    RedisConfig config =
+        redisFeatureSink.getRedisConfig().toBuilder().setMaxInFlightBatches(2).build();
+    RedisFeatureSink asyncSink = redisFeatureSink.toBuilder().setRedisConfig(config).build();
+
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      featureRows.add(featureRow(i, "value" + i, 10));
+    }
+
+    PCollection<Long> successfulInsertCount =
+        p.apply(Create.of(featureRows))
+            .apply(asyncSink.writer())
+            .getSuccessfulInserts()
+            .apply(Count.globally());
+
+    PAssert.that(successfulInsertCount).containsInAnyOrder(2500L);
+    p.run();
+
+    for (int i = 0; i < 2500; i++) {
+      assertThat(
+          sync.get(redisKey(i).toByteArray()), equalTo(storedValue("value" + i, 10).toByteArray()));
+    }
+  }
+
+  @Test
+  public void shouldWriteAllRowsIfBatchedAcrossBundles() {
+    RedisConfig config =
+        redisFeatureSink
+            .getRedisConfig()
+            .toBuilder()
+            .setMaxBatchSize(100)
+            .setMaxBatchLatencyMs(500)
+            .build();
+    RedisFeatureSink batchingSink = redisFeatureSink.toBuilder().setRedisConfig(config).build();
+
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      featureRows.add(featureRow(i, "value" + i, 10));
+    }
+
+    PCollection<Long> successfulInsertCount =
+        p.apply(Create.of(featureRows))
+            .apply(batchingSink.writer())
+            .getSuccessfulInserts()
+            .apply(Count.globally());
+
+    PAssert.that(successfulInsertCount).containsInAnyOrder(250L);
+    p.run();
+
+    for (int i = 0; i < 250; i++) {
+      assertThat(
+          sync.get(redisKey(i).toByteArray()), equalTo(storedValue("value" + i, 10).toByteArray()));
+    }
+  }
+
+  private static RedisKey redisKey(int entity) {
+    return RedisKey.newBuilder()
+        .setFeatureSet("myproject/fs")
+        .addEntities(field("entity", entity, Enum.INT64))
+        .build();
+  }
+
+  private static FeatureRow featureRow(int entity, String feature, long eventSeconds) {
+    return featureRow(entity, feature, Timestamp.newBuilder().setSeconds(eventSeconds).build());
+  }
+
+  private static FeatureRow featureRow(int entity, String feature, Timestamp eventTimestamp) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet("myproject/fs")
+        .setEventTimestamp(eventTimestamp)
+        .addFields(field("entity", entity, Enum.INT64))
+        .addFields(field("feature", feature, Enum.STRING))
+        .build();
+  }
+
+  private static FeatureRow storedValue(String feature, long eventSeconds) {
+    return storedValue(feature, Timestamp.newBuilder().setSeconds(eventSeconds).build());
+  }
+
+  private static FeatureRow storedValue(String feature, Timestamp eventTimestamp) {
+    return FeatureRow.newBuilder()
+        .setEventTimestamp(eventTimestamp)
+        .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal(feature)))
+        .build();
+  }
+
   @Test(timeout = 10000)
   public void shouldRetryFailConnection() throws InterruptedException {
     RedisConfig redisConfig =
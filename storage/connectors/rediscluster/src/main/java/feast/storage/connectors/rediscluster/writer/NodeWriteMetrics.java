@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.rediscluster.writer;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.beam.sdk.metrics.Metrics;
+
+/**
+ * Write metrics per cluster node, labelled by node id.
+ *
+ * <p>Metrics are recorded as write acknowledgements arrive on Lettuce's threads, where Beam metrics
+ * cannot be reported, and are published as Beam metrics when the writer calls {@link #publish()}.
+ */
+class NodeWriteMetrics {
+
+  static final String METRIC_NAMESPACE = "RedisClusterCustomIO";
+  static final String WRITE_LATENCY_METRIC = "node_write_latency_ms";
+  static final String WRITE_ERRORS_METRIC = "node_write_errors";
+  static final String REDIRECTS_METRIC = "node_redirects";
+
+  private final Queue<Map.Entry<String, Long>> writeLatencies = new ConcurrentLinkedQueue<>();
+  private final Map<String, LongAdder> writeErrors = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> redirects = new ConcurrentHashMap<>();
+
+  /**
+   * @param node id of the node
+   * @param latencyMillis time from sending a pipeline to the node until all its commands completed
+   */
+  void recordLatency(String node, long latencyMillis) {
+    writeLatencies.add(new SimpleImmutableEntry<>(node, latencyMillis));
+  }
+
+  /** @param node id of the node a command failed on */
+  void recordError(String node) {
+    writeErrors.computeIfAbsent(node, n -> new LongAdder()).increment();
+  }
+
+  /** @param node id of the node that redirected a command to another node */
+  void recordRedirect(String node) {
+    redirects.computeIfAbsent(node, n -> new LongAdder()).increment();
+  }
+
+  /** Report the metrics recorded since the last call as Beam metrics of the calling step. */
+  void publish() {
+    Map.Entry<String, Long> latency;
+    while ((latency = writeLatencies.poll()) != null) {
+      Metrics.distribution(METRIC_NAMESPACE, metricName(WRITE_LATENCY_METRIC, latency.getKey()))
+          .update(latency.getValue());
+    }
+    publishCounts(WRITE_ERRORS_METRIC, writeErrors);
+    publishCounts(REDIRECTS_METRIC, redirects);
+  }
+
+  static String metricName(String metric, String node) {
+    return metric + ":" + node;
+  }
+
+  private static void publishCounts(String metric, Map<String, LongAdder> counts) {
+    counts.forEach(
+        (node, count) -> {
+          long value = count.sumThenReset();
+          if (value > 0) {
+            Metrics.counter(METRIC_NAMESPACE, metricName(metric, node)).inc(value);
+          }
+        });
+  }
+}
@@ -16,6 +16,8 @@
  */
 package feast.storage.connectors.rediscluster.writer;
 
+import static feast.storage.connectors.redis.common.EventTimeOrdering.getLatestRowsByKey;
+
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
@@ -27,24 +29,32 @@ import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto;
 import feast.storage.api.writer.FailedElement;
 import feast.storage.api.writer.WriteResult;
-import feast.storage.common.retry.Retriable;
+import feast.storage.common.batch.GroupIntoBoundedBatches;
+import feast.storage.connectors.redis.writer.RedisBatchWriter;
 import io.lettuce.core.RedisException;
+import io.lettuce.core.cluster.SlotHash;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Values;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.joda.time.Duration;
 import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +63,10 @@ public class RedisClusterCustomIO {
 
   private static final int DEFAULT_BATCH_SIZE = 1000;
   private static final int DEFAULT_TIMEOUT = 2000;
+  private static final int DEFAULT_MAX_BATCH_LATENCY_MS = 1000;
+  // Number of shards feature rows are batched by across bundles. Bounds the parallelism of the
+  // batching stage.
+  private static final int BATCH_SHARDS = 16;
 
   private static TupleTag<FeatureRow> successfulInsertsTag =
       new TupleTag<FeatureRow>("successfulInserts") {};
@@ -75,6 +89,7 @@ public class RedisClusterCustomIO {
     private RedisClusterConfig redisClusterConfig;
     private int batchSize;
     private int timeout;
+    private PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView;
 
     public Write(
         RedisClusterConfig redisClusterConfig, Map<String, FeatureSetSpec> featureSetSpecs) {
@@ -93,11 +108,51 @@ public class RedisClusterCustomIO {
       return this;
     }
 
+    /**
+     * Write feature values according to the feature set specs in the given view, which may be
+     * refreshed while the pipeline runs, instead of the specs the transform was created with.
+     *
+     * @param featureSetSpecsView singleton view of feature set specs by reference
+     * @return this transform
+     */
+    public Write withFeatureSetSpecsView(
+        PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView) {
+      this.featureSetSpecsView = featureSetSpecsView;
+      return this;
+    }
+
     @Override
     public WriteResult expand(PCollection<FeatureRow> input) {
+      PCollection<FeatureRow> featureRows = input;
+      int writeBatchSize = batchSize;
+      if (redisClusterConfig.getMaxBatchSize() > 0) {
+        int maxBatchLatencyMs =
+            redisClusterConfig.getMaxBatchLatencyMs() > 0
+                ? redisClusterConfig.getMaxBatchLatencyMs()
+                : DEFAULT_MAX_BATCH_LATENCY_MS;
+        featureRows =
+            input
+                .apply("ShardFeatureRows", ParDo.of(new ShardFeatureRowsDoFn(featureSetSpecs)))
+                .apply(
+                    "BatchFeatureRows",
+                    GroupIntoBoundedBatches.of(
+                        redisClusterConfig.getMaxBatchSize(), Duration.millis(maxBatchLatencyMs)))
+                .apply(Values.create())
+                .apply(Flatten.iterables());
+        // Write each batch as a whole.
+        writeBatchSize = redisClusterConfig.getMaxBatchSize();
+      }
       PCollectionTuple redisWrite =
-          input.apply(
-              ParDo.of(new WriteDoFn(redisClusterConfig, featureSetSpecs))
+          featureRows.apply(
+              ParDo.of(
+                      new WriteDoFn(redisClusterConfig, featureSetSpecs)
+                          .withBatchSize(writeBatchSize)
+                          .withTimeout(timeout)
+                          .withFeatureSetSpecsView(featureSetSpecsView))
+                  .withSideInputs(
+                      featureSetSpecsView == null
+                          ? Collections.emptyList()
+                          : Collections.singletonList(featureSetSpecsView))
                   .withOutputTags(successfulInsertsTag, TupleTagList.of(failedInsertsTupleTag)));
       return WriteResult.in(
           input.getPipeline(),
@@ -107,16 +162,22 @@ public class RedisClusterCustomIO {
 
     public static class WriteDoFn extends DoFn<FeatureRow, FeatureRow> {
 
-      private final List<FeatureRow> featureRows = new ArrayList<>();
+      private List<FeatureRow> featureRows = new ArrayList<>();
       private Map<String, FeatureSetSpec> featureSetSpecs;
+      private PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView;
       private int batchSize = DEFAULT_BATCH_SIZE;
       private int timeout = DEFAULT_TIMEOUT;
-      private RedisIngestionClient redisIngestionClient;
+      private RedisClusterIngestionClient redisIngestionClient;
+      private transient RedisBatchWriter batchWriter;
+      private final boolean eventTimeOrdering;
+      private final int maxInFlightBatches;
 
       WriteDoFn(RedisClusterConfig config, Map<String, FeatureSetSpec> featureSetSpecs) {
 
         this.redisIngestionClient = new RedisClusterIngestionClient(config);
         this.featureSetSpecs = featureSetSpecs;
+        this.eventTimeOrdering = config.getEventTimeOrdering();
+        this.maxInFlightBatches = config.getMaxInFlightBatches();
       }
 
       public WriteDoFn withBatchSize(int batchSize) {
@@ -133,9 +194,17 @@ public class RedisClusterCustomIO {
         return this;
       }
 
+      public WriteDoFn withFeatureSetSpecsView(
+          PCollectionView<Map<String, FeatureSetSpec>> featureSetSpecsView) {
+        this.featureSetSpecsView = featureSetSpecsView;
+        return this;
+      }
+
       @Setup
       public void setup() {
         this.redisIngestionClient.setup();
+        this.batchWriter =
+            new RedisBatchWriter(redisIngestionClient, this::writeRows, RedisException.class);
       }
 
       @StartBundle
@@ -146,33 +215,48 @@ public class RedisClusterCustomIO {
           log.error("Connection to redis cannot be established ", e);
         }
         featureRows.clear();
+        batchWriter.clear();
       }
 
-      private void executeBatch() throws Exception {
-        this.redisIngestionClient
-            .getBackOffExecutor()
-            .execute(
-                new Retriable() {
-                  @Override
-                  public void execute() throws ExecutionException, InterruptedException {
-                    if (!redisIngestionClient.isConnected()) {
-                      redisIngestionClient.connect();
-                    }
-                    featureRows.forEach(
-                        row -> {
-                          redisIngestionClient.set(getKey(row), getValue(row));
-                        });
-                    redisIngestionClient.sync();
-                  }
-
-                  @Override
-                  public Boolean isExceptionRetriable(Exception e) {
-                    return e instanceof RedisException;
-                  }
-
-                  @Override
-                  public void cleanUpAfterFailure() {}
-                });
+      void executeBatch(List<FeatureRow> rows) throws Exception {
+        batchWriter.write(rows);
+      }
+
+      private void writeRows(List<FeatureRow> rows) {
+        if (eventTimeOrdering) {
+          getLatestRowsByKey(rows, this::getKey)
+              .forEach(
+                  (key, row) ->
+                      redisIngestionClient.setIfNewer(
+                          key.array(), getValue(row), row.getEventTimestamp()));
+        } else {
+          rows.forEach(
+              row -> {
+                redisIngestionClient.set(getKey(row), getValue(row));
+              });
+        }
+      }
+
+      /**
+       * Issue the writes for the buffered rows without waiting for them to be acknowledged, and
+       * start a new buffer for the rows that follow.
+       */
+      private void sendBatch() {
+        batchWriter.send(featureRows);
+        featureRows = new ArrayList<>();
+      }
+
+      /**
+       * Output the results of in-flight batches that have been acknowledged, oldest first, waiting
+       * for the oldest batches until no more than the given number remain in flight.
+       */
+      private void completeBatches(
+          int maxRemaining,
+          Consumer<FeatureRow> success,
+          Consumer<FailedElement> failure,
+          String jobName) {
+        batchWriter.complete(
+            maxRemaining, success, (row, e) -> failure.accept(toFailedElement(row, e, jobName)));
       }
 
       private FailedElement toFailedElement(
@@ -187,26 +271,8 @@ public class RedisClusterCustomIO {
       }
 
       private byte[] getKey(FeatureRow featureRow) {
-        FeatureSetSpec featureSetSpec = featureSetSpecs.get(featureRow.getFeatureSet());
-        List<String> entityNames =
-            featureSetSpec.getEntitiesList().stream()
-                .map(EntitySpec::getName)
-                .sorted()
-                .collect(Collectors.toList());
-
-        Map<String, Field> entityFields = new HashMap<>();
-        Builder redisKeyBuilder = RedisKey.newBuilder().setFeatureSet(featureRow.getFeatureSet());
-        for (Field field : featureRow.getFieldsList()) {
-          if (entityNames.contains(field.getName())) {
-            entityFields.putIfAbsent(
-                field.getName(),
-                Field.newBuilder().setName(field.getName()).setValue(field.getValue()).build());
-          }
-        }
-        for (String entityName : entityNames) {
-          redisKeyBuilder.addEntities(entityFields.get(entityName));
-        }
-        return redisKeyBuilder.build().toByteArray();
+        return RedisClusterCustomIO.getKey(
+            featureRow, featureSetSpecs.get(featureRow.getFeatureSet()));
       }
 
       private byte[] getValue(FeatureRow featureRow) {
@@ -245,10 +311,24 @@ public class RedisClusterCustomIO {
       @ProcessElement
       public void processElement(ProcessContext context) {
         FeatureRow featureRow = context.element();
+        if (featureSetSpecsView != null) {
+          // Side inputs cannot be read when the bundle finishes, so buffered rows are written with
+          // the specs current when the last row arrived.
+          featureSetSpecs = context.sideInput(featureSetSpecsView);
+        }
         featureRows.add(featureRow);
         if (featureRows.size() >= batchSize) {
+          if (maxInFlightBatches > 0) {
+            completeBatches(
+                maxInFlightBatches - 1,
+                row -> context.output(successfulInsertsTag, row),
+                failedElement -> context.output(failedInsertsTupleTag, failedElement),
+                context.getPipelineOptions().getJobName());
+            sendBatch();
+            return;
+          }
           try {
-            executeBatch();
+            executeBatch(featureRows);
             featureRows.forEach(row -> context.output(successfulInsertsTag, row));
             featureRows.clear();
           } catch (Exception e) {
@@ -266,9 +346,31 @@ public class RedisClusterCustomIO {
       @FinishBundle
       public void finishBundle(FinishBundleContext context)
           throws IOException, InterruptedException {
+        try {
+          writeRemainingRows(context);
+        } finally {
+          redisIngestionClient.publishMetrics();
+        }
+      }
+
+      private void writeRemainingRows(FinishBundleContext context) {
+        if (maxInFlightBatches > 0) {
+          if (featureRows.size() > 0) {
+            sendBatch();
+          }
+          completeBatches(
+              0,
+              row ->
+                  context.output(successfulInsertsTag, row, Instant.now(), GlobalWindow.INSTANCE),
+              failedElement ->
+                  context.output(
+                      failedInsertsTupleTag, failedElement, Instant.now(), GlobalWindow.INSTANCE),
+              context.getPipelineOptions().getJobName());
+          return;
+        }
         if (featureRows.size() > 0) {
           try {
-            executeBatch();
+            executeBatch(featureRows);
             featureRows.forEach(
                 row ->
                     context.output(
@@ -287,10 +389,63 @@ public class RedisClusterCustomIO {
         }
       }
 
+      void publishMetrics() {
+        redisIngestionClient.publishMetrics();
+      }
+
       @Teardown
       public void teardown() {
         redisIngestionClient.shutdown();
       }
     }
   }
+
+  private static byte[] getKey(FeatureRow featureRow, FeatureSetSpec featureSetSpec) {
+    List<String> entityNames =
+        featureSetSpec.getEntitiesList().stream()
+            .map(EntitySpec::getName)
+            .sorted()
+            .collect(Collectors.toList());
+
+    Map<String, Field> entityFields = new HashMap<>();
+    Builder redisKeyBuilder = RedisKey.newBuilder().setFeatureSet(featureRow.getFeatureSet());
+    for (Field field : featureRow.getFieldsList()) {
+      if (entityNames.contains(field.getName())) {
+        entityFields.putIfAbsent(
+            field.getName(),
+            Field.newBuilder().setName(field.getName()).setValue(field.getValue()).build());
+      }
+    }
+    for (String entityName : entityNames) {
+      redisKeyBuilder.addEntities(entityFields.get(entityName));
+    }
+    return redisKeyBuilder.build().toByteArray();
+  }
+
+  /**
+   * Keys feature rows by the shard they are batched in. Each shard covers a contiguous range of
+   * cluster hash slots, so that a batch mostly targets the few nodes serving that range.
+   */
+  static class ShardFeatureRowsDoFn extends DoFn<FeatureRow, KV<Integer, FeatureRow>> {
+
+    private final Map<String, FeatureSetSpec> featureSetSpecs;
+
+    ShardFeatureRowsDoFn(Map<String, FeatureSetSpec> featureSetSpecs) {
+      this.featureSetSpecs = featureSetSpecs;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element FeatureRow featureRow, OutputReceiver<KV<Integer, FeatureRow>> receiver) {
+      FeatureSetSpec featureSetSpec = featureSetSpecs.get(featureRow.getFeatureSet());
+      if (featureSetSpec == null) {
+        // Leave it to the writer to report the row as failed.
+        receiver.output(KV.of(0, featureRow));
+        return;
+      }
+      byte[] key = getKey(featureRow, featureSetSpec);
+      receiver.output(
+          KV.of(SlotHash.getSlot(key) * BATCH_SHARDS / SlotHash.SLOT_COUNT, featureRow));
+    }
+  }
 }
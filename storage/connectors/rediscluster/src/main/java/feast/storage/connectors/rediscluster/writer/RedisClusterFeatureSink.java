@@ -20,11 +20,13 @@ import com.google.auto.value.AutoValue;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.StoreProto.Store.RedisClusterConfig;
 import feast.proto.types.FeatureRowProto;
+import feast.storage.api.writer.FeatureRowWriter;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import java.util.Map;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
 
 @AutoValue
 public abstract class RedisClusterFeatureSink implements FeatureSink {
@@ -72,4 +74,21 @@ public abstract class RedisClusterFeatureSink implements FeatureSink {
   public PTransform<PCollection<FeatureRowProto.FeatureRow>, WriteResult> writer() {
     return new RedisClusterCustomIO.Write(getRedisClusterConfig(), getFeatureSetSpecs());
   }
+
+  @Override
+  public PTransform<PCollection<FeatureRowProto.FeatureRow>, WriteResult> writer(
+      PCollectionView<Map<String, FeatureSetProto.FeatureSetSpec>> featureSetSpecsView) {
+    return new RedisClusterCustomIO.Write(getRedisClusterConfig(), getFeatureSetSpecs())
+        .withFeatureSetSpecsView(featureSetSpecsView);
+  }
+
+  @Override
+  public boolean supportsRowWriter() {
+    return true;
+  }
+
+  @Override
+  public FeatureRowWriter rowWriter() {
+    return new RedisClusterFeatureRowWriter(getRedisClusterConfig(), getFeatureSetSpecs());
+  }
 }
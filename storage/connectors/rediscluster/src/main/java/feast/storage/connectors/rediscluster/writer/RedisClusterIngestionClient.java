@@ -17,21 +17,47 @@
 package feast.storage.connectors.rediscluster.writer;
 
 import com.google.common.collect.Lists;
+import com.google.protobuf.Timestamp;
 import feast.proto.core.StoreProto;
 import feast.storage.common.retry.BackOffExecutor;
+import feast.storage.connectors.redis.common.SetIfNewerScript;
+import feast.storage.connectors.redis.writer.RedisIngestionClient;
 import io.lettuce.core.LettuceFutures;
-import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.codec.ByteArrayCodec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.joda.time.Duration;
 
+/**
+ * Writes to a Redis Cluster.
+ *
+ * <p>SET commands are grouped by the master owning the key's hash slot, which is computed client
+ * side, and sent as one pipeline per node over a dedicated connection, so that all nodes are
+ * written to concurrently. Commands that fail because the slot has moved (MOVED or ASK) are retried
+ * individually through the cluster connection, which follows redirects, and the slot map is
+ * refreshed before the next command is routed. All other commands are sent through the cluster
+ * connection.
+ */
 public class RedisClusterIngestionClient implements RedisIngestionClient {
 
   private final BackOffExecutor backOffExecutor;
@@ -39,7 +65,12 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
   private transient RedisClusterClient clusterClient;
   private StatefulRedisClusterConnection<byte[], byte[]> connection;
   private RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands;
-  private List<RedisFuture> futures = Lists.newArrayList();
+  private List<CompletableFuture<?>> futures = Lists.newArrayList();
+
+  private transient RedisClient nodeClient;
+  private transient Map<String, NodePipeline> nodePipelines;
+  private transient NodeWriteMetrics metrics;
+  private transient volatile boolean slotsMoved;
 
   public RedisClusterIngestionClient(StoreProto.Store.RedisClusterConfig redisClusterConfig) {
     this.uriList =
@@ -61,6 +92,9 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
   @Override
   public void setup() {
     this.clusterClient = RedisClusterClient.create(this.uriList);
+    this.nodeClient = RedisClient.create();
+    this.nodePipelines = new HashMap<>();
+    this.metrics = new NodeWriteMetrics();
   }
 
   @Override
@@ -71,6 +105,9 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
   @Override
   public void shutdown() {
     this.clusterClient.shutdown();
+    if (nodeClient != null) {
+      nodeClient.shutdown();
+    }
   }
 
   @Override
@@ -88,45 +125,207 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
 
   @Override
   public void sync() {
+    flushPipelines();
     try {
-      LettuceFutures.awaitAll(60, TimeUnit.SECONDS, futures.toArray(new RedisFuture[0]));
+      LettuceFutures.awaitAll(60, TimeUnit.SECONDS, futures.toArray(new Future<?>[0]));
     } finally {
       futures.clear();
     }
   }
 
+  @Override
+  public CompletableFuture<Void> syncAsync() {
+    flushPipelines();
+    CompletableFuture<Void> acknowledged =
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    futures.clear();
+    return acknowledged;
+  }
+
+  /** Publish the write metrics collected since the last call as Beam metrics of the caller. */
+  public void publishMetrics() {
+    if (metrics != null) {
+      metrics.publish();
+    }
+  }
+
   @Override
   public void pexpire(byte[] key, Long expiryMillis) {
-    futures.add(commands.pexpire(key, expiryMillis));
+    futures.add(commands.pexpire(key, expiryMillis).toCompletableFuture());
   }
 
   @Override
   public void append(byte[] key, byte[] value) {
-    futures.add(commands.append(key, value));
+    futures.add(commands.append(key, value).toCompletableFuture());
   }
 
   @Override
   public void set(byte[] key, byte[] value) {
-    futures.add(commands.set(key, value));
+    NodePipeline pipeline = getPipeline(key);
+    if (pipeline == null) {
+      futures.add(commands.set(key, value).toCompletableFuture());
+      return;
+    }
+    futures.add(
+        pipeline.add(
+            pipeline.commands.set(key, value).toCompletableFuture(),
+            () -> commands.set(key, value).toCompletableFuture()));
+  }
+
+  @Override
+  public void setIfNewer(byte[] key, byte[] value, Timestamp eventTimestamp) {
+    NodePipeline pipeline = getPipeline(key);
+    if (pipeline == null) {
+      futures.add(SetIfNewerScript.execute(commands, key, value, eventTimestamp));
+      return;
+    }
+    // The script is loaded when the pipeline is opened. Should the node have dropped it since,
+    // the command is retried through the cluster connection, which falls back to sending it.
+    futures.add(
+        pipeline.add(
+            SetIfNewerScript.evalsha(pipeline.commands, key, value, eventTimestamp)
+                .toCompletableFuture(),
+            () -> SetIfNewerScript.execute(commands, key, value, eventTimestamp)));
   }
 
   @Override
   public void lpush(byte[] key, byte[] value) {
-    futures.add(commands.lpush(key, value));
+    futures.add(commands.lpush(key, value).toCompletableFuture());
   }
 
   @Override
   public void rpush(byte[] key, byte[] value) {
-    futures.add(commands.rpush(key, value));
+    futures.add(commands.rpush(key, value).toCompletableFuture());
   }
 
   @Override
   public void sadd(byte[] key, byte[] value) {
-    futures.add(commands.sadd(key, value));
+    futures.add(commands.sadd(key, value).toCompletableFuture());
   }
 
   @Override
   public void zadd(byte[] key, Long score, byte[] value) {
-    futures.add(commands.zadd(key, score, value));
+    futures.add(commands.zadd(key, score, value).toCompletableFuture());
+  }
+
+  /**
+   * Get the pipeline to the master owning the key's hash slot, opening it if needed.
+   *
+   * @return the pipeline, or null if the slot is not served by a known master
+   */
+  private NodePipeline getPipeline(byte[] key) {
+    if (nodePipelines == null || connection == null) {
+      return null;
+    }
+    if (slotsMoved) {
+      slotsMoved = false;
+      clusterClient.reloadPartitions();
+    }
+    RedisClusterNode node = connection.getPartitions().getPartitionBySlot(SlotHash.getSlot(key));
+    if (node == null || node.getUri() == null) {
+      return null;
+    }
+    // The same node may be known under several addresses, so pipelines are keyed by node id.
+    NodePipeline pipeline = nodePipelines.get(node.getNodeId());
+    if (pipeline == null) {
+      pipeline =
+          new NodePipeline(
+              node.getNodeId(), nodeClient.connect(new ByteArrayCodec(), node.getUri()));
+      nodePipelines.put(node.getNodeId(), pipeline);
+    }
+    return pipeline;
+  }
+
+  /** Send the commands queued for each node, as one pipeline per node. */
+  private void flushPipelines() {
+    if (nodePipelines != null) {
+      nodePipelines.values().forEach(NodePipeline::flush);
+    }
+  }
+
+  private static boolean isRedirect(Throwable error) {
+    String message = error.getMessage();
+    return error instanceof RedisCommandExecutionException
+        && message != null
+        && (message.startsWith("MOVED") || message.startsWith("ASK"));
+  }
+
+  private static boolean isMissingScript(Throwable error) {
+    String message = error.getMessage();
+    return error instanceof RedisCommandExecutionException
+        && message != null
+        && message.startsWith("NOSCRIPT");
+  }
+
+  /** Commands queued for a single cluster node, sent together on flush. */
+  private class NodePipeline {
+
+    private final String nodeId;
+    private final StatefulRedisConnection<byte[], byte[]> nodeConnection;
+    private final RedisAsyncCommands<byte[], byte[]> commands;
+    private final List<CompletableFuture<?>> pending = new ArrayList<>();
+
+    NodePipeline(String nodeId, StatefulRedisConnection<byte[], byte[]> nodeConnection) {
+      this.nodeId = nodeId;
+      this.nodeConnection = nodeConnection;
+      nodeConnection.sync().scriptLoad(SetIfNewerScript.SCRIPT.getBytes(StandardCharsets.UTF_8));
+      nodeConnection.setAutoFlushCommands(false);
+      this.commands = nodeConnection.async();
+    }
+
+    /**
+     * Queue a command, retrying it with the given fallback if the node redirects it.
+     *
+     * @param command future of the command queued on this node's connection
+     * @param fallback sends the command through the cluster connection
+     * @return future of the command, including any retry
+     */
+    <T> CompletableFuture<T> add(
+        CompletableFuture<T> command, Supplier<CompletableFuture<T>> fallback) {
+      pending.add(command);
+      return command
+          .handle(
+              (result, error) -> {
+                if (error == null) {
+                  return CompletableFuture.completedFuture(result);
+                }
+                Throwable cause =
+                    error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                if (isRedirect(cause)) {
+                  metrics.recordRedirect(nodeId);
+                  slotsMoved = true;
+                  return fallback.get();
+                }
+                if (isMissingScript(cause)) {
+                  return fallback.get();
+                }
+                metrics.recordError(nodeId);
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(cause);
+                return failed;
+              })
+          .thenCompose(retried -> retried);
+    }
+
+    void flush() {
+      if (pending.isEmpty()) {
+        return;
+      }
+      long start = System.nanoTime();
+      nodeConnection.flushCommands();
+      // Waited for along with the commands, so that the latency is recorded before the writer
+      // publishes its metrics. Failures are reported through the commands' own futures.
+      futures.add(
+          CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+              .handle(
+                  (result, error) -> {
+                    metrics.recordLatency(
+                        nodeId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return null;
+                  }));
+      pending.clear();
+    }
   }
 }
@@ -32,6 +32,7 @@ import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto.Value;
 import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.writer.FeatureRowWriter;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.cluster.RedisClusterClient;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
@@ -45,6 +46,12 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import net.ishiis.redis.unit.RedisCluster;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.metrics.DistributionResult;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Count;
@@ -192,6 +199,189 @@ public class RedisClusterFeatureSinkTest {
         });
   }
 
+  @Test
+  public void shouldWriteWithRowWriter() throws Exception {
+    FeatureRow featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addFields(field("entity", 1, Enum.INT64))
+            .addFields(field("feature", "one", Enum.STRING))
+            .build();
+
+    try (FeatureRowWriter writer = redisClusterFeatureSink.rowWriter()) {
+      writer.open();
+      writer.write(ImmutableList.of(featureRow));
+    }
+
+    RedisKey key =
+        RedisKey.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addEntities(field("entity", 1, Enum.INT64))
+            .build();
+    FeatureRow expected =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.getDefaultInstance())
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal("one")))
+            .build();
+    assertThat(redisClusterCommands.get(key.toByteArray()), equalTo(expected.toByteArray()));
+  }
+
+  @Test
+  public void shouldOnlyWriteNewerEventsIfEventTimeOrderingEnabled() {
+    RedisClusterConfig redisClusterConfig =
+        redisClusterFeatureSink
+            .getRedisClusterConfig()
+            .toBuilder()
+            .setEventTimeOrdering(true)
+            .build();
+    RedisClusterFeatureSink orderedSink =
+        redisClusterFeatureSink.toBuilder().setRedisClusterConfig(redisClusterConfig).build();
+
+    redisClusterCommands.set(redisKey(1).toByteArray(), storedValue("stored", 100).toByteArray());
+    redisClusterCommands.set(redisKey(2).toByteArray(), storedValue("stored", 100).toByteArray());
+
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            featureRow(1, "late", 50),
+            featureRow(2, "newest", 200),
+            featureRow(2, "newer", 150),
+            featureRow(3, "first", 10));
+
+    p.apply(Create.of(featureRows)).apply(orderedSink.writer());
+    p.run();
+
+    assertThat(
+        redisClusterCommands.get(redisKey(1).toByteArray()),
+        equalTo(storedValue("stored", 100).toByteArray()));
+    assertThat(
+        redisClusterCommands.get(redisKey(2).toByteArray()),
+        equalTo(storedValue("newest", 200).toByteArray()));
+    assertThat(
+        redisClusterCommands.get(redisKey(3).toByteArray()),
+        equalTo(storedValue("first", 10).toByteArray()));
+  }
+
+  @Test
+  public void shouldWriteAllBatchesIfMultipleBatchesAreInFlight() {
+    RedisClusterConfig config =
+        redisClusterFeatureSink
+            .getRedisClusterConfig()
+            .toBuilder()
+            .setMaxInFlightBatches(2)
+            .build();
+    RedisClusterFeatureSink asyncSink =
+        redisClusterFeatureSink.toBuilder().setRedisClusterConfig(config).build();
+
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      featureRows.add(featureRow(i, "value" + i, 10));
+    }
+
+    PCollection<Long> successfulInsertCount =
+        p.apply(Create.of(featureRows))
+            .apply(asyncSink.writer())
+            .getSuccessfulInserts()
+            .apply(Count.globally());
+
+    PAssert.that(successfulInsertCount).containsInAnyOrder(2500L);
+    p.run();
+
+    for (int i = 0; i < 2500; i++) {
+      assertThat(
+          redisClusterCommands.get(redisKey(i).toByteArray()),
+          equalTo(storedValue("value" + i, 10).toByteArray()));
+    }
+  }
+
+  @Test
+  public void shouldWriteAllRowsIfBatchedAcrossBundles() {
+    RedisClusterConfig config =
+        redisClusterFeatureSink
+            .getRedisClusterConfig()
+            .toBuilder()
+            .setMaxBatchSize(100)
+            .setMaxBatchLatencyMs(500)
+            .build();
+    RedisClusterFeatureSink batchingSink =
+        redisClusterFeatureSink.toBuilder().setRedisClusterConfig(config).build();
+
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      featureRows.add(featureRow(i, "value" + i, 10));
+    }
+
+    PCollection<Long> successfulInsertCount =
+        p.apply(Create.of(featureRows))
+            .apply(batchingSink.writer())
+            .getSuccessfulInserts()
+            .apply(Count.globally());
+
+    PAssert.that(successfulInsertCount).containsInAnyOrder(250L);
+    p.run();
+
+    for (int i = 0; i < 250; i++) {
+      assertThat(
+          redisClusterCommands.get(redisKey(i).toByteArray()),
+          equalTo(storedValue("value" + i, 10).toByteArray()));
+    }
+  }
+
+  @Test
+  public void shouldReportWriteLatencyPerNode() {
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      featureRows.add(featureRow(i, "value" + i, 10));
+    }
+
+    p.apply(Create.of(featureRows)).apply(redisClusterFeatureSink.writer());
+    PipelineResult result = p.run();
+
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(MetricNameFilter.inNamespace(NodeWriteMetrics.METRIC_NAMESPACE))
+                    .build());
+    Set<String> nodes = new HashSet<>();
+    for (MetricResult<DistributionResult> latency : metrics.getDistributions()) {
+      String name = latency.getName().getName();
+      if (name.startsWith(NodeWriteMetrics.WRITE_LATENCY_METRIC)) {
+        nodes.add(name);
+      }
+    }
+    // Keys spread over the slots of all three masters.
+    assertThat(nodes.size(), equalTo(3));
+    for (int i = 0; i < 100; i++) {
+      assertThat(
+          redisClusterCommands.get(redisKey(i).toByteArray()),
+          equalTo(storedValue("value" + i, 10).toByteArray()));
+    }
+  }
+
+  private static RedisKey redisKey(int entity) {
+    return RedisKey.newBuilder()
+        .setFeatureSet("myproject/fs")
+        .addEntities(field("entity", entity, Enum.INT64))
+        .build();
+  }
+
+  private static FeatureRow featureRow(int entity, String feature, long eventSeconds) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet("myproject/fs")
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(eventSeconds))
+        .addFields(field("entity", entity, Enum.INT64))
+        .addFields(field("feature", feature, Enum.STRING))
+        .build();
+  }
+
+  private static FeatureRow storedValue(String feature, long eventSeconds) {
+    return FeatureRow.newBuilder()
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(eventSeconds))
+        .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal(feature)))
+        .build();
+  }
+
   @Test(timeout = 15000)
   public void shouldRetryFailConnection() throws InterruptedException {
     HashMap<RedisKey, FeatureRow> kvs = new LinkedHashMap<>();